@@ -1,59 +1,163 @@
 package ru.naumen.personalfinancebot;
 
 import org.hibernate.SessionFactory;
+import ru.naumen.personalfinancebot.backup.BackupService;
 import ru.naumen.personalfinancebot.bot.Bot;
 import ru.naumen.personalfinancebot.bot.PoolingException;
 import ru.naumen.personalfinancebot.bot.TelegramBot;
+import ru.naumen.personalfinancebot.configuration.ArchiveConfiguration;
+import ru.naumen.personalfinancebot.configuration.BackupConfiguration;
+import ru.naumen.personalfinancebot.configuration.DailyTotalsIndexConfiguration;
+import ru.naumen.personalfinancebot.configuration.DigestConfiguration;
+import ru.naumen.personalfinancebot.configuration.EmbeddedStorageConfiguration;
 import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.configuration.JournalConfiguration;
+import ru.naumen.personalfinancebot.configuration.RecentOperationsConfiguration;
+import ru.naumen.personalfinancebot.configuration.RepositoryConfiguration;
 import ru.naumen.personalfinancebot.configuration.StandardCategoryConfiguration;
 import ru.naumen.personalfinancebot.configuration.TelegramBotConfiguration;
+import ru.naumen.personalfinancebot.configuration.TransactionConfiguration;
 import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.journal.CommandJournal;
+import ru.naumen.personalfinancebot.journal.JournalReplayer;
 import ru.naumen.personalfinancebot.model.Category;
 import ru.naumen.personalfinancebot.repository.TransactionManager;
 import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
 import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
 import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
-import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.embedded.EmbeddedBudgetRepository;
+import ru.naumen.personalfinancebot.repository.embedded.EmbeddedOperationRepository;
+import ru.naumen.personalfinancebot.repository.embedded.EmbeddedStorage;
 import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
 import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.recurring.HibernateRecurringOperationRepository;
+import ru.naumen.personalfinancebot.repository.recurring.RecurringOperationRepository;
 import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
 import ru.naumen.personalfinancebot.repository.user.UserRepository;
+import ru.naumen.personalfinancebot.service.BudgetRolloverService;
+import ru.naumen.personalfinancebot.service.CacheStatisticsService;
+import ru.naumen.personalfinancebot.service.MonthlyDigestService;
+import ru.naumen.personalfinancebot.service.OperationArchiveService;
+import ru.naumen.personalfinancebot.service.RecurringOperationScheduler;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
  * Программа, запускающая Телеграм-бота
  */
 public class Main {
+    /**
+     * Запускает бота или, если переданы аргументы, выполняет команду резервного копирования
+     * (см. {@link #runBackupCommand(String[])})
+     */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            runBackupCommand(args);
+            return;
+        }
         HibernateConfiguration hibernateConfiguration = new HibernateConfiguration(
                 System.getenv("DB_URL"),
                 System.getenv("DB_USERNAME"),
                 System.getenv("DB_PASSWORD"));
         SessionFactory sessionFactory = hibernateConfiguration.getSessionFactory();
-        TransactionManager transactionManager = new TransactionManager(sessionFactory);
+        TransactionManager transactionManager = new TransactionConfiguration().createTransactionManager(sessionFactory);
+        CacheStatisticsService cacheStatisticsService = new CacheStatisticsService(sessionFactory);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            transactionManager.close();
+            System.out.println(cacheStatisticsService.formatReport());
+        }));
 
         List<Category> standardCategories = new StandardCategoryConfiguration().getStandardCategories();
 
+        RepositoryConfiguration repositoryConfiguration = new RepositoryConfiguration();
         UserRepository userRepository = new HibernateUserRepository();
-        OperationRepository operationRepository = new HibernateOperationRepository();
-        CategoryRepository categoryRepository = new HibernateCategoryRepository(transactionManager, standardCategories);
-        BudgetRepository budgetRepository = new HibernateBudgetRepository();
+        CategoryRepository categoryRepository = repositoryConfiguration.createCategoryRepository(
+                transactionManager, standardCategories);
+        OperationRepository operationRepository;
+        BudgetRepository budgetRepository;
+        // Встроенное хранилище заменяет только хранилища операций и бюджетов, поэтому БД нужна в любом случае.
+        // Сводка, перенос бюджетов, архивирование и регулярные операции работают с операциями и бюджетами в БД
+        // и с ним не запускаются
+        EmbeddedStorage embeddedStorage = new EmbeddedStorageConfiguration().createStorage();
+        if (embeddedStorage != null) {
+            operationRepository = new EmbeddedOperationRepository(embeddedStorage);
+            budgetRepository = new EmbeddedBudgetRepository(embeddedStorage);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    embeddedStorage.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+        } else {
+            HibernateOperationRepository hibernateOperationRepository = repositoryConfiguration
+                    .createOperationRepository(new DailyTotalsIndexConfiguration().createIndex(),
+                            new RecentOperationsConfiguration().createBuffer());
+            operationRepository = hibernateOperationRepository;
+            HibernateBudgetRepository hibernateBudgetRepository = new HibernateBudgetRepository();
+            budgetRepository = hibernateBudgetRepository;
+            OperationArchiveService archiveService = new ArchiveConfiguration()
+                    .createArchiveService(transactionManager, hibernateOperationRepository);
+            if (archiveService != null) {
+                archiveService.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(archiveService::stop));
+            }
+            BudgetRolloverService rolloverService = new BudgetRolloverService(transactionManager,
+                    hibernateBudgetRepository);
+            rolloverService.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(rolloverService::stop));
+        }
+
+        RecurringOperationRepository recurringOperationRepository = new HibernateRecurringOperationRepository();
+        if (embeddedStorage == null) {
+            RecurringOperationScheduler recurringScheduler = new RecurringOperationScheduler(transactionManager,
+                    recurringOperationRepository, operationRepository, userRepository, budgetRepository);
+            recurringScheduler.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(recurringScheduler::stop));
+        }
 
         FinanceBotHandler handler = new FinanceBotHandler(
                 userRepository,
                 operationRepository,
                 categoryRepository,
-                budgetRepository
+                budgetRepository,
+                recurringOperationRepository,
+                transactionManager,
+                embeddedStorage == null
         );
 
+        CommandJournal journal = new JournalConfiguration().createJournal();
         TelegramBotConfiguration configuration = new TelegramBotConfiguration();
         Bot bot = new TelegramBot(
                 configuration,
                 handler,
                 userRepository,
-                transactionManager
+                transactionManager,
+                journal
         );
+        if (embeddedStorage == null) {
+            MonthlyDigestService digestService = new DigestConfiguration()
+                    .createDigestService(transactionManager, bot);
+            if (digestService != null) {
+                digestService.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(digestService::stop));
+            }
+        }
+        if (journal != null) {
+            JournalReplayer journalReplayer = new JournalReplayer(journal, handler, userRepository,
+                    transactionManager, bot);
+            journalReplayer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                journalReplayer.stop();
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+        }
 
         try {
             bot.startPooling();
@@ -62,4 +166,46 @@ public class Main {
             exception.printStackTrace();
         }
     }
+
+    /**
+     * Выполняет команду резервного копирования при остановленном боте:
+     * backup &lt;файл&gt; - сохранить все данные в файл, restore &lt;файл&gt; - восстановить их в пустую БД,
+     * verify &lt;файл&gt; - проверить контрольные суммы файла. БД задается теми же переменными окружения,
+     * что и для бота. При ошибке процесс завершается с ненулевым кодом
+     */
+    private static void runBackupCommand(String[] args) {
+        if (args.length != 2 || !List.of("backup", "restore", "verify").contains(args[0])) {
+            System.err.println("Использование: backup|restore|verify <файл резервной копии>");
+            System.exit(2);
+        }
+        BackupConfiguration backupConfiguration = new BackupConfiguration();
+        SessionFactory sessionFactory = new HibernateConfiguration(
+                System.getenv("DB_URL"),
+                System.getenv("DB_USERNAME"),
+                System.getenv("DB_PASSWORD"),
+                backupConfiguration.getThreads()).getSessionFactory();
+        BackupService backupService = backupConfiguration.createBackupService(sessionFactory);
+        Path file = Path.of(args[1]);
+        boolean failed = false;
+        try {
+            List<BackupService.TableSummary> summaries = switch (args[0]) {
+                case "backup" -> backupService.backup(file);
+                case "restore" -> backupService.restore(file);
+                default -> backupService.verify(file);
+            };
+            for (BackupService.TableSummary summary : summaries) {
+                System.out.printf("%s: строк %d, CRC32 %08x, сжато %d байт%n", summary.table(), summary.rows(),
+                        summary.checksum(), summary.compressedSize());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Команда " + args[0] + " не выполнена: " + e.getMessage());
+            e.printStackTrace();
+            failed = true;
+        } finally {
+            sessionFactory.close();
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
 }
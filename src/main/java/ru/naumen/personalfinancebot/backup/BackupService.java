@@ -0,0 +1,478 @@
+package ru.naumen.personalfinancebot.backup;
+
+import org.hibernate.SessionFactory;
+import ru.naumen.personalfinancebot.backup.exception.BackupFormatException;
+import ru.naumen.personalfinancebot.model.IdSequence;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Резервное копирование и восстановление всех данных бота: пользователей, категорий, бюджетов, операций
+ * и итогов архивных месяцев.
+ * Таблицы читаются и записываются через JDBC, каждая в своей транзакции и своем потоке,
+ * поэтому копию можно снять с PostgreSQL и восстановить в H2 и наоборот.
+ * Копию следует снимать и восстанавливать при остановленном боте: таблицы читаются в разных транзакциях,
+ * а кэши запущенного бота не узнают о восстановленных строках.
+ *
+ * <p>Формат файла: сигнатура (int), версия формата (int), длина оглавления (int), оглавление, затем секции таблиц.
+ * Оглавление: количество секций (int), для каждой - название таблицы (UTF), количество строк (long),
+ * CRC32 несжатых данных (int) и размер сжатых данных (long). Секция - строки таблицы по возрастанию ID
+ * в формате {@link SectionWriter}, сжатые Deflate. Секции сжимаются и распаковываются независимо,
+ * поэтому таблицы обрабатываются параллельно.</p>
+ */
+public class BackupService {
+    /**
+     * Сигнатура файла резервной копии: "PFBK"
+     */
+    private static final int MAGIC = 0x5046424B;
+
+    /**
+     * Версия формата, которую записывает и читает сервис. Версия 2 добавила таблицу регулярных операций,
+     * версия 3 - уровень уведомлений о расходах бюджета, версия 4 - перенос бюджета на новый месяц
+     */
+    private static final int VERSION = 4;
+
+    /**
+     * Сколько строк драйвер БД загружает за одно обращение при чтении таблицы
+     */
+    private static final int FETCH_SIZE = 1000;
+
+    /**
+     * Сколько строк отправляется в БД одним пакетом при восстановлении
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Размер буферов чтения и записи файлов
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Фабрика сессий БД, кэши которой сбрасываются после восстановления
+     */
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Сколько таблиц обрабатывается одновременно. Каждой нужно отдельное соединение с БД
+     */
+    private final int threads;
+
+    /**
+     * @param threads Сколько таблиц обрабатывать одновременно, не больше размера пула соединений
+     */
+    public BackupService(SessionFactory sessionFactory, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным");
+        }
+        this.sessionFactory = sessionFactory;
+        this.transactionManager = new TransactionManager(sessionFactory);
+        this.threads = threads;
+    }
+
+    /**
+     * Записывает все таблицы в файл резервной копии. Если файл существует, он перезаписывается.
+     * Секции таблиц сначала записываются во временные файлы рядом с копией
+     *
+     * @return Сведения о записанных таблицах
+     * @throws IOException если не удалось записать файл
+     */
+    public List<TableSummary> backup(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Map<BackupTable, Path> sectionFiles = new EnumMap<>(BackupTable.class);
+        try {
+            for (BackupTable table : BackupTable.values()) {
+                sectionFiles.put(table, Files.createTempFile(directory, "backup-" + getTableName(table), ".section"));
+            }
+            List<TableSummary> summaries = runParallel(Arrays.asList(BackupTable.values()),
+                    table -> dumpTable(table, sectionFiles.get(table)));
+            writeBackup(file, summaries, sectionFiles);
+            return summaries;
+        } finally {
+            for (Path sectionFile : sectionFiles.values()) {
+                Files.deleteIfExists(sectionFile);
+            }
+        }
+    }
+
+    /**
+     * Проверяет файл резервной копии: распаковывает все секции и сверяет количество строк и контрольные суммы
+     *
+     * @return Сведения о таблицах в копии
+     * @throws BackupFormatException если файл поврежден или записан неподдерживаемой версией формата
+     * @throws IOException           если не удалось прочитать файл
+     */
+    public List<TableSummary> verify(Path file) throws IOException {
+        List<Section> sections = readContents(file);
+        runParallel(sections, section -> verifySection(file, section));
+        return sections.stream().map(Section::summary).toList();
+    }
+
+    /**
+     * Восстанавливает данные из файла резервной копии в пустую БД с сохранением ID строк.
+     * До записи в БД копия целиком проверяется {@link #verify}, при записи контрольные суммы сверяются еще раз.
+     * Таблицы записываются пакетами, каждая в своей транзакции: сначала пользователи, затем параллельно
+     * категории и бюджеты, затем операции и итоги архивных месяцев. После записи последовательность ID сдвигается за наибольший
+     * восстановленный ID
+     *
+     * @return Сведения о восстановленных таблицах
+     * @throws BackupFormatException если файл поврежден или записан неподдерживаемой версией формата
+     * @throws IOException           если не удалось прочитать файл
+     * @throws IllegalStateException если в БД уже есть данные
+     */
+    public List<TableSummary> restore(Path file) throws IOException {
+        List<Section> sections = readContents(file);
+        runParallel(sections, section -> verifySection(file, section));
+        checkTablesEmpty();
+
+        Map<Integer, List<Section>> stages = new TreeMap<>();
+        for (Section section : sections) {
+            stages.computeIfAbsent(section.summary().table().getRestoreStage(), stage -> new ArrayList<>())
+                    .add(section);
+        }
+        long maxId = 0;
+        for (List<Section> stage : stages.values()) {
+            for (long tableMaxId : runParallel(stage, section -> loadSection(file, section))) {
+                maxId = Math.max(maxId, tableMaxId);
+            }
+        }
+        restartIdSequence(maxId);
+        sessionFactory.getCache().evictAllRegions();
+        return sections.stream().map(Section::summary).toList();
+    }
+
+    /**
+     * Читает таблицу в сжатую секцию в отдельной транзакции
+     *
+     * @return Сведения о записанной таблице
+     */
+    private TableSummary dumpTable(BackupTable table, Path sectionFile) throws IOException {
+        SectionWriter[] writer = new SectionWriter[1];
+        transactionManager.produceTransaction(session -> session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(table.getSelectSql());
+                 OutputStream output = new BufferedOutputStream(
+                         new DeflaterOutputStream(Files.newOutputStream(sectionFile)), BUFFER_SIZE)) {
+                statement.setFetchSize(FETCH_SIZE);
+                writer[0] = new SectionWriter(output);
+                try (ResultSet row = statement.executeQuery()) {
+                    while (row.next()) {
+                        table.encode(row, writer[0]);
+                        writer[0].endRow();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        return new TableSummary(table, writer[0].getRowCount(), writer[0].getChecksum(), Files.size(sectionFile));
+    }
+
+    /**
+     * Записывает файл резервной копии: заголовок с оглавлением и секции таблиц
+     */
+    private void writeBackup(Path file, List<TableSummary> summaries, Map<BackupTable, Path> sectionFiles)
+            throws IOException {
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        DataOutputStream contentsOutput = new DataOutputStream(contents);
+        contentsOutput.writeInt(summaries.size());
+        for (TableSummary summary : summaries) {
+            contentsOutput.writeUTF(summary.table().name());
+            contentsOutput.writeLong(summary.rows());
+            contentsOutput.writeInt(summary.checksum());
+            contentsOutput.writeLong(summary.compressedSize());
+        }
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(contents.size());
+            contents.writeTo(output);
+            for (TableSummary summary : summaries) {
+                Files.copy(sectionFiles.get(summary.table()), output);
+            }
+        }
+    }
+
+    /**
+     * Читает заголовок и оглавление файла резервной копии
+     *
+     * @return Секции таблиц с их положением в файле
+     * @throws BackupFormatException если файл не является резервной копией поддерживаемой версии
+     */
+    private List<Section> readContents(Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new BackupFormatException("Файл %s не является резервной копией".formatted(file));
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new BackupFormatException("Версия формата резервной копии %d не поддерживается"
+                        .formatted(version));
+            }
+            int contentsSize = input.readInt();
+            long offset = Integer.BYTES * 3L + contentsSize;
+            int sectionCount = input.readInt();
+            List<Section> sections = new ArrayList<>(sectionCount);
+            Map<BackupTable, Section> tables = new EnumMap<>(BackupTable.class);
+            for (int i = 0; i < sectionCount; i++) {
+                String tableName = input.readUTF();
+                BackupTable table = Arrays.stream(BackupTable.values())
+                        .filter(value -> value.name().equals(tableName))
+                        .findFirst()
+                        .orElseThrow(() -> new BackupFormatException("Неизвестная таблица " + tableName));
+                TableSummary summary = new TableSummary(table, input.readLong(), input.readInt(), input.readLong());
+                Section section = new Section(summary, offset);
+                if (tables.put(table, section) != null) {
+                    throw new BackupFormatException("Таблица %s записана дважды".formatted(tableName));
+                }
+                sections.add(section);
+                offset += summary.compressedSize();
+            }
+            if (tables.size() != BackupTable.values().length) {
+                throw new BackupFormatException("В резервной копии записаны не все таблицы");
+            }
+            return sections;
+        } catch (EOFException e) {
+            throw new BackupFormatException("Заголовок резервной копии %s оборван".formatted(file), e);
+        }
+    }
+
+    /**
+     * Распаковывает секцию и сверяет количество строк и контрольную сумму с оглавлением
+     */
+    private Void verifySection(Path file, Section section) throws IOException {
+        try (InputStream input = openSection(file, section)) {
+            SectionReader reader = new SectionReader(input, getTableName(section.summary().table()));
+            while (reader.nextRow()) {
+                // строки только читаются, контрольная сумма считается при чтении
+            }
+            checkSection(section, reader);
+        }
+        return null;
+    }
+
+    /**
+     * Записывает строки секции в БД пакетами в отдельной транзакции. Если контрольная сумма
+     * прочитанных строк не совпала с оглавлением, транзакция откатывается
+     *
+     * @return Наибольший ID записанных строк
+     */
+    private long loadSection(Path file, Section section) {
+        BackupTable table = section.summary().table();
+        long[] maxId = new long[1];
+        transactionManager.produceTransaction(session -> session.doWork(connection -> {
+            try (InputStream input = openSection(file, section);
+                 PreparedStatement statement = connection.prepareStatement(table.getInsertSql())) {
+                SectionReader reader = new SectionReader(input, getTableName(table));
+                int batchSize = 0;
+                while (reader.nextRow()) {
+                    maxId[0] = Math.max(maxId[0], table.decode(reader, statement));
+                    statement.addBatch();
+                    if (++batchSize == BATCH_SIZE) {
+                        statement.executeBatch();
+                        batchSize = 0;
+                    }
+                }
+                if (batchSize > 0) {
+                    statement.executeBatch();
+                }
+                checkSection(section, reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        return maxId[0];
+    }
+
+    /**
+     * Открывает поток несжатых данных секции
+     */
+    private InputStream openSection(Path file, Section section) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            channel.position(section.offset());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BufferedInputStream(new InflaterInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE)), BUFFER_SIZE);
+    }
+
+    /**
+     * Сверяет количество прочитанных строк и их контрольную сумму с оглавлением
+     *
+     * @throws BackupFormatException если они не совпадают
+     */
+    private static void checkSection(Section section, SectionReader reader) throws BackupFormatException {
+        TableSummary summary = section.summary();
+        if (reader.getRowCount() != summary.rows() || reader.getChecksum() != summary.checksum()) {
+            throw new BackupFormatException(("Таблица %s повреждена: прочитано строк %d с контрольной суммой %08x, "
+                    + "ожидалось строк %d с контрольной суммой %08x").formatted(getTableName(summary.table()),
+                    reader.getRowCount(), reader.getChecksum(), summary.rows(), summary.checksum()));
+        }
+    }
+
+    /**
+     * Проверяет, что во всех таблицах нет строк
+     *
+     * @throws IllegalStateException если в какой-либо таблице есть строки
+     */
+    private void checkTablesEmpty() {
+        List<String> nonEmptyTables = new ArrayList<>();
+        transactionManager.produceTransaction(session -> session.doWork(connection -> {
+            for (BackupTable table : BackupTable.values()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.setMaxRows(1);
+                    try (ResultSet row = statement.executeQuery("select 1 from " + getTableName(table))) {
+                        if (row.next()) {
+                            nonEmptyTables.add(getTableName(table));
+                        }
+                    }
+                }
+            }
+        }));
+        if (!nonEmptyTables.isEmpty()) {
+            throw new IllegalStateException("Резервная копия восстанавливается только в пустую БД, "
+                    + "но в таблицах есть строки: " + String.join(", ", nonEmptyTables));
+        }
+    }
+
+    /**
+     * Сдвигает последовательность ID так, чтобы Hibernate, резервирующий сразу
+     * {@link IdSequence#ALLOCATION_SIZE} значений, не выдал ID восстановленных строк
+     */
+    private void restartIdSequence(long maxId) {
+        String sql = "alter sequence %s restart with %d"
+                .formatted(IdSequence.NAME, maxId + IdSequence.ALLOCATION_SIZE + 1);
+        transactionManager.produceTransaction(session -> session.doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            }
+        }));
+    }
+
+    /**
+     * Выполняет задачу для каждого элемента не более чем в {@link #threads} потоках
+     *
+     * @return Результаты задач в порядке элементов
+     * @throws IOException первая ошибка ввода-вывода задач, в том числе переданная через транзакцию
+     */
+    private <S, T> List<T> runParallel(List<S> items, ParallelTask<S, T> task) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, items.size()));
+        try {
+            List<Future<T>> futures = new ArrayList<>(items.size());
+            for (S item : items) {
+                futures.add(executor.submit(() -> task.run(item)));
+            }
+            List<T> results = new ArrayList<>(items.size());
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Дожидается результата задачи. Ошибка ввода-вывода извлекается из исключений-оберток,
+     * в которые её помещают транзакции
+     */
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Резервное копирование прервано");
+        } catch (ExecutionException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof ZipException) {
+                    throw new BackupFormatException("Сжатые данные резервной копии повреждены", cause);
+                }
+                if (cause instanceof EOFException) {
+                    throw new BackupFormatException("Резервная копия оборвана", cause);
+                }
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return Название таблицы в БД
+     */
+    private static String getTableName(BackupTable table) {
+        return table.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Задача, выполняемая параллельно для элемента списка
+     */
+    @FunctionalInterface
+    private interface ParallelTask<S, T> {
+        T run(S item) throws IOException;
+    }
+
+    /**
+     * Секция таблицы в файле резервной копии
+     *
+     * @param summary Сведения о таблице из оглавления
+     * @param offset  Позиция начала сжатых данных в файле
+     */
+    private record Section(TableSummary summary, long offset) {
+    }
+
+    /**
+     * Сведения о таблице в резервной копии
+     *
+     * @param table          Таблица
+     * @param rows           Количество строк
+     * @param checksum       CRC32 несжатых данных секции
+     * @param compressedSize Размер сжатых данных секции в байтах
+     */
+    public record TableSummary(BackupTable table, long rows, int checksum, long compressedSize) {
+    }
+}
@@ -0,0 +1,272 @@
+package ru.naumen.personalfinancebot.backup;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+
+/**
+ * Таблица, которая сохраняется в резервную копию, с запросами чтения и вставки и кодированием её строк.
+ * Запросы используют только стандартный SQL, поэтому копию, снятую с PostgreSQL, можно восстановить в H2
+ * и наоборот. Порядок констант - порядок секций в файле
+ */
+public enum BackupTable {
+    /**
+     * Пользователи
+     */
+    USERS(0, "select id, chat_id, balance, budget_rollover from users order by id",
+            "insert into users (id, chat_id, balance, budget_rollover) values (?, ?, ?, ?)") {
+        @Override
+        long encode(ResultSet row, SectionWriter writer) throws SQLException {
+            long id = row.getLong(1);
+            writer.writeId(id);
+            writer.writeLong(row.getLong(2));
+            writer.writeLong(row.getLong(3));
+            writer.writeLong(row.getBoolean(4) ? 1 : 0);
+            return id;
+        }
+
+        @Override
+        long decode(SectionReader reader, PreparedStatement statement) throws SQLException, IOException {
+            long id = reader.readId();
+            statement.setLong(1, id);
+            statement.setLong(2, reader.readLong());
+            statement.setLong(3, reader.readLong());
+            statement.setBoolean(4, reader.readLong() != 0);
+            return id;
+        }
+    },
+
+    /**
+     * Категории: стандартные, без пользователя, и категории пользователей
+     */
+    CATEGORIES(1, "select id, user_id, category_name, type from categories order by id",
+            "insert into categories (id, user_id, category_name, type) values (?, ?, ?, ?)") {
+        @Override
+        long encode(ResultSet row, SectionWriter writer) throws SQLException {
+            long id = row.getLong(1);
+            writer.writeId(id);
+            writer.writeReference(row.getObject(2, Long.class));
+            writer.writeString(row.getString(3));
+            writer.writeLong(row.getInt(4));
+            return id;
+        }
+
+        @Override
+        long decode(SectionReader reader, PreparedStatement statement) throws SQLException, IOException {
+            long id = reader.readId();
+            statement.setLong(1, id);
+            setReference(statement, 2, reader.readReference());
+            statement.setString(3, reader.readString());
+            statement.setInt(4, (int) reader.readLong());
+            return id;
+        }
+    },
+
+    /**
+     * Бюджеты пользователей
+     */
+    BUDGETS(1, "select id, user_id, income, expense, target_date, expense_alert_percent from budgets order by id",
+            "insert into budgets (id, user_id, income, expense, target_date, expense_alert_percent) "
+                    + "values (?, ?, ?, ?, ?, ?)") {
+        @Override
+        long encode(ResultSet row, SectionWriter writer) throws SQLException {
+            long id = row.getLong(1);
+            writer.writeId(id);
+            writer.writeReference(row.getObject(2, Long.class));
+            writer.writeLong(row.getLong(3));
+            writer.writeLong(row.getLong(4));
+            writer.writeDate(row.getObject(5, LocalDate.class));
+            writer.writeLong(row.getInt(6));
+            return id;
+        }
+
+        @Override
+        long decode(SectionReader reader, PreparedStatement statement) throws SQLException, IOException {
+            long id = reader.readId();
+            statement.setLong(1, id);
+            setReference(statement, 2, reader.readReference());
+            statement.setLong(3, reader.readLong());
+            statement.setLong(4, reader.readLong());
+            setDate(statement, 5, reader.readDate());
+            statement.setInt(6, (int) reader.readLong());
+            return id;
+        }
+    },
+
+    /**
+     * Операции пользователей
+     */
+    OPERATIONS(2, "select id, user_id, category_id, payment, created_at, journal_entry_id from operations order by id",
+            "insert into operations (id, user_id, category_id, payment, created_at, journal_entry_id) "
+                    + "values (?, ?, ?, ?, ?, ?)") {
+        @Override
+        long encode(ResultSet row, SectionWriter writer) throws SQLException {
+            long id = row.getLong(1);
+            writer.writeId(id);
+            writer.writeReference(row.getObject(2, Long.class));
+            writer.writeReference(row.getObject(3, Long.class));
+            writer.writeLong(row.getLong(4));
+            writer.writeDate(row.getObject(5, LocalDate.class));
+            writer.writeString(row.getString(6));
+            return id;
+        }
+
+        @Override
+        long decode(SectionReader reader, PreparedStatement statement) throws SQLException, IOException {
+            long id = reader.readId();
+            statement.setLong(1, id);
+            setReference(statement, 2, reader.readReference());
+            setReference(statement, 3, reader.readReference());
+            statement.setLong(4, reader.readLong());
+            setDate(statement, 5, reader.readDate());
+            statement.setString(6, reader.readString());
+            return id;
+        }
+    },
+
+    /**
+     * Итоги архивных месяцев
+     */
+    OPERATION_SUMMARIES(2, "select id, user_id, category_id, month_start, payment, operation_count "
+            + "from operation_summaries order by id",
+            "insert into operation_summaries (id, user_id, category_id, month_start, payment, operation_count) "
+                    + "values (?, ?, ?, ?, ?, ?)") {
+        @Override
+        long encode(ResultSet row, SectionWriter writer) throws SQLException {
+            long id = row.getLong(1);
+            writer.writeId(id);
+            writer.writeReference(row.getLong(2));
+            writer.writeReference(row.getLong(3));
+            writer.writeDate(row.getObject(4, LocalDate.class));
+            writer.writeLong(row.getLong(5));
+            writer.writeLong(row.getLong(6));
+            return id;
+        }
+
+        @Override
+        long decode(SectionReader reader, PreparedStatement statement) throws SQLException, IOException {
+            long id = reader.readId();
+            statement.setLong(1, id);
+            setReference(statement, 2, reader.readReference());
+            setReference(statement, 3, reader.readReference());
+            setDate(statement, 4, reader.readDate());
+            statement.setLong(5, reader.readLong());
+            statement.setLong(6, reader.readLong());
+            return id;
+        }
+    },
+
+    /**
+     * Правила регулярных операций
+     */
+    RECURRING_OPERATIONS(2, "select id, user_id, category_id, payment, day_of_month, next_due "
+            + "from recurring_operations order by id",
+            "insert into recurring_operations (id, user_id, category_id, payment, day_of_month, next_due) "
+                    + "values (?, ?, ?, ?, ?, ?)") {
+        @Override
+        long encode(ResultSet row, SectionWriter writer) throws SQLException {
+            long id = row.getLong(1);
+            writer.writeId(id);
+            writer.writeReference(row.getLong(2));
+            writer.writeReference(row.getLong(3));
+            writer.writeLong(row.getLong(4));
+            writer.writeLong(row.getInt(5));
+            writer.writeDate(row.getObject(6, LocalDate.class));
+            return id;
+        }
+
+        @Override
+        long decode(SectionReader reader, PreparedStatement statement) throws SQLException, IOException {
+            long id = reader.readId();
+            statement.setLong(1, id);
+            setReference(statement, 2, reader.readReference());
+            setReference(statement, 3, reader.readReference());
+            statement.setLong(4, reader.readLong());
+            statement.setInt(5, (int) reader.readLong());
+            setDate(statement, 6, reader.readDate());
+            return id;
+        }
+    };
+
+    /**
+     * Этап восстановления: таблицы одного этапа восстанавливаются параллельно,
+     * после таблиц предыдущих этапов, на строки которых они ссылаются
+     */
+    private final int restoreStage;
+
+    /**
+     * Запрос всех строк таблицы по возрастанию ID
+     */
+    private final String selectSql;
+
+    /**
+     * Запрос вставки одной строки
+     */
+    private final String insertSql;
+
+    BackupTable(int restoreStage, String selectSql, String insertSql) {
+        this.restoreStage = restoreStage;
+        this.selectSql = selectSql;
+        this.insertSql = insertSql;
+    }
+
+    /**
+     * @return Этап восстановления таблицы
+     */
+    int getRestoreStage() {
+        return restoreStage;
+    }
+
+    /**
+     * @return Запрос всех строк таблицы по возрастанию ID
+     */
+    String getSelectSql() {
+        return selectSql;
+    }
+
+    /**
+     * @return Запрос вставки одной строки
+     */
+    String getInsertSql() {
+        return insertSql;
+    }
+
+    /**
+     * Записывает текущую строку результата запроса {@link #getSelectSql()} в секцию
+     *
+     * @return ID строки
+     */
+    abstract long encode(ResultSet row, SectionWriter writer) throws SQLException;
+
+    /**
+     * Читает колонки текущей строки секции в параметры запроса {@link #getInsertSql()}
+     *
+     * @return ID строки
+     */
+    abstract long decode(SectionReader reader, PreparedStatement statement) throws SQLException, IOException;
+
+    /**
+     * Устанавливает параметр-ссылку на другую строку, который может быть NULL
+     */
+    private static void setReference(PreparedStatement statement, int index, Long id) throws SQLException {
+        if (id == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, id);
+        }
+    }
+
+    /**
+     * Устанавливает параметр-дату, который может быть NULL
+     */
+    private static void setDate(PreparedStatement statement, int index, LocalDate date) throws SQLException {
+        if (date == null) {
+            statement.setNull(index, Types.DATE);
+        } else {
+            statement.setObject(index, date);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package ru.naumen.personalfinancebot.backup;
+
+import ru.naumen.personalfinancebot.backup.exception.BackupFormatException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * Чтение строк секции резервной копии, записанной {@link SectionWriter}.
+ * Колонки читаются в том же порядке, в котором записаны. Если строка длиннее, чем прочитано колонок,
+ * остаток пропускается: так более новая версия формата может дописывать колонки в конец строки
+ */
+final class SectionReader {
+    /**
+     * Поток секции, обычно распаковывающий
+     */
+    private final InputStream input;
+
+    /**
+     * Название таблицы для сообщений об ошибках
+     */
+    private final String tableName;
+
+    /**
+     * Контрольная сумма прочитанных байт
+     */
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * Буфер текущей строки
+     */
+    private byte[] row = new byte[64];
+
+    /**
+     * Длина текущей строки
+     */
+    private int rowLength;
+
+    /**
+     * Позиция чтения в текущей строке
+     */
+    private int position;
+
+    /**
+     * ID предыдущей строки
+     */
+    private long previousId;
+
+    /**
+     * Количество прочитанных строк
+     */
+    private long rowCount;
+
+    SectionReader(InputStream input, String tableName) {
+        this.input = input;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Читает следующую строку
+     *
+     * @return false, если строки закончились
+     * @throws BackupFormatException если строка оборвана
+     */
+    boolean nextRow() throws IOException {
+        int first = input.read();
+        if (first < 0) {
+            return false;
+        }
+        checksum.update(first);
+        int length = first & 0x7F;
+        for (int shift = 7; (first & 0x80) != 0; shift += 7) {
+            first = input.read();
+            if (first < 0 || shift > 28) {
+                throw corrupted();
+            }
+            checksum.update(first);
+            length |= (first & 0x7F) << shift;
+        }
+        if (length > row.length) {
+            row = new byte[Math.max(length, row.length * 2)];
+        }
+        if (input.readNBytes(row, 0, length) != length) {
+            throw corrupted();
+        }
+        checksum.update(row, 0, length);
+        rowLength = length;
+        position = 0;
+        rowCount++;
+        return true;
+    }
+
+    /**
+     * Читает ID строки, записанный разностью с ID предыдущей строки
+     */
+    long readId() throws BackupFormatException {
+        previousId += readLong();
+        return previousId;
+    }
+
+    /**
+     * Читает ID связанной строки или null
+     */
+    Long readReference() throws BackupFormatException {
+        long value = readUnsigned();
+        return value == 0 ? null : value - 1;
+    }
+
+    /**
+     * Читает число
+     */
+    long readLong() throws BackupFormatException {
+        return unZigZag(readUnsigned());
+    }
+
+    /**
+     * Читает строку или null
+     */
+    String readString() throws BackupFormatException {
+        long length = readUnsigned();
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > rowLength - position) {
+            throw corrupted();
+        }
+        String value = new String(row, position, (int) length - 1, StandardCharsets.UTF_8);
+        position += (int) length - 1;
+        return value;
+    }
+
+    /**
+     * Читает дату или null
+     */
+    LocalDate readDate() throws BackupFormatException {
+        long value = readUnsigned();
+        return value == 0 ? null : LocalDate.ofEpochDay(unZigZag(value - 1));
+    }
+
+    /**
+     * @return Количество прочитанных строк
+     */
+    long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return Контрольная сумма CRC32 прочитанных байт
+     */
+    int getChecksum() {
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Читает неотрицательное число varint
+     */
+    private long readUnsigned() throws BackupFormatException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= rowLength) {
+                throw corrupted();
+            }
+            byte b = row[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw corrupted();
+    }
+
+    /**
+     * Ошибка формата: строка оборвана или в ней недостаточно колонок
+     */
+    private BackupFormatException corrupted() {
+        return new BackupFormatException("Повреждена строка %d таблицы %s".formatted(rowCount + 1, tableName),
+                new EOFException());
+    }
+
+    /**
+     * Обратное зигзаг-кодирование
+     */
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
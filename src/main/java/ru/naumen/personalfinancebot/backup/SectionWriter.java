@@ -0,0 +1,161 @@
+package ru.naumen.personalfinancebot.backup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Запись строк одной таблицы в секцию резервной копии.
+ * Строка записывается длиной в байтах (varint), затем значениями колонок:
+ * ID строки - разностью с ID предыдущей строки, остальные числа - varint в зигзаг-кодировании,
+ * поэтому маленькие значения занимают один-два байта.
+ * Контрольная сумма считается по несжатым байтам секции
+ */
+final class SectionWriter {
+    /**
+     * Поток секции, обычно сжимающий
+     */
+    private final OutputStream output;
+
+    /**
+     * Контрольная сумма записанных байт
+     */
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * Буфер текущей строки
+     */
+    private byte[] row = new byte[64];
+
+    /**
+     * Длина текущей строки
+     */
+    private int rowLength;
+
+    /**
+     * Буфер длины строки
+     */
+    private final byte[] lengthPrefix = new byte[5];
+
+    /**
+     * ID предыдущей строки
+     */
+    private long previousId;
+
+    /**
+     * Количество записанных строк
+     */
+    private long rowCount;
+
+    SectionWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    /**
+     * Записывает ID строки разностью с ID предыдущей строки
+     */
+    void writeId(long id) {
+        writeLong(id - previousId);
+        previousId = id;
+    }
+
+    /**
+     * Записывает ID связанной строки или null
+     */
+    void writeReference(Long id) {
+        writeUnsigned(id == null ? 0 : id + 1);
+    }
+
+    /**
+     * Записывает число
+     */
+    void writeLong(long value) {
+        writeUnsigned(zigZag(value));
+    }
+
+    /**
+     * Записывает строку в UTF-8 или null
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeUnsigned(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsigned(bytes.length + 1L);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, row, rowLength, bytes.length);
+        rowLength += bytes.length;
+    }
+
+    /**
+     * Записывает дату номером дня от 01.01.1970 или null
+     */
+    void writeDate(LocalDate date) {
+        writeUnsigned(date == null ? 0 : zigZag(date.toEpochDay()) + 1);
+    }
+
+    /**
+     * Дописывает текущую строку в секцию с её длиной
+     */
+    void endRow() throws IOException {
+        int prefixLength = 0;
+        int length = rowLength;
+        while ((length & ~0x7F) != 0) {
+            lengthPrefix[prefixLength++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        lengthPrefix[prefixLength++] = (byte) length;
+        output.write(lengthPrefix, 0, prefixLength);
+        output.write(row, 0, rowLength);
+        checksum.update(lengthPrefix, 0, prefixLength);
+        checksum.update(row, 0, rowLength);
+        rowLength = 0;
+        rowCount++;
+    }
+
+    /**
+     * @return Количество записанных строк
+     */
+    long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return Контрольная сумма CRC32 записанных байт
+     */
+    int getChecksum() {
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Записывает неотрицательное число varint: по 7 бит в байте, старший бит - признак продолжения
+     */
+    private void writeUnsigned(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            row[rowLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        row[rowLength++] = (byte) value;
+    }
+
+    /**
+     * Увеличивает буфер строки так, чтобы в него поместилось еще bytes байт
+     */
+    private void ensureCapacity(int bytes) {
+        if (rowLength + bytes > row.length) {
+            row = Arrays.copyOf(row, Math.max(row.length * 2, rowLength + bytes));
+        }
+    }
+
+    /**
+     * Зигзаг-кодирование: числа, близкие к нулю, в том числе отрицательные, становятся маленькими положительными
+     */
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
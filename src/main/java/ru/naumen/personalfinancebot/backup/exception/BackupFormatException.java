@@ -0,0 +1,17 @@
+package ru.naumen.personalfinancebot.backup.exception;
+
+import java.io.IOException;
+
+/**
+ * Исключение, выбрасываемое в случае, если файл не является резервной копией, записан неподдерживаемой
+ * версией формата или поврежден: не совпадает контрольная сумма или количество строк таблицы
+ */
+public class BackupFormatException extends IOException {
+    public BackupFormatException(String message) {
+        super(message);
+    }
+
+    public BackupFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
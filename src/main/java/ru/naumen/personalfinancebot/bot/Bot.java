@@ -2,6 +2,10 @@ package ru.naumen.personalfinancebot.bot;
 
 import ru.naumen.personalfinancebot.model.User;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
 /**
  * Описание методов для бота
  */
@@ -15,4 +19,25 @@ public interface Bot {
      * Отправка текстового сообщения определенному пользователю
      */
     void sendMessage(User user, String text);
+
+    /**
+     * Отправка текстового сообщения в чат с указанным ID
+     */
+    void sendMessage(long chatId, String text);
+
+    /**
+     * Открывает для чтения документ, присланный пользователем. Поток нужно закрыть после чтения
+     *
+     * @param documentId ID документа из {@link ru.naumen.personalfinancebot.handler.commandData.CommandData}
+     * @throws IOException если документ не удалось загрузить
+     */
+    InputStream openDocument(String documentId) throws IOException;
+
+    /**
+     * Отправляет файл документом в чат с указанным ID
+     *
+     * @param fileName Имя файла, которое увидит пользователь
+     * @param file     Файл. Его можно удалить после возврата из метода
+     */
+    void sendDocument(long chatId, String fileName, Path file);
 }
@@ -0,0 +1,87 @@
+package ru.naumen.personalfinancebot.bot;
+
+import ru.naumen.personalfinancebot.model.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Бот, который не отправляет сообщения сразу, а накапливает их до вызова {@link #flush()}.
+ * Нужен, чтобы ответ на команду уходил только после фиксации ее транзакции
+ */
+public class BufferedBot implements Bot {
+    /**
+     * Бот, через который отправляются накопленные сообщения
+     */
+    private final Bot bot;
+
+    /**
+     * Накопленные сообщения
+     */
+    private final List<BufferedMessage> messages = new ArrayList<>();
+
+    /**
+     * @param bot Бот, через который отправляются накопленные сообщения
+     */
+    public BufferedBot(Bot bot) {
+        this.bot = bot;
+    }
+
+    @Override
+    public void startPooling() throws PoolingException {
+        bot.startPooling();
+    }
+
+    @Override
+    public void sendMessage(User user, String text) {
+        sendMessage(user.getChatId(), text);
+    }
+
+    @Override
+    public void sendMessage(long chatId, String text) {
+        messages.add(new BufferedMessage(chatId, text));
+    }
+
+    /**
+     * Документ нельзя отложить до фиксации транзакции, так как файл удаляется после отправки,
+     * поэтому команды с групповой фиксацией не отправляют документы
+     */
+    @Override
+    public void sendDocument(long chatId, String fileName, Path file) {
+        throw new UnsupportedOperationException("Команды с групповой фиксацией не могут отправлять документы");
+    }
+
+    @Override
+    public InputStream openDocument(String documentId) throws IOException {
+        return bot.openDocument(documentId);
+    }
+
+    /**
+     * Отправляет накопленные сообщения и очищает их
+     */
+    public void flush() {
+        for (BufferedMessage message : messages) {
+            bot.sendMessage(message.chatId(), message.text());
+        }
+        messages.clear();
+    }
+
+    /**
+     * Удаляет накопленные сообщения без отправки
+     */
+    public void clear() {
+        messages.clear();
+    }
+
+    /**
+     * Накопленное сообщение
+     *
+     * @param chatId ID чата
+     * @param text   Текст сообщения
+     */
+    private record BufferedMessage(long chatId, String text) {
+    }
+}
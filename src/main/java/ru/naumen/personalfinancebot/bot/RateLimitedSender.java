@@ -0,0 +1,159 @@
+package ru.naumen.personalfinancebot.bot;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь исходящих сообщений, которые отправляются через бота в отдельном потоке не чаще заданной частоты.
+ * Нужна для массовых рассылок: Telegram ограничивает количество сообщений в секунду, а очередь ограниченного
+ * размера приостанавливает того, кто добавляет сообщения, пока отправка не догонит его
+ */
+public class RateLimitedSender implements AutoCloseable {
+    /**
+     * Бот, через который отправляются сообщения
+     */
+    private final Bot bot;
+
+    /**
+     * Минимальный интервал между отправками сообщений в наносекундах
+     */
+    private final long intervalNanos;
+
+    /**
+     * Сообщения, ожидающие отправки
+     */
+    private final BlockingQueue<OutboundMessage> queue;
+
+    /**
+     * Поток, в котором отправляются сообщения
+     */
+    private final Thread senderThread;
+
+    /**
+     * Количество добавленных, но еще не отправленных сообщений. Защищено монитором объекта
+     */
+    private long unsent;
+
+    /**
+     * Остановлена ли отправка. Защищено монитором объекта
+     */
+    private boolean closed;
+
+    /**
+     * @param bot               Бот, через который отправляются сообщения
+     * @param messagesPerSecond Максимальное количество сообщений в секунду
+     * @param capacity          Максимальное количество сообщений, ожидающих отправки
+     * @throws IllegalArgumentException если частота или размер очереди не положительные
+     */
+    public RateLimitedSender(Bot bot, int messagesPerSecond, int capacity) {
+        if (messagesPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Частота отправки и размер очереди должны быть положительными");
+        }
+        this.bot = bot;
+        this.intervalNanos = Duration.ofSeconds(1).toNanos() / messagesPerSecond;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.senderThread = new Thread(this::sendMessages, "rate-limited-sender");
+        this.senderThread.setDaemon(true);
+        this.senderThread.start();
+    }
+
+    /**
+     * Добавляет сообщение в очередь отправки. Если очередь заполнена, ждет, пока в ней освободится место
+     *
+     * @throws InterruptedException если поток прерван во время ожидания
+     * @throws IllegalStateException если отправка остановлена
+     */
+    public void send(long chatId, String text) throws InterruptedException {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Отправка сообщений остановлена");
+            }
+            unsent++;
+        }
+        try {
+            queue.put(new OutboundMessage(chatId, text));
+        } catch (InterruptedException e) {
+            markSent();
+            throw e;
+        }
+    }
+
+    /**
+     * Ждет, пока будут отправлены все добавленные сообщения или отправка будет остановлена
+     *
+     * @return Отправлены ли все добавленные сообщения
+     * @throws InterruptedException если поток прерван во время ожидания
+     */
+    public synchronized boolean awaitSent() throws InterruptedException {
+        while (unsent > 0 && !closed) {
+            wait();
+        }
+        return unsent == 0;
+    }
+
+    /**
+     * Останавливает отправку. Сообщения, которые еще не отправлены, отбрасываются
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        senderThread.interrupt();
+        try {
+            senderThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Отправляет сообщения из очереди, выдерживая интервал между отправками. Ошибка отправки одного сообщения
+     * не останавливает отправку остальных
+     */
+    private void sendMessages() {
+        long nextSendNanos = System.nanoTime();
+        try {
+            while (true) {
+                OutboundMessage message = queue.take();
+                long delay = nextSendNanos - System.nanoTime();
+                if (delay > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                }
+                try {
+                    bot.sendMessage(message.chatId(), message.text());
+                } catch (RuntimeException e) {
+                    System.err.println("Не удалось отправить сообщение в чат " + message.chatId() + ":");
+                    e.printStackTrace();
+                } finally {
+                    markSent();
+                }
+                nextSendNanos = Math.max(nextSendNanos, System.nanoTime() - intervalNanos) + intervalNanos;
+            }
+        } catch (InterruptedException e) {
+            // Отправка остановлена методом close
+        }
+    }
+
+    /**
+     * Уменьшает количество неотправленных сообщений и будит ожидающих в {@link #awaitSent()}
+     */
+    private synchronized void markSent() {
+        unsent--;
+        if (unsent == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Сообщение, ожидающее отправки
+     *
+     * @param chatId ID чата
+     * @param text   Текст сообщения
+     */
+    private record OutboundMessage(long chatId, String text) {
+    }
+}
@@ -1,20 +1,34 @@
 package ru.naumen.personalfinancebot.bot;
 
+import org.hibernate.Session;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.GetFile;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.File;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 import ru.naumen.personalfinancebot.configuration.TelegramBotConfiguration;
 import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.command.CommandRequirement;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.journal.CommandJournal;
+import ru.naumen.personalfinancebot.journal.ConnectionFailures;
+import ru.naumen.personalfinancebot.journal.JournalEntry;
+import ru.naumen.personalfinancebot.journal.exception.JournalFullException;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.TransactionManager;
 import ru.naumen.personalfinancebot.repository.user.UserRepository;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Телеграм бот
@@ -22,6 +36,17 @@ import java.util.Optional;
 public class TelegramBot extends TelegramLongPollingBot implements Bot {
     private static final String POLLING_EXCEPTION = "При запуске Телеграм Бота произошла ошибка. ";
 
+    /**
+     * Сообщение о том, что команда принята в журнал и будет выполнена, когда станет доступна БД
+     */
+    private static final String COMMAND_ACCEPTED =
+            "Команда принята и будет выполнена в ближайшее время. Результат придет отдельным сообщением";
+
+    /**
+     * Сообщение о том, что команда не может быть принята
+     */
+    private static final String SERVICE_UNAVAILABLE = "Сервис временно недоступен. Попробуйте позже";
+
     /**
      * Настройки для телеграм бота
      */
@@ -42,6 +67,11 @@ public class TelegramBot extends TelegramLongPollingBot implements Bot {
      */
     private final TransactionManager transactionManager;
 
+    /**
+     * Журнал команд, принятых во время недоступности БД, или null, если журнал выключен
+     */
+    private final CommandJournal journal;
+
     /**
      * @param configuration      Настройки для телеграм бота
      * @param botHandler         Класс-оработчик комманд
@@ -49,11 +79,25 @@ public class TelegramBot extends TelegramLongPollingBot implements Bot {
      * @param transactionManager Менеджер транзакций
      */
     public TelegramBot(TelegramBotConfiguration configuration, FinanceBotHandler botHandler, UserRepository userRepository, TransactionManager transactionManager) {
+        this(configuration, botHandler, userRepository, transactionManager, null);
+    }
+
+    /**
+     * @param configuration      Настройки для телеграм бота
+     * @param botHandler         Класс-оработчик комманд
+     * @param userRepository     Репозиторий для работы с пользователем
+     * @param transactionManager Менеджер транзакций
+     * @param journal            Журнал команд, принятых во время недоступности БД, или null
+     */
+    public TelegramBot(TelegramBotConfiguration configuration, FinanceBotHandler botHandler,
+                       UserRepository userRepository, TransactionManager transactionManager,
+                       CommandJournal journal) {
         super(configuration.getBotToken());
         this.configuration = configuration;
         this.botHandler = botHandler;
         this.userRepository = userRepository;
         this.transactionManager = transactionManager;
+        this.journal = journal;
     }
 
     /**
@@ -61,21 +105,55 @@ public class TelegramBot extends TelegramLongPollingBot implements Bot {
      */
     @Override
     public void onUpdateReceived(Update update) {
-        if (update.hasMessage() && update.getMessage().hasText() && update.getMessage().getText().startsWith("/")) {
+        String text = update.hasMessage() ? getCommandText(update.getMessage()) : null;
+        if (text != null && text.startsWith("/")) {
             try {
-                transactionManager.produceTransaction(session -> {
-                    Long chatId = update.getMessage().getChatId();
-                    Optional<User> user = this.userRepository.getUserByTelegramChatId(session, chatId);
-                    if (user.isEmpty()) {
-                        user = Optional.of(new User(chatId, 0));
-                        this.userRepository.saveUser(session, user.get());
-                    }
-                    List<String> msgWords = List.of(update.getMessage().getText().split(" "));
-                    String cmdName = msgWords.get(0).substring(1);
-                    List<String> args = msgWords.subList(1, msgWords.size());
-                    CommandData commandData = new CommandData(this, user.get(), cmdName, args);
-                    this.botHandler.handleCommand(commandData, session);
-                });
+                long chatId = update.getMessage().getChatId();
+                String documentId = update.getMessage().hasDocument()
+                        ? update.getMessage().getDocument().getFileId()
+                        : null;
+                List<String> msgWords = List.of(text.split(" "));
+                String cmdName = msgWords.get(0).substring(1);
+                List<String> args = msgWords.subList(1, msgWords.size());
+                if (this.botHandler.getRequirement(cmdName) == CommandRequirement.NONE) {
+                    // Обработчику не нужна сессия, поэтому транзакция не открывается
+                    CommandData commandData = new CommandData(this, chatId, () -> {
+                        throw new IllegalStateException("Команда /%s не может использовать пользователя"
+                                .formatted(cmdName));
+                    }, cmdName, args);
+                    this.botHandler.handleCommand(commandData, null);
+                    return;
+                }
+                JournalEntry journalEntry = this.journal != null && this.botHandler.isJournalSupported(cmdName)
+                        ? JournalEntry.create(chatId, cmdName, args)
+                        : null;
+                if (journalEntry != null && !this.journal.isEmpty()) {
+                    // Пока в журнале есть невыполненные команды, новые команды добавляются за ними,
+                    // чтобы выполниться по порядку
+                    appendToJournal(journalEntry);
+                    return;
+                }
+                if (this.botHandler.isGroupCommitSupported(cmdName)) {
+                    // Ответ отправляется только после фиксации транзакции, общей с другими командами
+                    BufferedBot replies = new BufferedBot(this);
+                    transactionManager.produceGroupedTransaction(session -> {
+                        replies.clear();
+                        this.botHandler.handleCommand(
+                                createCommandData(replies, session, chatId, cmdName, args, journalEntry, documentId),
+                                session);
+                    }, replies::flush).exceptionally(e -> {
+                        handleCommandFailure(e, journalEntry);
+                        return null;
+                    });
+                    return;
+                }
+                try {
+                    transactionManager.produceTransaction(session -> this.botHandler.handleCommand(
+                            createCommandData(this, session, chatId, cmdName, args, journalEntry, documentId),
+                            session));
+                } catch (RuntimeException e) {
+                    handleCommandFailure(e, journalEntry);
+                }
             } catch (RuntimeException e) {
                 System.err.println("Произошла ошибка во время обработки команды в боте:");
                 e.printStackTrace();
@@ -84,6 +162,61 @@ public class TelegramBot extends TelegramLongPollingBot implements Bot {
         }
     }
 
+    /**
+     * Возвращает текст команды из сообщения: текст сообщения или подпись к присланному документу
+     *
+     * @return Текст или null, если сообщение его не содержит
+     */
+    private static String getCommandText(Message message) {
+        if (message.hasText()) {
+            return message.getText();
+        }
+        return message.hasDocument() ? message.getCaption() : null;
+    }
+
+    /**
+     * Создает данные команды, в которой пользователь загружается в указанной сессии при первом обращении
+     *
+     * @param journalEntry Запись журнала для команды или null
+     * @param documentId   ID документа, присланного с командой, или null
+     */
+    private CommandData createCommandData(Bot bot, Session session, long chatId, String cmdName, List<String> args,
+                                          JournalEntry journalEntry, String documentId) {
+        Supplier<User> userResolver = () -> this.userRepository.getOrCreateUser(session, chatId);
+        return journalEntry != null
+                ? new CommandData(bot, journalEntry, userResolver)
+                : new CommandData(bot, chatId, userResolver, cmdName, args, documentId);
+    }
+
+    /**
+     * Обрабатывает ошибку выполнения команды: если БД недоступна и команду можно выполнить позже,
+     * команда добавляется в журнал
+     *
+     * @param journalEntry Запись журнала для команды или null
+     */
+    private void handleCommandFailure(Throwable exception, JournalEntry journalEntry) {
+        if (journalEntry != null && ConnectionFailures.isConnectionFailure(exception)) {
+            appendToJournal(journalEntry);
+            return;
+        }
+        System.err.println("Произошла ошибка во время обработки команды в боте:");
+        exception.printStackTrace();
+    }
+
+    /**
+     * Добавляет команду в журнал и сообщает пользователю, что она будет выполнена позже
+     */
+    private void appendToJournal(JournalEntry journalEntry) {
+        try {
+            this.journal.append(journalEntry);
+        } catch (JournalFullException e) {
+            System.err.println("Команда не принята: " + e.getMessage());
+            sendMessage(journalEntry.chatId(), SERVICE_UNAVAILABLE);
+            return;
+        }
+        sendMessage(journalEntry.chatId(), COMMAND_ACCEPTED);
+    }
+
     /**
      * Возвращает bot username
      * Метод необходим для библиотеки telegrambots
@@ -121,8 +254,16 @@ public class TelegramBot extends TelegramLongPollingBot implements Bot {
      */
     @Override
     public void sendMessage(User user, String text) {
+        sendMessage(user.getChatId(), text);
+    }
+
+    /**
+     * Отправка текстового сообщения в чат с указанным ID
+     */
+    @Override
+    public void sendMessage(long chatId, String text) {
         SendMessage message = new SendMessage(); // Create a SendMessage object with mandatory fields
-        message.setChatId(user.getChatId());
+        message.setChatId(chatId);
         message.setText(text);
 
         try {
@@ -131,4 +272,30 @@ public class TelegramBot extends TelegramLongPollingBot implements Bot {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Отправка файла документом в чат с указанным ID
+     */
+    @Override
+    public void sendDocument(long chatId, String fileName, Path file) {
+        SendDocument document = new SendDocument(String.valueOf(chatId), new InputFile(file.toFile(), fileName));
+        try {
+            execute(document);
+        } catch (TelegramApiException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Загружает документ с серверов Телеграма
+     */
+    @Override
+    public InputStream openDocument(String documentId) throws IOException {
+        try {
+            File file = execute(new GetFile(documentId));
+            return downloadFileAsStream(file);
+        } catch (TelegramApiException e) {
+            throw new IOException("Не удалось загрузить документ " + documentId, e);
+        }
+    }
 }
@@ -0,0 +1,46 @@
+package ru.naumen.personalfinancebot.configuration;
+
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.service.OperationArchiveService;
+
+/**
+ * Класс для настройки переноса операций закрытых месяцев в архив
+ */
+public class ArchiveConfiguration {
+    /**
+     * Сколько закрытых месяцев перед текущим хранить без переноса в архив или null, если перенос выключен
+     */
+    private final Integer liveMonths;
+
+    /**
+     * Конструктор с настройкой из переменной окружения OPERATIONS_ARCHIVE_AFTER_MONTHS: сколько закрытых
+     * месяцев перед текущим хранить без переноса в архив. Если переменная не задана, перенос выключен
+     */
+    public ArchiveConfiguration() {
+        this(System.getenv("OPERATIONS_ARCHIVE_AFTER_MONTHS"));
+    }
+
+    /**
+     * @param liveMonths Сколько закрытых месяцев хранить без переноса в архив или null, чтобы выключить перенос
+     * @throws NumberFormatException    если значение не является числом
+     * @throws IllegalArgumentException если значение отрицательное
+     */
+    public ArchiveConfiguration(String liveMonths) {
+        this.liveMonths = liveMonths == null || liveMonths.isBlank() ? null : Integer.parseInt(liveMonths.trim());
+        if (this.liveMonths != null && this.liveMonths < 0) {
+            throw new IllegalArgumentException("OPERATIONS_ARCHIVE_AFTER_MONTHS не может быть отрицательным");
+        }
+    }
+
+    /**
+     * Создает сервис переноса операций в архив или возвращает null, если перенос выключен
+     */
+    public OperationArchiveService createArchiveService(TransactionManager transactionManager,
+                                                        HibernateOperationRepository operationRepository) {
+        if (liveMonths == null) {
+            return null;
+        }
+        return new OperationArchiveService(transactionManager, operationRepository, liveMonths);
+    }
+}
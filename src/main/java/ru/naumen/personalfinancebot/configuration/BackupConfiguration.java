@@ -0,0 +1,54 @@
+package ru.naumen.personalfinancebot.configuration;
+
+import org.hibernate.SessionFactory;
+import ru.naumen.personalfinancebot.backup.BackupService;
+
+/**
+ * Класс для настройки резервного копирования данных бота
+ */
+public class BackupConfiguration {
+    /**
+     * Количество таблиц, обрабатываемых одновременно, по умолчанию: по одной на каждую таблицу
+     */
+    private static final int DEFAULT_THREADS = 4;
+
+    /**
+     * Количество таблиц, обрабатываемых одновременно
+     */
+    private final int threads;
+
+    /**
+     * Конструктор с настройкой из переменной окружения BACKUP_THREADS
+     * (количество таблиц, обрабатываемых одновременно, по умолчанию 4)
+     */
+    public BackupConfiguration() {
+        this(System.getenv("BACKUP_THREADS"));
+    }
+
+    /**
+     * @param threads Количество таблиц, обрабатываемых одновременно, или null для значения по умолчанию
+     * @throws NumberFormatException    если значение не является числом
+     * @throws IllegalArgumentException если значение не положительное
+     */
+    public BackupConfiguration(String threads) {
+        this.threads = threads == null || threads.isBlank() ? DEFAULT_THREADS : Integer.parseInt(threads.trim());
+        if (this.threads < 1) {
+            throw new IllegalArgumentException("BACKUP_THREADS должно быть положительным");
+        }
+    }
+
+    /**
+     * @return Количество таблиц, обрабатываемых одновременно. Каждой нужно отдельное соединение с БД
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Создает сервис резервного копирования. Пул соединений sessionFactory должен вмещать
+     * {@link #getThreads()} соединений
+     */
+    public BackupService createBackupService(SessionFactory sessionFactory) {
+        return new BackupService(sessionFactory, threads);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.naumen.personalfinancebot.configuration;
+
+import java.util.List;
+
+/**
+ * Названия регионов кэша второго уровня Hibernate.
+ * Размеры и время жизни записей для каждого региона задаются в {@link HibernateConfiguration}
+ */
+public final class CacheRegion {
+    /**
+     * Сущности пользователей
+     */
+    public static final String USER = "user";
+
+    /**
+     * Соответствие ID чата (natural id) идентификатору пользователя
+     */
+    public static final String USER_CHAT_ID = "user-chat-id";
+
+    /**
+     * Сущности категорий
+     */
+    public static final String CATEGORY = "category";
+
+    /**
+     * Сущности бюджетов
+     */
+    public static final String BUDGET = "budget";
+
+    /**
+     * Результаты кэшируемых запросов (регион Hibernate по умолчанию)
+     */
+    public static final String QUERY_RESULTS = "default-query-results-region";
+
+    /**
+     * Время последнего изменения таблиц, по которому устаревают результаты запросов
+     * (регион Hibernate по умолчанию)
+     */
+    public static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    /**
+     * Все регионы кэша
+     */
+    public static final List<String> ALL = List.of(USER, USER_CHAT_ID, CATEGORY, BUDGET, QUERY_RESULTS,
+            UPDATE_TIMESTAMPS);
+
+    private CacheRegion() {
+    }
+}
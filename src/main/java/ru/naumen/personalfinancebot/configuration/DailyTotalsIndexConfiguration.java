@@ -0,0 +1,46 @@
+package ru.naumen.personalfinancebot.configuration;
+
+import ru.naumen.personalfinancebot.repository.operation.DailyTotalsIndex;
+
+import java.time.Duration;
+
+/**
+ * Настройки индекса сумм операций по дням для отчетов за диапазон дней
+ */
+public class DailyTotalsIndexConfiguration {
+    /**
+     * Время простоя по умолчанию в минутах
+     */
+    private static final long DEFAULT_IDLE_MINUTES = 30;
+
+    /**
+     * Время простоя, после которого суммы пользователя удаляются из памяти, или null, если индекс выключен
+     */
+    private final Duration idleTimeout;
+
+    /**
+     * Конструктор с настройкой из переменной окружения REPORT_INDEX_IDLE_MINUTES (время простоя в минутах,
+     * по умолчанию 30, 0 выключает индекс)
+     */
+    public DailyTotalsIndexConfiguration() {
+        this(System.getenv("REPORT_INDEX_IDLE_MINUTES"));
+    }
+
+    /**
+     * @param idleMinutes Время простоя в минутах, 0, чтобы выключить индекс, или null для значения по умолчанию
+     * @throws NumberFormatException если значение не является числом
+     */
+    public DailyTotalsIndexConfiguration(String idleMinutes) {
+        long minutes = idleMinutes == null || idleMinutes.isBlank()
+                ? DEFAULT_IDLE_MINUTES
+                : Long.parseLong(idleMinutes.trim());
+        this.idleTimeout = minutes > 0 ? Duration.ofMinutes(minutes) : null;
+    }
+
+    /**
+     * Создает индекс сумм операций по дням или возвращает null, если индекс выключен
+     */
+    public DailyTotalsIndex createIndex() {
+        return idleTimeout == null ? null : new DailyTotalsIndex(idleTimeout);
+    }
+}
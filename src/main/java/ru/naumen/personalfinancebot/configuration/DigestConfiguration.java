@@ -0,0 +1,63 @@
+package ru.naumen.personalfinancebot.configuration;
+
+import ru.naumen.personalfinancebot.bot.Bot;
+import ru.naumen.personalfinancebot.bot.RateLimitedSender;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.digest.HibernateDigestRepository;
+import ru.naumen.personalfinancebot.service.MonthlyDigestService;
+
+/**
+ * Класс для настройки рассылки итогов месяца
+ */
+public class DigestConfiguration {
+    /**
+     * Частота отправки сообщений рассылки по умолчанию: ниже ограничения Telegram в 30 сообщений в секунду,
+     * чтобы оставить место для ответов на команды
+     */
+    private static final int DEFAULT_MESSAGES_PER_SECOND = 20;
+
+    /**
+     * Сколько сообщений рассылки может ожидать отправки
+     */
+    private static final int QUEUE_CAPACITY = 1000;
+
+    /**
+     * Максимальное количество сообщений рассылки в секунду, 0, если рассылка выключена
+     */
+    private final int messagesPerSecond;
+
+    /**
+     * Конструктор с настройкой из переменной окружения DIGEST_MESSAGES_PER_SECOND (сообщений рассылки
+     * в секунду, по умолчанию 20, 0 выключает рассылку)
+     */
+    public DigestConfiguration() {
+        this(System.getenv("DIGEST_MESSAGES_PER_SECOND"));
+    }
+
+    /**
+     * @param messagesPerSecond Сообщений в секунду, 0, чтобы выключить рассылку, или null для значения по умолчанию
+     * @throws NumberFormatException    если значение не является числом
+     * @throws IllegalArgumentException если значение отрицательное
+     */
+    public DigestConfiguration(String messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond == null || messagesPerSecond.isBlank()
+                ? DEFAULT_MESSAGES_PER_SECOND
+                : Integer.parseInt(messagesPerSecond.trim());
+        if (this.messagesPerSecond < 0) {
+            throw new IllegalArgumentException("DIGEST_MESSAGES_PER_SECOND не может быть отрицательным");
+        }
+    }
+
+    /**
+     * Создает сервис рассылки итогов месяца или возвращает null, если рассылка выключена
+     *
+     * @param bot Бот, через который отправляются итоги
+     */
+    public MonthlyDigestService createDigestService(TransactionManager transactionManager, Bot bot) {
+        if (messagesPerSecond == 0) {
+            return null;
+        }
+        return new MonthlyDigestService(transactionManager, new HibernateDigestRepository(),
+                new RateLimitedSender(bot, messagesPerSecond, QUEUE_CAPACITY));
+    }
+}
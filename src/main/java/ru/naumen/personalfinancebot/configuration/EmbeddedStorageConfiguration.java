@@ -0,0 +1,48 @@
+package ru.naumen.personalfinancebot.configuration;
+
+import ru.naumen.personalfinancebot.repository.embedded.EmbeddedStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Настройки встроенного хранилища операций и бюджетов
+ */
+public class EmbeddedStorageConfiguration {
+    /**
+     * Каталог хранилища или null, если хранилище выключено
+     */
+    private final Path path;
+
+    /**
+     * Конструктор с настройкой из переменной окружения EMBEDDED_STORAGE_PATH (каталог хранилища,
+     * если не задан, операции и бюджеты хранятся в БД). Остальные данные хранятся в БД в любом случае
+     */
+    public EmbeddedStorageConfiguration() {
+        this(System.getenv("EMBEDDED_STORAGE_PATH"));
+    }
+
+    /**
+     * @param path Каталог хранилища или null, чтобы выключить хранилище
+     */
+    public EmbeddedStorageConfiguration(String path) {
+        this.path = path == null || path.isBlank() ? null : Path.of(path.trim());
+    }
+
+    /**
+     * Открывает встроенное хранилище или возвращает null, если хранилище выключено
+     *
+     * @throws UncheckedIOException если хранилище не удалось открыть
+     */
+    public EmbeddedStorage createStorage() {
+        if (path == null) {
+            return null;
+        }
+        try {
+            return new EmbeddedStorage(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,12 +1,63 @@
 package ru.naumen.personalfinancebot.configuration;
 
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
 import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
 
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
 /**
  * Класс для работы с конфигурацией Hibernate
  */
 public class HibernateConfiguration {
+    /**
+     * Максимальное количество пользователей в кэше. Записи вытесняются по давности использования
+     */
+    private static final int USER_CACHE_SIZE = 10_000;
+
+    /**
+     * Максимальное количество категорий в кэше: стандартные категории и категории активных пользователей
+     */
+    private static final int CATEGORY_CACHE_SIZE = 20_000;
+
+    /**
+     * Максимальное количество бюджетов в кэше
+     */
+    private static final int BUDGET_CACHE_SIZE = 10_000;
+
+    /**
+     * Максимальное количество результатов запросов в кэше
+     */
+    private static final int QUERY_RESULTS_CACHE_SIZE = 10_000;
+
+    /**
+     * Время, через которое неиспользуемая запись удаляется из кэша сущностей
+     */
+    private static final Duration ENTITY_TIME_TO_IDLE = Duration.ofMinutes(30);
+
+    /**
+     * Время жизни результата запроса в кэше
+     */
+    private static final Duration QUERY_RESULTS_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+    /**
+     * Параметр максимального количества соединений в пуле HikariCP
+     */
+    private static final String MAXIMUM_POOL_SIZE = "hibernate.hikari.maximumPoolSize";
+
     /**
      * SessionFactory в Hibernate
      * Он необходим для открытия сессий в Hibernate
@@ -25,12 +76,29 @@ public class HibernateConfiguration {
      * Конфигурирует Hibernate с использованием указанных параметров, затем параметров из hibernate.cfg.xml
      */
     public HibernateConfiguration(String dbUrl, String dbUsername, String dbPassword) {
-        Configuration configuration = new Configuration()
+        sessionFactory = buildSessionFactory(configure(dbUrl, dbUsername, dbPassword));
+    }
+
+    /**
+     * Конфигурирует Hibernate с использованием указанных параметров, затем параметров из hibernate.cfg.xml,
+     * и с пулом на poolSize соединений вместо указанного в hibernate.cfg.xml.
+     * Нужен, когда с БД работает больше потоков, чем рассчитан пул бота, например, при резервном копировании
+     */
+    public HibernateConfiguration(String dbUrl, String dbUsername, String dbPassword, int poolSize) {
+        Configuration configuration = configure(dbUrl, dbUsername, dbPassword)
+                .setProperty(MAXIMUM_POOL_SIZE, String.valueOf(poolSize));
+        sessionFactory = buildSessionFactory(configuration);
+    }
+
+    /**
+     * Создает конфигурацию с указанными параметрами подключения и параметрами из hibernate.cfg.xml
+     */
+    private static Configuration configure(String dbUrl, String dbUsername, String dbPassword) {
+        return new Configuration()
                 .setProperty("hibernate.connection.url", dbUrl)
                 .setProperty("hibernate.connection.username", dbUsername)
                 .setProperty("hibernate.connection.password", dbPassword)
                 .configure();
-        sessionFactory = buildSessionFactory(configuration);
     }
 
     /**
@@ -38,11 +106,16 @@ public class HibernateConfiguration {
      * Он необходим для открытия сессий в Hibernate
      */
     private SessionFactory buildSessionFactory(Configuration configuration) {
+        configureSecondLevelCache(configuration);
         try {
             return configuration.buildSessionFactory();
         } catch (Throwable ex) {
             // Make sure you log the exception, as it might be helpful for debugging
             System.err.println("Initial SessionFactory creation failed." + ex);
+            // Ошибки разбора именованных запросов Hibernate прикладывает как suppressed исключения
+            for (Throwable suppressed : ex.getSuppressed()) {
+                System.err.println("    " + suppressed);
+            }
             throw new ExceptionInInitializerError(ex);
         }
     }
@@ -54,4 +127,61 @@ public class HibernateConfiguration {
     public SessionFactory getSessionFactory() {
         return sessionFactory;
     }
+
+    /**
+     * Включает кэш второго уровня и кэш запросов в локальном Ehcache, а также сбор статистики по ним.
+     * Регионы из {@link CacheRegion} создаются заранее с явными размерами и временем жизни,
+     * обращение к региону, который не настроен, приводит к ошибке запуска
+     */
+    private void configureSecondLevelCache(Configuration configuration) {
+        configuration
+                .setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true")
+                .setProperty(AvailableSettings.USE_QUERY_CACHE, "true")
+                .setProperty(AvailableSettings.CACHE_REGION_FACTORY, "jcache")
+                .setProperty(ConfigSettings.MISSING_CACHE_STRATEGY, "fail")
+                .setProperty(AvailableSettings.GENERATE_STATISTICS, "true")
+                .setProperty(AvailableSettings.LOG_SESSION_METRICS, "false");
+        configuration.getProperties().put(ConfigSettings.CACHE_MANAGER, createCacheManager());
+    }
+
+    /**
+     * Создает отдельный для этой SessionFactory менеджер кэшей с настроенными регионами.
+     * Отдельный менеджер не дает нескольким SessionFactory в одном процессе (например, в тестах)
+     * читать записи друг друга
+     */
+    private CacheManager createCacheManager() {
+        Map<String, CacheConfiguration<?, ?>> regions = new HashMap<>();
+        regions.put(CacheRegion.USER, entityRegion(USER_CACHE_SIZE));
+        regions.put(CacheRegion.USER_CHAT_ID, entityRegion(USER_CACHE_SIZE));
+        regions.put(CacheRegion.CATEGORY, entityRegion(CATEGORY_CACHE_SIZE));
+        regions.put(CacheRegion.BUDGET, entityRegion(BUDGET_CACHE_SIZE));
+        regions.put(CacheRegion.QUERY_RESULTS, CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(QUERY_RESULTS_CACHE_SIZE))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(QUERY_RESULTS_TIME_TO_LIVE))
+                .build());
+        // Записи о времени изменения таблиц нельзя вытеснять, иначе кэш запросов вернет устаревшие данные.
+        // Их не больше, чем таблиц, поэтому размер выбран с запасом
+        regions.put(CacheRegion.UPDATE_TIMESTAMPS, CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(1_000))
+                .withExpiry(ExpiryPolicyBuilder.noExpiration())
+                .build());
+
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+                EhcacheCachingProvider.class.getName());
+        DefaultConfiguration cacheConfiguration = new DefaultConfiguration(regions, provider.getDefaultClassLoader());
+        URI uri = URI.create("urn:personal-finance-bot:cache:" + UUID.randomUUID());
+        return provider.getCacheManager(uri, cacheConfiguration);
+    }
+
+    /**
+     * Настройка региона сущностей: не больше size записей в куче с вытеснением давно не использованных
+     * и удалением записей, к которым не обращались {@link #ENTITY_TIME_TO_IDLE}
+     */
+    private CacheConfiguration<Object, Object> entityRegion(int size) {
+        return CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(size))
+                .withExpiry(ExpiryPolicyBuilder.timeToIdleExpiration(ENTITY_TIME_TO_IDLE))
+                .build();
+    }
 }
@@ -0,0 +1,62 @@
+package ru.naumen.personalfinancebot.configuration;
+
+import ru.naumen.personalfinancebot.journal.CommandJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Класс для настройки журнала команд, принятых во время недоступности БД
+ */
+public class JournalConfiguration {
+    /**
+     * Размер журнала по умолчанию в мегабайтах
+     */
+    private static final int DEFAULT_SIZE_MB = 16;
+
+    /**
+     * Путь к файлу журнала или null, если журнал выключен
+     */
+    private final Path path;
+
+    /**
+     * Размер журнала в байтах
+     */
+    private final int capacity;
+
+    /**
+     * Конструктор с настройками из переменных окружения JOURNAL_PATH (путь к файлу, если не задан,
+     * журнал выключен) и JOURNAL_SIZE_MB (размер в мегабайтах, по умолчанию 16)
+     */
+    public JournalConfiguration() {
+        this(System.getenv("JOURNAL_PATH"), System.getenv("JOURNAL_SIZE_MB"));
+    }
+
+    /**
+     * @param path   Путь к файлу журнала или null, чтобы выключить журнал
+     * @param sizeMb Размер журнала в мегабайтах или null для значения по умолчанию
+     * @throws NumberFormatException если размер не является числом
+     */
+    public JournalConfiguration(String path, String sizeMb) {
+        this.path = path == null || path.isBlank() ? null : Path.of(path.trim());
+        int megabytes = sizeMb == null || sizeMb.isBlank() ? DEFAULT_SIZE_MB : Integer.parseInt(sizeMb.trim());
+        this.capacity = Math.multiplyExact(megabytes, 1024 * 1024);
+    }
+
+    /**
+     * Открывает журнал команд или возвращает null, если журнал выключен
+     *
+     * @throws UncheckedIOException если файл журнала не удалось открыть
+     */
+    public CommandJournal createJournal() {
+        if (path == null) {
+            return null;
+        }
+        try {
+            return new CommandJournal(path, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.naumen.personalfinancebot.configuration;
+
+import ru.naumen.personalfinancebot.repository.operation.RecentOperationsBuffer;
+
+import java.time.Duration;
+
+/**
+ * Настройки буферов последних операций пользователей для команд /last и /undo
+ */
+public class RecentOperationsConfiguration {
+    /**
+     * Размер буфера по умолчанию
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Время простоя, после которого буфер пользователя удаляется из памяти
+     */
+    private static final Duration IDLE_TIMEOUT = Duration.ofHours(1);
+
+    /**
+     * Максимальное количество операций в буфере пользователя, 0, если буферы выключены
+     */
+    private final int capacity;
+
+    /**
+     * Конструктор с настройкой из переменной окружения RECENT_OPERATIONS_SIZE (количество операций в буфере
+     * пользователя, по умолчанию 10, 0 выключает буферы)
+     */
+    public RecentOperationsConfiguration() {
+        this(System.getenv("RECENT_OPERATIONS_SIZE"));
+    }
+
+    /**
+     * @param capacity Количество операций в буфере, 0, чтобы выключить буферы, или null для значения по умолчанию
+     * @throws NumberFormatException если значение не является числом
+     */
+    public RecentOperationsConfiguration(String capacity) {
+        this.capacity = capacity == null || capacity.isBlank()
+                ? DEFAULT_CAPACITY
+                : Integer.parseInt(capacity.trim());
+    }
+
+    /**
+     * Создает буферы последних операций или возвращает null, если буферы выключены
+     */
+    public RecentOperationsBuffer createBuffer() {
+        return capacity > 0 ? new RecentOperationsBuffer(capacity, IDLE_TIMEOUT) : null;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.naumen.personalfinancebot.configuration;
+
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.JdbcCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.DailyTotalsIndex;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.JdbcOperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.RecentOperationsBuffer;
+
+import java.util.List;
+
+/**
+ * Класс для выбора реализации репозиториев операций и категорий
+ */
+public class RepositoryConfiguration {
+    /**
+     * Реализация репозиториев
+     */
+    public enum Implementation {
+        /**
+         * Все запросы через Hibernate
+         */
+        HIBERNATE,
+        /**
+         * Самые частые запросы через JDBC на соединении сессии Hibernate
+         */
+        JDBC
+    }
+
+    /**
+     * Выбранная реализация репозиториев
+     */
+    private final Implementation implementation;
+
+    /**
+     * Конструктор с настройкой из переменной окружения REPOSITORY_IMPLEMENTATION (hibernate или jdbc).
+     * Если переменная не задана, используется Hibernate
+     */
+    public RepositoryConfiguration() {
+        this(System.getenv("REPOSITORY_IMPLEMENTATION"));
+    }
+
+    /**
+     * @param implementation Название реализации без учета регистра (hibernate или jdbc) или null для Hibernate
+     * @throws IllegalArgumentException если такой реализации нет
+     */
+    public RepositoryConfiguration(String implementation) {
+        this.implementation = implementation == null || implementation.isBlank()
+                ? Implementation.HIBERNATE
+                : Implementation.valueOf(implementation.trim().toUpperCase());
+    }
+
+    /**
+     * @return Выбранная реализация репозиториев
+     */
+    public Implementation getImplementation() {
+        return implementation;
+    }
+
+    /**
+     * Создает репозиторий операций выбранной реализации
+     */
+    public OperationRepository createOperationRepository() {
+        return createOperationRepository(null);
+    }
+
+    /**
+     * Создает репозиторий операций выбранной реализации
+     *
+     * @param dailyTotalsIndex Индекс сумм операций по дням или null, чтобы считать суммы запросом к БД
+     */
+    public OperationRepository createOperationRepository(DailyTotalsIndex dailyTotalsIndex) {
+        return createOperationRepository(dailyTotalsIndex, null);
+    }
+
+    /**
+     * Создает репозиторий операций выбранной реализации
+     *
+     * @param dailyTotalsIndex Индекс сумм операций по дням или null, чтобы считать суммы запросом к БД
+     * @param recentOperations Буферы последних операций или null, чтобы загружать их запросом к БД
+     */
+    public HibernateOperationRepository createOperationRepository(DailyTotalsIndex dailyTotalsIndex,
+                                                                  RecentOperationsBuffer recentOperations) {
+        return switch (implementation) {
+            case HIBERNATE -> new HibernateOperationRepository(dailyTotalsIndex, recentOperations);
+            case JDBC -> new JdbcOperationRepository(dailyTotalsIndex, recentOperations);
+        };
+    }
+
+    /**
+     * Создает репозиторий категорий выбранной реализации и добавляет стандартные категории, если их не существует
+     *
+     * @param transactionManager Нужен для открытия транзакции на добавление категорий
+     * @param categories         Список стандартных категорий
+     */
+    public CategoryRepository createCategoryRepository(TransactionManager transactionManager,
+                                                       List<Category> categories) {
+        return switch (implementation) {
+            case HIBERNATE -> new HibernateCategoryRepository(transactionManager, categories);
+            case JDBC -> new JdbcCategoryRepository(transactionManager, categories);
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package ru.naumen.personalfinancebot.configuration;
+
+import org.hibernate.SessionFactory;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+
+import java.time.Duration;
+
+/**
+ * Класс для настройки групповой фиксации транзакций
+ */
+public class TransactionConfiguration {
+    /**
+     * Размер группы по умолчанию, равен hibernate.jdbc.batch_size
+     */
+    private static final int DEFAULT_MAX_GROUP_SIZE = 50;
+
+    /**
+     * Окно групповой фиксации или null, если она выключена
+     */
+    private final Duration groupCommitWindow;
+
+    /**
+     * Максимальное количество команд в одной транзакции
+     */
+    private final int maxGroupSize;
+
+    /**
+     * Конструктор с настройками из переменных окружения GROUP_COMMIT_WINDOW_MS (окно в миллисекундах,
+     * если не задано, групповая фиксация выключена) и GROUP_COMMIT_MAX_SIZE (по умолчанию 50)
+     */
+    public TransactionConfiguration() {
+        this(System.getenv("GROUP_COMMIT_WINDOW_MS"), System.getenv("GROUP_COMMIT_MAX_SIZE"));
+    }
+
+    /**
+     * @param groupCommitWindowMillis Окно групповой фиксации в миллисекундах или null, чтобы ее выключить
+     * @param maxGroupSize            Максимальное количество команд в одной транзакции или null для значения
+     *                                по умолчанию
+     * @throws NumberFormatException если значения не являются числами
+     */
+    public TransactionConfiguration(String groupCommitWindowMillis, String maxGroupSize) {
+        this.groupCommitWindow = groupCommitWindowMillis == null || groupCommitWindowMillis.isBlank()
+                ? null
+                : Duration.ofMillis(Long.parseLong(groupCommitWindowMillis.trim()));
+        this.maxGroupSize = maxGroupSize == null || maxGroupSize.isBlank()
+                ? DEFAULT_MAX_GROUP_SIZE
+                : Integer.parseInt(maxGroupSize.trim());
+    }
+
+    /**
+     * Создает менеджер транзакций, с групповой фиксацией, если она включена
+     */
+    public TransactionManager createTransactionManager(SessionFactory sessionFactory) {
+        return groupCommitWindow == null
+                ? new TransactionManager(sessionFactory)
+                : new TransactionManager(sessionFactory, groupCommitWindow, maxGroupSize);
+    }
+}
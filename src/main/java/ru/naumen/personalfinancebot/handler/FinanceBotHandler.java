@@ -8,9 +8,12 @@ import ru.naumen.personalfinancebot.handler.command.report.EstimateReportHandler
 import ru.naumen.personalfinancebot.handler.command.report.ReportExpensesHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
 import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
 import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
 import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.recurring.HibernateRecurringOperationRepository;
+import ru.naumen.personalfinancebot.repository.recurring.RecurringOperationRepository;
 import ru.naumen.personalfinancebot.repository.user.UserRepository;
 import ru.naumen.personalfinancebot.service.*;
 
@@ -26,6 +29,16 @@ public class FinanceBotHandler {
      */
     private static final String COMMAND_NOT_FOUND = "Команда не распознана...";
 
+    /**
+     * Сообщение, если регулярные операции не добавляются, потому что их сервис не запущен
+     */
+    private static final String RECURRING_UNAVAILABLE = "Регулярные операции недоступны в этом режиме работы бота";
+
+    /**
+     * Сообщение, если бюджеты не переносятся, потому что сервис переноса не запущен
+     */
+    private static final String ROLLOVER_UNAVAILABLE = "Перенос бюджета недоступен в этом режиме работы бота";
+
     /**
      * Коллекция, которая хранит обработчики для команд
      */
@@ -41,6 +54,45 @@ public class FinanceBotHandler {
                              OperationRepository operationRepository,
                              CategoryRepository categoryRepository,
                              BudgetRepository budgetRepository) {
+        this(userRepository, operationRepository, categoryRepository, budgetRepository,
+                new HibernateRecurringOperationRepository());
+    }
+
+    /**
+     * @param userRepository               Репозиторий для работы с пользователем
+     * @param operationRepository          Репозиторий для работы с операциями
+     * @param categoryRepository           Репозиторий для работы с категориями
+     * @param budgetRepository             Репозиторий для работы с бюджетами
+     * @param recurringOperationRepository Репозиторий для работы с регулярными операциями
+     */
+    public FinanceBotHandler(UserRepository userRepository,
+                             OperationRepository operationRepository,
+                             CategoryRepository categoryRepository,
+                             BudgetRepository budgetRepository,
+                             RecurringOperationRepository recurringOperationRepository) {
+        this(userRepository, operationRepository, categoryRepository, budgetRepository,
+                recurringOperationRepository, null, true);
+    }
+
+    /**
+     * @param userRepository               Репозиторий для работы с пользователем
+     * @param operationRepository          Репозиторий для работы с операциями
+     * @param categoryRepository           Репозиторий для работы с категориями
+     * @param budgetRepository             Репозиторий для работы с бюджетами
+     * @param recurringOperationRepository Репозиторий для работы с регулярными операциями
+     * @param transactionManager           Менеджер транзакций для команд, которые сами открывают транзакции,
+     *                                     например, /delete_me, или null, чтобы не регистрировать такие команды
+     * @param backgroundServices           Запущены ли фоновые сервисы, которые выполняют команды позже,
+     *                                     например, добавление регулярных операций и перенос бюджетов.
+     *                                     Если нет, такие команды отвечают, что недоступны
+     */
+    public FinanceBotHandler(UserRepository userRepository,
+                             OperationRepository operationRepository,
+                             CategoryRepository categoryRepository,
+                             BudgetRepository budgetRepository,
+                             RecurringOperationRepository recurringOperationRepository,
+                             TransactionManager transactionManager,
+                             boolean backgroundServices) {
 
         CategoryParseService categoryParseService = new CategoryParseService();
         DateParseService dateParseService = new DateParseService();
@@ -48,24 +100,55 @@ public class FinanceBotHandler {
         OutputNumberFormatService numberFormatService = new OutputNumberFormatService();
         OutputMonthFormatService monthFormatService = new OutputMonthFormatService();
         CategoryListService categoryListService = new CategoryListService(categoryRepository);
+        CategoryRemovalService categoryRemovalService = new CategoryRemovalService(categoryRepository,
+                operationRepository, userRepository, budgetRepository);
         ReportService reportService = new ReportService(operationRepository, monthFormatService, numberFormatService);
 
         commandHandlers = new HashMap<>();
         commandHandlers.put("start", new StartCommandHandler());
         commandHandlers.put("set_balance", new SetBalanceHandler(numberParseService, numberFormatService,
                 userRepository));
+        BudgetAlertService budgetAlertService = new BudgetAlertService(budgetRepository, operationRepository);
         commandHandlers.put("add_expense", new AddOperationHandler(CategoryType.EXPENSE, userRepository,
-                categoryRepository, operationRepository, categoryParseService));
+                categoryRepository, operationRepository, categoryParseService, numberParseService,
+                budgetAlertService, numberFormatService, monthFormatService));
         commandHandlers.put("add_income", new AddOperationHandler(CategoryType.INCOME, userRepository,
-                categoryRepository, operationRepository, categoryParseService));
+                categoryRepository, operationRepository, categoryParseService, numberParseService,
+                budgetAlertService, numberFormatService, monthFormatService));
+        if (backgroundServices) {
+            commandHandlers.put("add_recurring_expense", new AddRecurringOperationHandler(CategoryType.EXPENSE,
+                    categoryRepository, recurringOperationRepository, categoryParseService, numberParseService,
+                    numberFormatService));
+            commandHandlers.put("add_recurring_income", new AddRecurringOperationHandler(CategoryType.INCOME,
+                    categoryRepository, recurringOperationRepository, categoryParseService, numberParseService,
+                    numberFormatService));
+        } else {
+            CommandHandler recurringUnavailable = new UnavailableCommandHandler(RECURRING_UNAVAILABLE);
+            commandHandlers.put("add_recurring_expense", recurringUnavailable);
+            commandHandlers.put("add_recurring_income", recurringUnavailable);
+        }
+        commandHandlers.put("recurring", new ListRecurringOperationsHandler(recurringOperationRepository,
+                numberFormatService));
+        commandHandlers.put("remove_recurring", new RemoveRecurringOperationHandler(recurringOperationRepository));
+        commandHandlers.put("last", new LastOperationsHandler(operationRepository, numberFormatService));
+        commandHandlers.put("history", new HistoryHandler(operationRepository, numberFormatService));
+        commandHandlers.put("undo", new UndoOperationHandler(userRepository, operationRepository,
+                budgetRepository, numberFormatService));
+        commandHandlers.put("import", new ImportOperationsHandler(userRepository, budgetRepository,
+                new OperationImportService(categoryRepository, operationRepository), numberFormatService));
+        commandHandlers.put("export", new ExportOperationsHandler(new OperationExportService(operationRepository)));
+        if (transactionManager != null) {
+            commandHandlers.put("delete_me", new DeleteAccountHandler(new AccountErasureService(transactionManager,
+                    userRepository, operationRepository, budgetRepository)));
+        }
         commandHandlers.put("add_income_category", new AddCategoryHandler(CategoryType.INCOME, categoryRepository,
                 categoryParseService));
         commandHandlers.put("add_expense_category", new AddCategoryHandler(CategoryType.EXPENSE, categoryRepository,
                 categoryParseService));
         commandHandlers.put("remove_income_category", new RemoveCategoryHandler(CategoryType.INCOME,
-                categoryRepository, categoryParseService));
+                categoryRemovalService, categoryParseService));
         commandHandlers.put("remove_expense_category", new RemoveCategoryHandler(CategoryType.EXPENSE,
-                categoryRepository, categoryParseService));
+                categoryRemovalService, categoryParseService));
         commandHandlers.put("list_categories", new FullListCategoriesHandler(categoryListService));
         commandHandlers.put("list_income_categories", new SingleListCategoriesHandler(CategoryType.INCOME,
                 categoryListService));
@@ -82,6 +165,9 @@ public class FinanceBotHandler {
                 dateParseService, numberFormatService, monthFormatService, CategoryType.INCOME));
         commandHandlers.put("budget_set_expenses", new EditBudgetHandler(budgetRepository, numberParseService,
                 dateParseService, numberFormatService, monthFormatService, CategoryType.EXPENSE));
+        commandHandlers.put("budget_rollover", backgroundServices
+                ? new BudgetRolloverHandler(userRepository)
+                : new UnavailableCommandHandler(ROLLOVER_UNAVAILABLE));
         commandHandlers.put("budget_list", new ListBudgetHandler(budgetRepository, operationRepository,
                 dateParseService, numberFormatService, monthFormatService));
 
@@ -97,7 +183,32 @@ public class FinanceBotHandler {
         if (handler != null) {
             handler.handleCommand(commandData, session);
         } else {
-            commandData.getBot().sendMessage(commandData.getUser(), COMMAND_NOT_FOUND);
+            commandData.getBot().sendMessage(commandData.getChatId(), COMMAND_NOT_FOUND);
         }
     }
+
+    /**
+     * Возвращает, что нужно для выполнения команды с указанным названием.
+     * Для нераспознанной команды ничего не нужно, так как на нее отвечается сообщением об ошибке
+     */
+    public CommandRequirement getRequirement(String commandName) {
+        CommandHandler handler = this.commandHandlers.get(commandName.toLowerCase());
+        return handler != null ? handler.getRequirement() : CommandRequirement.NONE;
+    }
+
+    /**
+     * Можно ли выполнить команду с указанным названием в транзакции, общей с другими командами
+     */
+    public boolean isGroupCommitSupported(String commandName) {
+        CommandHandler handler = this.commandHandlers.get(commandName.toLowerCase());
+        return handler != null && handler.isGroupCommitSupported();
+    }
+
+    /**
+     * Можно ли принять команду с указанным названием в журнал команд, пока БД недоступна
+     */
+    public boolean isJournalSupported(String commandName) {
+        CommandHandler handler = this.commandHandlers.get(commandName.toLowerCase());
+        return handler != null && handler.isJournalSupported();
+    }
 }
@@ -2,17 +2,26 @@ package ru.naumen.personalfinancebot.handler.command;
 
 import org.hibernate.Session;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.journal.JournalEntry;
 import ru.naumen.personalfinancebot.message.Message;
 import ru.naumen.personalfinancebot.model.Category;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.Operation;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
 import ru.naumen.personalfinancebot.repository.category.exception.NotExistingCategoryException;
 import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
 import ru.naumen.personalfinancebot.repository.user.UserRepository;
+import ru.naumen.personalfinancebot.service.BudgetAlertService;
+import ru.naumen.personalfinancebot.service.BudgetAlertService.BudgetAlert;
 import ru.naumen.personalfinancebot.service.CategoryParseService;
+import ru.naumen.personalfinancebot.service.NumberParseService;
+import ru.naumen.personalfinancebot.service.OutputMonthFormatService;
+import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
@@ -49,6 +58,11 @@ public class AddOperationHandler implements CommandHandler {
      */
     private static final String INCORRECT_PAYMENT_ARG = "Сумма операции указана в неверном формате. Передайте корректное положительно число";
 
+    /**
+     * Уведомление о том, что расходы месяца достигли порога бюджета: месяц, год, порог, расходы, ожидаемый расход
+     */
+    private static final String BUDGET_THRESHOLD_REACHED = "Расходы за %s %s достигли %d%% бюджета: %s из %s руб.";
+
     /**
      * Тип категории, с которым будет работать обработчик
      */
@@ -72,72 +86,146 @@ public class AddOperationHandler implements CommandHandler {
     /***/
     private final CategoryParseService categoryParseService;
 
+    /**
+     * Сервис, который парсит числа
+     */
+    private final NumberParseService numberParseService;
+
+    /**
+     * Сервис уведомлений о достижении порогов бюджета
+     */
+    private final BudgetAlertService budgetAlertService;
+
+    /**
+     * Сервис, который приводит числа для вывода к нужному формату
+     */
+    private final OutputNumberFormatService numberFormatService;
+
+    /**
+     * Сервис, который форматирует месяц к русскому названию
+     */
+    private final OutputMonthFormatService monthFormatService;
 
     public AddOperationHandler(CategoryType categoryType, UserRepository userRepository,
                                CategoryRepository categoryRepository, OperationRepository operationRepository,
-                               CategoryParseService categoryParseService) {
+                               CategoryParseService categoryParseService, NumberParseService numberParseService,
+                               BudgetAlertService budgetAlertService, OutputNumberFormatService numberFormatService,
+                               OutputMonthFormatService monthFormatService) {
         this.categoryType = categoryType;
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
         this.operationRepository = operationRepository;
         this.categoryParseService = categoryParseService;
+        this.numberParseService = numberParseService;
+        this.budgetAlertService = budgetAlertService;
+        this.numberFormatService = numberFormatService;
+        this.monthFormatService = monthFormatService;
+    }
+
+    @Override
+    public boolean isGroupCommitSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean isJournalSupported() {
+        return true;
     }
 
     @Override
     public void handleCommand(CommandData commandData, Session session) {
         if (commandData.getArgs().size() < 2) {
-            commandData.getBot().sendMessage(commandData.getUser(), INCORRECT_OPERATION_ARGS_AMOUNT);
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_OPERATION_ARGS_AMOUNT);
+            return;
+        }
+        Optional<JournalEntry> journalEntry = commandData.getJournalEntry();
+        if (journalEntry.isPresent() && operationRepository.isJournalEntryApplied(session, journalEntry.get().id())) {
+            // Операция уже добавлена: транзакция зафиксировалась, но бот не узнал об этом из-за сбоя
             return;
         }
         Operation operation;
+        Optional<BudgetAlert> budgetAlert;
         try {
-            operation = createOperationRecord(commandData.getUser(), commandData.getArgs(), categoryType, session);
+            Money payment = parsePayment(commandData);
+            Category category = findCategory(commandData, session);
+            LocalDate createdAt = journalEntry.map(JournalEntry::acceptedDate).orElseGet(LocalDate::now);
+            // Расходы месяца проверяются до добавления операции, чтобы сумма не учитывала её ни в одном хранилище
+            budgetAlert = categoryType == CategoryType.EXPENSE
+                    ? budgetAlertService.checkExpense(session, commandData.getUser(), payment,
+                    YearMonth.from(createdAt))
+                    : Optional.empty();
+            operation = createOperationRecord(commandData, category, payment, session);
         } catch (NotExistingCategoryException e) {
-            commandData.getBot().sendMessage(commandData.getUser(), CATEGORY_DOES_NOT_EXISTS);
+            commandData.getBot().sendMessage(commandData.getChatId(), CATEGORY_DOES_NOT_EXISTS);
             return;
         } catch (NumberFormatException e) {
-            commandData.getBot().sendMessage(commandData.getUser(), INCORRECT_PAYMENT_ARG);
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_PAYMENT_ARG);
             return;
         } catch (IllegalArgumentException e) {
-            commandData.getBot().sendMessage(commandData.getUser(), Message.INCORRECT_CATEGORY_ARGUMENT_FORMAT);
+            commandData.getBot().sendMessage(commandData.getChatId(), Message.INCORRECT_CATEGORY_ARGUMENT_FORMAT);
             return;
         }
-        double currentBalance = commandData.getUser().getBalance() + operation.getPayment();
+        // Баланс изменяется относительно значения в БД, а не загруженного ранее, чтобы не потерять
+        // параллельные изменения баланса, например, регулярными операциями
         User user = commandData.getUser();
-        user.setBalance(currentBalance);
-        userRepository.saveUser(session, user);
+        userRepository.changeBalance(session, user, operation.getPayment());
         String message = categoryType == CategoryType.INCOME
                 ? ADD_INCOME_MESSAGE
                 : ADD_EXPENSE_MESSAGE;
         commandData.getBot().sendMessage(user,
                 message + operation.getCategory().getCategoryName());
+        budgetAlert.ifPresent(alert -> commandData.getBot().sendMessage(user, BUDGET_THRESHOLD_REACHED.formatted(
+                monthFormatService.formatRuMonthName(alert.yearMonth().getMonth()),
+                String.valueOf(alert.yearMonth().getYear()),
+                alert.percent(),
+                numberFormatService.formatMoney(alert.spent()),
+                numberFormatService.formatMoney(alert.expected()))));
+    }
 
+    /**
+     * Разбирает сумму операции: для расхода сумма становится отрицательной
+     *
+     * @throws NumberFormatException если сумма указана неверно
+     */
+    private Money parsePayment(CommandData commandData) throws NumberFormatException {
+        Money payment = this.numberParseService.parsePositiveMoney(commandData.getArgs().get(0));
+        return categoryType == CategoryType.EXPENSE ? payment.negate() : payment;
     }
 
     /**
-     * Метод для записи в базу операции;
+     * Находит категорию операции по названию из аргументов команды
      *
-     * @param user Пользователь
-     * @param args Аргументы, переданные с командой
-     * @param type Расход/Бюджет.
-     * @return Совершенная операция
+     * @throws NotExistingCategoryException если такой категории нет
+     * @throws IllegalArgumentException     если название категории указано неверно
      */
-    private Operation createOperationRecord(User user, List<String> args, CategoryType type, Session session)
-            throws NotExistingCategoryException {
-        double payment = Double.parseDouble(args.get(0));
-        if (payment <= 0) {
-            throw new NumberFormatException();
-        }
+    private Category findCategory(CommandData commandData, Session session) throws NotExistingCategoryException {
+        List<String> args = commandData.getArgs();
         String categoryName = this.categoryParseService.parseCategory(args.subList(1, args.size()));
-        if (type == CategoryType.EXPENSE) {
-            payment = -Math.abs(payment);
-        } else if (type == CategoryType.INCOME) {
-            payment = Math.abs(payment);
-        }
-        Optional<Category> category = this.categoryRepository.getCategoryByName(session, user, type, categoryName);
+        Optional<Category> category = this.categoryRepository.getCategoryByName(session, commandData.getUser(),
+                categoryType, categoryName);
         if (category.isEmpty()) {
             throw new NotExistingCategoryException(categoryName);
         }
-        return this.operationRepository.addOperation(session, user, category.get(), payment);
+        return category.get();
+    }
+
+    /**
+     * Метод для записи в базу операции.
+     * Если команда выполняется по записи журнала, то операция получает дату и ID этой записи
+     *
+     * @param commandData Данные команды
+     * @param category    Категория операции
+     * @param payment     Сумма операции, для расхода - отрицательная
+     * @return Совершенная операция
+     */
+    private Operation createOperationRecord(CommandData commandData, Category category, Money payment,
+                                            Session session) {
+        User user = commandData.getUser();
+        Optional<JournalEntry> journalEntry = commandData.getJournalEntry();
+        if (journalEntry.isPresent()) {
+            return this.operationRepository.addOperation(session, user, category, payment,
+                    journalEntry.get().acceptedDate(), journalEntry.get().id());
+        }
+        return this.operationRepository.addOperation(session, user, category, payment);
     }
 }
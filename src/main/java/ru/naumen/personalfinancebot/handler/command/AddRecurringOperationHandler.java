@@ -0,0 +1,150 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.RecurringOperation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.recurring.RecurringOperationRepository;
+import ru.naumen.personalfinancebot.service.CategoryParseService;
+import ru.naumen.personalfinancebot.service.NumberParseService;
+import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Обработчик команд /add_recurring_[income|expense], которые добавляют регулярную операцию:
+ * операция по категории добавляется каждый месяц в указанный день
+ */
+public class AddRecurringOperationHandler implements CommandHandler {
+    /**
+     * Сообщение о неверно переданных аргументах
+     */
+    private static final String INCORRECT_ARGS = "Данная команда принимает 3 аргумента: "
+            + "[день месяца от 1 до 31] [payment - сумма] [категория расхода/дохода]";
+
+    /**
+     * Сообщение о неверно переданной сумме
+     */
+    private static final String INCORRECT_PAYMENT_ARG =
+            "Сумма операции указана в неверном формате. Передайте корректное положительно число";
+
+    /**
+     * Сообщение об отсутствии категории
+     */
+    private static final String CATEGORY_DOES_NOT_EXISTS =
+            "Указанная категория не числится. Используйте команду /add_[income/expense]_category чтобы добавить её";
+
+    /**
+     * Сообщение о добавлении регулярного дохода: категория, сумма, день месяца, дата первой операции
+     */
+    private static final String INCOME_ADDED = "Добавлен регулярный доход по источнику %s на сумму %s руб. "
+            + "каждое %d число. Первая операция будет добавлена %s";
+
+    /**
+     * Сообщение о добавлении регулярного расхода: категория, сумма, день месяца, дата первой операции
+     */
+    private static final String EXPENSE_ADDED = "Добавлен регулярный расход по категории %s на сумму %s руб. "
+            + "каждое %d число. Первая операция будет добавлена %s";
+
+    /**
+     * Формат даты операции
+     */
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    /**
+     * Тип категории, с которым будет работать обработчик
+     */
+    private final CategoryType categoryType;
+
+    /**
+     * Хранилище категорий
+     */
+    private final CategoryRepository categoryRepository;
+
+    /**
+     * Хранилище правил регулярных операций
+     */
+    private final RecurringOperationRepository recurringOperationRepository;
+
+    /**
+     * Сервис, который парсит категорию
+     */
+    private final CategoryParseService categoryParseService;
+
+    /**
+     * Сервис, который парсит числа
+     */
+    private final NumberParseService numberParseService;
+
+    /**
+     * Сервис, который приводит числа для вывода к нужному формату
+     */
+    private final OutputNumberFormatService numberFormatService;
+
+    public AddRecurringOperationHandler(CategoryType categoryType, CategoryRepository categoryRepository,
+                                        RecurringOperationRepository recurringOperationRepository,
+                                        CategoryParseService categoryParseService,
+                                        NumberParseService numberParseService,
+                                        OutputNumberFormatService numberFormatService) {
+        this.categoryType = categoryType;
+        this.categoryRepository = categoryRepository;
+        this.recurringOperationRepository = recurringOperationRepository;
+        this.categoryParseService = categoryParseService;
+        this.numberParseService = numberParseService;
+        this.numberFormatService = numberFormatService;
+    }
+
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        List<String> args = commandData.getArgs();
+        if (args.size() < 3) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+            return;
+        }
+        int dayOfMonth;
+        try {
+            dayOfMonth = Integer.parseInt(args.get(0));
+        } catch (NumberFormatException e) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+            return;
+        }
+        if (dayOfMonth < 1 || dayOfMonth > 31) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+            return;
+        }
+        Money payment;
+        try {
+            payment = numberParseService.parsePositiveMoney(args.get(1));
+        } catch (NumberFormatException e) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_PAYMENT_ARG);
+            return;
+        }
+        String categoryName;
+        try {
+            categoryName = categoryParseService.parseCategory(args.subList(2, args.size()));
+        } catch (IllegalArgumentException e) {
+            commandData.getBot().sendMessage(commandData.getChatId(), e.getMessage());
+            return;
+        }
+        User user = commandData.getUser();
+        Optional<Category> category = categoryRepository.getCategoryByName(session, user, categoryType, categoryName);
+        if (category.isEmpty()) {
+            commandData.getBot().sendMessage(commandData.getChatId(), CATEGORY_DOES_NOT_EXISTS);
+            return;
+        }
+        RecurringOperation recurringOperation = new RecurringOperation(user, category.get(),
+                categoryType == CategoryType.EXPENSE ? payment.negate() : payment, dayOfMonth, LocalDate.now());
+        recurringOperationRepository.saveRecurringOperation(session, recurringOperation);
+        String message = categoryType == CategoryType.INCOME ? INCOME_ADDED : EXPENSE_ADDED;
+        commandData.getBot().sendMessage(commandData.getChatId(), message.formatted(
+                category.get().getCategoryName(), numberFormatService.formatMoney(payment), dayOfMonth,
+                DAY_FORMATTER.format(recurringOperation.getNextDue())));
+    }
+}
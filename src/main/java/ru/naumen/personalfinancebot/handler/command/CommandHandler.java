@@ -8,7 +8,32 @@ import ru.naumen.personalfinancebot.handler.commandData.CommandData;
  */
 public interface CommandHandler {
     /**
-     * Метод, вызываемый при получении команды
+     * Метод, вызываемый при получении команды.
+     * Для обработчиков с {@link CommandRequirement#NONE} сессия равна null
      */
     void handleCommand(CommandData commandData, Session session);
+
+    /**
+     * Возвращает, что нужно обработчику для выполнения команды. По умолчанию нужен пользователь
+     */
+    default CommandRequirement getRequirement() {
+        return CommandRequirement.USER;
+    }
+
+    /**
+     * Можно ли выполнить команду в транзакции, общей с другими командами (групповая фиксация).
+     * Такая команда должна только писать в БД и отвечать через бот из {@link CommandData}
+     */
+    default boolean isGroupCommitSupported() {
+        return false;
+    }
+
+    /**
+     * Можно ли принять команду в журнал команд, пока БД недоступна, и выполнить позже.
+     * Такая команда получает запись журнала в {@link CommandData#getJournalEntry()}
+     * и не должна выполняться повторно для одной записи
+     */
+    default boolean isJournalSupported() {
+        return false;
+    }
 }
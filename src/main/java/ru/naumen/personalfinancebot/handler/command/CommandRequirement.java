@@ -0,0 +1,23 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+/**
+ * Что нужно обработчику команды для ее выполнения.
+ * По этому значению бот решает, открывать ли транзакцию и загружать ли пользователя перед вызовом обработчика
+ */
+public enum CommandRequirement {
+    /**
+     * Команде не нужна сессия БД: ответ не зависит от данных, или обработчик сам открывает транзакции
+     * через менеджер транзакций. Обработчик вызывается без сессии
+     */
+    NONE,
+
+    /**
+     * Команде нужна сессия БД, но не данные пользователя, например, для общих отчетов
+     */
+    DATABASE,
+
+    /**
+     * Команде нужен пользователь, отправивший ее. Если пользователя нет в БД, он будет создан
+     */
+    USER
+}
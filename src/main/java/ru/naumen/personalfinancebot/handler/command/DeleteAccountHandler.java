@@ -0,0 +1,70 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.service.AccountErasureService;
+import ru.naumen.personalfinancebot.service.AccountErasureService.ErasureResult;
+
+import java.util.List;
+
+/**
+ * Обработчик команды /delete_me, которая удаляет все данные пользователя: операции, категории,
+ * бюджеты и баланс. Команда выполняется только с подтверждением
+ */
+public class DeleteAccountHandler implements CommandHandler {
+    /**
+     * Слово, которым пользователь подтверждает удаление данных
+     */
+    private static final String CONFIRMATION = "подтверждаю";
+
+    /**
+     * Сообщение о том, что удаление нужно подтвердить
+     */
+    private static final String CONFIRMATION_REQUIRED = """
+            Команда удалит все ваши данные: операции, категории, бюджеты и баланс. Отменить удаление нельзя.
+            Чтобы подтвердить, введите /delete_me %s""".formatted(CONFIRMATION);
+
+    /**
+     * Сообщение о ходе удаления: количество удаленных операций
+     */
+    private static final String PROGRESS = "Удалено операций: %d";
+
+    /**
+     * Сообщение об итоге удаления: количество удаленных операций и бюджетов
+     */
+    private static final String ACCOUNT_DELETED = "Ваши данные удалены. Удалено операций: %d, бюджетов: %d";
+
+    /**
+     * Сервис, который удаляет данные пользователя
+     */
+    private final AccountErasureService erasureService;
+
+    public DeleteAccountHandler(AccountErasureService erasureService) {
+        this.erasureService = erasureService;
+    }
+
+    /**
+     * Сервис удаления сам открывает транзакции, по одной на порцию операций, поэтому обработчик вызывается без сессии
+     */
+    @Override
+    public CommandRequirement getRequirement() {
+        return CommandRequirement.NONE;
+    }
+
+    /**
+     * Удаляет данные порциями в отдельных транзакциях, пользователя - последним: если удаление прервалось,
+     * повторная команда удаляет оставшиеся данные
+     */
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        List<String> args = commandData.getArgs();
+        if (args.size() != 1 || !CONFIRMATION.equalsIgnoreCase(args.get(0))) {
+            commandData.getBot().sendMessage(commandData.getChatId(), CONFIRMATION_REQUIRED);
+            return;
+        }
+        ErasureResult result = erasureService.eraseUser(commandData.getChatId(), operations ->
+                commandData.getBot().sendMessage(commandData.getChatId(), PROGRESS.formatted(operations)));
+        commandData.getBot().sendMessage(commandData.getChatId(),
+                ACCOUNT_DELETED.formatted(result.operations(), result.budgets()));
+    }
+}
@@ -0,0 +1,111 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.service.OperationExportService;
+import ru.naumen.personalfinancebot.service.OperationExportService.ExportFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Обработчик команды /export [csv|json], которая присылает всю историю операций пользователя файлом.
+ * Файл записывается во временный каталог по мере чтения операций и удаляется после отправки
+ */
+public class ExportOperationsHandler implements CommandHandler {
+    /**
+     * Сообщение о неверных аргументах
+     */
+    private static final String INCORRECT_ARGS = "Команда принимает не более одного аргумента: [формат csv или json]";
+
+    /**
+     * Сообщение об отсутствии операций
+     */
+    private static final String OPERATIONS_NOT_EXIST = "У вас пока нет операций";
+
+    /**
+     * Сообщение о выгрузке: количество операций
+     */
+    private static final String EXPORT_FINISHED = "Выгружено операций: %d";
+
+    /**
+     * Имя файла выгрузки без расширения
+     */
+    private static final String FILE_NAME = "operations";
+
+    /**
+     * Сервис, который выгружает историю операций
+     */
+    private final OperationExportService exportService;
+
+    public ExportOperationsHandler(OperationExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        ExportFormat format = parseFormat(commandData.getArgs());
+        if (format == null) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+            return;
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile(FILE_NAME, "." + format.getExtension());
+            int count;
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                count = exportService.exportOperations(session, commandData.getUser(), format, writer);
+            }
+            if (count == 0) {
+                commandData.getBot().sendMessage(commandData.getChatId(), OPERATIONS_NOT_EXIST);
+                return;
+            }
+            commandData.getBot().sendDocument(commandData.getChatId(), FILE_NAME + "." + format.getExtension(),
+                    file);
+            commandData.getBot().sendMessage(commandData.getChatId(), EXPORT_FINISHED.formatted(count));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    /**
+     * Возвращает формат выгрузки по аргументам команды: по умолчанию CSV
+     *
+     * @return Формат или null, если аргументы неверные
+     */
+    private static ExportFormat parseFormat(List<String> args) {
+        if (args.isEmpty()) {
+            return ExportFormat.CSV;
+        }
+        if (args.size() > 1) {
+            return null;
+        }
+        for (ExportFormat format : ExportFormat.values()) {
+            if (format.getExtension().equalsIgnoreCase(args.get(0))) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Удаляет временный файл, если он был создан. Ошибка удаления не должна скрыть результат команды
+     */
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить временный файл " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.repository.operation.OperationCursor;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Обработчик команды /history, которая выводит историю операций пользователя по страницам,
+ * начиная с последней операции. Следующая страница запрашивается командой с ключом из конца страницы
+ */
+public class HistoryHandler implements CommandHandler {
+    /**
+     * Количество операций на странице
+     */
+    private static final int PAGE_SIZE = 10;
+
+    /**
+     * Сообщение о неверно переданных аргументах
+     */
+    private static final String INCORRECT_ARGS = "Команда принимает не более одного аргумента: "
+            + "[ключ следующей страницы из предыдущего ответа /history]";
+
+    /**
+     * Сообщение об отсутствии операций
+     */
+    private static final String OPERATIONS_NOT_EXIST = "У вас пока нет операций";
+
+    /**
+     * Сообщение о том, что операций после предыдущей страницы нет
+     */
+    private static final String NO_MORE_OPERATIONS = "Больше операций нет";
+
+    /**
+     * Заголовок страницы истории
+     */
+    private static final String HISTORY_HEADER = "История операций:\n";
+
+    /**
+     * Шаблон строки операции: дата, категория, сумма
+     */
+    private static final String OPERATION_PATTERN = "%s %s: %s руб.\n";
+
+    /**
+     * Шаблон подсказки для следующей страницы
+     */
+    private static final String NEXT_PAGE_PATTERN = "Следующая страница: /history %s";
+
+    /**
+     * Формат даты операции
+     */
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    /**
+     * Хранилище операций
+     */
+    private final OperationRepository operationRepository;
+
+    /**
+     * Сервис, который приводит числа для вывода к нужному формату
+     */
+    private final OutputNumberFormatService numberFormatService;
+
+    public HistoryHandler(OperationRepository operationRepository, OutputNumberFormatService numberFormatService) {
+        this.operationRepository = operationRepository;
+        this.numberFormatService = numberFormatService;
+    }
+
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        List<String> args = commandData.getArgs();
+        if (args.size() > 1) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+            return;
+        }
+        OperationCursor after = null;
+        if (args.size() == 1) {
+            try {
+                after = OperationCursor.fromToken(args.get(0));
+            } catch (IllegalArgumentException e) {
+                commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+                return;
+            }
+        }
+        // Лишняя операция загружается, чтобы узнать, есть ли следующая страница
+        List<Operation> operations = operationRepository.getOperationsPage(session, commandData.getUser(), after,
+                PAGE_SIZE + 1);
+        if (operations.isEmpty()) {
+            commandData.getBot().sendMessage(commandData.getChatId(),
+                    after == null ? OPERATIONS_NOT_EXIST : NO_MORE_OPERATIONS);
+            return;
+        }
+        List<Operation> page = operations.subList(0, Math.min(PAGE_SIZE, operations.size()));
+        StringBuilder message = new StringBuilder(HISTORY_HEADER);
+        for (Operation operation : page) {
+            message.append(OPERATION_PATTERN.formatted(DAY_FORMATTER.format(operation.getCreatedAt()),
+                    operation.getCategory().getCategoryName(),
+                    numberFormatService.formatMoney(operation.getPayment())));
+        }
+        if (operations.size() > PAGE_SIZE) {
+            message.append(NEXT_PAGE_PATTERN.formatted(OperationCursor.of(page.get(page.size() - 1)).toToken()));
+        }
+        commandData.getBot().sendMessage(commandData.getChatId(), message.toString());
+    }
+}
@@ -0,0 +1,120 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+import ru.naumen.personalfinancebot.service.OperationImportService;
+import ru.naumen.personalfinancebot.service.OperationImportService.ImportResult;
+import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * Обработчик команды /import, которая добавляет операции из банковской выписки в формате CSV,
+ * присланной документом с подписью "/import"
+ */
+public class ImportOperationsHandler implements CommandHandler {
+    /**
+     * Сообщение о том, что команда не принимает аргументы
+     */
+    private static final String INCORRECT_ARGS = "Команда /import не принимает аргументы";
+
+    /**
+     * Сообщение о том, что к команде не приложен файл
+     */
+    private static final String DOCUMENT_REQUIRED = """
+            Пришлите файл выписки в формате CSV с подписью /import.
+            В каждой строке файла должны быть дата (DD.MM.YYYY), сумма (расход - со знаком минус) и категория, \
+            разделенные ";" или ",", например: 01.11.2023;-350,50;Такси""";
+
+    /**
+     * Сообщение о том, что файл не удалось прочитать
+     */
+    private static final String DOCUMENT_READ_ERROR = "Не удалось прочитать файл выписки. Попробуйте еще раз";
+
+    /**
+     * Сообщение о ходе импорта: количество обработанных строк
+     */
+    private static final String PROGRESS = "Обработано строк: %d";
+
+    /**
+     * Сообщение об итоге импорта: количество операций, их сумма, количество пропущенных строк, баланс
+     */
+    private static final String IMPORT_FINISHED =
+            "Импортировано операций: %d на сумму %s руб. Пропущено строк: %d. Ваш баланс: %s руб.";
+
+    /**
+     * Хранилище пользователей
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Хранилище бюджетов
+     */
+    private final BudgetRepository budgetRepository;
+
+    /**
+     * Сервис, который импортирует операции из CSV файла
+     */
+    private final OperationImportService importService;
+
+    /**
+     * Сервис, который приводит числа для вывода к нужному формату
+     */
+    private final OutputNumberFormatService numberFormatService;
+
+    public ImportOperationsHandler(UserRepository userRepository, BudgetRepository budgetRepository,
+                                   OperationImportService importService,
+                                   OutputNumberFormatService numberFormatService) {
+        this.userRepository = userRepository;
+        this.budgetRepository = budgetRepository;
+        this.importService = importService;
+        this.numberFormatService = numberFormatService;
+    }
+
+    /**
+     * Импортирует операции в одной транзакции: если импорт не удался, ни одна операция не добавляется.
+     * Баланс изменяется один раз на сумму всех добавленных операций, а расходы бюджетов подсчитываются
+     * заново при следующем расходе
+     */
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        if (!commandData.getArgs().isEmpty()) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+            return;
+        }
+        Optional<String> documentId = commandData.getDocumentId();
+        if (documentId.isEmpty()) {
+            commandData.getBot().sendMessage(commandData.getChatId(), DOCUMENT_REQUIRED);
+            return;
+        }
+        User user = commandData.getUser();
+        ImportResult result;
+        try (InputStream document = commandData.getBot().openDocument(documentId.get())) {
+            result = importService.importOperations(session, user, document, lines ->
+                    commandData.getBot().sendMessage(commandData.getChatId(), PROGRESS.formatted(lines)));
+        } catch (IOException e) {
+            commandData.getBot().sendMessage(commandData.getChatId(), DOCUMENT_READ_ERROR);
+            // Операции, добавленные до ошибки, откатываются вместе с транзакцией
+            throw new UncheckedIOException(e);
+        }
+        if (result.imported() > 0) {
+            userRepository.changeBalance(session, user, result.total());
+            budgetRepository.resetSpent(session, user);
+        }
+        StringBuilder message = new StringBuilder(IMPORT_FINISHED.formatted(
+                result.imported(),
+                numberFormatService.formatMoney(result.total()),
+                result.skipped(),
+                numberFormatService.formatMoney(user.getBalance())));
+        for (String error : result.errors()) {
+            message.append('\n').append(error);
+        }
+        commandData.getBot().sendMessage(commandData.getChatId(), message.toString());
+    }
+}
@@ -0,0 +1,100 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Обработчик команды /last, которая выводит последние добавленные операции пользователя
+ */
+public class LastOperationsHandler implements CommandHandler {
+    /**
+     * Количество операций, которое выводится по умолчанию
+     */
+    private static final int DEFAULT_COUNT = 5;
+
+    /**
+     * Максимальное количество операций, которое можно запросить
+     */
+    private static final int MAX_COUNT = 10;
+
+    /**
+     * Сообщение о неверно переданных аргументах
+     */
+    private static final String INCORRECT_ARGS = "Команда принимает не более одного аргумента: "
+            + "[количество операций от 1 до %d]".formatted(MAX_COUNT);
+
+    /**
+     * Сообщение об отсутствии операций
+     */
+    private static final String OPERATIONS_NOT_EXIST = "У вас пока нет операций";
+
+    /**
+     * Заголовок списка операций
+     */
+    private static final String LAST_OPERATIONS_HEADER = "Ваши последние операции:\n";
+
+    /**
+     * Шаблон строки операции: дата, категория, сумма
+     */
+    private static final String OPERATION_PATTERN = "%s %s: %s руб.\n";
+
+    /**
+     * Формат даты операции
+     */
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    /**
+     * Хранилище операций
+     */
+    private final OperationRepository operationRepository;
+
+    /**
+     * Сервис, который приводит числа для вывода к нужному формату
+     */
+    private final OutputNumberFormatService numberFormatService;
+
+    public LastOperationsHandler(OperationRepository operationRepository,
+                                 OutputNumberFormatService numberFormatService) {
+        this.operationRepository = operationRepository;
+        this.numberFormatService = numberFormatService;
+    }
+
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        List<String> args = commandData.getArgs();
+        int count = DEFAULT_COUNT;
+        if (args.size() > 1) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+            return;
+        }
+        if (args.size() == 1) {
+            try {
+                count = Integer.parseInt(args.get(0));
+            } catch (NumberFormatException e) {
+                count = 0;
+            }
+            if (count < 1 || count > MAX_COUNT) {
+                commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+                return;
+            }
+        }
+        List<Operation> operations = operationRepository.getLastOperations(session, commandData.getUser(), count);
+        if (operations.isEmpty()) {
+            commandData.getBot().sendMessage(commandData.getChatId(), OPERATIONS_NOT_EXIST);
+            return;
+        }
+        StringBuilder message = new StringBuilder(LAST_OPERATIONS_HEADER);
+        for (Operation operation : operations) {
+            message.append(OPERATION_PATTERN.formatted(DAY_FORMATTER.format(operation.getCreatedAt()),
+                    operation.getCategory().getCategoryName(),
+                    numberFormatService.formatMoney(operation.getPayment())));
+        }
+        commandData.getBot().sendMessage(commandData.getChatId(), message.toString());
+    }
+}
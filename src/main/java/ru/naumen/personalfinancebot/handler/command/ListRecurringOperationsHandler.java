@@ -0,0 +1,78 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.RecurringOperation;
+import ru.naumen.personalfinancebot.repository.recurring.RecurringOperationRepository;
+import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Обработчик команды /recurring, которая выводит регулярные операции пользователя
+ */
+public class ListRecurringOperationsHandler implements CommandHandler {
+    /**
+     * Сообщение об отсутствии регулярных операций
+     */
+    private static final String RECURRING_NOT_EXIST = "У вас нет регулярных операций. Добавьте их командой "
+            + "/add_recurring_[income|expense] [день месяца] [сумма] [категория]";
+
+    /**
+     * Заголовок списка регулярных операций
+     */
+    private static final String LIST_HEADER = "Ваши регулярные операции:";
+
+    /**
+     * Строка списка: ID, категория, сумма, день месяца, дата следующей операции
+     */
+    private static final String LIST_ITEM = "%d. %s: %s руб. каждое %d число, следующая %s";
+
+    /**
+     * Подсказка, как удалить регулярную операцию
+     */
+    private static final String LIST_FOOTER = "Чтобы удалить регулярную операцию, введите /remove_recurring [номер]";
+
+    /**
+     * Формат даты операции
+     */
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    /**
+     * Хранилище правил регулярных операций
+     */
+    private final RecurringOperationRepository recurringOperationRepository;
+
+    /**
+     * Сервис, который приводит числа для вывода к нужному формату
+     */
+    private final OutputNumberFormatService numberFormatService;
+
+    public ListRecurringOperationsHandler(RecurringOperationRepository recurringOperationRepository,
+                                          OutputNumberFormatService numberFormatService) {
+        this.recurringOperationRepository = recurringOperationRepository;
+        this.numberFormatService = numberFormatService;
+    }
+
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        List<RecurringOperation> recurringOperations = recurringOperationRepository.getRecurringOperations(session,
+                commandData.getUser());
+        if (recurringOperations.isEmpty()) {
+            commandData.getBot().sendMessage(commandData.getChatId(), RECURRING_NOT_EXIST);
+            return;
+        }
+        StringBuilder message = new StringBuilder(LIST_HEADER);
+        for (RecurringOperation recurringOperation : recurringOperations) {
+            message.append('\n').append(LIST_ITEM.formatted(
+                    recurringOperation.getId(),
+                    recurringOperation.getCategory().getCategoryName(),
+                    numberFormatService.formatMoney(recurringOperation.getPayment()),
+                    recurringOperation.getDayOfMonth(),
+                    DAY_FORMATTER.format(recurringOperation.getNextDue())));
+        }
+        message.append('\n').append(LIST_FOOTER);
+        commandData.getBot().sendMessage(commandData.getChatId(), message.toString());
+    }
+}
@@ -3,9 +3,10 @@ package ru.naumen.personalfinancebot.handler.command;
 import org.hibernate.Session;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.model.CategoryType;
-import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
 import ru.naumen.personalfinancebot.repository.category.exception.NotExistingCategoryException;
 import ru.naumen.personalfinancebot.service.CategoryParseService;
+import ru.naumen.personalfinancebot.service.CategoryRemovalService;
+import ru.naumen.personalfinancebot.service.CategoryRemovalService.RemovalResult;
 
 /**
  * Обработчик команд для удаления пользовательской категории определенного типа
@@ -25,9 +26,19 @@ public class RemoveCategoryHandler implements CommandHandler {
     private static final String USER_CATEGORY_REMOVED = "Категория %s '%s' успешно удалена";
 
     /**
-     * Хранилище категорий
+     * Сообщение о переносе операций удаленной категории: количество операций, название новой категории
      */
-    private final CategoryRepository categoryRepository;
+    private static final String OPERATIONS_REASSIGNED = "Операции категории (%d) перенесены в категорию '%s'";
+
+    /**
+     * Сообщение об удалении операций удаленной категории
+     */
+    private static final String OPERATIONS_REMOVED = "Операции категории (%d) удалены";
+
+    /**
+     * Сервис, который удаляет категорию и переносит её операции
+     */
+    private final CategoryRemovalService categoryRemovalService;
 
     /**
      * Тип категории, с которым будет работать обработчик
@@ -39,8 +50,9 @@ public class RemoveCategoryHandler implements CommandHandler {
      */
     private final CategoryParseService categoryParseService;
 
-    public RemoveCategoryHandler(CategoryType categoryType, CategoryRepository categoryRepository, CategoryParseService categoryParseService) {
-        this.categoryRepository = categoryRepository;
+    public RemoveCategoryHandler(CategoryType categoryType, CategoryRemovalService categoryRemovalService,
+                                 CategoryParseService categoryParseService) {
+        this.categoryRemovalService = categoryRemovalService;
         this.categoryType = categoryType;
         this.categoryParseService = categoryParseService;
     }
@@ -56,15 +68,22 @@ public class RemoveCategoryHandler implements CommandHandler {
             return;
         }
 
+        RemovalResult result;
         try {
-            categoryRepository.removeUserCategoryByName(session, commandData.getUser(), categoryType, categoryName);
+            result = categoryRemovalService.removeUserCategory(session, commandData.getUser(), categoryType,
+                    categoryName);
         } catch (NotExistingCategoryException e) {
             String responseText = USER_CATEGORY_ALREADY_NOT_EXISTS.formatted(typeLabel, categoryName);
             commandData.getBot().sendMessage(commandData.getUser(), responseText);
             return;
         }
 
-        String responseText = USER_CATEGORY_REMOVED.formatted(typeLabel, categoryName);
-        commandData.getBot().sendMessage(commandData.getUser(), responseText);
+        StringBuilder responseText = new StringBuilder(USER_CATEGORY_REMOVED.formatted(typeLabel, categoryName));
+        if (result.operations() > 0) {
+            responseText.append('\n').append(result.replacement() == null
+                    ? OPERATIONS_REMOVED.formatted(result.operations())
+                    : OPERATIONS_REASSIGNED.formatted(result.operations(), result.replacement().getCategoryName()));
+        }
+        commandData.getBot().sendMessage(commandData.getUser(), responseText.toString());
     }
 }
@@ -0,0 +1,56 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.repository.recurring.RecurringOperationRepository;
+
+import java.util.List;
+
+/**
+ * Обработчик команды /remove_recurring, которая удаляет регулярную операцию по номеру из списка /recurring.
+ * Операции, уже добавленные по ней, остаются
+ */
+public class RemoveRecurringOperationHandler implements CommandHandler {
+    /**
+     * Сообщение о неверно переданных аргументах
+     */
+    private static final String INCORRECT_ARGS =
+            "Данная команда принимает номер регулярной операции из списка /recurring";
+
+    /**
+     * Сообщение об удалении регулярной операции
+     */
+    private static final String RECURRING_REMOVED = "Регулярная операция удалена";
+
+    /**
+     * Сообщение об отсутствии регулярной операции с таким номером
+     */
+    private static final String RECURRING_NOT_FOUND = "У вас нет регулярной операции с таким номером";
+
+    /**
+     * Хранилище правил регулярных операций
+     */
+    private final RecurringOperationRepository recurringOperationRepository;
+
+    public RemoveRecurringOperationHandler(RecurringOperationRepository recurringOperationRepository) {
+        this.recurringOperationRepository = recurringOperationRepository;
+    }
+
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        List<String> args = commandData.getArgs();
+        if (args.size() != 1) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+            return;
+        }
+        long id;
+        try {
+            id = Long.parseLong(args.get(0));
+        } catch (NumberFormatException e) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+            return;
+        }
+        boolean removed = recurringOperationRepository.removeRecurringOperation(session, commandData.getUser(), id);
+        commandData.getBot().sendMessage(commandData.getChatId(), removed ? RECURRING_REMOVED : RECURRING_NOT_FOUND);
+    }
+}
@@ -2,6 +2,7 @@ package ru.naumen.personalfinancebot.handler.command;
 
 import org.hibernate.Session;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.repository.user.UserRepository;
 import ru.naumen.personalfinancebot.service.NumberParseService;
 import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
@@ -41,7 +42,7 @@ public class SetBalanceHandler implements CommandHandler {
 
     @Override
     public void handleCommand(CommandData commandData, Session session) {
-        double amount;
+        Money amount;
         try {
             amount = numberParseService.parseBalance(commandData.getArgs());
         } catch (IllegalArgumentException e) {
@@ -50,11 +51,10 @@ public class SetBalanceHandler implements CommandHandler {
             return;
         }
 
-        commandData.getUser().setBalance(amount);
-        userRepository.saveUser(session, commandData.getUser());
+        userRepository.setBalance(session, commandData.getUser(), amount);
         commandData.getBot().sendMessage(
                 commandData.getUser(),
-                SET_BALANCE_SUCCESSFULLY.formatted(this.numberFormatService.formatDouble(amount))
+                SET_BALANCE_SUCCESSFULLY.formatted(this.numberFormatService.formatMoney(amount))
         );
     }
 }
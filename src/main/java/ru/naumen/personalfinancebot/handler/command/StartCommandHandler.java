@@ -14,8 +14,13 @@ public class StartCommandHandler implements CommandHandler {
      */
     private static final String WELCOME_MESSAGE = "Добро пожаловать в бота для управления финансами!";
 
+    @Override
+    public CommandRequirement getRequirement() {
+        return CommandRequirement.NONE;
+    }
+
     @Override
     public void handleCommand(CommandData commandData, Session session) {
-        commandData.getBot().sendMessage(commandData.getUser(), WELCOME_MESSAGE);
+        commandData.getBot().sendMessage(commandData.getChatId(), WELCOME_MESSAGE);
     }
 }
@@ -0,0 +1,32 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+
+/**
+ * Обработчик команды, которая недоступна в текущем режиме работы бота, например, потому что фоновый сервис,
+ * выполняющий её, не запущен. Отвечает сообщением о недоступности, не обращаясь к БД
+ */
+public class UnavailableCommandHandler implements CommandHandler {
+    /**
+     * Сообщение о недоступности команды
+     */
+    private final String message;
+
+    /**
+     * @param message Сообщение о недоступности команды
+     */
+    public UnavailableCommandHandler(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public CommandRequirement getRequirement() {
+        return CommandRequirement.NONE;
+    }
+
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        commandData.getBot().sendMessage(commandData.getChatId(), message);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Обработчик команды /undo, которая отменяет последнюю добавленную операцию пользователя
+ * и возвращает её сумму на баланс
+ */
+public class UndoOperationHandler implements CommandHandler {
+    /**
+     * Сообщение о том, что команда не принимает аргументы
+     */
+    private static final String INCORRECT_ARGS = "Команда /undo не принимает аргументы";
+
+    /**
+     * Сообщение об отсутствии операций
+     */
+    private static final String OPERATIONS_NOT_EXIST = "У вас нет операций, которые можно отменить";
+
+    /**
+     * Сообщение об отмене операции: дата, категория, сумма, новый баланс
+     */
+    private static final String OPERATION_UNDONE =
+            "Отменена операция от %s по категории %s на сумму %s руб. Ваш баланс: %s руб.";
+
+    /**
+     * Формат даты операции
+     */
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    /**
+     * Хранилище пользователей
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Хранилище операций
+     */
+    private final OperationRepository operationRepository;
+
+    /**
+     * Хранилище бюджетов
+     */
+    private final BudgetRepository budgetRepository;
+
+    /**
+     * Сервис, который приводит числа для вывода к нужному формату
+     */
+    private final OutputNumberFormatService numberFormatService;
+
+    public UndoOperationHandler(UserRepository userRepository, OperationRepository operationRepository,
+                                BudgetRepository budgetRepository, OutputNumberFormatService numberFormatService) {
+        this.userRepository = userRepository;
+        this.operationRepository = operationRepository;
+        this.budgetRepository = budgetRepository;
+        this.numberFormatService = numberFormatService;
+    }
+
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        if (!commandData.getArgs().isEmpty()) {
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGS);
+            return;
+        }
+        User user = commandData.getUser();
+        List<Operation> operations = operationRepository.getLastOperations(session, user, 1);
+        // Операцию могла уже удалить параллельная команда /undo того же пользователя
+        if (operations.isEmpty() || !operationRepository.removeOperation(session, user, operations.get(0))) {
+            commandData.getBot().sendMessage(commandData.getChatId(), OPERATIONS_NOT_EXIST);
+            return;
+        }
+        Operation operation = operations.get(0);
+        userRepository.changeBalance(session, user, operation.getPayment().negate());
+        if (operation.getCategory().getType() == CategoryType.EXPENSE) {
+            // Расходы месяца в бюджете уменьшаются на сумму отмененного расхода
+            Optional<Budget> budget = budgetRepository.getBudget(session, user,
+                    YearMonth.from(operation.getCreatedAt()));
+            budget.ifPresent(value -> budgetRepository.addSpent(session, value, operation.getPayment()));
+        }
+        commandData.getBot().sendMessage(commandData.getChatId(), OPERATION_UNDONE.formatted(
+                DAY_FORMATTER.format(operation.getCreatedAt()),
+                operation.getCategory().getCategoryName(),
+                numberFormatService.formatMoney(operation.getPayment()),
+                numberFormatService.formatMoney(user.getBalance())));
+    }
+}
@@ -0,0 +1,64 @@
+package ru.naumen.personalfinancebot.handler.command.budget;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.handler.command.CommandHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+/**
+ * Обработчик команды "/budget_rollover", которая включает или выключает автоматический перенос бюджета
+ * прошлого месяца на новый месяц
+ */
+public class BudgetRolloverHandler implements CommandHandler {
+    /**
+     * Сообщение о неверно введенной команде /budget_rollover
+     */
+    private static final String INCORRECT_ROLLOVER_ARGS = "Неверно введена команда! Введите "
+            + "/budget_rollover on, чтобы каждый месяц переносить бюджет прошлого месяца на новый месяц, "
+            + "или /budget_rollover off, чтобы выключить перенос";
+
+    /**
+     * Сообщение о включении переноса
+     */
+    private static final String ROLLOVER_ENABLED = "Перенос бюджета включен. В начале каждого месяца бюджет "
+            + "прошлого месяца будет скопирован на новый месяц, если бюджет на новый месяц еще не создан";
+
+    /**
+     * Сообщение о выключении переноса
+     */
+    private static final String ROLLOVER_DISABLED = "Перенос бюджета выключен";
+
+    /**
+     * Хранилище пользователей
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * @param userRepository Хранилище пользователей
+     */
+    public BudgetRolloverHandler(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public void handleCommand(CommandData commandData, Session session) {
+        if (commandData.getArgs().size() != 1) {
+            commandData.getBot().sendMessage(commandData.getUser(), INCORRECT_ROLLOVER_ARGS);
+            return;
+        }
+        boolean enabled;
+        switch (commandData.getArgs().get(0).toLowerCase()) {
+            case "on" -> enabled = true;
+            case "off" -> enabled = false;
+            default -> {
+                commandData.getBot().sendMessage(commandData.getUser(), INCORRECT_ROLLOVER_ARGS);
+                return;
+            }
+        }
+        User user = commandData.getUser();
+        user.setBudgetRollover(enabled);
+        userRepository.saveUser(session, user);
+        commandData.getBot().sendMessage(user, enabled ? ROLLOVER_ENABLED : ROLLOVER_DISABLED);
+    }
+}
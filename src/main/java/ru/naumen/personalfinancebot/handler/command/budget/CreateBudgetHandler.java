@@ -6,6 +6,7 @@ import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.message.Message;
 import ru.naumen.personalfinancebot.model.Budget;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
 import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
@@ -32,6 +33,12 @@ public class CreateBudgetHandler implements CommandHandler {
      */
     private static final String CANT_CREATE_OLD_BUDGET = "Вы не можете создавать бюджеты за прошедшие месяцы!";
 
+    /**
+     * Сообщение о том, что бюджет на месяц уже создан: месяц, год
+     */
+    private static final String BUDGET_ALREADY_EXISTS = "Бюджет на %s %s уже создан. Изменить его можно командами "
+            + "/budget_set_income и /budget_set_expenses";
+
     /**
      * Шаблон сообщения для вывода сообщения о созданном бюджете
      */
@@ -115,22 +122,29 @@ public class CreateBudgetHandler implements CommandHandler {
             return;
         }
 
-        double expectedIncome;
-        double expectedExpenses;
+        Money expectedIncome;
+        Money expectedExpenses;
         try {
-            expectedIncome = this.numberParseService.parsePositiveDouble(commandData.getArgs().get(1));
-            expectedExpenses = this.numberParseService.parsePositiveDouble(commandData.getArgs().get(2));
+            expectedIncome = this.numberParseService.parsePositiveMoney(commandData.getArgs().get(1));
+            expectedExpenses = this.numberParseService.parsePositiveMoney(commandData.getArgs().get(2));
         } catch (NumberFormatException e) {
             commandData.getBot().sendMessage(commandData.getUser(), Message.INCORRECT_BUDGET_NUMBER_ARG);
             return;
         }
 
         User user = commandData.getUser();
-        double balance = user.getBalance();
-        double currentIncome = this.operationRepository.getCurrentUserPaymentSummary(session, user, CategoryType.INCOME, yearMonth);
-        double currentExpenses = this.operationRepository.getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE, yearMonth);
-        double incomeLeft = expectedIncome - currentIncome;
-        double expensesLeft = expectedExpenses - currentExpenses;
+        // Уникальное ограничение (user_id, target_date) не даст создать второй бюджет и при одновременных
+        // командах, а проверка позволяет ответить пользователю без ошибки транзакции
+        if (budgetRepository.getBudget(session, user, yearMonth).isPresent()) {
+            commandData.getBot().sendMessage(user, BUDGET_ALREADY_EXISTS.formatted(
+                    monthFormatService.formatRuMonthName(yearMonth.getMonth()), String.valueOf(yearMonth.getYear())));
+            return;
+        }
+        Money balance = user.getBalance();
+        Money currentIncome = this.operationRepository.getCurrentUserPaymentSummary(session, user, CategoryType.INCOME, yearMonth);
+        Money currentExpenses = this.operationRepository.getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE, yearMonth);
+        Money incomeLeft = expectedIncome.minus(currentIncome);
+        Money expensesLeft = expectedExpenses.minus(currentExpenses);
 
         Budget budget = new Budget();
         budget.setIncome(expectedIncome);
@@ -143,13 +157,13 @@ public class CreateBudgetHandler implements CommandHandler {
                 BUDGET_CREATED.formatted(
                         monthFormatService.formatRuMonthName(yearMonth.getMonth()),
                         String.valueOf(yearMonth.getYear()),
-                        numberFormatService.formatDouble(expectedIncome),
-                        numberFormatService.formatDouble(expectedExpenses),
-                        numberFormatService.formatDouble(currentIncome),
-                        numberFormatService.formatDouble(currentExpenses),
-                        numberFormatService.formatDouble(balance),
-                        numberFormatService.formatDouble(incomeLeft),
-                        numberFormatService.formatDouble(expensesLeft)
+                        numberFormatService.formatMoney(expectedIncome),
+                        numberFormatService.formatMoney(expectedExpenses),
+                        numberFormatService.formatMoney(currentIncome),
+                        numberFormatService.formatMoney(currentExpenses),
+                        numberFormatService.formatMoney(balance),
+                        numberFormatService.formatMoney(incomeLeft),
+                        numberFormatService.formatMoney(expensesLeft)
                 )
         );
     }
@@ -6,6 +6,7 @@ import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.message.Message;
 import ru.naumen.personalfinancebot.model.Budget;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
 import ru.naumen.personalfinancebot.service.DateParseService;
 import ru.naumen.personalfinancebot.service.NumberParseService;
@@ -99,13 +100,13 @@ public class EditBudgetHandler implements CommandHandler {
     public void handleCommand(CommandData commandData, Session session) {
         int argsCount = commandData.getArgs().size();
         YearMonth yearMonth = YearMonth.now();
-        double amount;
+        Money amount;
         try {
             if (argsCount == 1) {
-                amount = this.numberParseService.parsePositiveDouble(commandData.getArgs().get(0));
+                amount = this.numberParseService.parsePositiveMoney(commandData.getArgs().get(0));
             } else if (argsCount == 2) {
                 yearMonth = this.dateParseService.parseYearMonth(commandData.getArgs().get(0));
-                amount = this.numberParseService.parsePositiveDouble(commandData.getArgs().get(1));
+                amount = this.numberParseService.parsePositiveMoney(commandData.getArgs().get(1));
             } else {
                 commandData.getBot().sendMessage(commandData.getUser(), INCORRECT_EDIT_BUDGET_ENTIRE_ARGS);
                 return;
@@ -136,15 +137,15 @@ public class EditBudgetHandler implements CommandHandler {
 
         this.budgetRepository.saveBudget(session, budget.get());
 
-        double expectIncome = budget.get().getIncome();
-        double expectExpenses = budget.get().getExpense();
+        Money expectIncome = budget.get().getIncome();
+        Money expectExpenses = budget.get().getExpense();
         commandData.getBot().sendMessage(
                 commandData.getUser(),
                 BUDGET_EDITED.formatted(
                         monthFormatService.formatRuMonthName(yearMonth.getMonth()),
                         String.valueOf(yearMonth.getYear()),
-                        numberFormatService.formatDouble(expectIncome),
-                        numberFormatService.formatDouble(expectExpenses)
+                        numberFormatService.formatMoney(expectIncome),
+                        numberFormatService.formatMoney(expectExpenses)
                 )
         );
     }
@@ -2,6 +2,7 @@ package ru.naumen.personalfinancebot.handler.command.budget;
 
 import org.hibernate.Session;
 import ru.naumen.personalfinancebot.handler.command.CommandHandler;
+import ru.naumen.personalfinancebot.handler.command.CommandRequirement;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 
 
@@ -18,10 +19,16 @@ public class HelpBudgetHandler implements CommandHandler {
             /budget_list - запланированный бюджет за последние 12 месяцев
             /budget_list [yyyy - год] -  запланированные бюджеты за определенный год
             /budget_list [mm.yyyy from - месяц от] [mm.year to - месяц до] - запланированные бюджеты за определенные месяца
-            /budget_create [mm.yyyy - месяц.год] [ожидаемый доход] [ожидаемый расходы] - планировать бюджет""";
+            /budget_create [mm.yyyy - месяц.год] [ожидаемый доход] [ожидаемый расходы] - планировать бюджет
+            /budget_rollover [on/off] - включить или выключить перенос бюджета прошлого месяца на новый месяц""";
+
+    @Override
+    public CommandRequirement getRequirement() {
+        return CommandRequirement.NONE;
+    }
 
     @Override
     public void handleCommand(CommandData commandData, Session session) {
-        commandData.getBot().sendMessage(commandData.getUser(), BUDGET_HELP);
+        commandData.getBot().sendMessage(commandData.getChatId(), BUDGET_HELP);
     }
 }
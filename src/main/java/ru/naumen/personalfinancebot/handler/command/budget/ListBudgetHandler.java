@@ -6,6 +6,7 @@ import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.message.Message;
 import ru.naumen.personalfinancebot.model.Budget;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
 import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
 import ru.naumen.personalfinancebot.service.DateParseService;
@@ -170,20 +171,20 @@ public class ListBudgetHandler implements CommandHandler {
         resultReplyMessage.append("\n");
         for (Budget budget : budgets) {
             YearMonth targetYearMonth = budget.getTargetDate();
-            double expectIncome = budget.getIncome();
-            double expectExpenses = budget.getExpense();
-            double realIncome = this.operationRepository
+            Money expectIncome = budget.getIncome();
+            Money expectExpenses = budget.getExpense();
+            Money realIncome = this.operationRepository
                     .getCurrentUserPaymentSummary(session, commandData.getUser(), CategoryType.INCOME, targetYearMonth);
-            double realExpenses = this.operationRepository
+            Money realExpenses = this.operationRepository
                     .getCurrentUserPaymentSummary(session, commandData.getUser(), CategoryType.EXPENSE, targetYearMonth);
 
             resultReplyMessage.append(BUDGET_LIST_ELEMENT.formatted(
                     monthFormatService.formatRuMonthName(targetYearMonth.getMonth()),
                     String.valueOf(targetYearMonth.getYear()),
-                    numberFormatService.formatDouble(expectIncome),
-                    numberFormatService.formatDouble(expectExpenses),
-                    numberFormatService.formatDouble(realIncome),
-                    numberFormatService.formatDouble(realExpenses))
+                    numberFormatService.formatMoney(expectIncome),
+                    numberFormatService.formatMoney(expectExpenses),
+                    numberFormatService.formatMoney(realIncome),
+                    numberFormatService.formatMoney(realExpenses))
             );
             resultReplyMessage.append("\n\n");
         }
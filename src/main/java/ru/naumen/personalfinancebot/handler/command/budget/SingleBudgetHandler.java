@@ -5,6 +5,7 @@ import ru.naumen.personalfinancebot.handler.command.CommandHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.model.Budget;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
 import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
 import ru.naumen.personalfinancebot.service.OutputMonthFormatService;
@@ -82,31 +83,31 @@ public class SingleBudgetHandler implements CommandHandler {
             return;
         }
 
-        double expectIncome = budget.get().getIncome();
-        double expectExpenses = budget.get().getExpense();
-        double realIncome = this.operationRepository.getCurrentUserPaymentSummary(
+        Money expectIncome = budget.get().getIncome();
+        Money expectExpenses = budget.get().getExpense();
+        Money realIncome = this.operationRepository.getCurrentUserPaymentSummary(
                 session,
                 commandData.getUser(), CategoryType.INCOME, currentMonthYear
         );
-        double realExpenses = this.operationRepository.getCurrentUserPaymentSummary(
+        Money realExpenses = this.operationRepository.getCurrentUserPaymentSummary(
                 session,
                 commandData.getUser(), CategoryType.EXPENSE, currentMonthYear
         );
-        double incomeLeft = Math.max(0, expectIncome - realIncome);
-        double expensesLeft = Math.max(0, expectExpenses - realExpenses);
-        double balance = commandData.getUser().getBalance();
+        Money incomeLeft = expectIncome.minus(realIncome).max(Money.ZERO);
+        Money expensesLeft = expectExpenses.minus(realExpenses).max(Money.ZERO);
+        Money balance = commandData.getUser().getBalance();
 
         commandData.getBot().sendMessage(
                 commandData.getUser(),
                 CURRENT_BUDGET.formatted(
                         monthFormatService.formatRuMonthName(currentMonthYear.getMonth()),
                         String.valueOf(currentMonthYear.getYear()),
-                        numberFormatService.formatDouble(expectIncome),
-                        numberFormatService.formatDouble(expectExpenses),
-                        numberFormatService.formatDouble(realIncome),
-                        numberFormatService.formatDouble(realExpenses),
-                        numberFormatService.formatDouble(balance),
-                        numberFormatService.formatDouble(incomeLeft),
-                        numberFormatService.formatDouble(expensesLeft)));
+                        numberFormatService.formatMoney(expectIncome),
+                        numberFormatService.formatMoney(expectExpenses),
+                        numberFormatService.formatMoney(realIncome),
+                        numberFormatService.formatMoney(realExpenses),
+                        numberFormatService.formatMoney(balance),
+                        numberFormatService.formatMoney(incomeLeft),
+                        numberFormatService.formatMoney(expensesLeft)));
     }
 }
@@ -2,6 +2,7 @@ package ru.naumen.personalfinancebot.handler.command.report;
 
 import org.hibernate.Session;
 import ru.naumen.personalfinancebot.handler.command.CommandHandler;
+import ru.naumen.personalfinancebot.handler.command.CommandRequirement;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.message.Message;
 import ru.naumen.personalfinancebot.service.DateParseService;
@@ -37,29 +38,34 @@ public class AverageReportHandler implements CommandHandler {
         this.reportService = reportService;
     }
 
+    @Override
+    public CommandRequirement getRequirement() {
+        return CommandRequirement.DATABASE;
+    }
+
     @Override
     public void handleCommand(CommandData commandData, Session session) {
         YearMonth yearMonth;
         try {
             yearMonth = this.dateParseService.parseYearMonthArgs(commandData.getArgs());
         } catch (DateTimeParseException exception) {
-            commandData.getBot().sendMessage(commandData.getUser(), Message.INCORRECT_YEAR_MONTH_FORMAT);
+            commandData.getBot().sendMessage(commandData.getChatId(), Message.INCORRECT_YEAR_MONTH_FORMAT);
             return;
         } catch (IllegalArgumentException exception) {
-            commandData.getBot().sendMessage(commandData.getUser(), INCORRECT_ARGUMENT_COUNT);
+            commandData.getBot().sendMessage(commandData.getChatId(), INCORRECT_ARGUMENT_COUNT);
             return;
         }
 
         String report = this.reportService.getAverageReport(session, yearMonth);
         if (report == null) {
             commandData.getBot().sendMessage(
-                    commandData.getUser(),
+                    commandData.getChatId(),
                     commandData.getArgs().isEmpty()
                             ? Message.CURRENT_DATA_NOT_EXISTS
                             : Message.DATA_NOT_EXISTS
             );
             return;
         }
-        commandData.getBot().sendMessage(commandData.getUser(), report);
+        commandData.getBot().sendMessage(commandData.getChatId(), report);
     }
 }
@@ -5,6 +5,8 @@ import ru.naumen.personalfinancebot.handler.command.CommandHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.service.ReportService;
 
+import java.util.List;
+
 /**
  * Обработчик для команды "/report_expense"
  *
@@ -15,7 +17,8 @@ public class ReportExpensesHandler implements CommandHandler {
      * Сообщение о неверно переданном количестве аргументов для команды /report_expense.
      */
     private static final String INCORRECT_SELF_REPORT_ARGS =
-            "Команда /report_expense принимает 1 аргумент [mm.yyyy], например \"/report_expense 11.2023\"";
+            "Команда /report_expense принимает 1 аргумент [mm.yyyy], например \"/report_expense 11.2023\", "
+                    + "или 2 аргумента [dd.mm.yyyy dd.mm.yyyy], например \"/report_expense 01.11.2023 15.11.2023\"";
 
     /**
      * Сервис для составления отчета в строковом виде
@@ -28,11 +31,15 @@ public class ReportExpensesHandler implements CommandHandler {
 
     @Override
     public void handleCommand(CommandData commandData, Session session) {
-        if (commandData.getArgs().size() != 1) {
-            commandData.getBot().sendMessage(commandData.getUser(), INCORRECT_SELF_REPORT_ARGS);
-            return;
+        List<String> args = commandData.getArgs();
+        String report;
+        if (args.size() == 1) {
+            report = this.reportService.getExpenseReport(session, commandData.getUser(), args.get(0));
+        } else if (args.size() == 2) {
+            report = this.reportService.getExpenseReport(session, commandData.getUser(), args.get(0), args.get(1));
+        } else {
+            report = INCORRECT_SELF_REPORT_ARGS;
         }
-        String report = this.reportService.getExpenseReport(session, commandData.getUser(), commandData.getArgs().get(0));
         commandData.getBot().sendMessage(commandData.getUser(), report);
     }
 }
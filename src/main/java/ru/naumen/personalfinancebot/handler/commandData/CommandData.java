@@ -1,9 +1,12 @@
 package ru.naumen.personalfinancebot.handler.commandData;
 
 import ru.naumen.personalfinancebot.bot.Bot;
+import ru.naumen.personalfinancebot.journal.JournalEntry;
 import ru.naumen.personalfinancebot.model.User;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Класс для хранения данных о команде, пользователе, аргументах
@@ -15,9 +18,19 @@ public class CommandData {
     private final Bot bot;
 
     /**
-     * Пользователь, который отправил команду
+     * ID чата, из которого пришла команда
      */
-    private final User user;
+    private final long chatId;
+
+    /**
+     * Функция, которая загружает пользователя при первом обращении к нему
+     */
+    private final Supplier<User> userResolver;
+
+    /**
+     * Пользователь, который отправил команду. Равен null, пока к нему не обращались
+     */
+    private User user;
 
     /**
      * Название команды
@@ -29,11 +42,68 @@ public class CommandData {
      */
     private final List<String> args;
 
+    /**
+     * Запись журнала команд, по которой выполняется команда, или null
+     */
+    private final JournalEntry journalEntry;
+
+    /**
+     * ID документа, присланного вместе с командой, или null
+     */
+    private final String documentId;
+
     public CommandData(Bot bot, User user, String commandName, List<String> args) {
+        this(bot, user.getChatId(), () -> user, commandName, args);
+    }
+
+    /**
+     * @param bot          Бот, который обрабатывает команду
+     * @param chatId       ID чата, из которого пришла команда
+     * @param userResolver Функция, которая загружает пользователя. Вызывается не больше одного раза и только если
+     *                     обработчику понадобился пользователь
+     * @param commandName  Название команды
+     * @param args         Список аргументов к команде
+     */
+    public CommandData(Bot bot, long chatId, Supplier<User> userResolver, String commandName, List<String> args) {
+        this(bot, chatId, userResolver, commandName, args, null, null);
+    }
+
+    /**
+     * Создает данные команды, присланной вместе с документом
+     *
+     * @param bot          Бот, который обрабатывает команду
+     * @param chatId       ID чата, из которого пришла команда
+     * @param userResolver Функция, которая загружает пользователя
+     * @param commandName  Название команды
+     * @param args         Список аргументов к команде
+     * @param documentId   ID документа, по которому его можно открыть через {@link Bot#openDocument(String)}
+     */
+    public CommandData(Bot bot, long chatId, Supplier<User> userResolver, String commandName, List<String> args,
+                       String documentId) {
+        this(bot, chatId, userResolver, commandName, args, null, documentId);
+    }
+
+    /**
+     * Создает данные команды, которая выполняется по записи журнала команд
+     *
+     * @param bot          Бот, который обрабатывает команду
+     * @param journalEntry Запись журнала
+     * @param userResolver Функция, которая загружает пользователя
+     */
+    public CommandData(Bot bot, JournalEntry journalEntry, Supplier<User> userResolver) {
+        this(bot, journalEntry.chatId(), userResolver, journalEntry.commandName(), journalEntry.args(),
+                journalEntry, null);
+    }
+
+    private CommandData(Bot bot, long chatId, Supplier<User> userResolver, String commandName, List<String> args,
+                        JournalEntry journalEntry, String documentId) {
         this.bot = bot;
-        this.user = user;
+        this.chatId = chatId;
+        this.userResolver = userResolver;
         this.commandName = commandName;
         this.args = args;
+        this.journalEntry = journalEntry;
+        this.documentId = documentId;
     }
 
     /**
@@ -44,9 +114,19 @@ public class CommandData {
     }
 
     /**
-     * Получает пользователя, который отправил команду
+     * Получает ID чата, из которого пришла команда
+     */
+    public long getChatId() {
+        return chatId;
+    }
+
+    /**
+     * Получает пользователя, который отправил команду. При первом вызове пользователь загружается
      */
     public User getUser() {
+        if (user == null) {
+            user = userResolver.get();
+        }
         return user;
     }
 
@@ -63,4 +143,19 @@ public class CommandData {
     public List<String> getArgs() {
         return args;
     }
+
+    /**
+     * Получает запись журнала команд, по которой выполняется команда.
+     * Запись есть, если журнал включен и команда поддерживает его
+     */
+    public Optional<JournalEntry> getJournalEntry() {
+        return Optional.ofNullable(journalEntry);
+    }
+
+    /**
+     * Получает ID документа, присланного вместе с командой
+     */
+    public Optional<String> getDocumentId() {
+        return Optional.ofNullable(documentId);
+    }
 }
@@ -0,0 +1,278 @@
+package ru.naumen.personalfinancebot.journal;
+
+import ru.naumen.personalfinancebot.journal.exception.JournalFullException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Локальный журнал команд, которые бот принял, пока БД была недоступна.
+ * Журнал хранится в файле, отображенном в память: записи только дописываются в конец,
+ * а выполненные записи отмечаются сдвигом позиции в заголовке файла.
+ * Когда все записи выполнены, журнал снова пишется с начала файла.
+ *
+ * <p>Формат файла: позиция первой невыполненной записи (long), затем записи подряд.
+ * Запись: длина данных (int), CRC32 данных (int), данные. После последней записи стоит нулевая длина.
+ * При открытии журнала записи читаются до нулевой длины или записи с неверной контрольной суммой,
+ * поэтому запись, оборванная при сбое, отбрасывается.</p>
+ */
+public class CommandJournal implements AutoCloseable {
+    /**
+     * Размер заголовка файла: позиция первой невыполненной записи
+     */
+    private static final int HEADER_SIZE = Long.BYTES;
+
+    /**
+     * Размер заголовка записи: длина и контрольная сумма данных
+     */
+    private static final int ENTRY_HEADER_SIZE = Integer.BYTES * 2;
+
+    /**
+     * Канал файла журнала
+     */
+    private final FileChannel channel;
+
+    /**
+     * Файл журнала, отображенный в память
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Размер журнала в байтах
+     */
+    private final int capacity;
+
+    /**
+     * Позиция первой невыполненной записи
+     */
+    private int appliedPosition;
+
+    /**
+     * Позиция, с которой пишется следующая запись
+     */
+    private int writePosition;
+
+    /**
+     * Сколько байт записано в журнал за все время. В отличие от позиций не уменьшается,
+     * когда журнал начинает писаться с начала, поэтому по нему определяется, сброшена ли запись на диск
+     */
+    private long appendedBytes;
+
+    /**
+     * Блокировка сброса на диск. Сброс выполняется одним потоком за раз и покрывает записи всех потоков
+     */
+    private final Object syncLock = new Object();
+
+    /**
+     * Сколько байт из {@link #appendedBytes} гарантированно сброшено на диск
+     */
+    private long syncedBytes;
+
+    /**
+     * Открывает журнал или создает его, если файла нет, и находит невыполненные записи
+     *
+     * @param file     Файл журнала
+     * @param capacity Размер журнала в байтах
+     */
+    public CommandJournal(Path file, int capacity) throws IOException {
+        if (capacity <= HEADER_SIZE + ENTRY_HEADER_SIZE) {
+            throw new IllegalArgumentException("Размер журнала слишком мал: " + capacity);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        this.capacity = capacity;
+
+        long storedAppliedPosition = buffer.getLong(0);
+        this.appliedPosition = storedAppliedPosition >= HEADER_SIZE && storedAppliedPosition < capacity
+                ? (int) storedAppliedPosition
+                : HEADER_SIZE;
+        this.writePosition = appliedPosition;
+        for (ReadEntry entry = readAt(writePosition); entry != null; entry = readAt(writePosition)) {
+            writePosition = entry.endPosition();
+        }
+    }
+
+    /**
+     * Добавляет запись в конец журнала и дожидается ее сброса на диск.
+     * Записи, добавленные одновременно из разных потоков, сбрасываются на диск одним вызовом
+     *
+     * @throws JournalFullException если в журнале не осталось места
+     */
+    public void append(JournalEntry entry) throws JournalFullException {
+        sync(write(serialize(entry)));
+    }
+
+    /**
+     * Возвращает первую невыполненную запись
+     */
+    public synchronized Optional<JournalEntry> peek() {
+        ReadEntry entry = appliedPosition < writePosition ? readAt(appliedPosition) : null;
+        return entry == null ? Optional.empty() : Optional.of(entry.entry());
+    }
+
+    /**
+     * Отмечает выполненной первую невыполненную запись. Когда выполнены все записи,
+     * журнал снова начинает писаться с начала файла
+     *
+     * @param entry Запись, которую вернул {@link #peek()}
+     * @throws IllegalStateException если запись не является первой невыполненной
+     */
+    public synchronized void markApplied(JournalEntry entry) {
+        ReadEntry first = appliedPosition < writePosition ? readAt(appliedPosition) : null;
+        if (first == null || !first.entry().id().equals(entry.id())) {
+            throw new IllegalStateException("Запись %s не является первой невыполненной".formatted(entry.id()));
+        }
+        appliedPosition = first.endPosition();
+        if (appliedPosition == writePosition) {
+            appliedPosition = HEADER_SIZE;
+            writePosition = HEADER_SIZE;
+            buffer.putInt(HEADER_SIZE, 0);
+        }
+        // Позиция не сбрасывается на диск сразу: после сбоя запись выполнится еще раз,
+        // а повторное выполнение не меняет данные благодаря ID записи
+        buffer.putLong(0, appliedPosition);
+    }
+
+    /**
+     * Проверяет, выполнены ли все записи журнала
+     */
+    public synchronized boolean isEmpty() {
+        return appliedPosition == writePosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            buffer.force();
+        }
+        channel.close();
+    }
+
+    /**
+     * Записывает данные записи в буфер
+     *
+     * @return Сколько байт будет записано в журнал за все время после этой записи
+     */
+    private synchronized long write(byte[] data) throws JournalFullException {
+        int endPosition = writePosition + ENTRY_HEADER_SIZE + data.length;
+        if (endPosition + Integer.BYTES > capacity) {
+            throw new JournalFullException(capacity);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        buffer.put(writePosition + ENTRY_HEADER_SIZE, data);
+        buffer.putInt(writePosition + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(endPosition, 0);
+        buffer.putInt(writePosition, data.length);
+        appendedBytes += endPosition - writePosition;
+        writePosition = endPosition;
+        return appendedBytes;
+    }
+
+    /**
+     * Дожидается, пока первые appendedBytes байт журнала будут сброшены на диск.
+     * Если другой поток уже сбросил их, то повторный сброс не выполняется
+     */
+    private void sync(long appendedBytes) {
+        synchronized (syncLock) {
+            if (syncedBytes >= appendedBytes) {
+                return;
+            }
+            long target;
+            synchronized (this) {
+                target = this.appendedBytes;
+            }
+            buffer.force();
+            syncedBytes = target;
+        }
+    }
+
+    /**
+     * Читает запись, которая начинается с указанной позиции
+     *
+     * @return Запись или null, если на этой позиции нет целой записи
+     */
+    private ReadEntry readAt(int position) {
+        if (position + ENTRY_HEADER_SIZE > capacity) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        int endPosition = position + ENTRY_HEADER_SIZE + length;
+        if (length <= 0 || endPosition > capacity) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        buffer.get(position + ENTRY_HEADER_SIZE, data);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+            return null;
+        }
+        return new ReadEntry(deserialize(data), endPosition);
+    }
+
+    /**
+     * Переводит запись в байты
+     */
+    private static byte[] serialize(JournalEntry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(entry.id().getMostSignificantBits());
+            output.writeLong(entry.id().getLeastSignificantBits());
+            output.writeLong(entry.chatId());
+            output.writeLong(entry.acceptedDate().toEpochDay());
+            output.writeUTF(entry.commandName());
+            output.writeInt(entry.args().size());
+            for (String arg : entry.args()) {
+                output.writeUTF(arg);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Восстанавливает запись из байтов
+     */
+    private static JournalEntry deserialize(byte[] data) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(data))) {
+            UUID id = new UUID(input.readLong(), input.readLong());
+            long chatId = input.readLong();
+            LocalDate acceptedDate = LocalDate.ofEpochDay(input.readLong());
+            String commandName = input.readUTF();
+            int argsCount = input.readInt();
+            List<String> args = new ArrayList<>(argsCount);
+            for (int i = 0; i < argsCount; i++) {
+                args.add(input.readUTF());
+            }
+            return new JournalEntry(id, chatId, acceptedDate, commandName, List.copyOf(args));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Прочитанная запись и позиция сразу после нее
+     *
+     * @param entry       Запись
+     * @param endPosition Позиция следующей записи
+     */
+    private record ReadEntry(JournalEntry entry, int endPosition) {
+    }
+}
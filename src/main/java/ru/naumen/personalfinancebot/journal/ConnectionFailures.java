@@ -0,0 +1,72 @@
+package ru.naumen.personalfinancebot.journal;
+
+import org.hibernate.HibernateException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.hibernate.exception.JDBCConnectionException;
+
+import javax.persistence.PersistenceException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+
+/**
+ * Определение ошибок, вызванных недоступностью БД, а не самой командой
+ */
+public final class ConnectionFailures {
+    /**
+     * Класс SQLSTATE ошибок подключения
+     */
+    private static final String CONNECTION_EXCEPTION_SQL_STATE_CLASS = "08";
+
+    /**
+     * Классы SQLSTATE ошибок в данных команды: неверное значение и нарушение ограничения целостности
+     */
+    private static final List<String> COMMAND_DATA_SQL_STATE_CLASSES = List.of("22", "23");
+
+    private ConnectionFailures() {
+    }
+
+    /**
+     * Проверяет, вызвано ли исключение или одна из его причин недоступностью БД
+     */
+    public static boolean isConnectionFailure(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JDBCConnectionException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith(CONNECTION_EXCEPTION_SQL_STATE_CLASS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет, вызвано ли исключение самой командой, так что ее повторное выполнение завершится той же ошибкой:
+     * неверными данными или нарушением ограничения в БД либо ошибкой обработчика, не связанной с БД.
+     * Остальные ошибки БД, например, недоступность, ожидание свободного соединения или блокировки
+     * и конфликт сериализации, считаются временными
+     */
+    public static boolean isCommandFailure(Throwable exception) {
+        boolean databaseFailure = false;
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException || cause instanceof DataException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && COMMAND_DATA_SQL_STATE_CLASSES.stream().anyMatch(sqlException.getSQLState()::startsWith)) {
+                return true;
+            }
+            if (cause instanceof SQLException || cause instanceof HibernateException
+                    || cause instanceof PersistenceException) {
+                databaseFailure = true;
+            }
+        }
+        return !databaseFailure;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.naumen.personalfinancebot.journal;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Запись журнала команд: принятая ботом команда, которую нужно выполнить в БД
+ *
+ * @param id           Уникальный ID записи. По нему команда не выполняется повторно
+ * @param chatId       ID чата, из которого пришла команда
+ * @param acceptedDate Дата, когда команда была принята
+ * @param commandName  Название команды
+ * @param args         Аргументы команды
+ */
+public record JournalEntry(UUID id, long chatId, LocalDate acceptedDate, String commandName, List<String> args) {
+    /**
+     * Создает запись для команды, принятой сейчас
+     */
+    public static JournalEntry create(long chatId, String commandName, List<String> args) {
+        return new JournalEntry(UUID.randomUUID(), chatId, LocalDate.now(), commandName, List.copyOf(args));
+    }
+}
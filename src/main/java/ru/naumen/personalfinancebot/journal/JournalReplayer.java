@@ -0,0 +1,151 @@
+package ru.naumen.personalfinancebot.journal;
+
+import ru.naumen.personalfinancebot.bot.Bot;
+import ru.naumen.personalfinancebot.bot.BufferedBot;
+import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновое выполнение записей журнала команд в БД по порядку их поступления
+ */
+public class JournalReplayer {
+    /**
+     * Как часто проверяется, есть ли в журнале невыполненные записи и доступна ли БД
+     */
+    private static final Duration REPLAY_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Сообщение пользователю о принятой ранее команде, которая пропущена из-за ошибки
+     */
+    private static final String COMMAND_FAILED =
+            "Не удалось выполнить принятую ранее команду /%s %s. Проверьте данные и повторите команду";
+
+    /**
+     * Журнал команд
+     */
+    private final CommandJournal journal;
+
+    /**
+     * Обработчик команд
+     */
+    private final FinanceBotHandler botHandler;
+
+    /**
+     * Репозиторий для работы с пользователем
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Бот, через который отправляются ответы на выполненные команды
+     */
+    private final Bot bot;
+
+    /**
+     * Поток, в котором выполняются записи
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param journal            Журнал команд
+     * @param botHandler         Обработчик команд
+     * @param userRepository     Репозиторий для работы с пользователем
+     * @param transactionManager Менеджер транзакций
+     * @param bot                Бот, через который отправляются ответы на выполненные команды
+     */
+    public JournalReplayer(CommandJournal journal, FinanceBotHandler botHandler, UserRepository userRepository,
+                           TransactionManager transactionManager, Bot bot) {
+        this.journal = journal;
+        this.botHandler = botHandler;
+        this.userRepository = userRepository;
+        this.transactionManager = transactionManager;
+        this.bot = bot;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает периодическое выполнение записей журнала
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                replayPending();
+            } catch (RuntimeException e) {
+                System.err.println("Произошла ошибка во время выполнения журнала команд:");
+                e.printStackTrace();
+            }
+        }, 0, REPLAY_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает выполнение записей журнала, дождавшись текущей записи
+     */
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(REPLAY_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Выполняет невыполненные записи журнала по порядку, каждую в своей транзакции, и отправляет ответы на них.
+     * Останавливается на первой записи, которая не выполнилась из-за временной ошибки БД, например,
+     * недоступности, ожидания соединения или блокировки: она будет выполнена при следующей проверке.
+     * Запись пропускается, только если ее повторное выполнение завершится той же ошибкой
+     * (см. {@link ConnectionFailures#isCommandFailure(Throwable)}), чтобы не блокировать остальные.
+     * О пропущенной записи сообщается пользователю, потому что ему уже ответили, что команда принята
+     *
+     * @return true, если выполнены все записи
+     */
+    public boolean replayPending() {
+        Optional<JournalEntry> pendingEntry;
+        while ((pendingEntry = journal.peek()).isPresent()) {
+            JournalEntry entry = pendingEntry.get();
+            BufferedBot replies = new BufferedBot(bot);
+            try {
+                transactionManager.produceTransaction(session -> {
+                    replies.clear();
+                    CommandData commandData = new CommandData(replies, entry,
+                            () -> userRepository.getOrCreateUser(session, entry.chatId()));
+                    botHandler.handleCommand(commandData, session);
+                });
+            } catch (RuntimeException e) {
+                if (ConnectionFailures.isConnectionFailure(e)) {
+                    return false;
+                }
+                if (!ConnectionFailures.isCommandFailure(e)) {
+                    System.err.println("Запись журнала %s будет выполнена повторно после ошибки:"
+                            .formatted(entry.id()));
+                    e.printStackTrace();
+                    return false;
+                }
+                System.err.println("Запись журнала %s пропущена из-за ошибки:".formatted(entry.id()));
+                e.printStackTrace();
+                replies.clear();
+                replies.sendMessage(entry.chatId(),
+                        COMMAND_FAILED.formatted(entry.commandName(), String.join(" ", entry.args())));
+            }
+            journal.markApplied(entry);
+            replies.flush();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.naumen.personalfinancebot.journal.exception;
+
+/**
+ * Исключение, выбрасываемое в случае, если в журнале команд не осталось места для новой записи
+ */
+public class JournalFullException extends Exception {
+    /**
+     * @param capacity Размер журнала в байтах
+     */
+    public JournalFullException(int capacity) {
+        super("Журнал команд размером %d байт заполнен".formatted(capacity));
+    }
+}
@@ -1,5 +1,10 @@
 package ru.naumen.personalfinancebot.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.QueryHints;
+import ru.naumen.personalfinancebot.configuration.CacheRegion;
+
 import javax.persistence.*;
 import java.time.LocalDate;
 import java.time.YearMonth;
@@ -8,7 +13,32 @@ import java.time.YearMonth;
  * Модель данных "Бюджет"
  */
 @Entity
-@Table(name = "budgets")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegion.BUDGET)
+@Table(name = "budgets", uniqueConstraints = {
+        @UniqueConstraint(name = "budgets_user_id_target_date_key", columnNames = {"user_id", "target_date"})
+}, indexes = {
+        @Index(name = "budgets_target_date_user_id_idx", columnList = "target_date, user_id")
+})
+@NamedQueries({
+        @NamedQuery(name = "Budget.byUserAndRange",
+                query = "from Budget where user = :user "
+                        + "and targetDate >= :rangeStartDate and targetDate < :rangeEndDate "
+                        + "order by targetDate asc",
+                hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+        @NamedQuery(name = "Budget.byUserRangeAndMonth",
+                query = "select budget.user.id, budget.income, budget.expense from Budget budget "
+                        + "where budget.user.id >= :fromUserId and budget.user.id <= :toUserId "
+                        + "and budget.targetDate = :targetDate"),
+        // Запрос читает порцию по индексу (target_date, user_id) начиная с :afterUserId
+        @NamedQuery(name = "Budget.rolloverUserIds",
+                query = "select budget.user.id from Budget budget "
+                        + "where budget.targetDate = :targetDate and budget.user.id > :afterUserId "
+                        + "and budget.user.budgetRollover = true "
+                        + "order by budget.user.id"),
+        @NamedQuery(name = "Budget.deleteByUser",
+                query = "delete from Budget where user = :user")
+})
 public class Budget {
     /**
      * День месяца, который указывается в типе данных {@link LocalDate}
@@ -19,7 +49,9 @@ public class Budget {
      * Уникальный идентификатор
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdSequence.NAME)
+    @SequenceGenerator(name = IdSequence.NAME, sequenceName = IdSequence.NAME,
+            allocationSize = IdSequence.ALLOCATION_SIZE)
     @Column(name = "id", unique = true, nullable = false)
     private long id;
 
@@ -31,16 +63,16 @@ public class Budget {
     private User user;
 
     /**
-     * Планируемый доход
+     * Планируемый доход в копейках
      */
     @Column(name = "income", nullable = false)
-    private double income;
+    private long income;
 
     /**
-     * Планируемый расход
+     * Планируемый расход в копейках
      */
     @Column(name = "expense", nullable = false)
-    private double expense;
+    private long expense;
 
     /**
      * Дата, обозначающая год и месяц, за которыми закреплён ожидаемый бюджет
@@ -49,6 +81,20 @@ public class Budget {
     @Column(name = "target_date", nullable = false)
     private LocalDate targetDate;
 
+    /**
+     * Наибольший порог расходов в процентах от ожидаемого расхода, о достижении которого пользователь
+     * уже уведомлен, или 0, если уведомлений не было
+     */
+    @Column(name = "expense_alert_percent", nullable = false)
+    private int expenseAlertPercent;
+
+    /**
+     * Расходы месяца в копейках или null, если они еще не подсчитаны. Колонка изменяется только запросами
+     * хранилища относительно значения в БД и не записывается при сохранении бюджета
+     */
+    @Column(name = "spent", insertable = false, updatable = false)
+    private Long spent;
+
     public Budget() {
 
     }
@@ -59,20 +105,27 @@ public class Budget {
      * @param expense   Ожидаемый расход
      * @param yearMonth Год-месяй
      */
-    public Budget(User user, double income, double expense, YearMonth yearMonth) {
+    public Budget(User user, Money income, Money expense, YearMonth yearMonth) {
         this.user = user;
-        this.income = income;
-        this.expense = expense;
+        this.income = income.getKopecks();
+        this.expense = expense.getKopecks();
         this.targetDate = LocalDate.of(yearMonth.getYear(), yearMonth.getMonth(), FIRST_DAY_OF_MONTH);
     }
 
     /**
      * @return Уникальный идентификатор
      */
-    private long getId() {
+    public long getId() {
         return this.id;
     }
 
+    /**
+     * Устанавливает идентификатор бюджета, сохраненного не через Hibernate
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
 
     /**
      * @return Год-Месяц бюджета
@@ -91,33 +144,49 @@ public class Budget {
     }
 
     /**
-     * Устанавливает ожидаемый расход
+     * Устанавливает ожидаемый расход. Уведомления о порогах расходов начинаются заново,
+     * так как пороги считаются от нового расхода
      * @param expense Сумма расходов
      */
-    public void setExpense(double expense) {
-        this.expense = expense;
+    public void setExpense(Money expense) {
+        this.expense = expense.getKopecks();
+        this.expenseAlertPercent = 0;
     }
 
     /**
      * @return Ожидаемый расход
      */
-    public double getExpense() {
-        return this.expense;
+    public Money getExpense() {
+        return Money.ofKopecks(this.expense);
+    }
+
+    /**
+     * @return Наибольший порог расходов в процентах, о достижении которого пользователь уже уведомлен
+     */
+    public int getExpenseAlertPercent() {
+        return this.expenseAlertPercent;
+    }
+
+    /**
+     * Устанавливает наибольший порог расходов в процентах, о достижении которого пользователь уже уведомлен
+     */
+    public void setExpenseAlertPercent(int expenseAlertPercent) {
+        this.expenseAlertPercent = expenseAlertPercent;
     }
 
     /**
      * Устанавливает ожидаемый доход
      * @param income Сумма доходов
      */
-    public void setIncome(double income) {
-        this.income = income;
+    public void setIncome(Money income) {
+        this.income = income.getKopecks();
     }
 
     /**
      * @return Ожидаемый расход
      */
-    public double getIncome() {
-        return this.income;
+    public Money getIncome() {
+        return Money.ofKopecks(this.income);
     }
 
     /**
@@ -1,5 +1,10 @@
 package ru.naumen.personalfinancebot.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.QueryHints;
+import ru.naumen.personalfinancebot.configuration.CacheRegion;
+
 import javax.persistence.*;
 import java.util.List;
 import java.util.Objects;
@@ -8,13 +13,39 @@ import java.util.Objects;
  * Модель данных "Категория расхода/дохода"
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegion.CATEGORY)
 @Table(name = "categories")
+@NamedQueries({
+        @NamedQuery(name = "Category.standardByType",
+                query = "from Category where user is null and type = :type",
+                hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+        @NamedQuery(name = "Category.userByType",
+                query = "from Category where user = :user and type = :type",
+                hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+        @NamedQuery(name = "Category.standardByName",
+                query = "from Category where user is null and type = :type "
+                        + "and lower(categoryName) = :categoryName",
+                hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+        @NamedQuery(name = "Category.userByName",
+                query = "from Category where user = :user and type = :type "
+                        + "and lower(categoryName) = :categoryName",
+                hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+        @NamedQuery(name = "Category.userOrStandardByName",
+                query = "from Category where (user = :user or user is null) and type = :type "
+                        + "and lower(categoryName) = :categoryName",
+                hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+        @NamedQuery(name = "Category.deleteByUserId",
+                query = "delete from Category where user.id = :userId")
+})
 public class Category {
     /**
      * ID категории
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdSequence.NAME)
+    @SequenceGenerator(name = IdSequence.NAME, sequenceName = IdSequence.NAME,
+            allocationSize = IdSequence.ALLOCATION_SIZE)
     @Column(name = "id", unique = true, nullable = false)
     private long id;
 
@@ -26,11 +57,18 @@ public class Category {
     private User user;
 
     /**
-     * Отношение: Операции, связанные с этой категорией
+     * Отношение: Операции, связанные с этой категорией. Перед удалением категории они переносятся
+     * в другую категорию запросами в {@link ru.naumen.personalfinancebot.repository.operation.OperationRepository}
      */
-    @OneToMany(mappedBy = "user", cascade = CascadeType.REMOVE)
+    @OneToMany(mappedBy = "category")
     private List<Operation> operations;
 
+    /**
+     * Отношение: Итоги архивных месяцев по этой категории
+     */
+    @OneToMany(mappedBy = "category")
+    private List<OperationSummary> summaries;
+
     /**
      * Название категории.
      */
@@ -55,6 +93,14 @@ public class Category {
         this.type = type;
     }
 
+    /**
+     * Создает категорию с уже известным ID, например, прочитанную из БД в обход Hibernate
+     */
+    public Category(long id, User user, String categoryName, CategoryType type) {
+        this(user, categoryName, type);
+        this.id = id;
+    }
+
     /**
      * @return ID категории
      */
@@ -62,6 +108,13 @@ public class Category {
         return id;
     }
 
+    /**
+     * Устанавливает ID категории, сохраненной не через Hibernate
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
     /**
      * @return ID пользователя
      */
@@ -0,0 +1,80 @@
+package ru.naumen.personalfinancebot.model;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Модель данных "контрольная точка рассылки итогов месяца": до какого пользователя разосланы итоги месяца.
+ * Пользователи обходятся по возрастанию ID, поэтому после перезапуска рассылка продолжается
+ * с пользователя, следующего за последним обработанным
+ */
+@Entity
+@Table(name = "digest_checkpoints")
+public class DigestCheckpoint {
+    /**
+     * Первый день месяца, итоги которого рассылаются
+     */
+    @Id
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    /**
+     * ID последнего пользователя, которому отправлены итоги, или 0, если рассылка еще не начиналась
+     */
+    @Column(name = "last_user_id", nullable = false)
+    private long lastUserId;
+
+    /**
+     * Разосланы ли итоги всем пользователям
+     */
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    public DigestCheckpoint() {
+    }
+
+    /**
+     * Создает контрольную точку рассылки, которая еще не начиналась
+     *
+     * @param yearMonth Месяц, итоги которого рассылаются
+     */
+    public DigestCheckpoint(YearMonth yearMonth) {
+        this.monthStart = yearMonth.atDay(1);
+    }
+
+    /**
+     * @return Месяц, итоги которого рассылаются
+     */
+    public YearMonth getYearMonth() {
+        return YearMonth.from(monthStart);
+    }
+
+    /**
+     * @return ID последнего пользователя, которому отправлены итоги, или 0, если рассылка еще не начиналась
+     */
+    public long getLastUserId() {
+        return lastUserId;
+    }
+
+    /**
+     * @param lastUserId ID последнего пользователя, которому отправлены итоги
+     */
+    public void setLastUserId(long lastUserId) {
+        this.lastUserId = lastUserId;
+    }
+
+    /**
+     * @return Разосланы ли итоги всем пользователям
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Отмечает, что итоги разосланы всем пользователям
+     */
+    public void complete() {
+        this.completed = true;
+    }
+}
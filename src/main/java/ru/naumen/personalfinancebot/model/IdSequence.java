@@ -0,0 +1,21 @@
+package ru.naumen.personalfinancebot.model;
+
+/**
+ * Общая для всех сущностей последовательность идентификаторов
+ */
+public final class IdSequence {
+    /**
+     * Название генератора и последовательности в БД
+     */
+    public static final String NAME = "hibernate_sequence";
+
+    /**
+     * Шаг последовательности. Hibernate берет из нее сразу столько ID и выдает их без обращения к БД,
+     * поэтому пачка вставок не ждет отдельного запроса nextval на каждую сущность.
+     * Шаг в БД должен совпадать с этим значением, см. migration/002_pooled_id_sequence.sql
+     */
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdSequence() {
+    }
+}
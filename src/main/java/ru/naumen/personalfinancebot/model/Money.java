@@ -0,0 +1,164 @@
+package ru.naumen.personalfinancebot.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежная сумма в рублях, хранящаяся точно в виде целого количества копеек.
+ * Экземпляры неизменяемы.
+ */
+public final class Money implements Comparable<Money> {
+    /**
+     * Нулевая сумма
+     */
+    public static final Money ZERO = new Money(0);
+
+    /**
+     * Количество знаков после запятой (копейки)
+     */
+    private static final int SCALE = 2;
+
+    /**
+     * Количество копеек в одном рубле
+     */
+    private static final long KOPECKS_IN_RUBLE = 100;
+
+    /**
+     * Сумма в копейках
+     */
+    private final long kopecks;
+
+    private Money(long kopecks) {
+        this.kopecks = kopecks;
+    }
+
+    /**
+     * Создает сумму из количества копеек
+     */
+    public static Money ofKopecks(long kopecks) {
+        return kopecks == 0 ? ZERO : new Money(kopecks);
+    }
+
+    /**
+     * Создает сумму из целого количества рублей
+     *
+     * @throws ArithmeticException если сумма не помещается в long копеек
+     */
+    public static Money ofRubles(long rubles) {
+        return ofKopecks(Math.multiplyExact(rubles, KOPECKS_IN_RUBLE));
+    }
+
+    /**
+     * Парсит сумму в рублях, записанную через точку, например "100" или "100.5" или "100.50"
+     *
+     * @throws NumberFormatException если строка не является числом или содержит более 2-х знаков после точки
+     */
+    public static Money parse(String value) throws NumberFormatException {
+        try {
+            BigDecimal rubles = new BigDecimal(value).setScale(SCALE, RoundingMode.UNNECESSARY);
+            return ofKopecks(rubles.unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Разрешено вводить только целые числа или дробные до 2-х знаков после" +
+                                            " запятой.");
+        }
+    }
+
+    /**
+     * Возвращает среднее значение суммы, округленное до копеек
+     *
+     * @param sumKopecks Сумма в копейках
+     * @param count      Количество слагаемых, должно быть больше нуля
+     */
+    public static Money average(long sumKopecks, long count) {
+        long average = BigDecimal.valueOf(sumKopecks)
+                .divide(BigDecimal.valueOf(count), 0, RoundingMode.HALF_UP)
+                .longValueExact();
+        return ofKopecks(average);
+    }
+
+    /**
+     * @return Сумма в копейках
+     */
+    public long getKopecks() {
+        return kopecks;
+    }
+
+    /**
+     * @return Сумма в рублях в виде {@link BigDecimal} с 2-мя знаками после запятой
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(kopecks, SCALE);
+    }
+
+    /**
+     * Возвращает сумму этой и переданной суммы
+     */
+    public Money plus(Money other) {
+        return ofKopecks(Math.addExact(kopecks, other.kopecks));
+    }
+
+    /**
+     * Возвращает разность этой и переданной суммы
+     */
+    public Money minus(Money other) {
+        return ofKopecks(Math.subtractExact(kopecks, other.kopecks));
+    }
+
+    /**
+     * Возвращает сумму с противоположным знаком
+     */
+    public Money negate() {
+        return ofKopecks(Math.negateExact(kopecks));
+    }
+
+    /**
+     * Возвращает сумму по модулю
+     */
+    public Money abs() {
+        return kopecks < 0 ? negate() : this;
+    }
+
+    /**
+     * Возвращает наибольшую из этой и переданной сумм
+     */
+    public Money max(Money other) {
+        return this.compareTo(other) >= 0 ? this : other;
+    }
+
+    /**
+     * Является ли сумма строго больше нуля
+     */
+    public boolean isPositive() {
+        return kopecks > 0;
+    }
+
+    /**
+     * Является ли сумма строго меньше нуля
+     */
+    public boolean isNegative() {
+        return kopecks < 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(kopecks, other.kopecks);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Money money = (Money) o;
+        return kopecks == money.kopecks;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(kopecks);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
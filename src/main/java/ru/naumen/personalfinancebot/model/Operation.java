@@ -3,18 +3,148 @@ package ru.naumen.personalfinancebot.model;
 import javax.persistence.*;
 import java.time.LocalDate;
 import java.util.Objects;
+import java.util.UUID;
 
 /**
  * Модель данных "операция по расходам/доходам"
  */
 @Entity
-@Table(name = "operations")
+@Table(name = "operations", indexes = {
+        @Index(name = "operations_created_at_idx", columnList = "created_at"),
+        @Index(name = "operations_user_id_created_at_id_idx", columnList = "user_id, created_at, id")
+})
+@NamedQueries({
+        @NamedQuery(name = "Operation.sumByCategory",
+                query = "select category.categoryName, sum(operation.payment) from Operation operation "
+                        + "join operation.category category "
+                        + "where category.type = :categoryType "
+                        + "and operation.user = :user "
+                        + "and operation.createdAt >= :rangeStartDate and operation.createdAt < :rangeEndDate "
+                        + "group by category.id, category.categoryName"),
+        @NamedQuery(name = "Operation.categorySum",
+                query = "select sum(operation.payment) from Operation operation "
+                        + "where operation.user = :user and operation.category = :category"),
+        @NamedQuery(name = "Operation.userSum",
+                query = "select sum(operation.payment) from Operation operation "
+                        + "join operation.category category "
+                        + "where operation.user = :user "
+                        + "and category.type = :type "
+                        + "and operation.createdAt >= :rangeStartDate and operation.createdAt < :rangeEndDate"),
+        // Диапазон ID пользователей задает границу по индексу (user_id, created_at, id), поэтому суммы
+        // порции пользователей считаются одним запросом без просмотра операций остальных пользователей
+        @NamedQuery(name = "Operation.sumsByUserRangeAndType",
+                query = "select operation.user.id, category.type, sum(operation.payment) from Operation operation "
+                        + "join operation.category category "
+                        + "where operation.user.id >= :fromUserId and operation.user.id <= :toUserId "
+                        + "and operation.createdAt >= :rangeStartDate and operation.createdAt < :rangeEndDate "
+                        + "group by operation.user.id, category.type"),
+        @NamedQuery(name = "Operation.dailySumsByCategory",
+                query = "select category.id, category.categoryName, category.type, operation.createdAt, "
+                        + "sum(operation.payment) from Operation operation "
+                        + "join operation.category category "
+                        + "where operation.user = :user "
+                        + "group by category.id, category.categoryName, category.type, operation.createdAt "
+                        + "order by category.id, operation.createdAt"),
+        @NamedQuery(name = "Operation.lastByUser",
+                query = "from Operation operation join fetch operation.category "
+                        + "where operation.user = :user "
+                        + "order by operation.id desc"),
+        @NamedQuery(name = "Operation.historyFirstPage",
+                query = "from Operation operation join fetch operation.category "
+                        + "where operation.user = :user "
+                        + "order by operation.createdAt desc, operation.id desc"),
+        // Условие на дату без OR задает границу диапазона по индексу (user_id, created_at, id),
+        // второе условие отбрасывает операции той же даты с большим ID
+        @NamedQuery(name = "Operation.historyPageAfter",
+                query = "from Operation operation join fetch operation.category "
+                        + "where operation.user = :user "
+                        + "and operation.createdAt <= :createdAt "
+                        + "and (operation.createdAt < :createdAt or operation.id < :id) "
+                        + "order by operation.createdAt desc, operation.id desc"),
+        @NamedQuery(name = "Operation.deleteByUserAndId",
+                query = "delete from Operation where user = :user and id = :id"),
+        @NamedQuery(name = "Operation.deleteByUserId",
+                query = "delete from Operation where user.id = :userId"),
+        @NamedQuery(name = "Operation.reassignCategory",
+                query = "update Operation set category = :replacement "
+                        + "where user = :user and category = :category"),
+        @NamedQuery(name = "Operation.deleteByCategory",
+                query = "delete from Operation where user = :user and category = :category"),
+        @NamedQuery(name = "Operation.countByJournalEntryId",
+                query = "select count(operation) from Operation operation "
+                        + "where operation.journalEntryId = :journalEntryId"),
+        @NamedQuery(name = "Operation.firstDateBefore",
+                query = "select min(operation.createdAt) from Operation operation "
+                        + "where operation.createdAt < :before and operation.category is not null"),
+        @NamedQuery(name = "Operation.archiveUserIds",
+                query = "select distinct operation.user.id from Operation operation "
+                        + "where operation.createdAt >= :rangeStartDate and operation.createdAt < :rangeEndDate "
+                        + "and operation.category is not null and operation.user.id > :afterUserId "
+                        + "order by operation.user.id"),
+        @NamedQuery(name = "Operation.countForArchive",
+                query = "select operation.user.id, count(operation) from Operation operation "
+                        + "where operation.createdAt >= :rangeStartDate and operation.createdAt < :rangeEndDate "
+                        + "and operation.category is not null "
+                        + "and operation.user.id > :afterUserId and operation.user.id <= :toUserId "
+                        + "group by operation.user.id"),
+        @NamedQuery(name = "Operation.deleteForArchive",
+                query = "delete from Operation "
+                        + "where createdAt >= :rangeStartDate and createdAt < :rangeEndDate "
+                        + "and category is not null and user.id > :afterUserId and user.id <= :toUserId")
+})
+// HQL не поддерживает вложенный запрос в FROM, поэтому средние считаются нативными SQL запросами:
+// внутренний запрос суммирует платежи каждого пользователя вместе с итогами архивных месяцев,
+// внешний - суммы и количество пользователей
+@NamedNativeQueries({
+        @NamedNativeQuery(name = "Operation.averageByType",
+                query = """
+                        select user_sums.type, sum(user_sums.payments), count(*)
+                        from (select categories.type as type, sum(payments.payment) as payments
+                              from (select user_id, category_id, payment
+                                    from operations
+                                    where created_at >= :rangeStartDate and created_at < :rangeEndDate
+                                    union all
+                                    select user_id, category_id, payment
+                                    from operation_summaries
+                                    where month_start >= :rangeStartDate and month_start < :rangeEndDate
+                                   ) payments
+                              join categories on categories.id = payments.category_id
+                              group by payments.user_id, categories.type) user_sums
+                        group by user_sums.type
+                        """),
+        @NamedNativeQuery(name = "Operation.averageByStandardCategory",
+                query = """
+                        select user_sums.category_name, sum(user_sums.payments), count(*)
+                        from (select categories.category_name as category_name, sum(payments.payment) as payments
+                              from (select user_id, category_id, payment
+                                    from operations
+                                    where created_at >= :rangeStartDate and created_at < :rangeEndDate
+                                    union all
+                                    select user_id, category_id, payment
+                                    from operation_summaries
+                                    where month_start >= :rangeStartDate and month_start < :rangeEndDate
+                                   ) payments
+                              join categories on categories.id = payments.category_id
+                              where categories.user_id is null
+                              group by payments.user_id, categories.category_name) user_sums
+                        group by user_sums.category_name
+                        order by user_sums.category_name asc
+                        """),
+        // HQL не поддерживает LIMIT, поэтому операции пользователя удаляются порциями нативным запросом
+        @NamedNativeQuery(name = "Operation.deleteChunkByUserId",
+                query = """
+                        delete from operations
+                        where id in (select id from operations where user_id = :userId limit :chunkSize)
+                        """)
+})
 public class Operation {
     /**
      * Идентификатор операции
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdSequence.NAME)
+    @SequenceGenerator(name = IdSequence.NAME, sequenceName = IdSequence.NAME,
+            allocationSize = IdSequence.ALLOCATION_SIZE)
     @Column(name = "id", unique = true, nullable = false)
     private long id;
 
@@ -33,10 +163,10 @@ public class Operation {
     private Category category;
 
     /**
-     * Сумма расхода/дохода
+     * Сумма расхода/дохода в копейках
      */
     @Column(name = "payment", nullable = false)
-    private double payment;
+    private long payment;
 
     /**
      * Время записи операции
@@ -44,20 +174,43 @@ public class Operation {
     @Column(name = "created_at")
     private LocalDate createdAt;
 
-    public Operation(User user, Category category, double payment) {
+    /**
+     * ID записи журнала команд, по которой добавлена операция. Уникальность не дает добавить операцию
+     * повторно при воспроизведении журнала. Равен null, если журнал выключен
+     */
+    @Column(name = "journal_entry_id", unique = true, length = 36)
+    private String journalEntryId;
+
+    public Operation(User user, Category category, Money payment) {
         this.user = user;
         this.category = category;
-        this.payment = payment;
+        this.payment = payment.getKopecks();
         this.createdAt = LocalDate.now();
     }
 
-    public Operation(User user, Category category, double payment, LocalDate createdAt) {
+    public Operation(User user, Category category, Money payment, LocalDate createdAt) {
         this.user = user;
         this.category = category;
-        this.payment = payment;
+        this.payment = payment.getKopecks();
         this.createdAt = createdAt;
     }
 
+    /**
+     * Создает операцию с уже известным ID, например, записанную в БД в обход Hibernate
+     */
+    public Operation(long id, User user, Category category, Money payment, LocalDate createdAt) {
+        this(user, category, payment, createdAt);
+        this.id = id;
+    }
+
+    /**
+     * Создает операцию, добавленную по записи журнала команд
+     */
+    public Operation(User user, Category category, Money payment, LocalDate createdAt, UUID journalEntryId) {
+        this(user, category, payment, createdAt);
+        this.journalEntryId = journalEntryId.toString();
+    }
+
     public Operation() {
 
     }
@@ -69,6 +222,13 @@ public class Operation {
         return id;
     }
 
+    /**
+     * Устанавливает ID операции, сохраненной не через Hibernate
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
     /**
      * @return ID пользователя
      */
@@ -93,15 +253,15 @@ public class Operation {
     /**
      * @return Сумма дохода/расхода
      */
-    public double getPayment() {
-        return payment;
+    public Money getPayment() {
+        return Money.ofKopecks(payment);
     }
 
     /**
      * @param payment Сумма дохода/расхода
      */
-    public void setPayment(double payment) {
-        this.payment = payment;
+    public void setPayment(Money payment) {
+        this.payment = payment.getKopecks();
     }
 
     /**
@@ -111,6 +271,13 @@ public class Operation {
         return createdAt;
     }
 
+    /**
+     * @return ID записи журнала команд, по которой добавлена операция, или null
+     */
+    public UUID getJournalEntryId() {
+        return journalEntryId == null ? null : UUID.fromString(journalEntryId);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
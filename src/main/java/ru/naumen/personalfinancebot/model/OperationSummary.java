@@ -0,0 +1,195 @@
+package ru.naumen.personalfinancebot.model;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Модель данных "итог архивного месяца": сумма и количество операций пользователя по категории за месяц,
+ * операции которого перенесены из таблицы operations в архив. Отчеты складывают итоги с операциями,
+ * поэтому суммы за архивные месяцы не меняются, но архивные операции не видны в истории по отдельности.
+ * Итог относится к первому дню месяца
+ */
+@Entity
+@Table(name = "operation_summaries", uniqueConstraints = {
+        @UniqueConstraint(name = "operation_summaries_user_id_month_start_category_id_key",
+                columnNames = {"user_id", "month_start", "category_id"})
+})
+@NamedQueries({
+        @NamedQuery(name = "OperationSummary.sumByCategory",
+                query = "select category.categoryName, sum(summary.payment) "
+                        + "from OperationSummary summary "
+                        + "join summary.category category "
+                        + "where category.type = :categoryType "
+                        + "and summary.user = :user "
+                        + "and summary.monthStart >= :rangeStartDate and summary.monthStart < :rangeEndDate "
+                        + "group by category.id, category.categoryName"),
+        @NamedQuery(name = "OperationSummary.categorySum",
+                query = "select sum(summary.payment) from OperationSummary summary "
+                        + "where summary.user = :user and summary.category = :category"),
+        @NamedQuery(name = "OperationSummary.userSum",
+                query = "select sum(summary.payment) from OperationSummary summary "
+                        + "join summary.category category "
+                        + "where summary.user = :user "
+                        + "and category.type = :type "
+                        + "and summary.monthStart >= :rangeStartDate and summary.monthStart < :rangeEndDate"),
+        @NamedQuery(name = "OperationSummary.sumsByUserRangeAndType",
+                query = "select summary.user.id, category.type, sum(summary.payment) "
+                        + "from OperationSummary summary "
+                        + "join summary.category category "
+                        + "where summary.user.id >= :fromUserId and summary.user.id <= :toUserId "
+                        + "and summary.monthStart >= :rangeStartDate and summary.monthStart < :rangeEndDate "
+                        + "group by summary.user.id, category.type"),
+        @NamedQuery(name = "OperationSummary.monthlySumsByCategory",
+                query = "select category.id, category.categoryName, category.type, summary.monthStart, "
+                        + "summary.payment from OperationSummary summary "
+                        + "join summary.category category "
+                        + "where summary.user = :user"),
+        @NamedQuery(name = "OperationSummary.countByUserAndMonth",
+                query = "select count(summary) from OperationSummary summary "
+                        + "where summary.user = :user and summary.monthStart = :monthStart"),
+        @NamedQuery(name = "OperationSummary.deleteByUserId",
+                query = "delete from OperationSummary where user.id = :userId"),
+        @NamedQuery(name = "OperationSummary.reassignCategory",
+                query = "update OperationSummary set category = :replacement "
+                        + "where user = :user and category = :category"),
+        @NamedQuery(name = "OperationSummary.deleteByCategory",
+                query = "delete from OperationSummary where user = :user and category = :category")
+})
+// Итоги категории за месяцы, в которых у категории-замены уже есть итог, добавляются к нему и удаляются,
+// чтобы не нарушить уникальность итога пользователя за месяц по категории. HQL UPDATE не поддерживает
+// коррелированный подзапрос по обновляемой таблице, поэтому запросы нативные
+@NamedNativeQueries({
+        @NamedNativeQuery(name = "OperationSummary.mergeIntoReplacement",
+                query = """
+                        update operation_summaries
+                        set payment = payment + (select source.payment from operation_summaries source
+                                                 where source.category_id = :categoryId
+                                                 and source.month_start = operation_summaries.month_start),
+                            operation_count = operation_count + (
+                                select source.operation_count from operation_summaries source
+                                where source.category_id = :categoryId
+                                and source.month_start = operation_summaries.month_start)
+                        where user_id = :userId and category_id = :replacementId
+                        and month_start in (select month_start from operation_summaries
+                                            where category_id = :categoryId)
+                        """),
+        @NamedNativeQuery(name = "OperationSummary.deleteMerged",
+                query = """
+                        delete from operation_summaries
+                        where category_id = :categoryId
+                        and month_start in (select month_start from operation_summaries
+                                            where user_id = :userId and category_id = :replacementId)
+                        """)
+})
+public class OperationSummary {
+    /**
+     * Идентификатор итога
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdSequence.NAME)
+    @SequenceGenerator(name = IdSequence.NAME, sequenceName = IdSequence.NAME,
+            allocationSize = IdSequence.ALLOCATION_SIZE)
+    @Column(name = "id", unique = true, nullable = false)
+    private long id;
+
+    /**
+     * Отношение: Пользователь, операции которого подытожены
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", referencedColumnName = "id", nullable = false)
+    private User user;
+
+    /**
+     * Отношение: Категория операций
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id", referencedColumnName = "id", nullable = false)
+    private Category category;
+
+    /**
+     * Первый день месяца
+     */
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    /**
+     * Сумма операций в копейках
+     */
+    @Column(name = "payment", nullable = false)
+    private long payment;
+
+    /**
+     * Количество операций
+     */
+    @Column(name = "operation_count", nullable = false)
+    private long operationCount;
+
+    public OperationSummary() {
+
+    }
+
+    /**
+     * @param user      Пользователь
+     * @param category  Категория
+     * @param yearMonth Месяц
+     */
+    public OperationSummary(User user, Category category, YearMonth yearMonth) {
+        this.user = user;
+        this.category = category;
+        this.monthStart = yearMonth.atDay(1);
+    }
+
+    /**
+     * @return ID итога
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return Месяц
+     */
+    public YearMonth getYearMonth() {
+        return YearMonth.from(monthStart);
+    }
+
+    /**
+     * @return Сумма операций
+     */
+    public Money getPayment() {
+        return Money.ofKopecks(payment);
+    }
+
+    /**
+     * @return Количество операций
+     */
+    public long getOperationCount() {
+        return operationCount;
+    }
+
+    /**
+     * Добавляет к итогу операции
+     *
+     * @param payment Сумма операций
+     * @param count   Количество операций
+     */
+    public void add(Money payment, long count) {
+        this.payment += payment.getKopecks();
+        this.operationCount += count;
+    }
+
+    /**
+     * @return ID пользователя
+     */
+    public long getUserId() {
+        return user.getId();
+    }
+
+    /**
+     * @return ID категории
+     */
+    public long getCategoryId() {
+        return category.getId();
+    }
+}
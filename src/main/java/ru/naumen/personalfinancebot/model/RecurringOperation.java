@@ -0,0 +1,161 @@
+package ru.naumen.personalfinancebot.model;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Модель данных "регулярная операция": правило, по которому операция пользователя добавляется каждый месяц
+ * в указанный день, например, аренда 1-го числа или зарплата 25-го. Если в месяце нет такого дня,
+ * операция добавляется в последний день месяца.
+ * Правило хранит дату следующего срабатывания, по индексу на которой выбираются только наступившие правила
+ */
+@Entity
+@Table(name = "recurring_operations", indexes = {
+        @Index(name = "recurring_operations_next_due_id_idx", columnList = "next_due, id"),
+        @Index(name = "recurring_operations_user_id_idx", columnList = "user_id")
+})
+@NamedQueries({
+        @NamedQuery(name = "RecurringOperation.byUser",
+                query = "from RecurringOperation recurring join fetch recurring.category "
+                        + "where recurring.user = :user "
+                        + "order by recurring.dayOfMonth, recurring.id"),
+        // Условие на дату задает границу диапазона по индексу (next_due, id), поэтому запрос читает
+        // только наступившие правила, а не всю таблицу
+        @NamedQuery(name = "RecurringOperation.due",
+                query = "from RecurringOperation recurring "
+                        + "join fetch recurring.user join fetch recurring.category "
+                        + "where recurring.nextDue <= :today "
+                        + "order by recurring.nextDue, recurring.id"),
+        @NamedQuery(name = "RecurringOperation.deleteByUserAndId",
+                query = "delete from RecurringOperation where user = :user and id = :id"),
+        @NamedQuery(name = "RecurringOperation.deleteByUserId",
+                query = "delete from RecurringOperation where user.id = :userId"),
+        @NamedQuery(name = "RecurringOperation.deleteByCategory",
+                query = "delete from RecurringOperation where category = :category")
+})
+public class RecurringOperation {
+    /**
+     * Идентификатор правила
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdSequence.NAME)
+    @SequenceGenerator(name = IdSequence.NAME, sequenceName = IdSequence.NAME,
+            allocationSize = IdSequence.ALLOCATION_SIZE)
+    @Column(name = "id", unique = true, nullable = false)
+    private long id;
+
+    /**
+     * Отношение: Пользователь, которому добавляются операции
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", referencedColumnName = "id", nullable = false)
+    private User user;
+
+    /**
+     * Отношение: Категория операций
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id", referencedColumnName = "id", nullable = false)
+    private Category category;
+
+    /**
+     * Сумма операции в копейках: положительная для дохода, отрицательная для расхода
+     */
+    @Column(name = "payment", nullable = false)
+    private long payment;
+
+    /**
+     * День месяца, в который добавляется операция, от 1 до 31
+     */
+    @Column(name = "day_of_month", nullable = false)
+    private int dayOfMonth;
+
+    /**
+     * Дата, на которую будет добавлена следующая операция
+     */
+    @Column(name = "next_due", nullable = false)
+    private LocalDate nextDue;
+
+    public RecurringOperation() {
+    }
+
+    /**
+     * Создает правило, первая операция по которому добавляется в ближайший указанный день месяца,
+     * начиная с сегодняшнего
+     *
+     * @param user       Пользователь
+     * @param category   Категория
+     * @param payment    Сумма операции
+     * @param dayOfMonth День месяца, от 1 до 31
+     * @param today      Сегодняшняя дата
+     * @throws IllegalArgumentException если день месяца вне диапазона от 1 до 31
+     */
+    public RecurringOperation(User user, Category category, Money payment, int dayOfMonth, LocalDate today) {
+        if (dayOfMonth < 1 || dayOfMonth > 31) {
+            throw new IllegalArgumentException("День месяца должен быть от 1 до 31");
+        }
+        this.user = user;
+        this.category = category;
+        this.payment = payment.getKopecks();
+        this.dayOfMonth = dayOfMonth;
+        LocalDate thisMonthDue = dueDate(YearMonth.from(today));
+        this.nextDue = thisMonthDue.isBefore(today) ? dueDate(YearMonth.from(today).plusMonths(1)) : thisMonthDue;
+    }
+
+    /**
+     * @return ID правила
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return Пользователь
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * @return Категория операций
+     */
+    public Category getCategory() {
+        return category;
+    }
+
+    /**
+     * @return Сумма операции
+     */
+    public Money getPayment() {
+        return Money.ofKopecks(payment);
+    }
+
+    /**
+     * @return День месяца, в который добавляется операция
+     */
+    public int getDayOfMonth() {
+        return dayOfMonth;
+    }
+
+    /**
+     * @return Дата, на которую будет добавлена следующая операция
+     */
+    public LocalDate getNextDue() {
+        return nextDue;
+    }
+
+    /**
+     * Переносит следующее срабатывание на следующий месяц после добавления операции
+     */
+    public void advance() {
+        this.nextDue = dueDate(YearMonth.from(nextDue).plusMonths(1));
+    }
+
+    /**
+     * Возвращает дату срабатывания в месяце: день правила или последний день месяца, если он короче
+     */
+    private LocalDate dueDate(YearMonth month) {
+        return month.atDay(Math.min(dayOfMonth, month.lengthOfMonth()));
+    }
+}
@@ -1,5 +1,11 @@
 package ru.naumen.personalfinancebot.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import ru.naumen.personalfinancebot.configuration.CacheRegion;
+
 import javax.persistence.*;
 import java.util.List;
 import java.util.Objects;
@@ -9,43 +15,78 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegion.USER)
+@NaturalIdCache(region = CacheRegion.USER_CHAT_ID)
+@NamedQueries({
+        @NamedQuery(name = "User.chatIdsAfter",
+                query = "select user.id, user.chatId from User user where user.id > :afterUserId order by user.id"),
+        @NamedQuery(name = "User.countAfter",
+                query = "select count(user) from User user where user.id > :afterUserId"),
+        @NamedQuery(name = "User.lockRange",
+                query = "select user.id from User user where user.id > :afterUserId and user.id <= :toUserId",
+                lockMode = LockModeType.PESSIMISTIC_WRITE),
+        @NamedQuery(name = "User.lockRolloverRange",
+                query = "select user.id from User user "
+                        + "where user.id > :afterUserId and user.id <= :toUserId and user.budgetRollover = true",
+                lockMode = LockModeType.PESSIMISTIC_WRITE)
+})
 public class User {
 
     /**
      * Идентификатор пользователя
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = IdSequence.NAME)
+    @SequenceGenerator(name = IdSequence.NAME, sequenceName = IdSequence.NAME,
+            allocationSize = IdSequence.ALLOCATION_SIZE)
     @Column(name = "id", unique = true, nullable = false)
     private Long id;
 
     /**
      * Идентификатор чата
      */
+    @NaturalId
     @Column(name = "chat_id", unique = true, nullable = false)
     private long chatId;
 
     /**
-     * Баланс пользователя
+     * Баланс пользователя в копейках. Изменяется только запросами хранилища пользователей относительно значения
+     * в БД, поэтому не перезаписывается при записи остальных изменений пользователя
      */
-    @Column(name = "balance")
-    private double balance;
+    @Column(name = "balance", nullable = false, updatable = false)
+    private long balance;
 
     /**
-     * Отношение: Операции пользователя
+     * Включен ли автоматический перенос бюджета прошлого месяца на новый месяц
      */
-    @OneToMany(mappedBy = "user", cascade = CascadeType.REMOVE)
+    @Column(name = "budget_rollover", nullable = false)
+    private boolean budgetRollover;
+
+    /**
+     * Отношение: Операции пользователя. Удаляются не каскадом, а запросами в
+     * {@link ru.naumen.personalfinancebot.repository.user.UserRepository#removeUserById}
+     */
+    @OneToMany(mappedBy = "user")
     private List<Operation> operations;
 
     /**
      * Отношение: Категории, который добавил пользователь
      */
-    @OneToMany(mappedBy = "user", cascade = CascadeType.REMOVE)
+    @OneToMany(mappedBy = "user")
     private List<Category> categories;
 
-    public User(long chatId, double balance) {
+    public User(long chatId, Money balance) {
         this.chatId = chatId;
-        this.balance = balance;
+        this.balance = balance.getKopecks();
+    }
+
+    /**
+     * Создает пользователя с уже известным ID, например, записанного в БД в обход Hibernate
+     */
+    public User(long id, long chatId, Money balance) {
+        this(chatId, balance);
+        this.id = id;
     }
 
     public User() {}
@@ -57,6 +98,13 @@ public class User {
         return id;
     }
 
+    /**
+     * Устанавливает ID пользователя, сохраненного не через Hibernate
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
     /**
      * @return ID чата
      */
@@ -68,15 +116,29 @@ public class User {
      * Устанавливает баланс пользователя
      * @param balance Баланс пользователя
      */
-    public void setBalance(double balance) {
-        this.balance = balance;
+    public void setBalance(Money balance) {
+        this.balance = balance.getKopecks();
     }
 
     /**
      * @return Баланс пользователя
      */
-    public double getBalance() {
-        return this.balance;
+    public Money getBalance() {
+        return Money.ofKopecks(this.balance);
+    }
+
+    /**
+     * @return Включен ли автоматический перенос бюджета прошлого месяца на новый месяц
+     */
+    public boolean isBudgetRollover() {
+        return budgetRollover;
+    }
+
+    /**
+     * Включает или выключает автоматический перенос бюджета прошлого месяца на новый месяц
+     */
+    public void setBudgetRollover(boolean budgetRollover) {
+        this.budgetRollover = budgetRollover;
     }
 
     @Override
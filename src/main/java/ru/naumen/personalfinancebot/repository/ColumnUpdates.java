@@ -0,0 +1,75 @@
+package ru.naumen.personalfinancebot.repository;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+/**
+ * Изменение колонок одной строки нативным запросом относительно значения в БД, например, баланса пользователя.
+ * Запрос синхронизирован с отдельным пространством запросов, которое не совпадает с таблицами сущностей,
+ * поэтому не сбрасывает сессию и не очищает кэш второго уровня всех сущностей класса, как запрос HQL UPDATE.
+ * Из кэша после фиксации транзакции удаляется только измененная сущность
+ */
+public final class ColumnUpdates {
+    /**
+     * Пространство запросов изменения колонок
+     */
+    private static final String QUERY_SPACE = "column_updates";
+
+    private ColumnUpdates() {
+    }
+
+    /**
+     * Выполняет запрос изменения строки сущности и после фиксации транзакции удаляет сущность из кэша второго уровня
+     *
+     * @param query       Нативный запрос UPDATE с заданными параметрами
+     * @param entityClass Класс измененной сущности
+     * @param id          ID измененной сущности
+     * @return Количество измененных строк
+     */
+    public static int execute(Session session, NativeQuery<?> query, Class<?> entityClass, long id) {
+        int updated = execute(query);
+        if (updated > 0) {
+            SessionFactory sessionFactory = session.getSessionFactory();
+            session.getTransaction().registerSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // Кэш сбрасывается только после фиксации, когда в БД уже новое значение
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        sessionFactory.getCache().evictEntityData(entityClass, id);
+                    }
+                }
+            });
+        }
+        return updated;
+    }
+
+    /**
+     * Выполняет запрос изменения колонок, которые не читаются из сущности, поэтому кэш второго уровня
+     * не сбрасывается, например, подсчитанных расходов бюджета
+     *
+     * @param query Нативный запрос UPDATE с заданными параметрами
+     * @return Количество измененных строк
+     */
+    public static int execute(NativeQuery<?> query) {
+        return query.addSynchronizedQuerySpace(QUERY_SPACE).executeUpdate();
+    }
+
+    /**
+     * Выполняет нативный запрос чтения колонок, синхронизированный с тем же пространством запросов,
+     * поэтому перед ним не сбрасывается сессия
+     *
+     * @param query Нативный запрос SELECT с заданными параметрами
+     * @return Значение единственной строки или null, если строки нет
+     */
+    public static Object select(NativeQuery<?> query) {
+        return query.addSynchronizedQuerySpace(QUERY_SPACE).uniqueResult();
+    }
+}
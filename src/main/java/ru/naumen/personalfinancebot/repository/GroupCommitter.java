@@ -0,0 +1,198 @@
+package ru.naumen.personalfinancebot.repository;
+
+import org.hibernate.Session;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Групповая фиксация: записи из разных потоков собираются в очередь, и отдельный поток выполняет их пачкой
+ * в одной транзакции. Первая запись группы ждет остальные не дольше окна, поэтому задержка каждой команды
+ * ограничена окном и временем фиксации группы
+ */
+class GroupCommitter {
+    /**
+     * Как часто поток фиксации проверяет, не остановлен ли он, пока очередь пуста
+     */
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    /**
+     * Менеджер, через который открываются транзакции
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Окно ожидания записей в наносекундах
+     */
+    private final long windowNanos;
+
+    /**
+     * Максимальное количество записей в группе
+     */
+    private final int maxGroupSize;
+
+    /**
+     * Очередь записей, ожидающих фиксации
+     */
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Поток, который фиксирует группы
+     */
+    private final Thread committerThread;
+
+    /**
+     * Результат последней переданной записи. Записи фиксируются по порядку, поэтому после его завершения
+     * зафиксированы и все предыдущие
+     */
+    private CompletableFuture<Void> lastSubmitted = CompletableFuture.completedFuture(null);
+
+    /**
+     * Остановлена ли групповая фиксация
+     */
+    private volatile boolean closed;
+
+    GroupCommitter(TransactionManager transactionManager, Duration window, int maxGroupSize) {
+        if (maxGroupSize < 1) {
+            throw new IllegalArgumentException("Размер группы должен быть положительным");
+        }
+        this.transactionManager = transactionManager;
+        this.windowNanos = window.toNanos();
+        this.maxGroupSize = maxGroupSize;
+        this.committerThread = new Thread(this::run, "group-commit");
+        this.committerThread.setDaemon(true);
+        this.committerThread.start();
+    }
+
+    /**
+     * Добавляет запись в очередь на фиксацию
+     */
+    synchronized CompletableFuture<Void> submit(Consumer<Session> write, Runnable afterCommit) {
+        if (closed) {
+            throw new IllegalStateException("Групповая фиксация остановлена");
+        }
+        PendingWrite pendingWrite = new PendingWrite(write, afterCommit, new CompletableFuture<>());
+        lastSubmitted = pendingWrite.result();
+        queue.add(pendingWrite);
+        return pendingWrite.result();
+    }
+
+    /**
+     * Дожидается фиксации всех переданных до этого записей, успешной или нет.
+     * В самом потоке фиксации не ждет, так как это привело бы к взаимной блокировке
+     */
+    void awaitSubmitted() {
+        if (Thread.currentThread() == committerThread) {
+            return;
+        }
+        CompletableFuture<Void> last;
+        synchronized (this) {
+            last = lastSubmitted;
+        }
+        last.exceptionally(e -> null).join();
+    }
+
+    /**
+     * Фиксирует оставшиеся записи и останавливает поток фиксации
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            committerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Цикл потока фиксации: собирает группу и фиксирует ее, пока групповая фиксация не остановлена
+     * и в очереди есть записи
+     */
+    private void run() {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    commit(collectGroup(first));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Собирает группу из первой записи и записей, пришедших в течение окна
+     */
+    private List<PendingWrite> collectGroup(PendingWrite first) throws InterruptedException {
+        List<PendingWrite> group = new ArrayList<>();
+        group.add(first);
+        long deadline = System.nanoTime() + windowNanos;
+        while (group.size() < maxGroupSize) {
+            long remaining = deadline - System.nanoTime();
+            PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                break;
+            }
+            group.add(next);
+        }
+        return group;
+    }
+
+    /**
+     * Выполняет записи группы в одной транзакции. Если транзакция откатилась, повторяет записи по одной,
+     * чтобы ошибка одной команды не отменяла остальные
+     */
+    private void commit(List<PendingWrite> group) {
+        try {
+            transactionManager.runTransaction(session -> group.forEach(pendingWrite ->
+                    pendingWrite.write().accept(session)));
+        } catch (RuntimeException groupException) {
+            if (group.size() == 1) {
+                group.get(0).result().completeExceptionally(groupException);
+                return;
+            }
+            for (PendingWrite pendingWrite : group) {
+                try {
+                    transactionManager.runTransaction(pendingWrite.write());
+                } catch (RuntimeException e) {
+                    pendingWrite.result().completeExceptionally(e);
+                    continue;
+                }
+                complete(pendingWrite);
+            }
+            return;
+        }
+        group.forEach(this::complete);
+    }
+
+    /**
+     * Выполняет действие после фиксации записи и завершает ее результат
+     */
+    private void complete(PendingWrite pendingWrite) {
+        try {
+            pendingWrite.afterCommit().run();
+            pendingWrite.result().complete(null);
+        } catch (RuntimeException e) {
+            pendingWrite.result().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Запись, ожидающая фиксации
+     *
+     * @param write       Запись в рамках открытой сессии и транзакции
+     * @param afterCommit Действие после успешной фиксации
+     * @param result      Результат, который завершается после фиксации
+     */
+    private record PendingWrite(Consumer<Session> write, Runnable afterCommit, CompletableFuture<Void> result) {
+    }
+}
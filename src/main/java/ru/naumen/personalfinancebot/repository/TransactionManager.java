@@ -4,6 +4,8 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -15,18 +17,80 @@ public class TransactionManager {
      */
     private final SessionFactory sessionFactory;
 
+    /**
+     * Групповая фиксация записей или null, если она выключена
+     */
+    private final GroupCommitter groupCommitter;
+
     public TransactionManager(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
+        this.groupCommitter = null;
+    }
+
+    /**
+     * Создает менеджер транзакций с групповой фиксацией записей, переданных в
+     * {@link #produceGroupedTransaction(Consumer, Runnable)}
+     *
+     * @param groupCommitWindow Сколько первая запись группы ждет другие записи перед фиксацией
+     * @param maxGroupSize      Максимальное количество записей в одной транзакции
+     */
+    public TransactionManager(SessionFactory sessionFactory, Duration groupCommitWindow, int maxGroupSize) {
+        this.sessionFactory = sessionFactory;
+        this.groupCommitter = new GroupCommitter(this, groupCommitWindow, maxGroupSize);
     }
 
     /**
      * Открывает сессию на время лямбды и производит Hibernate транзакцию правильным образом (открытие, затем коммит
-     * или откат при исключении), после которой возвращается какое-либо значение
+     * или откат при исключении), после которой возвращается какое-либо значение.
+     * Если включена групповая фиксация, то сначала дожидается фиксации ранее переданных групповых записей,
+     * чтобы транзакция видела их результат
      *
      * @param consumer лямбда-функция, в которой можно произвести действия во время открытой сессии и транзакции для
      * этой сессии и вернуть необходимое значение.
      */
     public void produceTransaction(Consumer<Session> consumer) {
+        if (groupCommitter != null) {
+            groupCommitter.awaitSubmitted();
+        }
+        runTransaction(consumer);
+    }
+
+    /**
+     * Выполняет запись в транзакции, общей с записями других команд, если включена групповая фиксация,
+     * иначе в отдельной транзакции. После фиксации вызывает afterCommit, например, для отправки ответа.
+     * При ошибке в группе записи повторяются по одной, поэтому запись может выполниться несколько раз
+     * и не должна иметь внешних эффектов: они переносятся в afterCommit
+     *
+     * @param consumer    Запись в рамках открытой сессии и транзакции
+     * @param afterCommit Действие после успешной фиксации записи
+     * @return Результат, который завершается после afterCommit или с ошибкой записи
+     */
+    public CompletableFuture<Void> produceGroupedTransaction(Consumer<Session> consumer, Runnable afterCommit) {
+        if (groupCommitter != null) {
+            return groupCommitter.submit(consumer, afterCommit);
+        }
+        try {
+            produceTransaction(consumer);
+            afterCommit.run();
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Фиксирует оставшиеся групповые записи и останавливает групповую фиксацию
+     */
+    public void close() {
+        if (groupCommitter != null) {
+            groupCommitter.close();
+        }
+    }
+
+    /**
+     * Выполняет лямбду в отдельной транзакции без ожидания групповых записей
+     */
+    void runTransaction(Consumer<Session> consumer) {
         try (Session session = sessionFactory.getCurrentSession()) {
             final Transaction transaction = session.beginTransaction();
             try {
@@ -0,0 +1,83 @@
+package ru.naumen.personalfinancebot.repository;
+
+import org.hibernate.query.Query;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Полуинтервал дат [начало, конец), покрывающий один или несколько месяцев целиком.
+ * Используется для фильтрации по колонкам с датой в виде "дата >= :rangeStartDate AND дата < :rangeEndDate",
+ * чтобы запрос мог использовать индекс по этой колонке (в отличие от year(...) и month(...)).
+ * Именованные запросы записывают это условие сами, а параметры устанавливаются методом {@link #bind(Query)}
+ */
+public final class YearMonthRange {
+    /**
+     * Название параметра HQL запроса для начала полуинтервала
+     */
+    public static final String START_DATE_PARAMETER = "rangeStartDate";
+
+    /**
+     * Название параметра HQL запроса для конца полуинтервала
+     */
+    public static final String END_DATE_PARAMETER = "rangeEndDate";
+
+    /**
+     * Первый день полуинтервала (включительно)
+     */
+    private final LocalDate startDate;
+
+    /**
+     * Первый день после полуинтервала (не включительно)
+     */
+    private final LocalDate endDate;
+
+    private YearMonthRange(LocalDate startDate, LocalDate endDate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    /**
+     * Создает полуинтервал, покрывающий один месяц
+     */
+    public static YearMonthRange of(YearMonth yearMonth) {
+        return of(yearMonth, yearMonth);
+    }
+
+    /**
+     * Создает полуинтервал, покрывающий месяцы с from по to включительно
+     *
+     * @throws IllegalArgumentException если from позже to
+     */
+    public static YearMonthRange of(YearMonth from, YearMonth to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начальный месяц %s позже конечного %s".formatted(from, to));
+        }
+        return new YearMonthRange(from.atDay(1), to.plusMonths(1).atDay(1));
+    }
+
+    /**
+     * @return Первый день полуинтервала (включительно)
+     */
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * @return Первый день после полуинтервала (не включительно)
+     */
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * Устанавливает в запрос параметры начала и конца полуинтервала
+     *
+     * @return Тот же запрос
+     */
+    public <Q extends Query<?>> Q bind(Q query) {
+        query.setParameter(START_DATE_PARAMETER, startDate);
+        query.setParameter(END_DATE_PARAMETER, endDate);
+        return query;
+    }
+}
@@ -3,6 +3,7 @@ package ru.naumen.personalfinancebot.repository.budget;
 import com.sun.istack.Nullable;
 import org.hibernate.Session;
 import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
 
 import java.time.YearMonth;
@@ -38,4 +39,62 @@ public interface BudgetRepository {
      * @return Список бюджетов
      */
     List<Budget> selectBudgetRange(Session session, User user, YearMonth from, YearMonth to);
+
+    /**
+     * Удаляет все бюджеты пользователя
+     *
+     * @param user Пользователь
+     * @return Количество удаленных бюджетов
+     */
+    int removeAllBudgets(Session session, User user);
+
+    /**
+     * Атомарно отмечает, что пользователь уведомлен о достижении расходами порога бюджета.
+     * Из параллельных вызовов для одного бюджета порог отмечает только один
+     *
+     * @param budget  Бюджет
+     * @param percent Порог в процентах от ожидаемого расхода
+     * @return true, если порог отмечен этим вызовом, false, если об этом или большем пороге уже уведомлено
+     */
+    boolean markExpenseAlert(Session session, Budget budget, int percent);
+
+    /**
+     * Увеличивает подсчитанные расходы месяца бюджета на сумму одним запросом относительно значения в БД,
+     * поэтому параллельные расходы одного пользователя не теряются. Строка бюджета остается заблокированной
+     * до конца транзакции. Хранилища без счетчика расходов возвращают пусто
+     *
+     * @param budget Бюджет
+     * @param amount Сумма нового расхода (положительная)
+     * @return Расходы месяца вместе с новым расходом или пусто, если расходы бюджета еще не подсчитаны
+     */
+    default Optional<Money> addSpent(Session session, Budget budget, Money amount) {
+        return Optional.empty();
+    }
+
+    /**
+     * Сохраняет подсчитанные расходы месяца бюджета, после чего они увеличиваются через {@link #addSpent}
+     *
+     * @param budget Бюджет
+     * @param spent  Расходы месяца
+     */
+    default void setSpent(Session session, Budget budget, Money spent) {
+    }
+
+    /**
+     * Сбрасывает подсчитанные расходы всех бюджетов пользователя, например, после отмены или импорта операций.
+     * Расходы будут подсчитаны заново при следующем расходе
+     *
+     * @param user Пользователь
+     */
+    default void resetSpent(Session session, User user) {
+    }
+
+    /**
+     * Блокирует бюджет до конца транзакции и перечитывает его, дождавшись транзакций, которые его заблокировали.
+     * Хранилища без транзакций бюджет не блокируют
+     *
+     * @param budget Бюджет
+     */
+    default void lockBudget(Session session, Budget budget) {
+    }
 }
@@ -1,14 +1,20 @@
 package ru.naumen.personalfinancebot.repository.budget;
 
 import com.sun.istack.Nullable;
+import org.hibernate.LockOptions;
 import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.Query;
 import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.IdSequence;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ColumnUpdates;
+import ru.naumen.personalfinancebot.repository.YearMonthRange;
 
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
-import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
@@ -18,6 +24,73 @@ import java.util.Optional;
  * Репозиторий для работы с моделью даднных {@link Budget}
  */
 public class HibernateBudgetRepository implements BudgetRepository {
+    /**
+     * Запрос, копирующий бюджеты месяца на следующий месяц для порции пользователей с включенным переносом.
+     * Подставляется выражение следующего значения последовательности ID для диалекта БД.
+     * Бюджеты, которые уже есть на следующий месяц, не копируются, поэтому запрос можно повторять
+     */
+    private static final String ROLLOVER_SQL = """
+            insert into budgets (id, user_id, income, expense, target_date, expense_alert_percent)
+            select %s, budgets.user_id, budgets.income, budgets.expense, :targetDate, 0
+            from budgets
+            join users on users.id = budgets.user_id
+            where budgets.target_date = :sourceDate
+            and budgets.user_id > :afterUserId and budgets.user_id <= :toUserId
+            and users.budget_rollover = true
+            and not exists (select 1 from budgets target
+                            where target.user_id = budgets.user_id and target.target_date = :targetDate)""";
+
+    /**
+     * Запрос для PostgreSQL с тем же смыслом, что и {@link #ROLLOVER_SQL}. Если пользователь одновременно
+     * создает бюджет на следующий месяц командой, вставка дожидается его транзакции и пропускает бюджет,
+     * а не нарушает уникальное ограничение (user_id, target_date)
+     */
+    private static final String POSTGRESQL_ROLLOVER_SQL = ROLLOVER_SQL
+            + "\non conflict (user_id, target_date) do nothing";
+
+    /**
+     * Запрос для H2 с тем же смыслом, что и {@link #ROLLOVER_SQL}
+     */
+    private static final String H2_ROLLOVER_SQL = """
+            merge into budgets target
+            using (select budgets.user_id, budgets.income, budgets.expense
+                   from budgets
+                   join users on users.id = budgets.user_id
+                   where budgets.target_date = :sourceDate
+                   and budgets.user_id > :afterUserId and budgets.user_id <= :toUserId
+                   and users.budget_rollover = true) source
+            on target.user_id = source.user_id and target.target_date = :targetDate
+            when not matched then insert (id, user_id, income, expense, target_date, expense_alert_percent)
+            values (%s, source.user_id, source.income, source.expense, :targetDate, 0)""";
+
+    /**
+     * Запрос, увеличивающий подсчитанные расходы бюджета. Неподсчитанные расходы не изменяются
+     */
+    private static final String ADD_SPENT_SQL =
+            "update budgets set spent = spent + :amount where id = :id and spent is not null";
+
+    /**
+     * Запрос подсчитанных расходов бюджета
+     */
+    private static final String SELECT_SPENT_SQL = "select spent from budgets where id = :id";
+
+    /**
+     * Запрос, сохраняющий подсчитанные расходы бюджета
+     */
+    private static final String SET_SPENT_SQL = "update budgets set spent = :spent where id = :id";
+
+    /**
+     * Запрос, сбрасывающий подсчитанные расходы всех бюджетов пользователя
+     */
+    private static final String RESET_SPENT_SQL =
+            "update budgets set spent = null where user_id = :userId and spent is not null";
+
+    /**
+     * Запрос, отмечающий порог расходов, только если о нем или большем пороге еще не уведомлено
+     */
+    private static final String MARK_EXPENSE_ALERT_SQL = "update budgets set expense_alert_percent = :percent "
+            + "where id = :id and expense_alert_percent < :percent";
+
     @Override
     public void saveBudget(Session session, Budget budget) {
         session.save(budget);
@@ -28,40 +101,127 @@ public class HibernateBudgetRepository implements BudgetRepository {
         if (yearMonth == null) {
             yearMonth = YearMonth.now();
         }
-        CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
-        CriteriaQuery<Budget> criteriaQuery = criteriaBuilder.createQuery(Budget.class);
-        Root<Budget> root = criteriaQuery.from(Budget.class);
-        criteriaQuery.select(root)
-                .where(criteriaBuilder.equal(root.get("user"), user))
-                .where(
-                        criteriaBuilder.equal(
-                                criteriaBuilder.function("YEAR", Integer.class, root.get("targetDate")),
-                                yearMonth.getYear()
-                        ))
-                .where(
-                        criteriaBuilder.equal(
-                                criteriaBuilder.function("MONTH", Integer.class, root.get("targetDate")),
-                                yearMonth.getMonth().getValue()
-                        ));
-        return session.createQuery(criteriaQuery).uniqueResultOptional();
+        return selectBudgets(session, user, YearMonthRange.of(yearMonth)).uniqueResultOptional();
     }
 
     @Override
     public List<Budget> selectBudgetRange(Session session, User user, YearMonth from, YearMonth to) {
-        LocalDate startDate = LocalDate.of(from.getYear(), from.getMonth(), 1);
-        LocalDate endDate = LocalDate.of(to.getYear(), to.getMonth(), 1)
-                .plusMonths(1)
-                .minusDays(1);
-
-        CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
-        CriteriaQuery<Budget> criteriaQuery = criteriaBuilder.createQuery(Budget.class);
-        Root<Budget> root = criteriaQuery.from(Budget.class);
-        criteriaQuery.select(root)
-                .where(criteriaBuilder.equal(root.get("user"), user))
-                .where(
-                        criteriaBuilder.between(root.get("targetDate"), startDate, endDate)
-                )
-                .orderBy(criteriaBuilder.asc(root.get("targetDate")));
-        return session.createQuery(criteriaQuery).getResultList();
+        return selectBudgets(session, user, YearMonthRange.of(from, to)).getResultList();
+    }
+
+    @Override
+    public int removeAllBudgets(Session session, User user) {
+        return session.getNamedQuery("Budget.deleteByUser")
+                .setParameter("user", user)
+                .executeUpdate();
+    }
+
+    @Override
+    public boolean markExpenseAlert(Session session, Budget budget, int percent) {
+        // Из параллельных транзакций строку изменит только одна: вторая дождется фиксации первой
+        // и не найдет строку с меньшим порогом
+        return ColumnUpdates.execute(session, session.createNativeQuery(MARK_EXPENSE_ALERT_SQL)
+                .setParameter("percent", percent)
+                .setParameter("id", budget.getId()), Budget.class, budget.getId()) > 0;
+    }
+
+    @Override
+    public Optional<Money> addSpent(Session session, Budget budget, Money amount) {
+        // Расходы не читаются из сущности, поэтому бюджет остается в кэше второго уровня
+        int updated = ColumnUpdates.execute(session.createNativeQuery(ADD_SPENT_SQL)
+                .setParameter("amount", amount.getKopecks())
+                .setParameter("id", budget.getId()));
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        Number spent = (Number) ColumnUpdates.select(session.createNativeQuery(SELECT_SPENT_SQL)
+                .setParameter("id", budget.getId()));
+        return Optional.of(Money.ofKopecks(spent.longValue()));
+    }
+
+    @Override
+    public void setSpent(Session session, Budget budget, Money spent) {
+        ColumnUpdates.execute(session.createNativeQuery(SET_SPENT_SQL)
+                .setParameter("spent", spent.getKopecks())
+                .setParameter("id", budget.getId()));
+    }
+
+    @Override
+    public void resetSpent(Session session, User user) {
+        ColumnUpdates.execute(session.createNativeQuery(RESET_SPENT_SQL)
+                .setParameter("userId", user.getId()));
+    }
+
+    @Override
+    public void lockBudget(Session session, Budget budget) {
+        session.refresh(budget, LockOptions.UPGRADE);
+    }
+
+    /**
+     * Возвращает ID пользователей с включенным переносом бюджета и бюджетом на месяц по возрастанию,
+     * начиная с пользователя, следующего за указанным
+     *
+     * @param yearMonth   Месяц, бюджеты которого переносятся
+     * @param afterUserId ID пользователя, после которого начинается порция
+     * @param limit       Максимальное количество пользователей в порции
+     */
+    public List<Long> getRolloverUserIds(Session session, YearMonth yearMonth, long afterUserId, int limit) {
+        return session.createNamedQuery("Budget.rolloverUserIds", Long.class)
+                .setParameter("targetDate", yearMonth.atDay(1))
+                .setParameter("afterUserId", afterUserId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Копирует бюджеты месяца на следующий месяц одним запросом INSERT ... SELECT для пользователей
+     * с включенным переносом и ID в диапазоне (afterUserId, toUserId]. Бюджеты, которые уже есть
+     * на следующий месяц, не изменяются. Каждый скопированный бюджет получает ID отдельным обращением
+     * к последовательности, поэтому расходует целый блок ID, как и вставка пользователя в обход Hibernate.
+     * Перед копированием строки пользователей порции блокируются до конца транзакции, поэтому перенос той же
+     * порции другим экземпляром бота ждет фиксации и затем не находит, что копировать, в любой БД.
+     * Бюджет, который пользователь одновременно создает командой, в PostgreSQL пропускается,
+     * см. {@link #POSTGRESQL_ROLLOVER_SQL}. В остальных БД он может нарушить уникальное ограничение
+     * (user_id, target_date): тогда транзакция порции откатывается, и порция переносится при следующей проверке
+     *
+     * @param yearMonth Месяц, бюджеты которого переносятся
+     * @return Количество скопированных бюджетов
+     */
+    public int rolloverBudgets(Session session, YearMonth yearMonth, long afterUserId, long toUserId) {
+        session.createNamedQuery("User.lockRolloverRange", Long.class)
+                .setParameter("afterUserId", afterUserId)
+                .setParameter("toUserId", toUserId)
+                .getResultList();
+        Dialect dialect = ((SessionFactoryImplementor) session.getSessionFactory()).getJdbcServices().getDialect();
+        String sql = getRolloverSql(dialect).formatted(dialect.getSelectSequenceNextValString(IdSequence.NAME));
+        // Синхронизация с Budget сбрасывает из кэша второго уровня только бюджеты, а не все сущности
+        return session.createNativeQuery(sql)
+                .addSynchronizedEntityClass(Budget.class)
+                .setParameter("sourceDate", yearMonth.atDay(1))
+                .setParameter("targetDate", yearMonth.plusMonths(1).atDay(1))
+                .setParameter("afterUserId", afterUserId)
+                .setParameter("toUserId", toUserId)
+                .executeUpdate();
+    }
+
+    /**
+     * Возвращает запрос переноса бюджетов для диалекта БД
+     */
+    private String getRolloverSql(Dialect dialect) {
+        if (dialect instanceof PostgreSQL81Dialect) {
+            return POSTGRESQL_ROLLOVER_SQL;
+        }
+        if (dialect instanceof H2Dialect) {
+            return H2_ROLLOVER_SQL;
+        }
+        return ROLLOVER_SQL;
+    }
+
+    /**
+     * Возвращает запрос бюджетов пользователя, отсортированных по месяцу, за полуинтервал дат
+     */
+    private Query<Budget> selectBudgets(Session session, User user, YearMonthRange range) {
+        return range.bind(session.createNamedQuery("Budget.byUserAndRange", Budget.class))
+                .setParameter("user", user);
     }
 }
@@ -12,11 +12,6 @@ import ru.naumen.personalfinancebot.repository.category.exception.ExistingStanda
 import ru.naumen.personalfinancebot.repository.category.exception.ExistingUserCategoryException;
 import ru.naumen.personalfinancebot.repository.category.exception.NotExistingCategoryException;
 
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -99,6 +94,7 @@ public class HibernateCategoryRepository implements CategoryRepository {
         if (category.isEmpty() || category.get().isStandard()) {
             throw new NotExistingCategoryException(categoryName);
         }
+        removeRecurringOperations(session, category.get());
         session.delete(category.get());
     }
 
@@ -112,8 +108,10 @@ public class HibernateCategoryRepository implements CategoryRepository {
             resultQuery = selectCategoriesTogether(session, type, user, categoryName);
         }
 
+        // getResultStream не использует кэш запросов, поэтому берется список
         return resultQuery
-                .getResultStream()
+                .getResultList()
+                .stream()
                 .findFirst();
     }
 
@@ -133,31 +131,19 @@ public class HibernateCategoryRepository implements CategoryRepository {
      */
     private Query<Category> selectCategoriesSeparately(Session session, CategoryType type, @Nullable User user,
                                                        @Nullable String categoryName) {
-        CriteriaBuilder cb = session.getCriteriaBuilder();
-        CriteriaQuery<Category> cq = cb.createQuery(Category.class);
-        Root<Category> root = cq.from(Category.class);
-
-        List<Predicate> selectPredicates = new ArrayList<>();
-
-        Predicate userIdEquity;
-        if (user != null) {
-            userIdEquity = cb.equal(root.get("user"), user.getId());
+        Query<Category> query;
+        if (categoryName == null) {
+            query = session.createNamedQuery(
+                    user == null ? "Category.standardByType" : "Category.userByType", Category.class);
         } else {
-            userIdEquity = cb.isNull(root.get("user"));
+            query = session.createNamedQuery(
+                    user == null ? "Category.standardByName" : "Category.userByName", Category.class);
+            query.setParameter("categoryName", categoryName.toLowerCase());
         }
-        selectPredicates.add(userIdEquity);
-
-        Predicate categoryTypeEquity = cb.equal(root.get("type"), type);
-        selectPredicates.add(categoryTypeEquity);
-
-        if (categoryName != null) {
-            Predicate categoryNameEquity = cb.equal(cb.lower(root.get("categoryName")), categoryName.toLowerCase());
-            selectPredicates.add(categoryNameEquity);
+        if (user != null) {
+            query.setParameter("user", user);
         }
-
-        Predicate[] selectPredicatesArray = selectPredicates.toArray(new Predicate[0]);
-        cq.select(root).where(cb.and(selectPredicatesArray));
-        return session.createQuery(cq);
+        return query.setParameter("type", type);
     }
 
     /**
@@ -166,20 +152,10 @@ public class HibernateCategoryRepository implements CategoryRepository {
      * Регистр названия категории при выборке игнорируется.
      */
     private Query<Category> selectCategoriesTogether(Session session, CategoryType type, User user, String categoryName) {
-        CriteriaBuilder cb = session.getCriteriaBuilder();
-        CriteriaQuery<Category> cq = cb.createQuery(Category.class);
-        Root<Category> root = cq.from(Category.class);
-
-        cq.select(root).where(cb.and(
-                cb.or(
-                        cb.equal(root.get("user"), user.getId()), // userId == userId
-                        cb.isNull(root.get("user")) // userId is null
-                ),
-                cb.equal(root.get("type"), type),
-                cb.equal(cb.lower(root.get("categoryName")), categoryName.toLowerCase())
-        ));
-
-        return session.createQuery(cq);
+        return session.createNamedQuery("Category.userOrStandardByName", Category.class)
+                .setParameter("user", user)
+                .setParameter("type", type)
+                .setParameter("categoryName", categoryName.toLowerCase());
     }
 
     /**
@@ -192,4 +168,14 @@ public class HibernateCategoryRepository implements CategoryRepository {
         session.save(category);
         return category;
     }
+
+    /**
+     * Удаляет регулярные операции по категории перед удалением самой категории,
+     * чтобы по ним больше не добавлялись операции
+     */
+    protected void removeRecurringOperations(Session session, Category category) {
+        session.getNamedQuery("RecurringOperation.deleteByCategory")
+                .setParameter("category", category)
+                .executeUpdate();
+    }
 }
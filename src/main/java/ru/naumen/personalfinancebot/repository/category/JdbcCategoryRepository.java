@@ -0,0 +1,97 @@
+package ru.naumen.personalfinancebot.repository.category;
+
+import com.sun.istack.Nullable;
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.category.exception.NotExistingCategoryException;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Хранилище категорий, в котором поиск категории по названию выполняется через JDBC на соединении сессии Hibernate,
+ * без Criteria API и создания сущностей в контексте персистентности.
+ * Остальные методы наследуются от {@link HibernateCategoryRepository}
+ */
+public class JdbcCategoryRepository extends HibernateCategoryRepository {
+    /**
+     * Запрос стандартной категории по типу и названию без учета регистра
+     */
+    private static final String SELECT_STANDARD_CATEGORY_SQL = "select id, user_id, category_name from categories "
+            + "where user_id is null "
+            + "and type = ? "
+            + "and lower(category_name) = ?";
+
+    /**
+     * Запрос пользовательской или стандартной категории по типу и названию без учета регистра
+     */
+    private static final String SELECT_USER_OR_STANDARD_CATEGORY_SQL = "select id, user_id, category_name "
+            + "from categories "
+            + "where (user_id = ? or user_id is null) "
+            + "and type = ? "
+            + "and lower(category_name) = ?";
+
+    /**
+     * Создает репозиторий для категорий.
+     */
+    public JdbcCategoryRepository() {
+        super();
+    }
+
+    /**
+     * Создает репозиторий для категорий и добавляет стандартные категории, если их не существует.
+     *
+     * @param transactionManager Нужен для открытия транзакции на добавление категорий
+     * @param categories         Список стандартных категорий.
+     */
+    public JdbcCategoryRepository(TransactionManager transactionManager, List<Category> categories) {
+        super(transactionManager, categories);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Возвращаемая категория не привязана к сессии
+     */
+    @Override
+    public Optional<Category> getCategoryByName(Session session, @Nullable User user, CategoryType type,
+                                                String categoryName) {
+        // Категории могли быть сохранены в этой же сессии, но еще не записаны в БД
+        session.flush();
+        return session.doReturningWork(connection -> {
+            String sql = user == null ? SELECT_STANDARD_CATEGORY_SQL : SELECT_USER_OR_STANDARD_CATEGORY_SQL;
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int parameterIndex = 1;
+                if (user != null) {
+                    statement.setLong(parameterIndex++, user.getId());
+                }
+                statement.setInt(parameterIndex++, type.ordinal());
+                statement.setString(parameterIndex, categoryName.toLowerCase());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return Optional.empty();
+                    }
+                    resultSet.getLong(2);
+                    User owner = resultSet.wasNull() ? null : user;
+                    return Optional.of(new Category(resultSet.getLong(1), owner, resultSet.getString(3), type));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void removeUserCategoryByName(Session session, User user, CategoryType type, String categoryName)
+            throws NotExistingCategoryException {
+        Optional<Category> category = getCategoryByName(session, user, type, categoryName);
+        if (category.isEmpty() || category.get().isStandard()) {
+            throw new NotExistingCategoryException(categoryName);
+        }
+        removeRecurringOperations(session, category.get());
+        // Удаляем экземпляр из сессии, так как найденная категория к ней не привязана
+        session.delete(session.load(Category.class, category.get().getId()));
+    }
+}
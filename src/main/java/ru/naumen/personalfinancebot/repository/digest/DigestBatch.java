@@ -0,0 +1,13 @@
+package ru.naumen.personalfinancebot.repository.digest;
+
+import java.util.List;
+
+/**
+ * Порция пользователей рассылки итогов месяца
+ *
+ * @param users      Количество пользователей в порции
+ * @param lastUserId ID последнего пользователя порции
+ * @param digests    Итоги пользователей порции, у которых в месяце были операции или бюджет
+ */
+public record DigestBatch(int users, long lastUserId, List<MonthlyDigest> digests) {
+}
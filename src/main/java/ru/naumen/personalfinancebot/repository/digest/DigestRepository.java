@@ -0,0 +1,42 @@
+package ru.naumen.personalfinancebot.repository.digest;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.DigestCheckpoint;
+
+import java.time.YearMonth;
+import java.util.Optional;
+
+/**
+ * Хранилище итогов месяца для рассылки и контрольных точек рассылки
+ */
+public interface DigestRepository {
+    /**
+     * Возвращает контрольную точку рассылки итогов месяца
+     *
+     * @param yearMonth Месяц, итоги которого рассылаются
+     * @return Контрольная точка или пусто, если рассылка итогов месяца еще не начиналась
+     */
+    Optional<DigestCheckpoint> getCheckpoint(Session session, YearMonth yearMonth);
+
+    /**
+     * Сохраняет контрольную точку рассылки
+     */
+    void saveCheckpoint(Session session, DigestCheckpoint checkpoint);
+
+    /**
+     * Возвращает количество пользователей с ID больше указанного
+     */
+    long countUsersAfter(Session session, long afterUserId);
+
+    /**
+     * Считает итоги месяца для порции пользователей, следующих по возрастанию ID за указанным.
+     * Суммы и бюджеты всей порции выбираются запросами по диапазону ID пользователей,
+     * а не отдельными запросами для каждого пользователя
+     *
+     * @param yearMonth   Месяц
+     * @param afterUserId ID пользователя, после которого начинается порция
+     * @param limit       Максимальное количество пользователей в порции
+     * @return Порция или пусто, если пользователей с ID больше указанного нет
+     */
+    Optional<DigestBatch> getDigestBatch(Session session, YearMonth yearMonth, long afterUserId, int limit);
+}
@@ -0,0 +1,89 @@
+package ru.naumen.personalfinancebot.repository.digest;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.DigestCheckpoint;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.repository.YearMonthRange;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Реализация интерфейса {@link DigestRepository}.
+ * Порция считается четырьмя запросами независимо от количества пользователей в ней: ID и чаты пользователей,
+ * суммы операций и итогов архивных месяцев по пользователям и типам категорий и бюджеты на месяц
+ */
+public class HibernateDigestRepository implements DigestRepository {
+    @Override
+    public Optional<DigestCheckpoint> getCheckpoint(Session session, YearMonth yearMonth) {
+        return Optional.ofNullable(session.get(DigestCheckpoint.class, yearMonth.atDay(1)));
+    }
+
+    @Override
+    public void saveCheckpoint(Session session, DigestCheckpoint checkpoint) {
+        session.merge(checkpoint);
+    }
+
+    @Override
+    public long countUsersAfter(Session session, long afterUserId) {
+        return session.createNamedQuery("User.countAfter", Long.class)
+                .setParameter("afterUserId", afterUserId)
+                .getSingleResult();
+    }
+
+    @Override
+    public Optional<DigestBatch> getDigestBatch(Session session, YearMonth yearMonth, long afterUserId, int limit) {
+        List<Object[]> users = session.createNamedQuery("User.chatIdsAfter", Object[].class)
+                .setParameter("afterUserId", afterUserId)
+                .setMaxResults(limit)
+                .getResultList();
+        if (users.isEmpty()) {
+            return Optional.empty();
+        }
+        long fromUserId = (long) users.get(0)[0];
+        long toUserId = (long) users.get(users.size() - 1)[0];
+
+        Map<Long, long[]> sums = new HashMap<>();
+        for (String queryName : List.of("Operation.sumsByUserRangeAndType",
+                "OperationSummary.sumsByUserRangeAndType")) {
+            List<Object[]> rows = YearMonthRange.of(yearMonth)
+                    .bind(session.createNamedQuery(queryName, Object[].class))
+                    .setParameter("fromUserId", fromUserId)
+                    .setParameter("toUserId", toUserId)
+                    .getResultList();
+            for (Object[] row : rows) {
+                long[] userSums = sums.computeIfAbsent((long) row[0], id -> new long[CategoryType.values().length]);
+                userSums[((CategoryType) row[1]).ordinal()] += (long) row[2];
+            }
+        }
+        Map<Long, Object[]> budgets = new HashMap<>();
+        session.createNamedQuery("Budget.byUserRangeAndMonth", Object[].class)
+                .setParameter("fromUserId", fromUserId)
+                .setParameter("toUserId", toUserId)
+                .setParameter("targetDate", yearMonth.atDay(1))
+                .getResultList()
+                .forEach(row -> budgets.put((long) row[0], row));
+
+        List<MonthlyDigest> digests = new ArrayList<>();
+        for (Object[] user : users) {
+            long userId = (long) user[0];
+            long[] userSums = sums.get(userId);
+            Object[] budget = budgets.get(userId);
+            if (userSums == null && budget == null) {
+                continue;
+            }
+            userSums = userSums != null ? userSums : new long[CategoryType.values().length];
+            digests.add(new MonthlyDigest(userId, (long) user[1], yearMonth,
+                    Money.ofKopecks(userSums[CategoryType.INCOME.ordinal()]),
+                    Money.ofKopecks(-userSums[CategoryType.EXPENSE.ordinal()]),
+                    budget != null ? Money.ofKopecks((long) budget[1]) : null,
+                    budget != null ? Money.ofKopecks((long) budget[2]) : null));
+        }
+        return Optional.of(new DigestBatch(users.size(), toUserId, digests));
+    }
+}
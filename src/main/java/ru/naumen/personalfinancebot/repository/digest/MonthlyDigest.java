@@ -0,0 +1,26 @@
+package ru.naumen.personalfinancebot.repository.digest;
+
+import ru.naumen.personalfinancebot.model.Money;
+
+import java.time.YearMonth;
+
+/**
+ * Итоги месяца пользователя: фактические доходы и расходы и бюджет на месяц, если он был составлен
+ *
+ * @param userId          ID пользователя
+ * @param chatId          ID чата пользователя
+ * @param yearMonth       Месяц
+ * @param income          Доходы за месяц
+ * @param expense         Расходы за месяц (положительное число)
+ * @param expectedIncome  Ожидаемые доходы или null, если бюджета на месяц нет
+ * @param expectedExpense Ожидаемые расходы или null, если бюджета на месяц нет
+ */
+public record MonthlyDigest(long userId, long chatId, YearMonth yearMonth, Money income, Money expense,
+                            Money expectedIncome, Money expectedExpense) {
+    /**
+     * @return Был ли составлен бюджет на месяц
+     */
+    public boolean hasBudget() {
+        return expectedIncome != null;
+    }
+}
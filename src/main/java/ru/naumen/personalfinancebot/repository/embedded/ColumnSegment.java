@@ -0,0 +1,134 @@
+package ru.naumen.personalfinancebot.repository.embedded;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Сегмент операций пользователя: файл, отображенный в память, в котором операции хранятся по столбцам.
+ * Строки только дописываются в конец сегмента, пока он не заполнится.
+ *
+ * <p>Формат файла: столбец дат (int, день от 1970-01-01 плюс один), столбец ID категорий (int)
+ * и столбец сумм в копейках (long), каждый на {@link #ROWS} строк. Нулевая дата означает пустую строку.
+ * Дата строки пишется последней, поэтому при открытии сегмента строки читаются до первой пустой даты,
+ * а строка, оборванная при сбое, отбрасывается и перезаписывается следующей операцией.</p>
+ */
+class ColumnSegment {
+    /**
+     * Количество строк в сегменте
+     */
+    static final int ROWS = 1024;
+
+    /**
+     * Значение даты в пустой строке
+     */
+    private static final int EMPTY_DATE = 0;
+
+    /**
+     * Смещение столбца дат
+     */
+    private static final int DATES_OFFSET = 0;
+
+    /**
+     * Смещение столбца ID категорий
+     */
+    private static final int CATEGORIES_OFFSET = DATES_OFFSET + ROWS * Integer.BYTES;
+
+    /**
+     * Смещение столбца сумм
+     */
+    private static final int AMOUNTS_OFFSET = CATEGORIES_OFFSET + ROWS * Integer.BYTES;
+
+    /**
+     * Размер файла сегмента
+     */
+    private static final int SIZE = AMOUNTS_OFFSET + ROWS * Long.BYTES;
+
+    /**
+     * Файл сегмента, отображенный в память
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Количество заполненных строк
+     */
+    private int size;
+
+    /**
+     * Открывает сегмент или создает его, если файла нет, и находит заполненные строки
+     */
+    ColumnSegment(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // Отображение остается доступным после закрытия канала, поэтому файл не держится открытым
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+        }
+        while (size < ROWS && buffer.getInt(DATES_OFFSET + size * Integer.BYTES) != EMPTY_DATE) {
+            size++;
+        }
+    }
+
+    /**
+     * @return Количество заполненных строк
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Заполнен ли сегмент
+     */
+    boolean isFull() {
+        return size == ROWS;
+    }
+
+    /**
+     * Дописывает строку в конец сегмента
+     *
+     * @param epochDay   День операции от 1970-01-01
+     * @param categoryId ID категории в словаре хранилища
+     * @param amount     Сумма в копейках
+     */
+    void append(long epochDay, int categoryId, long amount) {
+        if (isFull()) {
+            throw new IllegalStateException("Сегмент заполнен");
+        }
+        if (epochDay < 0) {
+            throw new IllegalArgumentException("Даты до 1970 года не поддерживаются");
+        }
+        buffer.putLong(AMOUNTS_OFFSET + size * Long.BYTES, amount);
+        buffer.putInt(CATEGORIES_OFFSET + size * Integer.BYTES, categoryId);
+        buffer.putInt(DATES_OFFSET + size * Integer.BYTES, Math.toIntExact(epochDay + 1));
+        size++;
+    }
+
+    /**
+     * @return День операции в строке от 1970-01-01
+     */
+    long epochDay(int row) {
+        return buffer.getInt(DATES_OFFSET + row * Integer.BYTES) - 1L;
+    }
+
+    /**
+     * @return ID категории в строке
+     */
+    int categoryId(int row) {
+        return buffer.getInt(CATEGORIES_OFFSET + row * Integer.BYTES);
+    }
+
+    /**
+     * @return Сумма в строке в копейках
+     */
+    long amount(int row) {
+        return buffer.getLong(AMOUNTS_OFFSET + row * Long.BYTES);
+    }
+
+    /**
+     * Сбрасывает сегмент на диск
+     */
+    void force() {
+        buffer.force();
+    }
+}
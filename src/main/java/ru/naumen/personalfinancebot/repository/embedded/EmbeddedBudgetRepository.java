@@ -0,0 +1,136 @@
+package ru.naumen.personalfinancebot.repository.embedded;
+
+import com.sun.istack.Nullable;
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.YearMonthRange;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.embedded.EmbeddedStorage.BudgetRecord;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Хранилище бюджетов во встроенном хранилище {@link EmbeddedStorage}. Сессия задает только транзакцию:
+ * изменения записываются в хранилище после её фиксации (см. {@link PendingWrites}), поэтому ID нового бюджета
+ * известен только после фиксации
+ */
+public class EmbeddedBudgetRepository implements BudgetRepository {
+    /**
+     * Встроенное хранилище
+     */
+    private final EmbeddedStorage storage;
+
+    /**
+     * Изменения, отложенные до фиксации транзакций
+     */
+    private final PendingWrites pendingWrites = new PendingWrites();
+
+    /**
+     * @param storage Встроенное хранилище
+     */
+    public EmbeddedBudgetRepository(EmbeddedStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void saveBudget(Session session, Budget budget) {
+        long id = budget.getId();
+        long income = budget.getIncome().getKopecks();
+        long expense = budget.getExpense().getKopecks();
+        int expenseAlertPercent = budget.getExpenseAlertPercent();
+        pendingWrites.add(session, () -> budget.setId(storage.saveBudget(budget.getUser(), id,
+                budget.getTargetDate(), income, expense, expenseAlertPercent)));
+    }
+
+    @Override
+    public Optional<Budget> getBudget(Session session, User user, @Nullable YearMonth yearMonth) {
+        if (yearMonth == null) {
+            yearMonth = YearMonth.now();
+        }
+        return storage.budgets(user, yearMonth, yearMonth).stream()
+                .findFirst()
+                .map(budget -> toBudget(user, budget));
+    }
+
+    @Override
+    public List<Budget> selectBudgetRange(Session session, User user, YearMonth from, YearMonth to) {
+        // Проверяет границы так же, как Hibernate репозиторий
+        YearMonthRange.of(from, to);
+        return storage.budgets(user, from, to).stream()
+                .map(budget -> toBudget(user, budget))
+                .toList();
+    }
+
+    @Override
+    public int removeAllBudgets(Session session, User user) {
+        int count = storage.budgetCount(user);
+        pendingWrites.add(session, () -> storage.removeBudgets(user));
+        return count;
+    }
+
+    /**
+     * Отмечает порог, если бюджет есть в хранилище и ни хранилище, ни эта транзакция еще не отметили
+     * этот или больший порог
+     */
+    @Override
+    public boolean markExpenseAlert(Session session, Budget budget, int percent) {
+        User user = budget.getUser();
+        YearMonth yearMonth = budget.getTargetDate();
+        boolean markedInTransaction = pendingWrites.get(session).stream()
+                .anyMatch(write -> write instanceof MarkExpenseAlert mark && mark.user.getChatId() == user.getChatId()
+                                   && mark.yearMonth.equals(yearMonth) && mark.percent >= percent);
+        Optional<BudgetRecord> record = storage.budgets(user, yearMonth, yearMonth).stream().findFirst();
+        if (markedInTransaction || record.isEmpty() || record.get().expenseAlertPercent() >= percent) {
+            return false;
+        }
+        pendingWrites.add(session, new MarkExpenseAlert(user, yearMonth, percent));
+        budget.setExpenseAlertPercent(percent);
+        return true;
+    }
+
+    /**
+     * Создает бюджет пользователя из записи хранилища
+     */
+    private static Budget toBudget(User user, BudgetRecord record) {
+        Budget budget = new Budget(user, Money.ofKopecks(record.income()), Money.ofKopecks(record.expense()),
+                record.yearMonth());
+        budget.setId(record.id());
+        budget.setExpenseAlertPercent(record.expenseAlertPercent());
+        return budget;
+    }
+
+    /**
+     * Отметка порога расходов бюджета
+     */
+    private class MarkExpenseAlert implements Runnable {
+        /**
+         * Пользователь
+         */
+        private final User user;
+
+        /**
+         * Месяц бюджета
+         */
+        private final YearMonth yearMonth;
+
+        /**
+         * Порог в процентах от ожидаемого расхода
+         */
+        private final int percent;
+
+        MarkExpenseAlert(User user, YearMonth yearMonth, int percent) {
+            this.user = user;
+            this.yearMonth = yearMonth;
+            this.percent = percent;
+        }
+
+        @Override
+        public void run() {
+            storage.markExpenseAlert(user, yearMonth, percent);
+        }
+    }
+}
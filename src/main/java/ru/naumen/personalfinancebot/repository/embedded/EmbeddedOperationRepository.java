@@ -0,0 +1,349 @@
+package ru.naumen.personalfinancebot.repository.embedded;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.embedded.EmbeddedStorage.CategoryEntry;
+import ru.naumen.personalfinancebot.repository.embedded.EmbeddedStorage.StoredOperation;
+import ru.naumen.personalfinancebot.repository.operation.OperationCursor;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.PaymentAverage;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Хранилище операций во встроенном хранилище {@link EmbeddedStorage}.
+ * Суммы берутся из индекса сумм по дням, а не считаются по операциям. Сессия задает только транзакцию:
+ * изменения записываются в хранилище после её фиксации (см. {@link PendingWrites}), поэтому ID добавленной
+ * операции известен только после фиксации, а чтения в транзакции не видят её изменений,
+ * кроме {@link #getTransactionPaymentSummary}
+ */
+public class EmbeddedOperationRepository implements OperationRepository {
+    /**
+     * Количество операций, читаемых за раз при переборе всех операций
+     */
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    /**
+     * Встроенное хранилище
+     */
+    private final EmbeddedStorage storage;
+
+    /**
+     * Изменения, отложенные до фиксации транзакций
+     */
+    private final PendingWrites pendingWrites = new PendingWrites();
+
+    /**
+     * @param storage Встроенное хранилище
+     */
+    public EmbeddedOperationRepository(EmbeddedStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public Operation addOperation(Session session, User user, Category category, Money payment) {
+        Operation operation = new Operation(user, category, payment);
+        pendingWrites.add(session, new AppendOperation(user, operation, null));
+        return operation;
+    }
+
+    @Override
+    public Operation addOperation(Session session, User user, Category category, Money payment, LocalDate createdAt,
+                                  UUID journalEntryId) {
+        Operation operation = new Operation(user, category, payment, createdAt, journalEntryId);
+        pendingWrites.add(session, new AppendOperation(user, operation, journalEntryId));
+        return operation;
+    }
+
+    @Override
+    public void addOperations(Session session, User user, List<Operation> operations) {
+        for (Operation operation : operations) {
+            pendingWrites.add(session, new AppendOperation(user, operation, null));
+        }
+    }
+
+    @Override
+    public boolean isJournalEntryApplied(Session session, UUID journalEntryId) {
+        return storage.isJournalEntryApplied(journalEntryId);
+    }
+
+    /**
+     * Возвращает последние операции пользователя. Категории операций создаются по словарю хранилища,
+     * их ID - ID в словаре, а не в репозитории категорий
+     */
+    @Override
+    public List<Operation> getLastOperations(Session session, User user, int limit) {
+        return toOperations(user, storage.lastOperations(user, limit));
+    }
+
+    /**
+     * Удаляет операцию, если она есть в хранилище и еще не удалена в этой транзакции
+     */
+    @Override
+    public boolean removeOperation(Session session, User user, Operation operation) {
+        long id = operation.getId();
+        boolean removedInTransaction = pendingWrites.get(session).stream()
+                .anyMatch(write -> write instanceof RemoveOperation removal
+                                   && removal.user.getChatId() == user.getChatId() && removal.id == id);
+        if (removedInTransaction || !storage.hasOperation(user, id)) {
+            return false;
+        }
+        pendingWrites.add(session, new RemoveOperation(user, id));
+        return true;
+    }
+
+    /**
+     * Стирает операции пользователя с диска целиком, а не порциями: каталог его сегментов удаляется сразу
+     * после фиксации транзакции. Количество стертых операций передается в progress сразу
+     */
+    @Override
+    public long removeAllOperations(Session session, User user, int chunkSize, LongConsumer progress) {
+        long count = storage.operationCount(user, null);
+        pendingWrites.add(session, () -> storage.eraseOperations(user));
+        if (count > 0) {
+            progress.accept(count);
+        }
+        return count;
+    }
+
+    @Override
+    public long reassignOperations(Session session, User user, Category category, Category replacement) {
+        long count = storage.operationCount(user, category);
+        if (count > 0) {
+            pendingWrites.add(session, () -> storage.reassignOperations(user, category, replacement));
+        }
+        return count;
+    }
+
+    /**
+     * Возвращает страницу истории операций. Категории операций создаются так же,
+     * как в {@link #getLastOperations}
+     */
+    @Override
+    public List<Operation> getOperationsPage(Session session, User user, OperationCursor after, int limit) {
+        return toOperations(user, after == null
+                ? storage.operationsPage(user, null, 0, limit)
+                : storage.operationsPage(user, after.createdAt(), after.id(), limit));
+    }
+
+    /**
+     * Передает операции страницами по {@link #EXPORT_PAGE_SIZE}: блокировка хранилища держится
+     * только на время чтения страницы
+     */
+    @Override
+    public void forEachOperation(Session session, User user, Consumer<Operation> action) {
+        OperationCursor after = null;
+        List<Operation> page;
+        do {
+            page = getOperationsPage(session, user, after, EXPORT_PAGE_SIZE);
+            page.forEach(action);
+            after = page.isEmpty() ? null : OperationCursor.of(page.get(page.size() - 1));
+        } while (page.size() == EXPORT_PAGE_SIZE);
+    }
+
+    @Override
+    public Map<String, Money> getOperationsSumByType(Session session, User user, int month, int year, CategoryType type) {
+        return toCategorySums(storage.monthSums(user, YearMonth.of(year, month)), type);
+    }
+
+    @Override
+    public Map<String, Money> getOperationsSumByType(Session session, User user, LocalDate from, LocalDate to,
+                                                     CategoryType type) {
+        return toCategorySums(storage.rangeSums(user, from, to), type);
+    }
+
+    @Override
+    public Money getCategoryPaymentSummary(Session session, User user, Category category) {
+        return Money.ofKopecks(storage.categorySum(user, category));
+    }
+
+    @Override
+    public Money getCurrentUserPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth) {
+        long sum = 0;
+        for (Map.Entry<CategoryEntry, Long> categorySum : storage.monthSums(user, yearMonth).entrySet()) {
+            if (categorySum.getKey().type() == type) {
+                sum += categorySum.getValue();
+            }
+        }
+        return Money.ofKopecks(sum);
+    }
+
+    /**
+     * Добавляет к сумме из хранилища операции, добавленные в этой транзакции и еще не записанные
+     */
+    @Override
+    public Money getTransactionPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth) {
+        Money sum = getCurrentUserPaymentSummary(session, user, type, yearMonth);
+        for (Runnable write : pendingWrites.get(session)) {
+            if (write instanceof AppendOperation append
+                && append.user.getChatId() == user.getChatId()
+                && append.operation.getCategory().getType() == type
+                && YearMonth.from(append.operation.getCreatedAt()).equals(yearMonth)) {
+                sum = sum.plus(append.operation.getPayment());
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public Map<CategoryType, Money> getEstimateSummary(Session session, YearMonth yearMonth) {
+        List<PaymentAverage<CategoryType>> averages = selectPaymentAverages(yearMonth, category -> true,
+                CategoryEntry::type, new EnumMap<>(CategoryType.class));
+        if (averages.isEmpty()) {
+            return null;
+        }
+
+        Map<CategoryType, Money> result = new EnumMap<>(CategoryType.class);
+        for (PaymentAverage<CategoryType> average : averages) {
+            result.put(average.getKey(), average.getAverage());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Money> getAverageSummaryByStandardCategory(Session session, YearMonth yearMonth) {
+        List<PaymentAverage<String>> averages = selectPaymentAverages(yearMonth, CategoryEntry::isStandard,
+                CategoryEntry::name, new TreeMap<>());
+        if (averages.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Money> result = new LinkedHashMap<>();
+        for (PaymentAverage<String> average : averages) {
+            result.put(average.getKey(), average.getAverage());
+        }
+        return result;
+    }
+
+    /**
+     * Создает операции пользователя по операциям, прочитанным из хранилища
+     */
+    private static List<Operation> toOperations(User user, List<StoredOperation> storedOperations) {
+        List<Operation> operations = new ArrayList<>(storedOperations.size());
+        for (StoredOperation stored : storedOperations) {
+            CategoryEntry entry = stored.category();
+            Category category = new Category(stored.categoryId(), entry.isStandard() ? null : user, entry.name(),
+                    entry.type());
+            operations.add(new Operation(stored.id(), user, category, Money.ofKopecks(stored.amount()),
+                    stored.createdAt()));
+        }
+        return operations;
+    }
+
+    /**
+     * Оставляет суммы по категориям указанного типа и заменяет категории их названиями
+     *
+     * @return Словарь название категории - сумма или null, если сумм нет
+     */
+    private static Map<String, Money> toCategorySums(Map<CategoryEntry, Long> sums, CategoryType type) {
+        Map<String, Money> result = new LinkedHashMap<>();
+        sums.forEach((category, sum) -> {
+            if (category.type() == type) {
+                result.merge(category.name(), Money.ofKopecks(sum), Money::plus);
+            }
+        });
+        return result.isEmpty() ? null : result;
+    }
+
+    /**
+     * Считает среднюю по пользователям сумму платежей за месяц для каждого ключа:
+     * сумма делится на количество пользователей, у которых есть платежи с этим ключом
+     *
+     * @param filter    Какие категории учитывать
+     * @param keyMapper Ключ группировки категории
+     * @param totals    Пустой словарь, который задает порядок ключей в результате
+     */
+    private <K> List<PaymentAverage<K>> selectPaymentAverages(YearMonth yearMonth, Predicate<CategoryEntry> filter,
+                                                              Function<CategoryEntry, K> keyMapper,
+                                                              Map<K, long[]> totals) {
+        for (Map<CategoryEntry, Long> userSums : storage.monthSumsOfAllUsers(yearMonth)) {
+            Map<K, Long> userTotals = new LinkedHashMap<>();
+            userSums.forEach((category, sum) -> {
+                if (filter.test(category)) {
+                    userTotals.merge(keyMapper.apply(category), sum, Long::sum);
+                }
+            });
+            userTotals.forEach((key, sum) -> {
+                long[] total = totals.computeIfAbsent(key, k -> new long[2]);
+                total[0] += sum;
+                total[1]++;
+            });
+        }
+        List<PaymentAverage<K>> averages = new ArrayList<>(totals.size());
+        totals.forEach((key, total) -> averages.add(new PaymentAverage<>(key, total[0], total[1])));
+        return averages;
+    }
+
+    /**
+     * Добавление операции. После записи операция получает ID
+     */
+    private class AppendOperation implements Runnable {
+        /**
+         * Пользователь
+         */
+        private final User user;
+
+        /**
+         * Операция
+         */
+        private final Operation operation;
+
+        /**
+         * ID записи журнала команд или null
+         */
+        private final UUID journalEntryId;
+
+        AppendOperation(User user, Operation operation, UUID journalEntryId) {
+            this.user = user;
+            this.operation = operation;
+            this.journalEntryId = journalEntryId;
+        }
+
+        @Override
+        public void run() {
+            operation.setId(storage.appendOperation(user, operation.getCategory(),
+                    operation.getPayment().getKopecks(), operation.getCreatedAt(), journalEntryId));
+        }
+    }
+
+    /**
+     * Удаление операции
+     */
+    private class RemoveOperation implements Runnable {
+        /**
+         * Пользователь
+         */
+        private final User user;
+
+        /**
+         * ID операции
+         */
+        private final long id;
+
+        RemoveOperation(User user, long id) {
+            this.user = user;
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            storage.removeOperation(user, id);
+        }
+    }
+}
@@ -0,0 +1,772 @@
+package ru.naumen.personalfinancebot.repository.embedded;
+
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Встроенное хранилище операций и бюджетов в каталоге на диске. Хранит только операции и бюджеты:
+ * пользователи, категории и регулярные операции по-прежнему хранятся в БД, а ежемесячная сводка,
+ * перенос бюджетов и архивирование операций работают только с операциями и бюджетами в БД
+ * и при встроенном хранилище не запускаются.
+ *
+ * <p>Операции каждого пользователя хранятся по столбцам в сегментах {@link ColumnSegment}
+ * в каталоге operations/ID чата, суммы за месяц и любой диапазон дней берутся из индекса {@link UserColumns}.
+ * Категории операций записываются в словарь categories.log: в сегментах хранится ID категории
+ * в словаре, а не в репозитории категорий, поэтому данные не зависят от того, как выдаются ID категорий.
+ * Бюджеты и ID выполненных записей журнала команд дописываются в budgets.log и journal.log,
+ * номера удаленных строк операций - в removed.log. Бюджет с ID со знаком минус - запись об удалении бюджета
+ * в файлах прежних версий. Пользователи различаются по ID чата,
+ * ID операции - номер её строки у пользователя, начиная с 1.</p>
+ *
+ * <p>После сбоя процесса хранилище восстанавливается при открытии: сегменты читаются до первой пустой строки,
+ * а оборванные записи в конце файлов отрезаются. Данные, не сброшенные на диск при сбое ОС,
+ * могут потеряться: на диск все сбрасывается в {@link #close()}. Если сбой произошел между добавлением
+ * операции и записью ID журнала, операция по записи журнала будет добавлена повторно.</p>
+ *
+ * <p>Репозитории записывают изменения в хранилище только после фиксации транзакции БД, в которой они сделаны
+ * (см. {@link PendingWrites}): при откате, например, изменения баланса, операция не остается в хранилище,
+ * а ID записи журнала отмечается выполненным только вместе с изменениями БД. Если процесс упал
+ * между фиксацией транзакции и записью в хранилище, изменения хранилища этой транзакции теряются.</p>
+ */
+public class EmbeddedStorage implements AutoCloseable {
+    /**
+     * Каталог сегментов операций
+     */
+    private static final String OPERATIONS_DIRECTORY = "operations";
+
+    /**
+     * Блокировка хранилища
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Каталог сегментов операций
+     */
+    private final Path operationsDirectory;
+
+    /**
+     * Словарь категорий
+     */
+    private final RecordLog categoryLog;
+
+    /**
+     * ID выполненных записей журнала команд
+     */
+    private final RecordLog journalLog;
+
+    /**
+     * Изменения бюджетов
+     */
+    private final RecordLog budgetLog;
+
+    /**
+     * Удаленные строки операций
+     */
+    private final RecordLog removedLog;
+
+    /**
+     * Категории словаря, ID категории - индекс в списке
+     */
+    private final List<CategoryEntry> categories = new ArrayList<>();
+
+    /**
+     * ID категорий словаря по владельцу, типу и названию в нижнем регистре
+     */
+    private final Map<CategoryEntry, Integer> categoryIds = new HashMap<>();
+
+    /**
+     * Операции пользователей по ID чата
+     */
+    private final Map<Long, UserColumns> userColumns = new HashMap<>();
+
+    /**
+     * Номера удаленных строк операций пользователей по ID чата, общие с {@link UserColumns}
+     */
+    private final Map<Long, Set<Integer>> removedRows = new HashMap<>();
+
+    /**
+     * ID выполненных записей журнала команд
+     */
+    private final Set<UUID> journalEntryIds = new HashSet<>();
+
+    /**
+     * Бюджеты пользователей: ID чата - месяц - бюджет
+     */
+    private final Map<Long, TreeMap<YearMonth, BudgetRecord>> budgets = new HashMap<>();
+
+    /**
+     * Последний выданный ID бюджета
+     */
+    private long lastBudgetId;
+
+    /**
+     * Открывает хранилище в каталоге или создает его, если каталога нет
+     */
+    public EmbeddedStorage(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.operationsDirectory = Files.createDirectories(directory.resolve(OPERATIONS_DIRECTORY));
+        this.categoryLog = new RecordLog(directory.resolve("categories.log"));
+        this.journalLog = new RecordLog(directory.resolve("journal.log"));
+        this.budgetLog = new RecordLog(directory.resolve("budgets.log"));
+        this.removedLog = new RecordLog(directory.resolve("removed.log"));
+
+        for (byte[] record : categoryLog.getRecords()) {
+            CategoryEntry entry = CategoryEntry.deserialize(record);
+            if (!entry.isErased()) {
+                categoryIds.put(entry.key(), categories.size());
+            }
+            categories.add(entry);
+        }
+        for (byte[] record : journalLog.getRecords()) {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+            journalEntryIds.add(new UUID(input.readLong(), input.readLong()));
+        }
+        for (byte[] record : budgetLog.getRecords()) {
+            BudgetRecord budget = BudgetRecord.deserialize(record);
+            TreeMap<YearMonth, BudgetRecord> userBudgets = budgets.computeIfAbsent(budget.chatId(),
+                    chatId -> new TreeMap<>());
+            if (budget.id() < 0) {
+                userBudgets.remove(budget.yearMonth());
+            } else {
+                userBudgets.put(budget.yearMonth(), budget);
+            }
+            lastBudgetId = Math.max(lastBudgetId, budget.id());
+        }
+        Map<Long, Set<Integer>> loggedRows = new HashMap<>();
+        for (byte[] record : removedLog.getRecords()) {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+            loggedRows.computeIfAbsent(input.readLong(), chatId -> new HashSet<>()).add(input.readInt());
+        }
+        List<Path> userDirectories;
+        try (Stream<Path> list = Files.list(operationsDirectory)) {
+            userDirectories = list.filter(Files::isDirectory).toList();
+        }
+        for (Path userDirectory : userDirectories) {
+            long chatId = Long.parseLong(userDirectory.getFileName().toString());
+            // Строки пользователя без каталога остаются в removed.log, только если сбой произошел
+            // при стирании его операций, и к новым операциям с теми же номерами строк не относятся
+            Set<Integer> rows = loggedRows.getOrDefault(chatId, new HashSet<>());
+            removedRows.put(chatId, rows);
+            userColumns.put(chatId, new UserColumns(userDirectory, rows));
+        }
+    }
+
+    /**
+     * Добавляет операцию пользователя
+     *
+     * @param journalEntryId ID записи журнала команд или null
+     * @return ID операции
+     */
+    long appendOperation(User user, Category category, long amount, LocalDate createdAt, UUID journalEntryId) {
+        lock.writeLock().lock();
+        try {
+            int categoryId = categoryId(category);
+            UserColumns columns = userColumns.get(user.getChatId());
+            if (columns == null) {
+                Set<Integer> rows = new HashSet<>();
+                columns = new UserColumns(operationsDirectory.resolve(String.valueOf(user.getChatId())), rows);
+                removedRows.put(user.getChatId(), rows);
+                userColumns.put(user.getChatId(), columns);
+            }
+            int row = columns.append(createdAt, categoryId, amount);
+            if (journalEntryId != null) {
+                journalLog.append(serialize(output -> {
+                    output.writeLong(journalEntryId.getMostSignificantBits());
+                    output.writeLong(journalEntryId.getLeastSignificantBits());
+                }));
+                journalEntryIds.add(journalEntryId);
+            }
+            return row + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет операцию пользователя. ID записи журнала, по которой она добавлена, остается выполненным
+     *
+     * @param id ID операции
+     * @return true, если операция удалена, false, если её нет или она уже удалена
+     */
+    boolean removeOperation(User user, long id) {
+        lock.writeLock().lock();
+        try {
+            UserColumns columns = userColumns.get(user.getChatId());
+            int row = (int) id - 1;
+            if (columns == null || id > Integer.MAX_VALUE || !columns.remove(row)) {
+                return false;
+            }
+            removedLog.append(serialize(output -> {
+                output.writeLong(user.getChatId());
+                output.writeInt(row);
+            }));
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Стирает все операции пользователя с диска: удаляет каталог его сегментов, его строки из removed.log
+     * и названия его категорий из словаря. Записи словаря заменяются пустыми, а не удаляются,
+     * потому что ID категории в сегментах других пользователей - номер записи в словаре.
+     * Каталог удаляется первым, поэтому после сбоя в середине стирания операции не появляются снова
+     *
+     * @return Количество стертых операций
+     */
+    long eraseOperations(User user) {
+        long erased;
+        lock.writeLock().lock();
+        try {
+            UserColumns columns = userColumns.remove(user.getChatId());
+            erased = columns == null ? 0 : columns.lastRows(columns.size()).size();
+            if (columns != null) {
+                columns.delete();
+            }
+            Set<Integer> rows = removedRows.remove(user.getChatId());
+            if (rows != null && !rows.isEmpty()) {
+                List<byte[]> records = new ArrayList<>();
+                for (Map.Entry<Long, Set<Integer>> userRows : removedRows.entrySet()) {
+                    for (int row : userRows.getValue()) {
+                        records.add(serialize(output -> {
+                            output.writeLong(userRows.getKey());
+                            output.writeInt(row);
+                        }));
+                    }
+                }
+                removedLog.rewrite(records);
+            }
+            boolean hasOwnCategories = false;
+            for (int id = 0; id < categories.size(); id++) {
+                CategoryEntry entry = categories.get(id);
+                if (entry.ownerChatId() != null && entry.ownerChatId() == user.getChatId()) {
+                    categoryIds.remove(entry.key());
+                    categories.set(id, CategoryEntry.erased(entry.type()));
+                    hasOwnCategories = true;
+                }
+            }
+            if (hasOwnCategories) {
+                categoryLog.rewrite(categories.stream().map(CategoryEntry::serialize).toList());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return erased;
+    }
+
+    /**
+     * Переносит операции пользователя по категории в другую категорию или удаляет их при replacement == null.
+     * Сегменты только дописываются, поэтому перенесенная операция удаляется и добавляется заново
+     * с новой категорией: она получает новый ID и становится последней добавленной
+     *
+     * @return Количество перенесенных или удаленных операций
+     */
+    long reassignOperations(User user, Category category, Category replacement) {
+        lock.writeLock().lock();
+        try {
+            UserColumns columns = userColumns.get(user.getChatId());
+            if (columns == null) {
+                return 0;
+            }
+            int categoryId = categoryId(category);
+            Integer replacementId = replacement == null ? null : categoryId(replacement);
+            List<Integer> rows = new ArrayList<>(columns.lastRows(columns.size()));
+            Collections.reverse(rows);
+            long reassigned = 0;
+            for (int row : rows) {
+                if (columns.categoryId(row) != categoryId) {
+                    continue;
+                }
+                if (replacementId != null) {
+                    columns.append(LocalDate.ofEpochDay(columns.epochDay(row)), replacementId, columns.amount(row));
+                }
+                columns.remove(row);
+                removedLog.append(serialize(output -> {
+                    output.writeLong(user.getChatId());
+                    output.writeInt(row);
+                }));
+                reassigned++;
+            }
+            return reassigned;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает не более limit последних операций пользователя, начиная с последней
+     */
+    List<StoredOperation> lastOperations(User user, int limit) {
+        lock.readLock().lock();
+        try {
+            UserColumns columns = userColumns.get(user.getChatId());
+            return columns == null ? List.of() : readRows(columns, columns.lastRows(limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает не более limit операций пользователя, упорядоченных по дате и ID от последней,
+     * которые идут после операции с указанными датой и ID
+     *
+     * @param afterDate Дата последней операции предыдущей страницы или null для первой страницы
+     * @param afterId   ID последней операции предыдущей страницы
+     */
+    List<StoredOperation> operationsPage(User user, LocalDate afterDate, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            UserColumns columns = userColumns.get(user.getChatId());
+            if (columns == null) {
+                return List.of();
+            }
+            // ID операции - номер строки плюс один
+            int afterRow = (int) Math.min(afterId - 1, Integer.MAX_VALUE);
+            return readRows(columns, columns.rowsBefore(afterDate == null ? null : afterDate.toEpochDay(),
+                    afterRow, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Проверяет, есть ли у пользователя неудаленная операция с указанным ID
+     */
+    boolean hasOperation(User user, long id) {
+        lock.readLock().lock();
+        try {
+            UserColumns columns = userColumns.get(user.getChatId());
+            return columns != null && id >= 1 && id <= columns.size() && !columns.isRemoved((int) id - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество неудаленных операций пользователя по категории или всех его операций
+     *
+     * @param category Категория или null, чтобы посчитать все операции
+     */
+    long operationCount(User user, Category category) {
+        lock.readLock().lock();
+        try {
+            UserColumns columns = userColumns.get(user.getChatId());
+            if (columns == null) {
+                return 0;
+            }
+            List<Integer> rows = columns.lastRows(columns.size());
+            if (category == null) {
+                return rows.size();
+            }
+            Integer categoryId = categoryIds.get(CategoryEntry.of(category).key());
+            return categoryId == null ? 0 : rows.stream().filter(row -> columns.categoryId(row) == categoryId).count();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Проверяет, добавлена ли операция по записи журнала команд
+     */
+    boolean isJournalEntryApplied(UUID journalEntryId) {
+        lock.readLock().lock();
+        try {
+            return journalEntryIds.contains(journalEntryId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает сумму всех операций пользователя по категории в копейках
+     */
+    long categorySum(User user, Category category) {
+        lock.readLock().lock();
+        try {
+            UserColumns columns = userColumns.get(user.getChatId());
+            Integer categoryId = categoryIds.get(CategoryEntry.of(category).key());
+            if (columns == null || categoryId == null) {
+                return 0;
+            }
+            return columns.rangeSums(LocalDate.MIN, LocalDate.MAX).getOrDefault(categoryId, 0L);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает суммы операций пользователя за месяц по категориям в порядке их появления в словаре
+     *
+     * @return Категория словаря - сумма в копейках
+     */
+    Map<CategoryEntry, Long> monthSums(User user, YearMonth yearMonth) {
+        lock.readLock().lock();
+        try {
+            UserColumns columns = userColumns.get(user.getChatId());
+            return columns == null ? Map.of() : resolveCategories(columns.monthSums(yearMonth));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает суммы операций пользователя за дни с from по to включительно по категориям
+     * в порядке их появления в словаре
+     *
+     * @return Категория словаря - сумма в копейках
+     */
+    Map<CategoryEntry, Long> rangeSums(User user, LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            UserColumns columns = userColumns.get(user.getChatId());
+            return columns == null ? Map.of() : resolveCategories(columns.rangeSums(from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает суммы операций за месяц по категориям для каждого пользователя, у которого есть операции
+     */
+    List<Map<CategoryEntry, Long>> monthSumsOfAllUsers(YearMonth yearMonth) {
+        lock.readLock().lock();
+        try {
+            List<Map<CategoryEntry, Long>> result = new ArrayList<>();
+            for (UserColumns columns : userColumns.values()) {
+                Map<Integer, Long> sums = columns.monthSums(yearMonth);
+                if (!sums.isEmpty()) {
+                    result.add(resolveCategories(sums));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Сохраняет бюджет пользователя за месяц
+     *
+     * @param id                  ID бюджета или 0 для нового бюджета
+     * @param expenseAlertPercent Наибольший порог расходов, о достижении которого пользователь уже уведомлен
+     * @return ID бюджета
+     */
+    long saveBudget(User user, long id, YearMonth yearMonth, long income, long expense, int expenseAlertPercent) {
+        lock.writeLock().lock();
+        try {
+            BudgetRecord budget = new BudgetRecord(id == 0 ? lastBudgetId + 1 : id, user.getChatId(), yearMonth,
+                    income, expense, expenseAlertPercent);
+            appendBudget(budget);
+            return budget.id();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Отмечает порог расходов бюджета пользователя за месяц, если об этом или большем пороге еще не уведомлено
+     *
+     * @return true, если порог отмечен, false, если бюджета нет или порог уже отмечен
+     */
+    boolean markExpenseAlert(User user, YearMonth yearMonth, int percent) {
+        lock.writeLock().lock();
+        try {
+            TreeMap<YearMonth, BudgetRecord> userBudgets = budgets.get(user.getChatId());
+            BudgetRecord budget = userBudgets == null ? null : userBudgets.get(yearMonth);
+            if (budget == null || budget.expenseAlertPercent() >= percent) {
+                return false;
+            }
+            appendBudget(new BudgetRecord(budget.id(), budget.chatId(), yearMonth, budget.income(),
+                    budget.expense(), percent));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Дописывает запись бюджета в журнал и заменяет ею бюджет того же месяца в памяти.
+     * Вызывается под блокировкой записи
+     */
+    private void appendBudget(BudgetRecord budget) {
+        try {
+            budgetLog.append(budget.serialize());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastBudgetId = Math.max(lastBudgetId, budget.id());
+        budgets.computeIfAbsent(budget.chatId(), chatId -> new TreeMap<>()).put(budget.yearMonth(), budget);
+    }
+
+    /**
+     * Стирает все бюджеты пользователя с диска: budgets.log переписывается текущими бюджетами
+     * остальных пользователей, поэтому прежние записи бюджетов пользователя в файле не остаются
+     *
+     * @return Количество удаленных бюджетов
+     */
+    int removeBudgets(User user) {
+        lock.writeLock().lock();
+        try {
+            TreeMap<YearMonth, BudgetRecord> userBudgets = budgets.remove(user.getChatId());
+            if (userBudgets == null) {
+                return 0;
+            }
+            budgetLog.rewrite(budgets.values().stream()
+                    .flatMap(otherBudgets -> otherBudgets.values().stream())
+                    .map(BudgetRecord::serialize)
+                    .toList());
+            return userBudgets.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество бюджетов пользователя
+     */
+    int budgetCount(User user) {
+        lock.readLock().lock();
+        try {
+            TreeMap<YearMonth, BudgetRecord> userBudgets = budgets.get(user.getChatId());
+            return userBudgets == null ? 0 : userBudgets.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает бюджеты пользователя с from по to включительно в порядке возрастания месяца
+     */
+    List<BudgetRecord> budgets(User user, YearMonth from, YearMonth to) {
+        lock.readLock().lock();
+        try {
+            TreeMap<YearMonth, BudgetRecord> userBudgets = budgets.get(user.getChatId());
+            return userBudgets == null ? List.of() : List.copyOf(userBudgets.subMap(from, true, to, true).values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает все данные на диск и закрывает файлы
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            userColumns.values().forEach(UserColumns::force);
+            for (RecordLog log : List.of(categoryLog, journalLog, budgetLog, removedLog)) {
+                log.force();
+                log.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает ID категории в словаре, добавляя в словарь новую категорию.
+     * Вызывается под блокировкой для изменения
+     */
+    private int categoryId(Category category) throws IOException {
+        CategoryEntry entry = CategoryEntry.of(category);
+        Integer id = categoryIds.get(entry.key());
+        if (id == null) {
+            categoryLog.append(entry.serialize());
+            id = categories.size();
+            categories.add(entry);
+            categoryIds.put(entry.key(), id);
+        }
+        return id;
+    }
+
+    /**
+     * Читает операции из строк пользователя. Вызывается под блокировкой
+     */
+    private List<StoredOperation> readRows(UserColumns columns, List<Integer> rows) {
+        List<StoredOperation> operations = new ArrayList<>(rows.size());
+        for (int row : rows) {
+            int categoryId = columns.categoryId(row);
+            operations.add(new StoredOperation(row + 1, categoryId, categories.get(categoryId),
+                    LocalDate.ofEpochDay(columns.epochDay(row)), columns.amount(row)));
+        }
+        return operations;
+    }
+
+    /**
+     * Заменяет ID категорий словаря на сами категории. Вызывается под блокировкой
+     */
+    private Map<CategoryEntry, Long> resolveCategories(Map<Integer, Long> sums) {
+        Map<CategoryEntry, Long> result = new LinkedHashMap<>();
+        sums.forEach((categoryId, sum) -> result.put(categories.get(categoryId), sum));
+        return result;
+    }
+
+    /**
+     * Переводит запись в байты
+     */
+    private static byte[] serialize(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            writer.write(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Запись данных в поток
+     */
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream output) throws IOException;
+    }
+
+    /**
+     * Категория в словаре хранилища
+     *
+     * @param ownerChatId ID чата пользователя, добавившего категорию, или null для стандартной категории
+     * @param type        Тип категории
+     * @param name        Название категории
+     */
+    record CategoryEntry(Long ownerChatId, CategoryType type, String name) {
+        /**
+         * Является ли категория стандартной
+         */
+        boolean isStandard() {
+            return ownerChatId == null;
+        }
+
+        /**
+         * Запись словаря для категории репозитория категорий
+         */
+        private static CategoryEntry of(Category category) {
+            return new CategoryEntry(category.isStandard() ? null : category.getUser().getChatId(),
+                    category.getType(), category.getCategoryName());
+        }
+
+        /**
+         * Пустая запись на месте стертой категории пользователя
+         */
+        private static CategoryEntry erased(CategoryType type) {
+            return new CategoryEntry(null, type, "");
+        }
+
+        /**
+         * Является ли запись стертой категорией пользователя
+         */
+        private boolean isErased() {
+            return name.isEmpty();
+        }
+
+        /**
+         * Ключ для поиска категории: название без учета регистра, как в репозиториях категорий
+         */
+        private CategoryEntry key() {
+            return new CategoryEntry(ownerChatId, type, name.toLowerCase());
+        }
+
+        private byte[] serialize() {
+            return EmbeddedStorage.serialize(output -> {
+                output.writeBoolean(ownerChatId != null);
+                output.writeLong(ownerChatId == null ? 0 : ownerChatId);
+                output.writeInt(type.ordinal());
+                output.writeUTF(name);
+            });
+        }
+
+        private static CategoryEntry deserialize(byte[] data) throws IOException {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+            boolean hasOwner = input.readBoolean();
+            long ownerChatId = input.readLong();
+            CategoryType type = CategoryType.values()[input.readInt()];
+            return new CategoryEntry(hasOwner ? ownerChatId : null, type, input.readUTF());
+        }
+    }
+
+    /**
+     * Операция пользователя, прочитанная из сегментов
+     *
+     * @param id         ID операции
+     * @param categoryId ID категории в словаре
+     * @param category   Категория словаря
+     * @param createdAt  Дата операции
+     * @param amount     Сумма в копейках
+     */
+    record StoredOperation(long id, int categoryId, CategoryEntry category, LocalDate createdAt, long amount) {
+    }
+
+    /**
+     * Бюджет пользователя за месяц
+     *
+     * @param id                  ID бюджета или ID со знаком минус для записи об удалении бюджета
+     * @param chatId              ID чата пользователя
+     * @param yearMonth           Месяц бюджета
+     * @param income              Ожидаемые доходы в копейках
+     * @param expense             Ожидаемые расходы в копейках
+     * @param expenseAlertPercent Наибольший порог расходов, о достижении которого пользователь уже уведомлен
+     */
+    record BudgetRecord(long id, long chatId, YearMonth yearMonth, long income, long expense,
+                        int expenseAlertPercent) {
+        private byte[] serialize() {
+            return EmbeddedStorage.serialize(output -> {
+                output.writeLong(id);
+                output.writeLong(chatId);
+                output.writeInt(yearMonth.getYear());
+                output.writeInt(yearMonth.getMonthValue());
+                output.writeLong(income);
+                output.writeLong(expense);
+                output.writeInt(expenseAlertPercent);
+            });
+        }
+
+        private static BudgetRecord deserialize(byte[] data) throws IOException {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+            BudgetRecord budget = new BudgetRecord(input.readLong(), input.readLong(),
+                    YearMonth.of(input.readInt(), input.readInt()), input.readLong(), input.readLong(), 0);
+            // В записях, сохраненных до появления уведомлений о порогах расходов, порога нет
+            if (input.available() == 0) {
+                return budget;
+            }
+            return new BudgetRecord(budget.id(), budget.chatId(), budget.yearMonth(), budget.income(),
+                    budget.expense(), input.readInt());
+        }
+    }
+}
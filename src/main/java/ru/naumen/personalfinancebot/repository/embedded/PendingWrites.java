@@ -0,0 +1,81 @@
+package ru.naumen.personalfinancebot.repository.embedded;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Изменения встроенного хранилища, отложенные до фиксации транзакции БД, в которой они сделаны.
+ * Хранилище не участвует в транзакциях БД, поэтому изменение записывается на диск только после фиксации
+ * и отбрасывается при откате вместе с изменениями БД той же транзакции, например, с изменением баланса.
+ * Изменения одной транзакции записываются в порядке их добавления.
+ * Изменение без сессии или вне активной транзакции записывается сразу
+ */
+class PendingWrites {
+    /**
+     * Отложенные изменения по транзакциям
+     */
+    private final Map<Transaction, List<Runnable>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Откладывает изменение до фиксации транзакции сессии
+     *
+     * @param write Изменение хранилища
+     */
+    void add(Session session, Runnable write) {
+        if (session == null || !session.getTransaction().isActive()) {
+            write.run();
+            return;
+        }
+        pending.computeIfAbsent(session.getTransaction(), transaction -> {
+            transaction.registerSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // Изменения записываются только после фиксации транзакции
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    complete(transaction, status == Status.STATUS_COMMITTED);
+                }
+            });
+            return new ArrayList<>();
+        }).add(write);
+    }
+
+    /**
+     * Возвращает изменения, отложенные в транзакции сессии, в порядке их добавления
+     */
+    List<Runnable> get(Session session) {
+        if (session == null) {
+            return List.of();
+        }
+        return pending.getOrDefault(session.getTransaction(), List.of());
+    }
+
+    /**
+     * Записывает изменения зафиксированной транзакции или отбрасывает изменения откаченной.
+     * Транзакция БД к этому моменту уже зафиксирована, поэтому ошибка записи не откатывает её,
+     * а только выводится в лог
+     */
+    private void complete(Transaction transaction, boolean committed) {
+        List<Runnable> writes = pending.remove(transaction);
+        if (!committed || writes == null) {
+            return;
+        }
+        for (Runnable write : writes) {
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                System.err.println("Изменение встроенного хранилища не записано после фиксации транзакции:");
+                e.printStackTrace();
+            }
+        }
+    }
+}
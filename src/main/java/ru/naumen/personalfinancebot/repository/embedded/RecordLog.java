@@ -0,0 +1,126 @@
+package ru.naumen.personalfinancebot.repository.embedded;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Файл, в конец которого дописываются записи переменной длины: длина данных (int), затем данные.
+ * При открытии файла запись, оборванная при сбое, отрезается
+ */
+class RecordLog implements AutoCloseable {
+    /**
+     * Файл журнала
+     */
+    private final Path file;
+
+    /**
+     * Канал файла
+     */
+    private FileChannel channel;
+
+    /**
+     * Записи, прочитанные при открытии файла
+     */
+    private final List<byte[]> records = new ArrayList<>();
+
+    /**
+     * Открывает файл или создает его, если файла нет, и читает записи
+     */
+    RecordLog(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long position = 0;
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        while (readFully(length.clear(), position)) {
+            ByteBuffer data = ByteBuffer.allocate(length.flip().getInt());
+            if (!readFully(data, position + Integer.BYTES)) {
+                break;
+            }
+            records.add(data.array());
+            position += Integer.BYTES + data.capacity();
+        }
+        channel.truncate(position);
+        channel.position(position);
+    }
+
+    /**
+     * @return Записи, прочитанные при открытии файла
+     */
+    List<byte[]> getRecords() {
+        return records;
+    }
+
+    /**
+     * Дописывает запись в конец файла
+     */
+    void append(byte[] data) throws IOException {
+        write(channel, data);
+    }
+
+    /**
+     * Заменяет содержимое файла указанными записями. Записи пишутся во временный файл, который сбрасывается
+     * на диск и переименовывается поверх журнала, поэтому при сбое остается либо старый, либо новый журнал
+     */
+    void rewrite(List<byte[]> newRecords) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (byte[] data : newRecords) {
+                write(output, data);
+            }
+            output.force(false);
+        }
+        channel.close();
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    /**
+     * Сбрасывает файл на диск
+     */
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Дописывает запись в канал: длину данных, затем данные
+     */
+    private static void write(FileChannel target, byte[] data) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + data.length)
+                .putInt(data.length)
+                .put(data)
+                .flip();
+        while (record.hasRemaining()) {
+            target.write(record);
+        }
+    }
+
+    /**
+     * Читает буфер целиком с указанной позиции
+     *
+     * @return false, если файл закончился раньше
+     */
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
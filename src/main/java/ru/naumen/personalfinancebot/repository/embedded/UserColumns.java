@@ -0,0 +1,248 @@
+package ru.naumen.personalfinancebot.repository.embedded;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Операции одного пользователя: сегменты в отдельном каталоге и индекс сумм по дням.
+ * Индекс строится при открытии по всем строкам сегментов и обновляется при добавлении операции,
+ * поэтому суммы за месяц или диапазон дней считаются по дням с операциями без чтения сегментов.
+ * Строки нумеруются с нуля по всем сегментам подряд. Удаленные строки остаются в сегментах,
+ * но не учитываются в индексе
+ */
+class UserColumns {
+    /**
+     * Расширение файлов сегментов
+     */
+    private static final String SEGMENT_EXTENSION = ".seg";
+
+    /**
+     * Каталог сегментов пользователя
+     */
+    private final Path directory;
+
+    /**
+     * Сегменты в порядке добавления
+     */
+    private final List<ColumnSegment> segments = new ArrayList<>();
+
+    /**
+     * Индекс: день от 1970-01-01 - ID категории - сумма в копейках
+     */
+    private final TreeMap<Long, Map<Integer, Long>> daySums = new TreeMap<>();
+
+    /**
+     * Номера строк по дням от 1970-01-01 в порядке возрастания, включая удаленные строки
+     */
+    private final TreeMap<Long, List<Integer>> dayRows = new TreeMap<>();
+
+    /**
+     * Номера удаленных строк
+     */
+    private final Set<Integer> removedRows;
+
+    /**
+     * Открывает сегменты пользователя из каталога или создает каталог, если его нет
+     *
+     * @param removedRows Номера удаленных строк, изменяется при удалении строк
+     */
+    UserColumns(Path directory, Set<Integer> removedRows) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.removedRows = removedRows;
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(SEGMENT_EXTENSION))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            ColumnSegment segment = new ColumnSegment(file);
+            segments.add(segment);
+            int firstRow = (segments.size() - 1) * ColumnSegment.ROWS;
+            for (int row = 0; row < segment.size(); row++) {
+                dayRows.computeIfAbsent(segment.epochDay(row), day -> new ArrayList<>()).add(firstRow + row);
+                if (!removedRows.contains(firstRow + row)) {
+                    index(segment.epochDay(row), segment.categoryId(row), segment.amount(row));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Количество операций пользователя
+     */
+    int size() {
+        return segments.stream().mapToInt(ColumnSegment::size).sum();
+    }
+
+    /**
+     * Дописывает операцию в последний сегмент или в новый, если последний заполнен
+     *
+     * @return Номер строки операции
+     */
+    int append(LocalDate date, int categoryId, long amount) throws IOException {
+        if (segments.isEmpty() || segments.get(segments.size() - 1).isFull()) {
+            // Номер в имени дополняется нулями, чтобы сегменты сортировались по имени файла
+            String name = "%08d%s".formatted(segments.size(), SEGMENT_EXTENSION);
+            segments.add(new ColumnSegment(directory.resolve(name)));
+        }
+        segments.get(segments.size() - 1).append(date.toEpochDay(), categoryId, amount);
+        index(date.toEpochDay(), categoryId, amount);
+        int row = size() - 1;
+        dayRows.computeIfAbsent(date.toEpochDay(), day -> new ArrayList<>()).add(row);
+        return row;
+    }
+
+    /**
+     * Удаляет строку: она перестает учитываться в суммах и в последних операциях
+     *
+     * @return true, если строка удалена, false, если её нет или она уже удалена
+     */
+    boolean remove(int row) {
+        if (row < 0 || row >= size() || !removedRows.add(row)) {
+            return false;
+        }
+        index(epochDay(row), categoryId(row), -amount(row));
+        return true;
+    }
+
+    /**
+     * Проверяет, удалена ли строка
+     */
+    boolean isRemoved(int row) {
+        return removedRows.contains(row);
+    }
+
+    /**
+     * Возвращает номера не более limit последних неудаленных строк, начиная с последней
+     */
+    List<Integer> lastRows(int limit) {
+        List<Integer> rows = new ArrayList<>(limit);
+        for (int row = size() - 1; row >= 0 && rows.size() < limit; row--) {
+            if (!removedRows.contains(row)) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Возвращает номера не более limit неудаленных строк, упорядоченных по дню и номеру строки от последней,
+     * которые идут после строки afterRow дня afterEpochDay. Начало страницы находится бинарным поиском,
+     * поэтому время не зависит от того, сколько строк уже пройдено
+     *
+     * @param afterEpochDay День последней строки предыдущей страницы или null для первой страницы
+     * @param afterRow      Номер последней строки предыдущей страницы
+     */
+    List<Integer> rowsBefore(Long afterEpochDay, int afterRow, int limit) {
+        List<Integer> rows = new ArrayList<>(limit);
+        NavigableMap<Long, List<Integer>> days = afterEpochDay == null
+                ? dayRows.descendingMap()
+                : dayRows.headMap(afterEpochDay, true).descendingMap();
+        for (Map.Entry<Long, List<Integer>> day : days.entrySet()) {
+            List<Integer> dayRowNumbers = day.getValue();
+            int start = dayRowNumbers.size() - 1;
+            if (day.getKey().equals(afterEpochDay)) {
+                int position = Collections.binarySearch(dayRowNumbers, afterRow);
+                start = (position >= 0 ? position : -position - 1) - 1;
+            }
+            for (int i = start; i >= 0 && rows.size() < limit; i--) {
+                if (!removedRows.contains(dayRowNumbers.get(i))) {
+                    rows.add(dayRowNumbers.get(i));
+                }
+            }
+            if (rows.size() == limit) {
+                break;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return День операции в строке от 1970-01-01
+     */
+    long epochDay(int row) {
+        return segment(row).epochDay(row % ColumnSegment.ROWS);
+    }
+
+    /**
+     * @return ID категории словаря в строке
+     */
+    int categoryId(int row) {
+        return segment(row).categoryId(row % ColumnSegment.ROWS);
+    }
+
+    /**
+     * @return Сумма операции в строке в копейках
+     */
+    long amount(int row) {
+        return segment(row).amount(row % ColumnSegment.ROWS);
+    }
+
+    /**
+     * @return Суммы операций за месяц по ID категорий в порядке возрастания ID
+     */
+    Map<Integer, Long> monthSums(YearMonth yearMonth) {
+        return rangeSums(yearMonth.atDay(1), yearMonth.atEndOfMonth());
+    }
+
+    /**
+     * @return Суммы операций за дни с from по to включительно по ID категорий в порядке возрастания ID
+     */
+    Map<Integer, Long> rangeSums(LocalDate from, LocalDate to) {
+        Map<Integer, Long> sums = new TreeMap<>();
+        if (from.isAfter(to)) {
+            return sums;
+        }
+        for (Map<Integer, Long> day : daySums.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values()) {
+            day.forEach((categoryId, sum) -> sums.merge(categoryId, sum, Long::sum));
+        }
+        return sums;
+    }
+
+    /**
+     * Сбрасывает сегменты на диск
+     */
+    void force() {
+        segments.forEach(ColumnSegment::force);
+    }
+
+    /**
+     * Удаляет файлы сегментов и каталог пользователя. После этого объект больше не используется
+     */
+    void delete() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.toList();
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Возвращает сегмент строки. Все сегменты, кроме последнего, заполнены
+     */
+    private ColumnSegment segment(int row) {
+        return segments.get(row / ColumnSegment.ROWS);
+    }
+
+    /**
+     * Добавляет операцию в индекс сумм по дням
+     */
+    private void index(long epochDay, int categoryId, long amount) {
+        daySums.computeIfAbsent(epochDay, day -> new TreeMap<>()).merge(categoryId, amount, Long::sum);
+    }
+}
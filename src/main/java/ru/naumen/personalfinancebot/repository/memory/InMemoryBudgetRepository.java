@@ -0,0 +1,97 @@
+package ru.naumen.personalfinancebot.repository.memory;
+
+import com.sun.istack.Nullable;
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.YearMonthRange;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Хранилище бюджетов в памяти
+ */
+public class InMemoryBudgetRepository implements BudgetRepository {
+    /**
+     * Общее хранилище данных
+     */
+    private final InMemoryStorage storage;
+
+    /**
+     * @param storage Общее хранилище данных
+     */
+    public InMemoryBudgetRepository(InMemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void saveBudget(Session session, Budget budget) {
+        storage.writeLock().lock();
+        try {
+            if (budget.getId() == 0) {
+                budget.setId(storage.nextId());
+            }
+            storage.userBudgets.computeIfAbsent(budget.getUser().getId(), id -> new TreeMap<>())
+                    .put(budget.getTargetDate(), budget);
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Budget> getBudget(Session session, User user, @Nullable YearMonth yearMonth) {
+        if (yearMonth == null) {
+            yearMonth = YearMonth.now();
+        }
+        storage.readLock().lock();
+        try {
+            TreeMap<YearMonth, Budget> budgets = storage.userBudgets.get(user.getId());
+            return budgets == null ? Optional.empty() : Optional.ofNullable(budgets.get(yearMonth));
+        } finally {
+            storage.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Budget> selectBudgetRange(Session session, User user, YearMonth from, YearMonth to) {
+        // Проверяет границы так же, как Hibernate репозиторий
+        YearMonthRange.of(from, to);
+        storage.readLock().lock();
+        try {
+            TreeMap<YearMonth, Budget> budgets = storage.userBudgets.get(user.getId());
+            return budgets == null ? List.of() : new ArrayList<>(budgets.subMap(from, true, to, true).values());
+        } finally {
+            storage.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int removeAllBudgets(Session session, User user) {
+        storage.writeLock().lock();
+        try {
+            TreeMap<YearMonth, Budget> budgets = storage.userBudgets.remove(user.getId());
+            return budgets == null ? 0 : budgets.size();
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean markExpenseAlert(Session session, Budget budget, int percent) {
+        storage.writeLock().lock();
+        try {
+            if (budget.getExpenseAlertPercent() >= percent) {
+                return false;
+            }
+            budget.setExpenseAlertPercent(percent);
+            return true;
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+}
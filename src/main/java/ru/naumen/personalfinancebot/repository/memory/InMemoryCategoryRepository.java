@@ -0,0 +1,160 @@
+package ru.naumen.personalfinancebot.repository.memory;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingStandardCategoryException;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingUserCategoryException;
+import ru.naumen.personalfinancebot.repository.category.exception.NotExistingCategoryException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище категорий в памяти
+ */
+public class InMemoryCategoryRepository implements CategoryRepository {
+    /**
+     * Общее хранилище данных
+     */
+    private final InMemoryStorage storage;
+
+    /**
+     * @param storage Общее хранилище данных
+     */
+    public InMemoryCategoryRepository(InMemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Создает хранилище категорий в памяти и добавляет стандартные категории, если их не существует
+     *
+     * @param storage    Общее хранилище данных
+     * @param categories Список стандартных категорий
+     */
+    public InMemoryCategoryRepository(InMemoryStorage storage, List<Category> categories) {
+        this(storage);
+        for (Category category : categories) {
+            try {
+                createStandardCategory(null, category.getType(), category.getCategoryName());
+            } catch (ExistingStandardCategoryException ignored) {
+                // Игнорировано, потому что все хорошо, когда категории уже добавлены
+            }
+        }
+    }
+
+    @Override
+    public List<Category> getUserCategoriesByType(Session session, User user, CategoryType type) {
+        storage.readLock().lock();
+        try {
+            return new ArrayList<>(storage.categories(user, type));
+        } finally {
+            storage.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Category> getStandardCategoriesByType(Session session, CategoryType type) {
+        return getUserCategoriesByType(session, null, type);
+    }
+
+    @Override
+    public Category createUserCategory(Session session, User user, CategoryType type, String categoryName)
+            throws ExistingUserCategoryException, ExistingStandardCategoryException {
+        storage.writeLock().lock();
+        try {
+            Optional<Category> existingCategory = findByName(user, type, categoryName);
+            if (existingCategory.isPresent()) {
+                if (existingCategory.get().isStandard()) {
+                    throw new ExistingStandardCategoryException(categoryName);
+                }
+                throw new ExistingUserCategoryException(categoryName);
+            }
+            return create(new Category(user, categoryName, type));
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Category createStandardCategory(Session session, CategoryType type, String categoryName)
+            throws ExistingStandardCategoryException {
+        storage.writeLock().lock();
+        try {
+            if (findByName(null, type, categoryName).isPresent()) {
+                throw new ExistingStandardCategoryException(categoryName);
+            }
+            return create(new Category(null, categoryName, type));
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет пользовательскую категорию по названию.
+     *
+     * @throws IllegalStateException если по категории есть операции: в БД их удаление запрещает внешний ключ
+     */
+    @Override
+    public void removeUserCategoryByName(Session session, User user, CategoryType type, String categoryName)
+            throws NotExistingCategoryException {
+        storage.writeLock().lock();
+        try {
+            Optional<Category> category = findByName(user, type, categoryName);
+            if (category.isEmpty() || category.get().isStandard()) {
+                throw new NotExistingCategoryException(categoryName);
+            }
+            Map<?, List<Operation>> operations = storage.userOperations.getOrDefault(user.getId(), Map.of());
+            boolean hasOperations = operations.values().stream()
+                    .flatMap(List::stream)
+                    .anyMatch(operation -> operation.getCategory().getId() == category.get().getId());
+            if (hasOperations) {
+                throw new IllegalStateException("По категории '%s' есть операции".formatted(categoryName));
+            }
+            storage.categoriesForUpdate(user, type).remove(category.get());
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Category> getCategoryByName(Session session, User user, CategoryType type, String categoryName) {
+        storage.readLock().lock();
+        try {
+            return findByName(user, type, categoryName);
+        } finally {
+            storage.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет категорию пользователя или стандартную категорию по названию без учета регистра.
+     * При user == null ищет только стандартную категорию. Вызывается под блокировкой
+     */
+    private Optional<Category> findByName(User user, CategoryType type, String categoryName) {
+        String lowerCaseName = categoryName.toLowerCase();
+        Stream<Category> categories = storage.categories(null, type).stream();
+        if (user != null) {
+            categories = Stream.concat(categories, storage.categories(user, type).stream());
+        }
+        return categories
+                .filter(category -> category.getCategoryName().toLowerCase().equals(lowerCaseName))
+                .min(Comparator.comparingLong(Category::getId));
+    }
+
+    /**
+     * Сохраняет новую категорию. Вызывается под блокировкой для изменения
+     */
+    private Category create(Category category) {
+        category.setId(storage.nextId());
+        storage.categoriesForUpdate(category.getUser(), category.getType()).add(category);
+        return category;
+    }
+}
@@ -0,0 +1,359 @@
+package ru.naumen.personalfinancebot.repository.memory;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.operation.OperationCursor;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.PaymentAverage;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Хранилище операций в памяти
+ */
+public class InMemoryOperationRepository implements OperationRepository {
+    /**
+     * Общее хранилище данных
+     */
+    private final InMemoryStorage storage;
+
+    /**
+     * @param storage Общее хранилище данных
+     */
+    public InMemoryOperationRepository(InMemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public Operation addOperation(Session session, User user, Category category, Money payment) {
+        return add(new Operation(user, category, payment));
+    }
+
+    /**
+     * Добавляет операцию по записи журнала команд.
+     *
+     * @throws IllegalStateException если по записи уже добавлена операция: в БД это запрещает уникальный индекс
+     */
+    @Override
+    public Operation addOperation(Session session, User user, Category category, Money payment, LocalDate createdAt,
+                                  UUID journalEntryId) {
+        return add(new Operation(user, category, payment, createdAt, journalEntryId));
+    }
+
+    @Override
+    public void addOperations(Session session, User user, List<Operation> operations) {
+        operations.forEach(this::add);
+    }
+
+    @Override
+    public boolean isJournalEntryApplied(Session session, UUID journalEntryId) {
+        storage.readLock().lock();
+        try {
+            return storage.journalEntryIds.contains(journalEntryId);
+        } finally {
+            storage.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Operation> getLastOperations(Session session, User user, int limit) {
+        List<Operation> operations = new ArrayList<>();
+        storage.readLock().lock();
+        try {
+            storage.userOperations.getOrDefault(user.getId(), Map.of()).values().forEach(operations::addAll);
+        } finally {
+            storage.readLock().unlock();
+        }
+        operations.sort(Comparator.comparingLong(Operation::getId).reversed());
+        return List.copyOf(operations.subList(0, Math.min(limit, operations.size())));
+    }
+
+    @Override
+    public boolean removeOperation(Session session, User user, Operation operation) {
+        YearMonth yearMonth = YearMonth.from(operation.getCreatedAt());
+        storage.writeLock().lock();
+        try {
+            List<Operation> operations = storage.userOperations.getOrDefault(user.getId(), Map.of()).get(yearMonth);
+            int index = operations == null ? -1 : operations.indexOf(operation);
+            if (index < 0) {
+                return false;
+            }
+            Operation removed = operations.remove(index);
+            storage.monthOperations.get(yearMonth).remove(removed);
+            if (removed.getJournalEntryId() != null) {
+                storage.journalEntryIds.remove(removed.getJournalEntryId());
+            }
+            return true;
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет все операции пользователя одной порцией: в памяти удаление не зависит от количества запросов
+     */
+    @Override
+    public long removeAllOperations(Session session, User user, int chunkSize, LongConsumer progress) {
+        long removed;
+        storage.writeLock().lock();
+        try {
+            removed = storage.removeOperations(user.getId());
+        } finally {
+            storage.writeLock().unlock();
+        }
+        if (removed > 0) {
+            progress.accept(removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public long reassignOperations(Session session, User user, Category category, Category replacement) {
+        long reassigned = 0;
+        storage.writeLock().lock();
+        try {
+            for (Map.Entry<YearMonth, List<Operation>> entry : storage.userOperations
+                    .getOrDefault(user.getId(), Map.of()).entrySet()) {
+                Iterator<Operation> iterator = entry.getValue().iterator();
+                while (iterator.hasNext()) {
+                    Operation operation = iterator.next();
+                    if (operation.getCategory().getId() != category.getId()) {
+                        continue;
+                    }
+                    reassigned++;
+                    if (replacement != null) {
+                        operation.setCategory(replacement);
+                        continue;
+                    }
+                    iterator.remove();
+                    storage.monthOperations.get(entry.getKey()).remove(operation);
+                    if (operation.getJournalEntryId() != null) {
+                        storage.journalEntryIds.remove(operation.getJournalEntryId());
+                    }
+                }
+            }
+        } finally {
+            storage.writeLock().unlock();
+        }
+        return reassigned;
+    }
+
+    /**
+     * Возвращает страницу истории операций. Операции пользователя перебираются все: хранилище в памяти
+     * предназначено для тестов и небольших объемов данных
+     */
+    @Override
+    public List<Operation> getOperationsPage(Session session, User user, OperationCursor after, int limit) {
+        List<Operation> operations = new ArrayList<>();
+        storage.readLock().lock();
+        try {
+            for (List<Operation> monthOperations : storage.userOperations.getOrDefault(user.getId(), Map.of())
+                    .values()) {
+                for (Operation operation : monthOperations) {
+                    if (after == null || isBefore(operation, after)) {
+                        operations.add(operation);
+                    }
+                }
+            }
+        } finally {
+            storage.readLock().unlock();
+        }
+        operations.sort(Comparator.comparing(Operation::getCreatedAt).thenComparingLong(Operation::getId).reversed());
+        return List.copyOf(operations.subList(0, Math.min(limit, operations.size())));
+    }
+
+    @Override
+    public void forEachOperation(Session session, User user, Consumer<Operation> action) {
+        getOperationsPage(session, user, null, Integer.MAX_VALUE).forEach(action);
+    }
+
+    @Override
+    public Map<String, Money> getOperationsSumByType(Session session, User user, int month, int year, CategoryType type) {
+        Map<String, Long> sums = new LinkedHashMap<>();
+        for (Operation operation : userOperations(user, YearMonth.of(year, month))) {
+            if (operation.getCategory().getType() == type) {
+                sums.merge(operation.getCategory().getCategoryName(), operation.getPayment().getKopecks(), Long::sum);
+            }
+        }
+        if (sums.isEmpty()) {
+            return null;
+        }
+        Map<String, Money> result = new LinkedHashMap<>();
+        sums.forEach((category, payment) -> result.put(category, Money.ofKopecks(payment)));
+        return result;
+    }
+
+    @Override
+    public Map<String, Money> getOperationsSumByType(Session session, User user, LocalDate from, LocalDate to,
+                                                     CategoryType type) {
+        Map<String, Long> sums = new LinkedHashMap<>();
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            for (Operation operation : userOperations(user, month)) {
+                if (operation.getCategory().getType() == type
+                        && !operation.getCreatedAt().isBefore(from) && !operation.getCreatedAt().isAfter(to)) {
+                    sums.merge(operation.getCategory().getCategoryName(), operation.getPayment().getKopecks(),
+                            Long::sum);
+                }
+            }
+        }
+        if (sums.isEmpty()) {
+            return null;
+        }
+        Map<String, Money> result = new LinkedHashMap<>();
+        sums.forEach((category, payment) -> result.put(category, Money.ofKopecks(payment)));
+        return result;
+    }
+
+    @Override
+    public Money getCategoryPaymentSummary(Session session, User user, Category category) {
+        long sum = 0;
+        storage.readLock().lock();
+        try {
+            for (List<Operation> operations : storage.userOperations.getOrDefault(user.getId(), Map.of()).values()) {
+                for (Operation operation : operations) {
+                    if (operation.getCategory().getId() == category.getId()) {
+                        sum += operation.getPayment().getKopecks();
+                    }
+                }
+            }
+        } finally {
+            storage.readLock().unlock();
+        }
+        return Money.ofKopecks(sum);
+    }
+
+    @Override
+    public Money getCurrentUserPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth) {
+        long sum = 0;
+        for (Operation operation : userOperations(user, yearMonth)) {
+            if (operation.getCategory().getType() == type) {
+                sum += operation.getPayment().getKopecks();
+            }
+        }
+        return Money.ofKopecks(sum);
+    }
+
+    @Override
+    public Map<CategoryType, Money> getEstimateSummary(Session session, YearMonth yearMonth) {
+        List<PaymentAverage<CategoryType>> averages = selectPaymentAverages(yearMonth,
+                operation -> true, operation -> operation.getCategory().getType(), new EnumMap<>(CategoryType.class));
+        if (averages.isEmpty()) {
+            return null;
+        }
+
+        Map<CategoryType, Money> result = new EnumMap<>(CategoryType.class);
+        for (PaymentAverage<CategoryType> average : averages) {
+            result.put(average.getKey(), average.getAverage());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Money> getAverageSummaryByStandardCategory(Session session, YearMonth yearMonth) {
+        List<PaymentAverage<String>> averages = selectPaymentAverages(yearMonth,
+                operation -> operation.getCategory().isStandard(),
+                operation -> operation.getCategory().getCategoryName(), new TreeMap<>());
+        if (averages.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Money> result = new LinkedHashMap<>();
+        for (PaymentAverage<String> average : averages) {
+            result.put(average.getKey(), average.getAverage());
+        }
+        return result;
+    }
+
+    /**
+     * Сохраняет операцию в индексах по пользователю и месяцу
+     */
+    private Operation add(Operation operation) {
+        YearMonth yearMonth = YearMonth.from(operation.getCreatedAt());
+        storage.writeLock().lock();
+        try {
+            UUID journalEntryId = operation.getJournalEntryId();
+            if (journalEntryId != null && !storage.journalEntryIds.add(journalEntryId)) {
+                throw new IllegalStateException("Операция по записи журнала %s уже добавлена"
+                        .formatted(journalEntryId));
+            }
+            operation.setId(storage.nextId());
+            storage.userOperations
+                    .computeIfAbsent(operation.getUserId(), id -> new HashMap<>())
+                    .computeIfAbsent(yearMonth, month -> new ArrayList<>())
+                    .add(operation);
+            storage.monthOperations.computeIfAbsent(yearMonth, month -> new ArrayList<>()).add(operation);
+            return operation;
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Проверяет, идет ли операция в истории после операции с указанным ключом
+     */
+    private static boolean isBefore(Operation operation, OperationCursor cursor) {
+        int byDate = operation.getCreatedAt().compareTo(cursor.createdAt());
+        return byDate < 0 || byDate == 0 && operation.getId() < cursor.id();
+    }
+
+    /**
+     * Возвращает копию операций пользователя за месяц
+     */
+    private List<Operation> userOperations(User user, YearMonth yearMonth) {
+        storage.readLock().lock();
+        try {
+            Map<YearMonth, List<Operation>> byMonth = storage.userOperations.get(user.getId());
+            return byMonth == null ? List.of() : List.copyOf(byMonth.getOrDefault(yearMonth, List.of()));
+        } finally {
+            storage.readLock().unlock();
+        }
+    }
+
+    /**
+     * Считает среднюю по пользователям сумму платежей за месяц для каждого ключа,
+     * так же как нативные запросы Hibernate репозитория: суммы делятся на количество пользователей,
+     * у которых есть платежи с этим ключом
+     *
+     * @param filter    Какие операции учитывать
+     * @param keyMapper Ключ группировки операции
+     * @param totals    Пустой словарь, который задает порядок ключей в результате
+     */
+    private <K> List<PaymentAverage<K>> selectPaymentAverages(YearMonth yearMonth, Predicate<Operation> filter,
+                                                              Function<Operation, K> keyMapper,
+                                                              Map<K, Map<Long, Long>> totals) {
+        storage.readLock().lock();
+        try {
+            for (Operation operation : storage.monthOperations.getOrDefault(yearMonth, List.of())) {
+                if (filter.test(operation)) {
+                    totals.computeIfAbsent(keyMapper.apply(operation), key -> new HashMap<>())
+                            .merge(operation.getUserId(), operation.getPayment().getKopecks(), Long::sum);
+                }
+            }
+        } finally {
+            storage.readLock().unlock();
+        }
+        List<PaymentAverage<K>> averages = new ArrayList<>(totals.size());
+        totals.forEach((key, userSums) -> averages.add(new PaymentAverage<>(key,
+                userSums.values().stream().mapToLong(Long::longValue).sum(), userSums.size())));
+        return averages;
+    }
+}
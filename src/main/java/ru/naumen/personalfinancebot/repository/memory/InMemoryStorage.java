@@ -0,0 +1,167 @@
+package ru.naumen.personalfinancebot.repository.memory;
+
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Общее хранилище данных для репозиториев в памяти. Репозитории, созданные с одним хранилищем,
+ * видят данные друг друга так же, как Hibernate репозитории видят одну БД: например, удаление пользователя
+ * удаляет его операции и категории.
+ *
+ * <p>Данные проиндексированы по пользователю и месяцу. Чтение выполняется под общей блокировкой,
+ * изменение - под исключительной, поэтому репозитории можно вызывать из нескольких потоков.
+ * Сессия Hibernate репозиториям в памяти не нужна и может быть равна null.</p>
+ */
+public class InMemoryStorage {
+    /**
+     * Блокировка хранилища
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Последний выданный ID. Как и последовательность в БД, общий для всех сущностей
+     */
+    private long lastId;
+
+    /**
+     * Пользователи по ID
+     */
+    final Map<Long, User> usersById = new HashMap<>();
+
+    /**
+     * Пользователи по ID чата
+     */
+    final Map<Long, User> usersByChatId = new HashMap<>();
+
+    /**
+     * Стандартные категории по типу в порядке добавления
+     */
+    final Map<CategoryType, List<Category>> standardCategories = new EnumMap<>(CategoryType.class);
+
+    /**
+     * Категории пользователей: ID пользователя - тип - категории в порядке добавления
+     */
+    final Map<Long, Map<CategoryType, List<Category>>> userCategories = new HashMap<>();
+
+    /**
+     * Операции пользователей: ID пользователя - месяц - операции в порядке добавления
+     */
+    final Map<Long, Map<YearMonth, List<Operation>>> userOperations = new HashMap<>();
+
+    /**
+     * Операции всех пользователей по месяцам для общих отчетов
+     */
+    final Map<YearMonth, List<Operation>> monthOperations = new HashMap<>();
+
+    /**
+     * ID записей журнала команд, по которым уже добавлены операции
+     */
+    final Set<UUID> journalEntryIds = new HashSet<>();
+
+    /**
+     * Бюджеты пользователей: ID пользователя - месяц - бюджет
+     */
+    final Map<Long, TreeMap<YearMonth, Budget>> userBudgets = new HashMap<>();
+
+    /**
+     * Блокировка для чтения данных
+     */
+    Lock readLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * Блокировка для изменения данных
+     */
+    Lock writeLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Выдает новый ID. Вызывается под блокировкой для изменения
+     */
+    long nextId() {
+        return ++lastId;
+    }
+
+    /**
+     * Возвращает категории пользователя указанного типа или стандартные категории при user == null.
+     * Вызывается под блокировкой, возвращаемый список изменять нельзя
+     */
+    List<Category> categories(User user, CategoryType type) {
+        Map<CategoryType, List<Category>> byType = user == null
+                ? standardCategories
+                : userCategories.get(user.getId());
+        return byType == null ? List.of() : byType.getOrDefault(type, List.of());
+    }
+
+    /**
+     * Возвращает изменяемый список категорий пользователя указанного типа или стандартных категорий
+     * при user == null. Вызывается под блокировкой для изменения
+     */
+    List<Category> categoriesForUpdate(User user, CategoryType type) {
+        Map<CategoryType, List<Category>> byType = user == null
+                ? standardCategories
+                : userCategories.computeIfAbsent(user.getId(), id -> new EnumMap<>(CategoryType.class));
+        return byType.computeIfAbsent(type, t -> new ArrayList<>());
+    }
+
+    /**
+     * Удаляет все операции пользователя с указанным ID. Вызывается под блокировкой для изменения
+     *
+     * @return Количество удаленных операций
+     */
+    long removeOperations(long userId) {
+        Map<YearMonth, List<Operation>> operations = userOperations.remove(userId);
+        if (operations == null) {
+            return 0;
+        }
+        long removed = 0;
+        for (Map.Entry<YearMonth, List<Operation>> entry : operations.entrySet()) {
+            monthOperations.get(entry.getKey()).removeAll(entry.getValue());
+            for (Operation operation : entry.getValue()) {
+                if (operation.getJournalEntryId() != null) {
+                    journalEntryIds.remove(operation.getJournalEntryId());
+                }
+            }
+            removed += entry.getValue().size();
+        }
+        return removed;
+    }
+
+    /**
+     * Удаляет все данные хранилища
+     */
+    public void clear() {
+        writeLock().lock();
+        try {
+            usersById.clear();
+            usersByChatId.clear();
+            standardCategories.clear();
+            userCategories.clear();
+            userOperations.clear();
+            monthOperations.clear();
+            journalEntryIds.clear();
+            userBudgets.clear();
+        } finally {
+            writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ru.naumen.personalfinancebot.repository.memory;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Хранилище пользователей в памяти
+ */
+public class InMemoryUserRepository implements UserRepository {
+    /**
+     * Общее хранилище данных
+     */
+    private final InMemoryStorage storage;
+
+    /**
+     * @param storage Общее хранилище данных
+     */
+    public InMemoryUserRepository(InMemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public Optional<User> getUserByTelegramChatId(Session session, Long chatId) {
+        storage.readLock().lock();
+        try {
+            return Optional.ofNullable(storage.usersByChatId.get(chatId));
+        } finally {
+            storage.readLock().unlock();
+        }
+    }
+
+    @Override
+    public User getOrCreateUser(Session session, long chatId) {
+        storage.writeLock().lock();
+        try {
+            User user = storage.usersByChatId.get(chatId);
+            if (user == null) {
+                user = new User(chatId, Money.ZERO);
+                save(user);
+            }
+            return user;
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveUser(Session session, User user) {
+        storage.writeLock().lock();
+        try {
+            save(user);
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет пользователя вместе с его операциями и категориями, как каскадное удаление в Hibernate.
+     *
+     * @throws IllegalStateException если у пользователя есть бюджеты: в БД их удаление запрещает внешний ключ
+     */
+    @Override
+    public void changeBalance(Session session, User user, Money delta) {
+        storage.writeLock().lock();
+        try {
+            user.setBalance(user.getBalance().plus(delta));
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setBalance(Session session, User user, Money balance) {
+        storage.writeLock().lock();
+        try {
+            user.setBalance(balance);
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Хранилище без транзакций пользователя не блокирует
+     */
+    @Override
+    public void lockUser(Session session, User user) {
+    }
+
+    @Override
+    public void removeUserById(Session session, long id) {
+        storage.writeLock().lock();
+        try {
+            User user = storage.usersById.get(id);
+            if (user == null) {
+                return;
+            }
+            Map<YearMonth, ?> budgets = storage.userBudgets.get(id);
+            if (budgets != null && !budgets.isEmpty()) {
+                throw new IllegalStateException("У пользователя %d есть бюджеты".formatted(id));
+            }
+            storage.userBudgets.remove(id);
+            storage.userCategories.remove(id);
+            storage.removeOperations(id);
+            storage.usersById.remove(id);
+            storage.usersByChatId.remove(user.getChatId());
+        } finally {
+            storage.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сохраняет пользователя, выдавая ID новому. Вызывается под блокировкой для изменения
+     */
+    private void save(User user) {
+        if (user.getId() == null) {
+            user.setId(storage.nextId());
+        }
+        storage.usersById.put(user.getId(), user);
+        storage.usersByChatId.put(user.getChatId(), user);
+    }
+}
@@ -0,0 +1,25 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import ru.naumen.personalfinancebot.model.CategoryType;
+
+import java.time.LocalDate;
+
+/**
+ * Сумма операций пользователя по категории за день
+ *
+ * @param categoryId   ID категории
+ * @param categoryName Название категории
+ * @param type         Тип категории
+ * @param date         День
+ * @param kopecks      Сумма в копейках
+ * @param archived     Включает ли сумма итог архивного месяца, отнесенный к его первому дню
+ */
+record DailySum(long categoryId, String categoryName, CategoryType type, LocalDate date, long kopecks,
+                boolean archived) {
+    /**
+     * Сумма операций за день без итога архивного месяца
+     */
+    DailySum(long categoryId, String categoryName, CategoryType type, LocalDate date, long kopecks) {
+        this(categoryId, categoryName, type, date, kopecks, false);
+    }
+}
@@ -0,0 +1,205 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Индекс сумм операций пользователей по дням: для каждого пользователя и категории хранится
+ * {@link DayFenwickTree}, поэтому сумма за любой диапазон дней считается за O(log n) без запроса к БД.
+ *
+ * <p>Суммы пользователя загружаются из БД при первом запросе отчета, обновляются после фиксации транзакции,
+ * добавившей или удалившей операцию, и удаляются из памяти, если пользователь не запрашивал отчеты
+ * дольше заданного времени (см. {@link PerUserCache}).</p>
+ *
+ * <p>Память: на каждый день, в который у пользователя были операции по категории, нужно 20 байт
+ * (день, сумма за день и элемент дерева), с запасом массивов - до 40 байт. Например, пользователь
+ * с 5 категориями, операции по которым были в 15 дней каждого месяца за 2 года, занимает 36-72 КБ.
+ * Всего индекс занимает столько, сколько пользователи, запрашивавшие отчеты за время простоя.</p>
+ */
+public class DailyTotalsIndex {
+    /**
+     * Суммы пользователей по ID
+     */
+    private final PerUserCache<UserTotals> cache;
+
+    /**
+     * @param idleTimeout Время простоя, после которого суммы пользователя удаляются из памяти
+     */
+    public DailyTotalsIndex(Duration idleTimeout) {
+        this(idleTimeout, System::nanoTime);
+    }
+
+    /**
+     * @param idleTimeout Время простоя, после которого суммы пользователя удаляются из памяти
+     * @param nanoTime    Источник текущего времени в наносекундах
+     */
+    DailyTotalsIndex(Duration idleTimeout, LongSupplier nanoTime) {
+        this.cache = new PerUserCache<>(idleTimeout, false, nanoTime);
+    }
+
+    /**
+     * Возвращает суммы операций пользователя по категориям указанного типа за дни с from по to включительно
+     *
+     * @param loader Загружает из БД суммы пользователя по категориям за все дни, если их нет в индексе
+     * @return Словарь название категории - сумма или null, если операций нет
+     */
+    Map<String, Money> sumByCategory(long userId, CategoryType type, LocalDate from, LocalDate to,
+                                     Supplier<List<DailySum>> loader) {
+        return cache.read(userId, () -> new UserTotals(loader.get()),
+                totals -> totals.sumByCategory(type, from, to));
+    }
+
+    /**
+     * Возвращает, есть ли у пользователя итоги архивного месяца. Итоги отнесены к первому дню месяца,
+     * поэтому суммы за диапазон дней, захватывающий такой месяц не целиком, неточны
+     *
+     * @param loader Загружает из БД суммы пользователя по категориям за все дни, если их нет в индексе
+     */
+    boolean isArchived(long userId, YearMonth yearMonth, Supplier<List<DailySum>> loader) {
+        return cache.read(userId, () -> new UserTotals(loader.get()),
+                totals -> totals.archivedMonths.contains(yearMonth));
+    }
+
+    /**
+     * Отмечает начало транзакции, которая добавляет или удаляет операцию пользователя.
+     * После завершения транзакции нужно вызвать {@link #endWrite}
+     *
+     * @return Значение, которое нужно передать в {@link #endWrite}
+     */
+    Object beginWrite(long userId) {
+        return cache.beginWrite(userId);
+    }
+
+    /**
+     * Отмечает завершение транзакции, которая добавляла или удаляла операцию, и добавляет сумму операции
+     * к суммам пользователя, если транзакция зафиксирована
+     *
+     * @param write     Значение, которое вернул {@link #beginWrite}
+     * @param payment   Сумма операции, для удаленной операции - с обратным знаком
+     * @param committed Зафиксирована ли транзакция
+     */
+    void endWrite(Object write, Category category, Money payment, LocalDate createdAt, boolean committed) {
+        cache.endWrite(write, totals -> totals.add(category.getId(), category.getCategoryName(),
+                category.getType(), createdAt, payment.getKopecks()), committed);
+    }
+
+    /**
+     * Отмечает завершение транзакции, которая добавляла операции пачкой, и удаляет суммы пользователя
+     * из памяти, если транзакция зафиксирована
+     *
+     * @param write Значение, которое вернул {@link #beginWrite}
+     */
+    void endBulkWrite(Object write, boolean committed) {
+        cache.endWriteAndEvict(write, committed);
+    }
+
+    /**
+     * Удаляет суммы пользователя из памяти. Вызывается, когда операции пользователя изменены в обход
+     * добавления операций, например, удалены вместе с категорией
+     */
+    public void evict(long userId) {
+        cache.evict(userId);
+    }
+
+    /**
+     * @return Количество пользователей, суммы которых загружены в память
+     */
+    public int getLoadedUserCount() {
+        return cache.getLoadedUserCount();
+    }
+
+    /**
+     * Суммы операций пользователя по категориям и дням
+     */
+    private static final class UserTotals {
+        /**
+         * Суммы по ID категории в порядке ID
+         */
+        private final Map<Long, CategoryTotals> categories = new LinkedHashMap<>();
+
+        /**
+         * Месяцы, операции которых перенесены в архив
+         */
+        private final Set<YearMonth> archivedMonths = new HashSet<>();
+
+        /**
+         * Строит суммы по суммам за дни, упорядоченным по категории и дню
+         */
+        private UserTotals(List<DailySum> dailySums) {
+            int start = 0;
+            while (start < dailySums.size()) {
+                DailySum first = dailySums.get(start);
+                int end = start;
+                while (end < dailySums.size() && dailySums.get(end).categoryId() == first.categoryId()) {
+                    end++;
+                }
+                int[] days = new int[end - start];
+                long[] values = new long[end - start];
+                for (int i = start; i < end; i++) {
+                    days[i - start] = Math.toIntExact(dailySums.get(i).date().toEpochDay());
+                    values[i - start] = dailySums.get(i).kopecks();
+                    if (dailySums.get(i).archived()) {
+                        archivedMonths.add(YearMonth.from(dailySums.get(i).date()));
+                    }
+                }
+                categories.put(first.categoryId(), new CategoryTotals(first.categoryName(), first.type(),
+                        new DayFenwickTree(days, values)));
+                start = end;
+            }
+        }
+
+        private void add(long categoryId, String categoryName, CategoryType type, LocalDate date, long kopecks) {
+            categories.computeIfAbsent(categoryId, id -> new CategoryTotals(categoryName, type, new DayFenwickTree()))
+                    .days()
+                    .add(Math.toIntExact(date.toEpochDay()), kopecks);
+        }
+
+        private Map<String, Money> sumByCategory(CategoryType type, LocalDate from, LocalDate to) {
+            int fromDay = Math.toIntExact(from.toEpochDay());
+            int toDay = Math.toIntExact(to.toEpochDay());
+            List<Map.Entry<String, Long>> sums = new ArrayList<>();
+            for (CategoryTotals category : categories.values()) {
+                if (category.type() != type) {
+                    continue;
+                }
+                // Суммы операций одного типа ненулевые и одного знака, поэтому нулевая сумма означает,
+                // что все операции категории в диапазоне удалены, и категория не попадает в отчет, как в запросе к БД
+                long sum = category.days().sum(fromDay, toDay);
+                if (sum != 0) {
+                    sums.add(Map.entry(category.name(), sum));
+                }
+            }
+            if (sums.isEmpty()) {
+                return null;
+            }
+            Map<String, Money> result = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> sum : sums) {
+                result.merge(sum.getKey(), Money.ofKopecks(sum.getValue()), Money::plus);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Суммы операций пользователя по категории
+     *
+     * @param name Название категории
+     * @param type Тип категории
+     * @param days Суммы по дням
+     */
+    private record CategoryTotals(String name, CategoryType type, DayFenwickTree days) {
+    }
+}
@@ -0,0 +1,136 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import java.util.Arrays;
+
+/**
+ * Дерево Фенвика над днями, в которые были операции: сумма за любой диапазон дней и добавление суммы
+ * к существующему дню выполняются за O(log n), где n - количество таких дней.
+ * Новый день в конце (обычно сегодняшний) добавляется за O(log n), новый день в середине - за O(n).
+ * Не потокобезопасно
+ */
+class DayFenwickTree {
+    /**
+     * Начальная вместимость массивов
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * Дни от 1970-01-01 в порядке возрастания
+     */
+    private int[] days;
+
+    /**
+     * Суммы за каждый день в копейках
+     */
+    private long[] values;
+
+    /**
+     * Дерево Фенвика: элемент k хранит сумму values с (k & (k + 1)) по k
+     */
+    private long[] tree;
+
+    /**
+     * Количество дней
+     */
+    private int size;
+
+    /**
+     * Создает пустое дерево
+     */
+    DayFenwickTree() {
+        this(new int[0], new long[0]);
+    }
+
+    /**
+     * Создает дерево по суммам за дни за O(n)
+     *
+     * @param days   Дни от 1970-01-01 в порядке возрастания без повторов
+     * @param values Суммы за каждый день в копейках
+     */
+    DayFenwickTree(int[] days, long[] values) {
+        int capacity = Math.max(INITIAL_CAPACITY, days.length);
+        this.days = Arrays.copyOf(days, capacity);
+        this.values = Arrays.copyOf(values, capacity);
+        this.size = days.length;
+        rebuild();
+    }
+
+    /**
+     * Добавляет сумму к дню
+     *
+     * @param epochDay День от 1970-01-01
+     * @param amount   Сумма в копейках
+     */
+    void add(int epochDay, long amount) {
+        int index = Arrays.binarySearch(days, 0, size, epochDay);
+        if (index >= 0) {
+            values[index] += amount;
+            for (int i = index; i < size; i |= i + 1) {
+                tree[i] += amount;
+            }
+            return;
+        }
+        index = -index - 1;
+        if (size == days.length) {
+            int capacity = days.length * 2;
+            days = Arrays.copyOf(days, capacity);
+            values = Arrays.copyOf(values, capacity);
+            tree = Arrays.copyOf(tree, capacity);
+        }
+        if (index == size) {
+            days[size] = epochDay;
+            values[size] = amount;
+            tree[size] = amount + prefixSum(size) - prefixSum(size & (size + 1));
+            size++;
+            return;
+        }
+        System.arraycopy(days, index, days, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        days[index] = epochDay;
+        values[index] = amount;
+        size++;
+        rebuild();
+    }
+
+    /**
+     * Возвращает сумму за дни с fromDay по toDay включительно
+     */
+    long sum(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return 0;
+        }
+        return prefixSum(upperBound(toDay)) - prefixSum(upperBound(fromDay - 1));
+    }
+
+    /**
+     * Возвращает сумму первых count дней
+     */
+    private long prefixSum(int count) {
+        long sum = 0;
+        for (int i = count - 1; i >= 0; i = (i & (i + 1)) - 1) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Возвращает количество дней, не больших epochDay
+     */
+    private int upperBound(int epochDay) {
+        int index = Arrays.binarySearch(days, 0, size, epochDay);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Строит дерево по суммам за дни за O(n)
+     */
+    private void rebuild() {
+        tree = Arrays.copyOf(values, days.length);
+        for (int i = 0; i < size; i++) {
+            int parent = i | (i + 1);
+            if (parent < size) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
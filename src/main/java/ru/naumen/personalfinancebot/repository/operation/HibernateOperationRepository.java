@@ -1,185 +1,716 @@
 package ru.naumen.personalfinancebot.repository.operation;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.Query;
 import ru.naumen.personalfinancebot.model.Category;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.IdSequence;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.OperationSummary;
 import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.YearMonthRange;
 
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
 import java.time.LocalDate;
 import java.time.YearMonth;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 
 /**
- * Репозиторий модели данных "Операция" с использованием Hibernate
+ * Репозиторий модели данных "Операция" с использованием Hibernate.
+ * Суммы операций складываются с итогами архивных месяцев ({@link OperationSummary}), поэтому отчеты
+ * не зависят от того, перенесены ли операции месяца в архив методом {@link #archiveMonth}
  */
 public class HibernateOperationRepository implements OperationRepository {
+    /**
+     * Количество операций, которое драйвер БД получает за одно обращение при переборе всех операций
+     */
+    private static final int SCROLL_FETCH_SIZE = 500;
+
+    /**
+     * Запрос, добавляющий суммы и количество операций месяца пользователей диапазона к уже существующим итогам
+     * месяца. Выполняется до {@link #ARCHIVE_INSERT_SQL}, чтобы не добавить суммы к только что вставленным итогам
+     */
+    private static final String ARCHIVE_UPDATE_SQL = """
+            update operation_summaries
+            set payment = payment + (select sum(operations.payment) from operations
+                                     where operations.user_id = operation_summaries.user_id
+                                     and operations.category_id = operation_summaries.category_id
+                                     and operations.created_at >= :rangeStartDate
+                                     and operations.created_at < :rangeEndDate),
+                operation_count = operation_count + (
+                    select count(*) from operations
+                    where operations.user_id = operation_summaries.user_id
+                    and operations.category_id = operation_summaries.category_id
+                    and operations.created_at >= :rangeStartDate and operations.created_at < :rangeEndDate)
+            where month_start = :rangeStartDate
+            and user_id > :afterUserId and user_id <= :toUserId
+            and exists (select 1 from operations
+                        where operations.user_id = operation_summaries.user_id
+                        and operations.category_id = operation_summaries.category_id
+                        and operations.created_at >= :rangeStartDate and operations.created_at < :rangeEndDate)""";
+
+    /**
+     * Запрос, вставляющий итоги месяца по пользователям диапазона и категориям, для которых итогов еще нет.
+     * Подставляется выражение следующего значения последовательности ID для диалекта БД, поэтому каждый итог
+     * получает ID отдельным обращением к последовательности
+     */
+    private static final String ARCHIVE_INSERT_SQL = """
+            insert into operation_summaries (id, user_id, category_id, month_start, payment, operation_count)
+            select %s, sums.user_id, sums.category_id, :rangeStartDate, sums.payment, sums.operation_count
+            from (select user_id, category_id, sum(payment) as payment, count(*) as operation_count
+                  from operations
+                  where created_at >= :rangeStartDate and created_at < :rangeEndDate
+                  and category_id is not null
+                  and user_id > :afterUserId and user_id <= :toUserId
+                  group by user_id, category_id) sums
+            where not exists (select 1 from operation_summaries existing
+                              where existing.user_id = sums.user_id
+                              and existing.category_id = sums.category_id
+                              and existing.month_start = :rangeStartDate)""";
+
+    /**
+     * Индекс сумм операций по дням для отчетов за диапазон дней или null, если индекс выключен
+     */
+    private final DailyTotalsIndex dailyTotalsIndex;
+
+    /**
+     * Буферы последних операций пользователей или null, если буферы выключены
+     */
+    private final RecentOperationsBuffer recentOperations;
+
+    public HibernateOperationRepository() {
+        this(null);
+    }
+
+    /**
+     * @param dailyTotalsIndex Индекс сумм операций по дням или null, чтобы считать суммы запросом к БД
+     */
+    public HibernateOperationRepository(DailyTotalsIndex dailyTotalsIndex) {
+        this(dailyTotalsIndex, null);
+    }
+
+    /**
+     * @param dailyTotalsIndex Индекс сумм операций по дням или null, чтобы считать суммы запросом к БД
+     * @param recentOperations Буферы последних операций или null, чтобы загружать их запросом к БД
+     */
+    public HibernateOperationRepository(DailyTotalsIndex dailyTotalsIndex, RecentOperationsBuffer recentOperations) {
+        this.dailyTotalsIndex = dailyTotalsIndex;
+        this.recentOperations = recentOperations;
+    }
 
     @Override
-    public Operation addOperation(Session session, User user, Category category, double payment) {
+    public Operation addOperation(Session session, User user, Category category, Money payment) {
         Operation operation = new Operation(user, category, payment);
         session.save(operation);
+        trackOperation(session, operation);
         return operation;
     }
 
     @Override
-    public Map<String, Double> getOperationsSumByType(Session session, User user, int month, int year, CategoryType type) {
-        LocalDate startDate = LocalDate.of(year, month, 1);
-        LocalDate endDate = startDate.plusMonths(1);
+    public Operation addOperation(Session session, User user, Category category, Money payment, LocalDate createdAt,
+                                  UUID journalEntryId) {
+        Operation operation = new Operation(user, category, payment, createdAt, journalEntryId);
+        session.save(operation);
+        trackOperation(session, operation);
+        return operation;
+    }
+
+    @Override
+    public void addOperations(Session session, User user, List<Operation> operations) {
+        for (Operation operation : operations) {
+            session.save(operation);
+        }
+        // Вставки уходят в БД пакетами по hibernate.jdbc.batch_size, после чего операции убираются из сессии
+        session.flush();
+        operations.forEach(session::evict);
+        trackBulkWrite(session, user);
+    }
+
+    @Override
+    public boolean isJournalEntryApplied(Session session, UUID journalEntryId) {
+        long count = (long) session.getNamedQuery("Operation.countByJournalEntryId")
+                .setParameter("journalEntryId", journalEntryId.toString())
+                .getSingleResult();
+        return count > 0;
+    }
 
-        final String hql = "SELECT cat.categoryName, sum (operation.payment) " +
-                "FROM Operation operation " +
-                "LEFT JOIN operation.category cat on cat.id = operation.category.id " +
-                "WHERE cat.type = :categoryType " +
-                "AND (operation.user = :user OR operation.user = NULL) " +
-                "AND operation.createdAt BETWEEN :startDate AND :endDate " +
-                "GROUP BY operation.category.id, cat.id";
+    @Override
+    public List<Operation> getLastOperations(Session session, User user, int limit) {
+        if (recentOperations != null && limit <= recentOperations.getCapacity()) {
+            return recentOperations.getLast(user, limit, count -> selectLastOperations(session, user, count));
+        }
+        return selectLastOperations(session, user, limit);
+    }
 
-        List<?> operations = session.createQuery(hql)
-                .setParameter("categoryType", type)
+    @Override
+    public boolean removeOperation(Session session, User user, Operation operation) {
+        int removed = session.getNamedQuery("Operation.deleteByUserAndId")
                 .setParameter("user", user)
-                .setParameter("startDate", startDate)
-                .setParameter("endDate", endDate)
-                .getResultList();
-        if (operations.isEmpty()) {
-            return null;
+                .setParameter("id", operation.getId())
+                .executeUpdate();
+        if (removed == 0) {
+            return false;
         }
-        Map<String, Double> result = new LinkedHashMap<>();
-        for (Object operation : operations) {
-            Object[] row = (Object[]) operation;
-            String category = (String) row[0];
-            Double payment = (Double) row[1];
-            result.put(category, payment);
+        trackRemoval(session, user, operation);
+        return true;
+    }
+
+    /**
+     * Удаляет операции нативным запросом порциями по ID: HQL не поддерживает LIMIT, а один запрос
+     * на все операции пользователя с большой историей долго держит блокировки и раздувает журнал БД.
+     * Итоги архивных месяцев удаляются одним запросом, их у пользователя немного
+     */
+    @Override
+    public long removeAllOperations(Session session, User user, int chunkSize, LongConsumer progress) {
+        NativeQuery<?> deleteChunk = session.getNamedNativeQuery("Operation.deleteChunkByUserId")
+                .addSynchronizedEntityClass(Operation.class)
+                .setParameter("userId", user.getId())
+                .setParameter("chunkSize", chunkSize);
+        long removed = 0;
+        int chunk;
+        do {
+            chunk = deleteChunk.executeUpdate();
+            removed += chunk;
+            if (chunk > 0) {
+                progress.accept(removed);
+            }
+        } while (chunk == chunkSize);
+        session.getNamedQuery("OperationSummary.deleteByUserId")
+                .setParameter("userId", user.getId())
+                .executeUpdate();
+        trackBulkWrite(session, user);
+        return removed;
+    }
+
+    @Override
+    public long removeOperations(Session session, User user, int limit) {
+        int removed = session.getNamedNativeQuery("Operation.deleteChunkByUserId")
+                .addSynchronizedEntityClass(Operation.class)
+                .setParameter("userId", user.getId())
+                .setParameter("chunkSize", limit)
+                .executeUpdate();
+        trackBulkWrite(session, user);
+        return removed;
+    }
+
+    /**
+     * Переносит или удаляет операции одним запросом. Итоги архивных месяцев, для которых у категории-замены
+     * уже есть итог, добавляются к нему, остальные переносятся, поэтому отчеты за архивные месяцы не меняются
+     */
+    @Override
+    public long reassignOperations(Session session, User user, Category category, Category replacement) {
+        int reassigned;
+        if (replacement == null) {
+            reassigned = session.getNamedQuery("Operation.deleteByCategory")
+                    .setParameter("user", user)
+                    .setParameter("category", category)
+                    .executeUpdate();
+            session.getNamedQuery("OperationSummary.deleteByCategory")
+                    .setParameter("user", user)
+                    .setParameter("category", category)
+                    .executeUpdate();
+        } else {
+            reassigned = session.getNamedQuery("Operation.reassignCategory")
+                    .setParameter("user", user)
+                    .setParameter("category", category)
+                    .setParameter("replacement", replacement)
+                    .executeUpdate();
+            for (String mergeQuery : List.of("OperationSummary.mergeIntoReplacement",
+                    "OperationSummary.deleteMerged")) {
+                session.getNamedNativeQuery(mergeQuery)
+                        .addSynchronizedEntityClass(OperationSummary.class)
+                        .setParameter("userId", user.getId())
+                        .setParameter("categoryId", category.getId())
+                        .setParameter("replacementId", replacement.getId())
+                        .executeUpdate();
+            }
+            session.getNamedQuery("OperationSummary.reassignCategory")
+                    .setParameter("user", user)
+                    .setParameter("category", category)
+                    .setParameter("replacement", replacement)
+                    .executeUpdate();
         }
-        return result;
+        trackBulkWrite(session, user);
+        return reassigned;
+    }
+
+    @Override
+    public Money getCategoryPaymentSummary(Session session, User user, Category category) {
+        long kopecks = 0;
+        for (String queryName : List.of("Operation.categorySum", "OperationSummary.categorySum")) {
+            Object paymentSummary = session.getNamedQuery(queryName)
+                    .setParameter("user", user)
+                    .setParameter("category", category)
+                    .uniqueResult();
+            if (paymentSummary != null) {
+                kopecks += (long) paymentSummary;
+            }
+        }
+        return Money.ofKopecks(kopecks);
     }
 
     @Override
-    public double getCurrentUserPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth) {
-        LocalDate startDate = LocalDate.of(yearMonth.getYear(), yearMonth.getMonth(), 1);
-        LocalDate endDate = startDate.plusMonths(1).minusDays(1);
-        String hql = "SELECT sum(op.payment) from Operation op "
-                + "LEFT JOIN Category cat on cat.id = op.category.id "
-                + "WHERE op.user = :user "
-                + "AND cat.type = :type "
-                + "AND op.createdAt BETWEEN :startDate AND :endDate";
+    public List<Operation> getOperationsPage(Session session, User user, OperationCursor after, int limit) {
+        Query<Operation> query = after == null
+                ? session.createNamedQuery("Operation.historyFirstPage", Operation.class)
+                : session.createNamedQuery("Operation.historyPageAfter", Operation.class)
+                .setParameter("createdAt", after.createdAt())
+                .setParameter("id", after.id());
+        return query.setParameter("user", user)
+                .setMaxResults(limit)
+                .getResultList();
+    }
 
-        Object paymentSummary = session
-                .createQuery(hql)
+    @Override
+    public void forEachOperation(Session session, User user, Consumer<Operation> action) {
+        try (ScrollableResults results = session.createNamedQuery("Operation.historyFirstPage", Operation.class)
                 .setParameter("user", user)
-                .setParameter("type", type)
-                .setParameter("startDate", startDate)
-                .setParameter("endDate", endDate)
-                .uniqueResult();
-        if (paymentSummary == null) {
-            return 0.0;
+                .setReadOnly(true)
+                .setFetchSize(SCROLL_FETCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                Operation operation = (Operation) results.get(0);
+                action.accept(operation);
+                // Прочитанные операции не должны копиться в сессии
+                session.evict(operation);
+            }
         }
-        return (double) paymentSummary;
     }
 
     @Override
-    public Map<CategoryType, Double> getEstimateSummary(Session session, YearMonth yearMonth) {
-        // HQL не поддерживает вложенный запрос в FROM
+    public Map<String, Money> getOperationsSumByType(Session session, User user, int month, int year, CategoryType type) {
+        YearMonthRange range = YearMonthRange.of(YearMonth.of(year, month));
+        return selectCategorySums(session, user, type, range.getStartDate(), range.getEndDate());
+    }
 
-//            String hql = "SELECT paymentSums.type, avg(paymentSums.payments) FROM "
-//                    + "(SELECT categories.type AS type, sum(operations.payment) AS payments "
-//                    + "FROM Operation operations "
-//                    + "JOIN operations.category categories "
-//                    + "WHERE year(operations.createdAt) = :year "
-//                    + "AND month(operations.createdAt) = :month "
-//                    + "GROUP BY operations.user, categories.type) AS paymentSums "
-//                    + "GROUP BY paymentSums.type";
+    @Override
+    public Map<String, Money> getOperationsSumByType(Session session, User user, LocalDate from, LocalDate to,
+                                                     CategoryType type) {
+        if (dailyTotalsIndex != null) {
+            return dailyTotalsIndex.sumByCategory(user.getId(), type, from, to,
+                    () -> selectDailySums(session, user));
+        }
+        return selectCategorySums(session, user, type, from, to.plusDays(1));
+    }
 
-        // Поэтому берем суммы и считаем среднее в Java
+    /**
+     * Проверяет только месяцы первого и последнего дня диапазона: остальные месяцы диапазон захватывает целиком.
+     * Если индекс сумм по дням включен, проверка выполняется по нему без запроса к БД
+     */
+    @Override
+    public Optional<YearMonth> getPartlyCoveredArchivedMonth(Session session, User user, LocalDate from,
+                                                             LocalDate to) {
+        Set<YearMonth> partlyCovered = new LinkedHashSet<>();
+        if (from.getDayOfMonth() != 1) {
+            partlyCovered.add(YearMonth.from(from));
+        }
+        if (!to.equals(YearMonth.from(to).atEndOfMonth())) {
+            partlyCovered.add(YearMonth.from(to));
+        }
+        for (YearMonth yearMonth : partlyCovered) {
+            boolean archived;
+            if (dailyTotalsIndex != null) {
+                archived = dailyTotalsIndex.isArchived(user.getId(), yearMonth, () -> selectDailySums(session, user));
+            } else {
+                archived = (long) session.getNamedQuery("OperationSummary.countByUserAndMonth")
+                        .setParameter("user", user)
+                        .setParameter("monthStart", yearMonth.atDay(1))
+                        .getSingleResult() > 0;
+            }
+            if (archived) {
+                return Optional.of(yearMonth);
+            }
+        }
+        return Optional.empty();
+    }
 
-        String hql = "SELECT categories.type, sum(operations.payment) AS payments "
-                + "FROM Operation operations "
-                + "JOIN operations.category categories "
-                + "WHERE year(operations.createdAt) = :year "
-                + "AND month(operations.createdAt) = :month "
-                + "GROUP BY operations.user, categories.type";
+    @Override
+    public Money getCurrentUserPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth) {
+        Money indexedSummary = getIndexedPaymentSummary(session, user, type, yearMonth);
+        if (indexedSummary != null) {
+            return indexedSummary;
+        }
+        return selectPaymentSummary(session, user, type, yearMonth);
+    }
 
-        List<?> sumRows = session.createQuery(hql)
-                .setParameter("year", yearMonth.getYear())
-                .setParameter("month", yearMonth.getMonth().getValue())
-                .getResultList();
+    /**
+     * Считает сумму запросом к БД, а не по индексу сумм по дням: индекс учитывает только зафиксированные
+     * транзакции. Перед запросом в БД сбрасываются операции, добавленные в сессии
+     */
+    @Override
+    public Money getTransactionPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth) {
+        session.flush();
+        return selectPaymentSummary(session, user, type, yearMonth);
+    }
+
+    /**
+     * Считает сумму операций пользователя указанного типа за месяц запросом к БД, включая итоги архивных месяцев
+     */
+    protected Money selectPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth) {
+        long kopecks = 0;
+        for (String queryName : List.of("Operation.userSum", "OperationSummary.userSum")) {
+            Object paymentSummary = YearMonthRange.of(yearMonth)
+                    .bind(session.getNamedQuery(queryName))
+                    .setParameter("user", user)
+                    .setParameter("type", type)
+                    .uniqueResult();
+            if (paymentSummary != null) {
+                kopecks += (long) paymentSummary;
+            }
+        }
+        return Money.ofKopecks(kopecks);
+    }
 
-        if (sumRows.isEmpty()) {
+    @Override
+    public Map<CategoryType, Money> getEstimateSummary(Session session, YearMonth yearMonth) {
+        // В Java приходит по одной строке на тип категории независимо от количества пользователей
+        CategoryType[] types = CategoryType.values();
+        List<PaymentAverage<CategoryType>> averages = selectPaymentAverages(session, "Operation.averageByType",
+                yearMonth, type -> types[((Number) type).intValue()]);
+        if (averages.isEmpty()) {
             return null;
         }
 
-        return calculateAverageForEachCategory(sumRows);
+        Map<CategoryType, Money> result = new EnumMap<>(CategoryType.class);
+        for (PaymentAverage<CategoryType> average : averages) {
+            result.put(average.getKey(), average.getAverage());
+        }
+        return result;
     }
 
     @Override
-    public Map<String, Double> getAverageSummaryByStandardCategory(Session session, YearMonth yearMonth) {
-        String averagePaymentHQL = """
-                select categories.categoryName, sum(operations.payment) from Operation operations
-                join operations.category categories
-                where year(operations.createdAt) = :year
-                and month(operations.createdAt) = :month
-                and categories.user is null
-                group by operations.user, operations.category.categoryName
-                order by operations.category.categoryName asc
-                """;
-        List<?> result = session.createQuery(averagePaymentHQL)
-                .setParameter("month", yearMonth.getMonth().getValue())
-                .setParameter("year", yearMonth.getYear())
-                .getResultList();
-
-        if (result.isEmpty()) {
+    public Map<String, Money> getAverageSummaryByStandardCategory(Session session, YearMonth yearMonth) {
+        List<PaymentAverage<String>> averages = selectPaymentAverages(session,
+                "Operation.averageByStandardCategory", yearMonth, name -> (String) name);
+        if (averages.isEmpty()) {
             return null;
         }
 
-        return getAverageForCategoryPaymentList(result);
+        Map<String, Money> result = new LinkedHashMap<>();
+        for (PaymentAverage<String> average : averages) {
+            result.put(average.getKey(), average.getAverage());
+        }
+        return result;
     }
 
     /**
-     * Высчитывает среднюю величину значений для каждой категории
+     * Возвращает первый месяц раньше указанного, в котором есть операции, которые можно перенести в архив
      *
-     * @param sumRows Список строк из БД, полученый из hibernate. В нем должны быть CategoryType, затем сумма
-     * @return Словарь<Тип категории, Среднее>
+     * @param before Месяц, операции которого и более поздние в архив не переносятся
+     * @return Месяц или пустое значение, если таких операций нет
      */
-    private Map<CategoryType, Double> calculateAverageForEachCategory(List<?> sumRows) {
-        Map<CategoryType, Double> result = new HashMap<>();
-        Map<CategoryType, Integer> count = new HashMap<>();
+    public Optional<YearMonth> getFirstMonthToArchive(Session session, YearMonth before) {
+        LocalDate firstDate = session.createNamedQuery("Operation.firstDateBefore", LocalDate.class)
+                .setParameter("before", before.atDay(1))
+                .getSingleResult();
+        return Optional.ofNullable(firstDate).map(YearMonth::from);
+    }
+
+    /**
+     * Возвращает ID пользователей, у которых есть операции месяца для переноса в архив, по возрастанию,
+     * начиная с пользователя, следующего за указанным
+     *
+     * @param yearMonth   Месяц
+     * @param afterUserId ID пользователя, после которого начинается порция
+     * @param limit       Максимальное количество пользователей в порции
+     */
+    public List<Long> getArchiveUserIds(Session session, YearMonth yearMonth, long afterUserId, int limit) {
+        return YearMonthRange.of(yearMonth).bind(session.createNamedQuery("Operation.archiveUserIds", Long.class))
+                .setParameter("afterUserId", afterUserId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
 
-        for (Object rawRow : sumRows) {
+    /**
+     * Переносит в архив операции месяца пользователей с ID в диапазоне (afterUserId, toUserId]: суммирует их
+     * по пользователям и категориям в итоги месяца ({@link OperationSummary}) запросами UPDATE и INSERT ... SELECT
+     * с группировкой, добавляя к уже существующим итогам, и удаляет операции одним запросом DELETE.
+     * Перед переносом строки пользователей диапазона блокируются до конца транзакции, а количество удаленных
+     * операций сверяется с количеством просуммированных: если операции диапазона изменила параллельная
+     * транзакция, перенос завершается ошибкой и откатывается, и диапазон переносится при следующем переносе.
+     * Суммы по дням и последние операции затронутых пользователей сбрасываются после фиксации транзакции.
+     * Операции без категории не переносятся
+     *
+     * @param yearMonth Месяц
+     * @return Количество перенесенных операций
+     * @throws IllegalStateException если операции диапазона изменились во время переноса
+     */
+    public long archiveMonth(Session session, YearMonth yearMonth, long afterUserId, long toUserId) {
+        session.createNamedQuery("User.lockRange", Long.class)
+                .setParameter("afterUserId", afterUserId)
+                .setParameter("toUserId", toUserId)
+                .getResultList();
+        YearMonthRange range = YearMonthRange.of(yearMonth);
+        List<?> counts = bindUserRange(range.bind(session.getNamedQuery("Operation.countForArchive")),
+                afterUserId, toUserId)
+                .getResultList();
+        if (counts.isEmpty()) {
+            return 0;
+        }
+        Dialect dialect = ((SessionFactoryImplementor) session.getSessionFactory()).getJdbcServices().getDialect();
+        for (String sql : List.of(ARCHIVE_UPDATE_SQL,
+                ARCHIVE_INSERT_SQL.formatted(dialect.getSelectSequenceNextValString(IdSequence.NAME)))) {
+            // Синхронизация с OperationSummary сбрасывает из кэша второго уровня только итоги, а не все сущности
+            bindUserRange(range.bind(session.createNativeQuery(sql)), afterUserId, toUserId)
+                    .addSynchronizedEntityClass(OperationSummary.class)
+                    .executeUpdate();
+        }
+        long summed = 0;
+        for (Object rawRow : counts) {
             Object[] row = (Object[]) rawRow;
-            CategoryType type = (CategoryType) row[0];
-            double sum = (double) row[1];
+            summed += (long) row[1];
+            trackBulkWrite(session, (long) row[0]);
+        }
+        deleteArchivedOperations(session, yearMonth, afterUserId, toUserId, summed);
+        return summed;
+    }
 
-            result.put(type, result.getOrDefault(type, 0.0) + sum);
-            count.put(type, count.getOrDefault(type, 0) + 1);
+    /**
+     * Удаляет просуммированные в итоги месяца операции пользователей диапазона
+     *
+     * @param summed Количество просуммированных операций
+     * @throws IllegalStateException если удалено другое количество операций
+     */
+    protected void deleteArchivedOperations(Session session, YearMonth yearMonth, long afterUserId, long toUserId,
+                                            long summed) {
+        int deleted = bindUserRange(YearMonthRange.of(yearMonth).bind(
+                session.getNamedQuery("Operation.deleteForArchive")), afterUserId, toUserId)
+                .executeUpdate();
+        if (deleted != summed) {
+            throw new IllegalStateException("Операции за %s изменились во время переноса в архив"
+                    .formatted(yearMonth));
         }
+    }
 
-        result.replaceAll((type, value) -> result.get(type) / count.get(type));
-        return result;
+    /**
+     * Задает параметры диапазона ID пользователей (afterUserId, toUserId]
+     */
+    private static <Q extends Query<?>> Q bindUserRange(Q query, long afterUserId, long toUserId) {
+        query.setParameter("afterUserId", afterUserId);
+        query.setParameter("toUserId", toUserId);
+        return query;
     }
 
     /**
-     * Возвращает среднее значение из списка объектов
+     * Возвращает сумму операций пользователя указанного типа за месяц по индексу сумм по дням без запроса к БД,
+     * если индекс включен. Индекс учитывает только операции зафиксированных транзакций
      *
-     * @param objects Список объектов
-     * @return Среднее значение
+     * @return Сумма операций или null, если индекс выключен
      */
-    private Map<String, Double> getAverageForCategoryPaymentList(List<?> objects) {
-        Map<String, Double> summaries = new LinkedHashMap<>();
-        Map<String, Integer> counts = new LinkedHashMap<>();
+    private Money getIndexedPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth) {
+        if (dailyTotalsIndex == null) {
+            return null;
+        }
+        Map<String, Money> sums = getOperationsSumByType(session, user, yearMonth.atDay(1), yearMonth.atEndOfMonth(),
+                type);
+        return sums == null ? Money.ZERO : sums.values().stream().reduce(Money.ZERO, Money::plus);
+    }
 
-        for (Object rawRow : objects) {
-            Object[] row = (Object[]) rawRow;
-            String type = (String) row[0];
-            double sum = (double) row[1];
+    /**
+     * Учитывает добавленную операцию в индексе сумм по дням и буфере последних операций
+     * после фиксации транзакции
+     */
+    protected void trackOperation(Session session, Operation operation) {
+        Object indexWrite = dailyTotalsIndex != null ? dailyTotalsIndex.beginWrite(operation.getUserId()) : null;
+        Object bufferWrite = recentOperations != null ? recentOperations.beginWrite(operation.getUserId()) : null;
+        if (indexWrite == null && bufferWrite == null) {
+            return;
+        }
+        afterCompletion(session, committed -> {
+            if (indexWrite != null) {
+                dailyTotalsIndex.endWrite(indexWrite, operation.getCategory(), operation.getPayment(),
+                        operation.getCreatedAt(), committed);
+            }
+            if (bufferWrite != null) {
+                recentOperations.endAdd(bufferWrite, operation, committed);
+            }
+        });
+    }
+
+    /**
+     * Учитывает удаленную операцию в индексе сумм по дням и буфере последних операций
+     * после фиксации транзакции
+     */
+    private void trackRemoval(Session session, User user, Operation operation) {
+        Object indexWrite = dailyTotalsIndex != null ? dailyTotalsIndex.beginWrite(user.getId()) : null;
+        Object bufferWrite = recentOperations != null ? recentOperations.beginWrite(user.getId()) : null;
+        if (indexWrite == null && bufferWrite == null) {
+            return;
+        }
+        afterCompletion(session, committed -> {
+            if (indexWrite != null) {
+                dailyTotalsIndex.endWrite(indexWrite, operation.getCategory(), operation.getPayment().negate(),
+                        operation.getCreatedAt(), committed);
+            }
+            if (bufferWrite != null) {
+                recentOperations.endRemove(bufferWrite, operation.getId(), committed);
+            }
+        });
+    }
+
+    /**
+     * Сбрасывает суммы по дням и буфер последних операций пользователя после фиксации транзакции,
+     * которая добавила операции пачкой: загрузить их заново дешевле, чем учитывать каждую операцию
+     */
+    protected void trackBulkWrite(Session session, User user) {
+        trackBulkWrite(session, user.getId());
+    }
 
-            summaries.put(type, summaries.getOrDefault(type, 0.0) + sum);
-            counts.put(type, counts.getOrDefault(type, 0) + 1);
+    /**
+     * Сбрасывает суммы по дням и буфер последних операций пользователя с указанным ID
+     * после фиксации транзакции
+     */
+    private void trackBulkWrite(Session session, long userId) {
+        Object indexWrite = dailyTotalsIndex != null ? dailyTotalsIndex.beginWrite(userId) : null;
+        Object bufferWrite = recentOperations != null ? recentOperations.beginWrite(userId) : null;
+        if (indexWrite == null && bufferWrite == null) {
+            return;
         }
+        afterCompletion(session, committed -> {
+            if (indexWrite != null) {
+                dailyTotalsIndex.endBulkWrite(indexWrite, committed);
+            }
+            if (bufferWrite != null) {
+                recentOperations.endBulkWrite(bufferWrite, committed);
+            }
+        });
+    }
+
+    /**
+     * Выполняет действие после завершения транзакции сессии
+     *
+     * @param action Принимает true, если транзакция зафиксирована
+     */
+    private void afterCompletion(Session session, Consumer<Boolean> action) {
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // Изменения учитываются только после завершения транзакции
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == Status.STATUS_COMMITTED);
+            }
+        });
+    }
 
-        summaries.replaceAll((type, value) -> summaries.get(type) / counts.get(type));
-        return summaries;
+    /**
+     * Загружает не более limit последних операций пользователя вместе с категориями, начиная с последней
+     */
+    private List<Operation> selectLastOperations(Session session, User user, int limit) {
+        return session.createNamedQuery("Operation.lastByUser", Operation.class)
+                .setParameter("user", user)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Загружает суммы операций и итогов архивных месяцев пользователя по категориям указанного типа
+     * за полуинтервал дат [start, end)
+     *
+     * @return Словарь название категории - сумма или null, если операций нет
+     */
+    private Map<String, Money> selectCategorySums(Session session, User user, CategoryType type, LocalDate start,
+                                                  LocalDate end) {
+        Map<String, Money> result = new LinkedHashMap<>();
+        for (String queryName : List.of("Operation.sumByCategory", "OperationSummary.sumByCategory")) {
+            List<?> rows = session.getNamedQuery(queryName)
+                    .setParameter(YearMonthRange.START_DATE_PARAMETER, start)
+                    .setParameter(YearMonthRange.END_DATE_PARAMETER, end)
+                    .setParameter("categoryType", type)
+                    .setParameter("user", user)
+                    .getResultList();
+            for (Object rawRow : rows) {
+                Object[] row = (Object[]) rawRow;
+                result.merge((String) row[0], Money.ofKopecks((long) row[1]), Money::plus);
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+    /**
+     * Загружает суммы операций пользователя по категориям за каждый день, упорядоченные по категории и дню.
+     * Итог архивного месяца добавляется к сумме за первый день месяца, и сумма отмечается как архивная
+     */
+    private List<DailySum> selectDailySums(Session session, User user) {
+        List<?> rows = session.getNamedQuery("Operation.dailySumsByCategory")
+                .setParameter("user", user)
+                .getResultList();
+        List<?> summaryRows = session.getNamedQuery("OperationSummary.monthlySumsByCategory")
+                .setParameter("user", user)
+                .getResultList();
+        if (summaryRows.isEmpty()) {
+            List<DailySum> dailySums = new ArrayList<>(rows.size());
+            for (Object rawRow : rows) {
+                dailySums.add(toDailySum((Object[]) rawRow, false));
+            }
+            return dailySums;
+        }
+        Map<List<Long>, DailySum> dailySums = new TreeMap<>(Comparator
+                .<List<Long>>comparingLong(key -> key.get(0))
+                .thenComparingLong(key -> key.get(1)));
+        for (List<?> source : List.of(rows, summaryRows)) {
+            for (Object rawRow : source) {
+                DailySum dailySum = toDailySum((Object[]) rawRow, source == summaryRows);
+                dailySums.merge(List.of(dailySum.categoryId(), dailySum.date().toEpochDay()), dailySum,
+                        (first, second) -> new DailySum(first.categoryId(), first.categoryName(), first.type(),
+                                first.date(), first.kopecks() + second.kopecks(),
+                                first.archived() || second.archived()));
+            }
+        }
+        return new ArrayList<>(dailySums.values());
+    }
+
+    /**
+     * Переводит строку "ID категории, название, тип, день, сумма" в сумму за день
+     *
+     * @param archived Является ли строка итогом архивного месяца
+     */
+    private static DailySum toDailySum(Object[] row, boolean archived) {
+        return new DailySum((long) row[0], (String) row[1], (CategoryType) row[2], (LocalDate) row[3],
+                (long) row[4], archived);
+    }
+
+    /**
+     * Выполняет именованный нативный запрос, возвращающий ключ группировки, общую сумму в копейках и количество
+     * пользователей за месяц, и преобразует его строки в {@link PaymentAverage}
+     *
+     * @param queryName Название нативного запроса с параметрами полуинтервала
+     * @param yearMonth Месяц
+     * @param keyMapper Преобразование значения первой колонки в ключ группировки
+     */
+    private <K> List<PaymentAverage<K>> selectPaymentAverages(Session session, String queryName, YearMonth yearMonth,
+                                                              Function<Object, K> keyMapper) {
+        List<?> rows = YearMonthRange.of(yearMonth).bind(session.getNamedNativeQuery(queryName)).getResultList();
+        List<PaymentAverage<K>> averages = new ArrayList<>(rows.size());
+        for (Object rawRow : rows) {
+            Object[] row = (Object[]) rawRow;
+            // Тип суммы зависит от СУБД (BigInteger, BigDecimal, Long), поэтому приводим через Number
+            averages.add(new PaymentAverage<>(keyMapper.apply(row[0]),
+                    ((Number) row[1]).longValue(),
+                    ((Number) row[2]).longValue()));
+        }
+        return averages;
     }
 }
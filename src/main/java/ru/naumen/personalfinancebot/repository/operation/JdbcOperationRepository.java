@@ -0,0 +1,187 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.IdSequence;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.YearMonthRange;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Репозиторий модели данных "Операция", в котором самые частые запросы (добавление операции и месячные суммы)
+ * выполняются через JDBC на соединении сессии Hibernate, без создания сущностей и контекста персистентности.
+ * Остальные запросы наследуются от {@link HibernateOperationRepository}.
+ * SQL запросы неизменны, поэтому драйвер кэширует их подготовленные выражения в рамках соединения
+ */
+public class JdbcOperationRepository extends HibernateOperationRepository {
+    /**
+     * Последовательность, из которой Hibernate выдает ID сущностей
+     */
+    private static final String ID_SEQUENCE = IdSequence.NAME;
+
+    /**
+     * Шаблон запроса на добавление операции. Вместо %s подставляется выражение следующего значения ID_SEQUENCE
+     */
+    private static final String INSERT_OPERATION_SQL = "insert into operations "
+            + "(id, user_id, category_id, payment, created_at) values (%s, ?, ?, ?, ?)";
+
+    /**
+     * Платежи пользователя за полуинтервал дат: операции и итоги архивных месяцев.
+     * Параметры: ID пользователя, начало и конец полуинтервала - дважды
+     */
+    private static final String USER_PAYMENTS_SQL = "(select category_id, payment from operations "
+            + "where user_id = ? and created_at >= ? and created_at < ? "
+            + "union all "
+            + "select category_id, payment from operation_summaries "
+            + "where user_id = ? and month_start >= ? and month_start < ?) payments ";
+
+    /**
+     * Запрос сумм операций пользователя по категориям указанного типа за полуинтервал дат
+     */
+    private static final String SUM_BY_CATEGORY_SQL = "select categories.category_name, sum(payments.payment) "
+            + "from " + USER_PAYMENTS_SQL
+            + "join categories on categories.id = payments.category_id "
+            + "where categories.type = ? "
+            + "group by categories.id, categories.category_name";
+
+    /**
+     * Запрос общей суммы операций пользователя указанного типа за полуинтервал дат
+     */
+    private static final String USER_SUM_SQL = "select sum(payments.payment) "
+            + "from " + USER_PAYMENTS_SQL
+            + "join categories on categories.id = payments.category_id "
+            + "where categories.type = ?";
+
+    public JdbcOperationRepository() {
+        this(null);
+    }
+
+    /**
+     * @param dailyTotalsIndex Индекс сумм операций по дням или null, чтобы считать суммы запросом к БД
+     */
+    public JdbcOperationRepository(DailyTotalsIndex dailyTotalsIndex) {
+        this(dailyTotalsIndex, null);
+    }
+
+    /**
+     * @param dailyTotalsIndex Индекс сумм операций по дням или null, чтобы считать суммы запросом к БД
+     * @param recentOperations Буферы последних операций или null, чтобы загружать их запросом к БД
+     */
+    public JdbcOperationRepository(DailyTotalsIndex dailyTotalsIndex, RecentOperationsBuffer recentOperations) {
+        super(dailyTotalsIndex, recentOperations);
+    }
+
+    @Override
+    public Operation addOperation(Session session, User user, Category category, Money payment) {
+        // Пользователь или категория могли быть сохранены в этой же сессии, но еще не записаны в БД
+        session.flush();
+        LocalDate createdAt = LocalDate.now();
+        String sql = INSERT_OPERATION_SQL.formatted(getDialect(session).getSelectSequenceNextValString(ID_SEQUENCE));
+        long id = session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, new String[]{"id"})) {
+                statement.setLong(1, user.getId());
+                statement.setLong(2, category.getId());
+                statement.setLong(3, payment.getKopecks());
+                statement.setObject(4, createdAt);
+                statement.executeUpdate();
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    generatedKeys.next();
+                    return generatedKeys.getLong(1);
+                }
+            }
+        });
+        Operation operation = new Operation(id, user, category, payment, createdAt);
+        trackOperation(session, operation);
+        return operation;
+    }
+
+    /**
+     * Добавляет операции одним пакетом JDBC. ID операций выдает последовательность в БД,
+     * в объекты операций они не записываются
+     */
+    @Override
+    public void addOperations(Session session, User user, List<Operation> operations) {
+        session.flush();
+        String sql = INSERT_OPERATION_SQL.formatted(getDialect(session).getSelectSequenceNextValString(ID_SEQUENCE));
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Operation operation : operations) {
+                    statement.setLong(1, user.getId());
+                    statement.setLong(2, operation.getCategory().getId());
+                    statement.setLong(3, operation.getPayment().getKopecks());
+                    statement.setObject(4, operation.getCreatedAt());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+        trackBulkWrite(session, user);
+    }
+
+    @Override
+    public Map<String, Money> getOperationsSumByType(Session session, User user, int month, int year, CategoryType type) {
+        YearMonthRange range = YearMonthRange.of(YearMonth.of(year, month));
+        Map<String, Money> result = session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(SUM_BY_CATEGORY_SQL)) {
+                setUserPayments(statement, user, range);
+                statement.setInt(7, type.ordinal());
+                Map<String, Money> sums = new LinkedHashMap<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        sums.put(resultSet.getString(1), Money.ofKopecks(resultSet.getLong(2)));
+                    }
+                }
+                return sums;
+            }
+        });
+        return result.isEmpty() ? null : result;
+    }
+
+    @Override
+    protected Money selectPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth) {
+        YearMonthRange range = YearMonthRange.of(yearMonth);
+        long kopecks = session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(USER_SUM_SQL)) {
+                setUserPayments(statement, user, range);
+                statement.setInt(7, type.ordinal());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    // sum по пустой выборке возвращает NULL, который getLong превращает в 0
+                    return resultSet.next() ? resultSet.getLong(1) : 0L;
+                }
+            }
+        });
+        return Money.ofKopecks(kopecks);
+    }
+
+    /**
+     * Устанавливает первые шесть параметров запроса: параметры {@link #USER_PAYMENTS_SQL}
+     */
+    private static void setUserPayments(PreparedStatement statement, User user, YearMonthRange range)
+            throws SQLException {
+        for (int offset = 0; offset < 6; offset += 3) {
+            statement.setLong(offset + 1, user.getId());
+            statement.setObject(offset + 2, range.getStartDate());
+            statement.setObject(offset + 3, range.getEndDate());
+        }
+    }
+
+    /**
+     * Возвращает диалект БД, с которой работает сессия
+     */
+    private Dialect getDialect(Session session) {
+        return ((SessionFactoryImplementor) session.getSessionFactory()).getJdbcServices().getDialect();
+    }
+}
@@ -0,0 +1,56 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import ru.naumen.personalfinancebot.model.Operation;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Ключ операции в истории операций пользователя: история упорядочена по дате и ID операции
+ * от последней к первой, и следующая страница начинается сразу после операции с этим ключом
+ *
+ * @param createdAt Дата операции
+ * @param id        ID операции
+ */
+public record OperationCursor(LocalDate createdAt, long id) {
+    /**
+     * Размер ключа в байтах: день от 1970-01-01 и ID
+     */
+    private static final int SIZE = Long.BYTES * 2;
+
+    /**
+     * Возвращает ключ операции
+     */
+    public static OperationCursor of(Operation operation) {
+        return new OperationCursor(operation.getCreatedAt(), operation.getId());
+    }
+
+    /**
+     * Восстанавливает ключ из строки, которую вернул {@link #toToken()}
+     *
+     * @throws IllegalArgumentException если строка не является ключом
+     */
+    public static OperationCursor fromToken(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != SIZE) {
+            throw new IllegalArgumentException("Неверная длина ключа: " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long epochDay = buffer.getLong();
+        if (epochDay < LocalDate.MIN.toEpochDay() || epochDay > LocalDate.MAX.toEpochDay()) {
+            throw new IllegalArgumentException("Неверная дата ключа: " + epochDay);
+        }
+        return new OperationCursor(LocalDate.ofEpochDay(epochDay), buffer.getLong());
+    }
+
+    /**
+     * Переводит ключ в строку из символов, допустимых в команде бота
+     */
+    public String toToken() {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE)
+                .putLong(createdAt.toEpochDay())
+                .putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+}
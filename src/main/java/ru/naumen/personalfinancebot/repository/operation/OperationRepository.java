@@ -1,13 +1,21 @@
 package ru.naumen.personalfinancebot.repository.operation;
 
+import com.sun.istack.Nullable;
 import org.hibernate.Session;
 import ru.naumen.personalfinancebot.model.Category;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.Operation;
 import ru.naumen.personalfinancebot.model.User;
 
+import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 /**
  * Интерфейс репозитория модели данных "операция"
@@ -21,7 +29,123 @@ public interface OperationRepository {
      * @param payment  Плата
      * @return Добавленная операция
      */
-    Operation addOperation(Session session, User user, Category category, double payment);
+    Operation addOperation(Session session, User user, Category category, Money payment);
+
+    /**
+     * Добавляет запись операции, принятой по записи журнала команд, и возвращает её
+     *
+     * @param user           Пользователь
+     * @param category       Категория
+     * @param payment        Плата
+     * @param createdAt      Дата, когда команда была принята
+     * @param journalEntryId ID записи журнала
+     * @return Добавленная операция
+     */
+    Operation addOperation(Session session, User user, Category category, Money payment, LocalDate createdAt,
+                           UUID journalEntryId);
+
+    /**
+     * Добавляет операции пользователя пачкой, например, при импорте выписки. Добавленные операции
+     * не остаются в памяти сессии, поэтому пачки можно добавлять в одной транзакции без роста памяти.
+     * Баланс пользователя не изменяется
+     *
+     * @param user       Пользователь
+     * @param operations Новые операции пользователя с категориями, суммами и датами
+     */
+    void addOperations(Session session, User user, List<Operation> operations);
+
+    /**
+     * Проверяет, добавлена ли уже операция по записи журнала команд с указанным ID
+     *
+     * @param journalEntryId ID записи журнала
+     */
+    boolean isJournalEntryApplied(Session session, UUID journalEntryId);
+
+    /**
+     * Возвращает последние добавленные операции пользователя, начиная с последней
+     *
+     * @param user  Пользователь
+     * @param limit Максимальное количество операций
+     * @return Список операций, пустой, если операций нет
+     */
+    List<Operation> getLastOperations(Session session, User user, int limit);
+
+    /**
+     * Удаляет операцию пользователя
+     *
+     * @param user      Пользователь
+     * @param operation Операция, которую вернул {@link #getLastOperations}
+     * @return true, если операция удалена, false, если её уже нет
+     */
+    boolean removeOperation(Session session, User user, Operation operation);
+
+    /**
+     * Удаляет все операции пользователя, включая итоги архивных месяцев, порциями не больше chunkSize
+     * операций, не загружая их. Категории и баланс пользователя не изменяются
+     *
+     * @param user      Пользователь
+     * @param chunkSize Максимальное количество операций, удаляемых одним запросом
+     * @param progress  Принимает количество удаленных операций после каждой порции
+     * @return Количество удаленных операций
+     */
+    long removeAllOperations(Session session, User user, int chunkSize, LongConsumer progress);
+
+    /**
+     * Удаляет одну порцию операций пользователя не больше limit операций, не загружая их, чтобы порции можно было
+     * фиксировать в отдельных транзакциях. Итоги архивных месяцев, категории и баланс пользователя не изменяются.
+     * Хранилища, которые не удаляют операции порциями, удаляют все операции пользователя сразу
+     *
+     * @param user  Пользователь
+     * @param limit Максимальное количество операций в порции
+     * @return Количество удаленных операций. Если оно не равно limit, операций больше не осталось
+     */
+    default long removeOperations(Session session, User user, int limit) {
+        return removeAllOperations(session, user, limit, removed -> {
+        });
+    }
+
+    /**
+     * Переносит все операции пользователя по категории, включая итоги архивных месяцев, в другую категорию
+     * того же типа или удаляет их, если другой категории нет. Операции не загружаются,
+     * баланс пользователя не изменяется
+     *
+     * @param user        Пользователь
+     * @param category    Категория, операции которой переносятся
+     * @param replacement Категория, в которую переносятся операции, или null, чтобы удалить операции
+     * @return Количество перенесенных или удаленных операций без учета итогов архивных месяцев
+     */
+    long reassignOperations(Session session, User user, Category category, @Nullable Category replacement);
+
+    /**
+     * Возвращает сумму всех операций пользователя по категории, включая итоги архивных месяцев
+     *
+     * @param user     Пользователь
+     * @param category Категория
+     * @return Сумма операций
+     */
+    Money getCategoryPaymentSummary(Session session, User user, Category category);
+
+    /**
+     * Возвращает страницу истории операций пользователя, упорядоченной по дате и ID от последней операции
+     * к первой. Страница выбирается по ключу последней операции предыдущей страницы, а не по смещению,
+     * поэтому время загрузки страницы не зависит от её номера
+     *
+     * @param user  Пользователь
+     * @param after Ключ последней операции предыдущей страницы или null для первой страницы
+     * @param limit Максимальное количество операций на странице
+     * @return Список операций, пустой, если операций больше нет
+     */
+    List<Operation> getOperationsPage(Session session, User user, OperationCursor after, int limit);
+
+    /**
+     * Передает все операции пользователя в порядке истории, как в {@link #getOperationsPage}.
+     * Операции читаются из БД порциями и не накапливаются в памяти, поэтому подходит для выгрузки
+     * истории любого размера. Операцию нельзя использовать после возврата из action
+     *
+     * @param user   Пользователь
+     * @param action Действие с очередной операцией
+     */
+    void forEachOperation(Session session, User user, Consumer<Operation> action);
 
     /**
      * Возвращает MAP, где ключ - название каатегории, значение - сумма операций по данной категории
@@ -32,7 +156,37 @@ public interface OperationRepository {
      * @param type  Тип операции
      * @return Словарь с операциями
      */
-    Map<String, Double> getOperationsSumByType(Session session, User user, int month, int year, CategoryType type);
+    Map<String, Money> getOperationsSumByType(Session session, User user, int month, int year, CategoryType type);
+
+    /**
+     * Возвращает MAP, где ключ - название категории, значение - сумма операций по данной категории
+     * за дни с from по to включительно. Итог архивного месяца относится к первому дню месяца,
+     * поэтому для диапазона, который захватывает такой месяц не целиком, сумма неточна,
+     * см. {@link #getPartlyCoveredArchivedMonth}
+     *
+     * @param user Пользователь
+     * @param from Первый день
+     * @param to   Последний день
+     * @param type Тип операции
+     * @return Словарь с операциями или null, если операций нет
+     */
+    Map<String, Money> getOperationsSumByType(Session session, User user, LocalDate from, LocalDate to,
+                                              CategoryType type);
+
+    /**
+     * Возвращает архивный месяц пользователя, который диапазон дней с from по to захватывает не целиком.
+     * Операции такого месяца заменены итогом за месяц, поэтому сумму за часть его дней посчитать нельзя.
+     * Хранилища без архива операций возвращают пустое значение
+     *
+     * @param user Пользователь
+     * @param from Первый день
+     * @param to   Последний день
+     * @return Архивный месяц или пустое значение, если диапазон не захватывает архивный месяц частично
+     */
+    default Optional<YearMonth> getPartlyCoveredArchivedMonth(Session session, User user, LocalDate from,
+                                                              LocalDate to) {
+        return Optional.empty();
+    }
 
     /**
      * Метод возвращает сумму операций пользователя указанного типа (расход/доход) за определённый месяц
@@ -42,7 +196,22 @@ public interface OperationRepository {
      * @param yearMonth Месяц, год
      * @return Сумма операций
      */
-    double getCurrentUserPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth);
+    Money getCurrentUserPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth);
+
+    /**
+     * Возвращает сумму операций пользователя указанного типа за месяц с учетом операций, добавленных
+     * в текущей транзакции, в том числе другими командами той же группы при групповой фиксации.
+     * Хранилища, которые сохраняют операции сразу, а не при фиксации транзакции, возвращают ту же сумму,
+     * что и {@link #getCurrentUserPaymentSummary}
+     *
+     * @param user      Пользователь
+     * @param type      Тип операции
+     * @param yearMonth Месяц, год
+     * @return Сумма операций
+     */
+    default Money getTransactionPaymentSummary(Session session, User user, CategoryType type, YearMonth yearMonth) {
+        return getCurrentUserPaymentSummary(session, user, type, yearMonth);
+    }
 
     /**
      * Возвращает средние месячные общие доходы и расходы по всем пользователям
@@ -50,7 +219,7 @@ public interface OperationRepository {
      * @param yearMonth Год-месяц, за который выдаются данные
      * @return Словарь<Тип, Сумма> или null, если нет данных
      */
-    Map<CategoryType, Double> getEstimateSummary(Session session, YearMonth yearMonth);
+    Map<CategoryType, Money> getEstimateSummary(Session session, YearMonth yearMonth);
 
     /**
      * Возвращает средние суммы операций по стандартным категориям расходов и доход
@@ -59,5 +228,5 @@ public interface OperationRepository {
      * @param yearMonth Период, за который необходимо вывести данные
      * @return Словарь<Имя стандартной категории, Сумма> или null, если нет данных
      */
-    Map<String, Double> getAverageSummaryByStandardCategory(Session session, YearMonth yearMonth);
+    Map<String, Money> getAverageSummaryByStandardCategory(Session session, YearMonth yearMonth);
 }
@@ -0,0 +1,46 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import ru.naumen.personalfinancebot.model.Money;
+
+/**
+ * Строка отчета о средних платежах пользователей, посчитанная на стороне БД:
+ * ключ группировки, общая сумма сумм пользователей и количество пользователей
+ *
+ * @param <K> Тип ключа группировки (тип категории, название категории)
+ */
+public class PaymentAverage<K> {
+    /**
+     * Ключ группировки
+     */
+    private final K key;
+
+    /**
+     * Общая сумма платежей всех пользователей в копейках
+     */
+    private final long totalKopecks;
+
+    /**
+     * Количество пользователей, у которых были платежи
+     */
+    private final long userCount;
+
+    public PaymentAverage(K key, long totalKopecks, long userCount) {
+        this.key = key;
+        this.totalKopecks = totalKopecks;
+        this.userCount = userCount;
+    }
+
+    /**
+     * @return Ключ группировки
+     */
+    public K getKey() {
+        return key;
+    }
+
+    /**
+     * @return Средняя сумма платежей на одного пользователя, округленная до копеек
+     */
+    public Money getAverage() {
+        return Money.average(totalKopecks, userCount);
+    }
+}
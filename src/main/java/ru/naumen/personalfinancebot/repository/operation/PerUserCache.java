@@ -0,0 +1,251 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import java.lang.ref.SoftReference;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Кэш данных пользователей, которые загружаются из БД при первом чтении и обновляются после фиксации
+ * транзакций, изменивших данные пользователя.
+ *
+ * <p>Транзакция, изменяющая данные пользователя, вызывает {@link #beginWrite} до изменения
+ * и {@link #endWrite} после завершения. Если во время загрузки у пользователя есть незавершенная
+ * транзакция, загруженные данные используются только для текущего чтения и не сохраняются,
+ * так как могут не учитывать эту транзакцию или учитывать ее дважды.</p>
+ *
+ * <p>Данные пользователя удаляются, если их не читали дольше времени простоя. Кэш может хранить данные
+ * через {@link SoftReference}, тогда сборщик мусора удаляет их при нехватке памяти.
+ * Данные изменяются и читаются под блокировкой состояния пользователя, поэтому сами они могут
+ * быть не потокобезопасными.</p>
+ *
+ * @param <T> Данные пользователя
+ */
+class PerUserCache<T> {
+    /**
+     * Время простоя, после которого данные пользователя удаляются, в наносекундах
+     */
+    private final long idleTimeoutNanos;
+
+    /**
+     * Хранить ли данные через {@link SoftReference}
+     */
+    private final boolean softValues;
+
+    /**
+     * Источник текущего времени в наносекундах
+     */
+    private final LongSupplier nanoTime;
+
+    /**
+     * Состояние пользователей по ID
+     */
+    private final Map<Long, UserState<T>> users = new ConcurrentHashMap<>();
+
+    /**
+     * Время последней проверки простоя пользователей
+     */
+    private final AtomicLong lastSweep;
+
+    /**
+     * @param idleTimeout Время простоя, после которого данные пользователя удаляются
+     * @param softValues  Хранить ли данные через {@link SoftReference}
+     * @param nanoTime    Источник текущего времени в наносекундах
+     */
+    PerUserCache(Duration idleTimeout, boolean softValues, LongSupplier nanoTime) {
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.softValues = softValues;
+        this.nanoTime = nanoTime;
+        this.lastSweep = new AtomicLong(nanoTime.getAsLong());
+    }
+
+    /**
+     * Читает данные пользователя, загружая их, если их нет в кэше
+     *
+     * @param loader Загружает данные пользователя из БД
+     * @param reader Читает данные под блокировкой состояния пользователя
+     */
+    <R> R read(long userId, Supplier<T> loader, Function<T, R> reader) {
+        sweepIdleUsers();
+        UserState<T> state = users.computeIfAbsent(userId, id -> new UserState<>(nanoTime.getAsLong()));
+        long writesStarted;
+        synchronized (state) {
+            state.lastAccess = nanoTime.getAsLong();
+            T value = state.getValue();
+            if (value != null) {
+                return reader.apply(value);
+            }
+            writesStarted = state.writesInFlight == 0 ? state.writesStarted : -1;
+        }
+        T loaded = loader.get();
+        synchronized (state) {
+            if (!state.evicted && state.writesInFlight == 0 && state.writesStarted == writesStarted) {
+                state.setValue(loaded, softValues);
+            }
+            return reader.apply(loaded);
+        }
+    }
+
+    /**
+     * Отмечает начало транзакции, которая изменяет данные пользователя.
+     * После завершения транзакции нужно вызвать {@link #endWrite}
+     *
+     * @return Значение, которое нужно передать в {@link #endWrite}
+     */
+    Object beginWrite(long userId) {
+        while (true) {
+            UserState<T> state = users.computeIfAbsent(userId, id -> new UserState<>(nanoTime.getAsLong()));
+            synchronized (state) {
+                if (!state.evicted) {
+                    state.writesStarted++;
+                    state.writesInFlight++;
+                    return state;
+                }
+            }
+        }
+    }
+
+    /**
+     * Отмечает завершение транзакции, которая изменяла данные пользователя, и применяет изменение
+     * к загруженным данным, если транзакция зафиксирована
+     *
+     * @param write     Значение, которое вернул {@link #beginWrite}
+     * @param update    Изменение данных, выполняется под блокировкой состояния пользователя
+     * @param committed Зафиксирована ли транзакция
+     */
+    void endWrite(Object write, Consumer<T> update, boolean committed) {
+        @SuppressWarnings("unchecked")
+        UserState<T> state = (UserState<T>) write;
+        synchronized (state) {
+            state.writesInFlight--;
+            T value = state.getValue();
+            if (committed && value != null) {
+                update.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Отмечает завершение транзакции, которая изменяла много данных пользователя, и удаляет его данные
+     * из кэша, если транзакция зафиксирована. Следующее чтение загрузит их из БД заново
+     *
+     * @param write     Значение, которое вернул {@link #beginWrite}
+     * @param committed Зафиксирована ли транзакция
+     */
+    void endWriteAndEvict(Object write, boolean committed) {
+        @SuppressWarnings("unchecked")
+        UserState<T> state = (UserState<T>) write;
+        synchronized (state) {
+            state.writesInFlight--;
+            if (committed) {
+                state.setValue(null, softValues);
+            }
+        }
+    }
+
+    /**
+     * Удаляет данные пользователя из кэша
+     */
+    void evict(long userId) {
+        UserState<T> state = users.get(userId);
+        if (state != null) {
+            synchronized (state) {
+                state.setValue(null, softValues);
+                // Загрузка, начатая до удаления, не должна сохранить старые данные
+                state.writesStarted++;
+            }
+        }
+    }
+
+    /**
+     * @return Количество пользователей, данные которых загружены
+     */
+    int getLoadedUserCount() {
+        int count = 0;
+        for (UserState<T> state : users.values()) {
+            synchronized (state) {
+                if (state.getValue() != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Удаляет пользователей, данные которых не читали дольше времени простоя или удалил сборщик мусора.
+     * Проверка выполняется не чаще, чем раз в время простоя
+     */
+    private void sweepIdleUsers() {
+        long now = nanoTime.getAsLong();
+        long previousSweep = lastSweep.get();
+        if (now - previousSweep < idleTimeoutNanos || !lastSweep.compareAndSet(previousSweep, now)) {
+            return;
+        }
+        users.forEach((userId, state) -> {
+            synchronized (state) {
+                boolean idle = now - state.lastAccess >= idleTimeoutNanos || state.getValue() == null;
+                if (state.writesInFlight == 0 && idle) {
+                    state.evicted = true;
+                    users.remove(userId, state);
+                }
+            }
+        });
+    }
+
+    /**
+     * Состояние пользователя в кэше. Изменяется под блокировкой самого состояния
+     */
+    private static final class UserState<T> {
+        /**
+         * Данные пользователя, если они хранятся напрямую
+         */
+        private T value;
+
+        /**
+         * Данные пользователя, если они хранятся через {@link SoftReference}
+         */
+        private SoftReference<T> softValue;
+
+        /**
+         * Количество начатых транзакций, изменяющих данные пользователя
+         */
+        private long writesStarted;
+
+        /**
+         * Количество незавершенных транзакций, изменяющих данные пользователя
+         */
+        private int writesInFlight;
+
+        /**
+         * Время последнего чтения
+         */
+        private long lastAccess;
+
+        /**
+         * Удалено ли состояние из кэша. Удаленное состояние больше не используется
+         */
+        private boolean evicted;
+
+        private UserState(long lastAccess) {
+            this.lastAccess = lastAccess;
+        }
+
+        /**
+         * @return Данные пользователя или null, если они не загружены или удалены сборщиком мусора
+         */
+        private T getValue() {
+            return softValue != null ? softValue.get() : value;
+        }
+
+        private void setValue(T value, boolean soft) {
+            this.value = soft ? null : value;
+            this.softValue = soft && value != null ? new SoftReference<>(value) : null;
+        }
+    }
+}
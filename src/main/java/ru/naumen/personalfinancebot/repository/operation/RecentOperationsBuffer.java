@@ -0,0 +1,258 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Кольцевые буферы последних операций пользователей. Для каждого пользователя хранятся ID, категории,
+ * суммы и даты не более чем capacity последних добавленных операций, поэтому последние операции
+ * возвращаются без запроса к БД.
+ *
+ * <p>Буфер пользователя загружается из БД при первом запросе последних операций, пополняется
+ * после фиксации транзакции, добавившей операцию, и теряет операцию после фиксации транзакции,
+ * удалившей её (см. {@link PerUserCache}). Буферы хранятся через {@link java.lang.ref.SoftReference},
+ * поэтому удаляются сборщиком мусора при нехватке памяти, а также если пользователь
+ * не запрашивал последние операции дольше заданного времени.</p>
+ */
+public class RecentOperationsBuffer {
+    /**
+     * Максимальное количество операций в буфере пользователя
+     */
+    private final int capacity;
+
+    /**
+     * Буферы пользователей по ID
+     */
+    private final PerUserCache<Ring> cache;
+
+    /**
+     * @param capacity    Максимальное количество операций в буфере пользователя
+     * @param idleTimeout Время простоя, после которого буфер пользователя удаляется из памяти
+     */
+    public RecentOperationsBuffer(int capacity, Duration idleTimeout) {
+        this(capacity, idleTimeout, System::nanoTime);
+    }
+
+    /**
+     * @param capacity    Максимальное количество операций в буфере пользователя
+     * @param idleTimeout Время простоя, после которого буфер пользователя удаляется из памяти
+     * @param nanoTime    Источник текущего времени в наносекундах
+     */
+    RecentOperationsBuffer(int capacity, Duration idleTimeout, LongSupplier nanoTime) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер буфера должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        this.cache = new PerUserCache<>(idleTimeout, true, nanoTime);
+    }
+
+    /**
+     * @return Максимальное количество операций в буфере пользователя
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Возвращает не более limit последних операций пользователя, начиная с последней.
+     * Если в буфере меньше операций, чем запрошено, а в БД могут быть еще, буфер загружается заново
+     *
+     * @param limit  Количество операций, не больше {@link #getCapacity()}
+     * @param loader Загружает из БД не более указанного количества последних операций, начиная с последней
+     */
+    List<Operation> getLast(User user, int limit, IntFunction<List<Operation>> loader) {
+        if (limit > capacity) {
+            throw new IllegalArgumentException("Запрошено больше операций, чем помещается в буфер: " + limit);
+        }
+        List<Operation> operations = cache.read(user.getId(), () -> load(loader),
+                ring -> ring.covers(limit) ? ring.newest(user, limit) : null);
+        if (operations != null) {
+            return operations;
+        }
+        // После отмены операций в буфере их осталось меньше, чем запрошено
+        cache.evict(user.getId());
+        return cache.read(user.getId(), () -> load(loader), ring -> ring.newest(user, limit));
+    }
+
+    /**
+     * Отмечает начало транзакции, которая добавляет или удаляет операцию пользователя.
+     * После завершения транзакции нужно вызвать {@link #endAdd} или {@link #endRemove}
+     *
+     * @return Значение, которое нужно передать в {@link #endAdd} или {@link #endRemove}
+     */
+    Object beginWrite(long userId) {
+        return cache.beginWrite(userId);
+    }
+
+    /**
+     * Отмечает завершение транзакции, которая добавляла операцию, и добавляет операцию в буфер,
+     * если транзакция зафиксирована
+     *
+     * @param write Значение, которое вернул {@link #beginWrite}
+     */
+    void endAdd(Object write, Operation operation, boolean committed) {
+        cache.endWrite(write, ring -> ring.push(operation.getId(), operation.getCategory(),
+                operation.getPayment().getKopecks(), operation.getCreatedAt()), committed);
+    }
+
+    /**
+     * Отмечает завершение транзакции, которая удаляла операцию, и удаляет операцию из буфера,
+     * если транзакция зафиксирована
+     *
+     * @param write Значение, которое вернул {@link #beginWrite}
+     */
+    void endRemove(Object write, long operationId, boolean committed) {
+        cache.endWrite(write, ring -> ring.remove(operationId), committed);
+    }
+
+    /**
+     * Отмечает завершение транзакции, которая добавляла операции пачкой, и удаляет буфер пользователя
+     * из памяти, если транзакция зафиксирована
+     *
+     * @param write Значение, которое вернул {@link #beginWrite}
+     */
+    void endBulkWrite(Object write, boolean committed) {
+        cache.endWriteAndEvict(write, committed);
+    }
+
+    /**
+     * Удаляет буфер пользователя из памяти. Вызывается, когда операции пользователя изменены в обход
+     * добавления и удаления операций
+     */
+    public void evict(long userId) {
+        cache.evict(userId);
+    }
+
+    /**
+     * @return Количество пользователей, буферы которых загружены в память
+     */
+    public int getLoadedUserCount() {
+        return cache.getLoadedUserCount();
+    }
+
+    /**
+     * Загружает буфер пользователя из БД
+     */
+    private Ring load(IntFunction<List<Operation>> loader) {
+        List<Operation> operations = loader.apply(capacity);
+        Ring ring = new Ring(capacity, operations.size() < capacity);
+        for (int i = operations.size() - 1; i >= 0; i--) {
+            Operation operation = operations.get(i);
+            ring.push(operation.getId(), operation.getCategory(), operation.getPayment().getKopecks(),
+                    operation.getCreatedAt());
+        }
+        return ring;
+    }
+
+    /**
+     * Кольцевой буфер последних операций пользователя. Поля операций хранятся в параллельных массивах,
+     * последняя операция находится перед позицией head
+     */
+    private static final class Ring {
+        private final long[] ids;
+        private final Category[] categories;
+        private final long[] payments;
+        private final long[] epochDays;
+
+        /**
+         * Позиция, в которую запишется следующая операция
+         */
+        private int head;
+
+        /**
+         * Количество операций в буфере
+         */
+        private int size;
+
+        /**
+         * Содержит ли буфер все операции пользователя. Пока это так, буфер отвечает на любой запрос,
+         * даже если в нем меньше операций, чем запрошено
+         */
+        private boolean complete;
+
+        private Ring(int capacity, boolean complete) {
+            this.ids = new long[capacity];
+            this.categories = new Category[capacity];
+            this.payments = new long[capacity];
+            this.epochDays = new long[capacity];
+            this.complete = complete;
+        }
+
+        /**
+         * Добавляет операцию в начало буфера, вытесняя самую старую, если буфер заполнен
+         */
+        private void push(long id, Category category, long payment, LocalDate createdAt) {
+            ids[head] = id;
+            categories[head] = category;
+            payments[head] = payment;
+            epochDays[head] = createdAt.toEpochDay();
+            head = (head + 1) % ids.length;
+            if (size < ids.length) {
+                size++;
+            } else {
+                complete = false;
+            }
+        }
+
+        /**
+         * Удаляет операцию из буфера, сдвигая более новые операции на её место
+         */
+        private void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                int index = indexOfNewest(i);
+                if (ids[index] != id) {
+                    continue;
+                }
+                for (int j = i; j > 0; j--) {
+                    int to = indexOfNewest(j);
+                    int from = indexOfNewest(j - 1);
+                    ids[to] = ids[from];
+                    categories[to] = categories[from];
+                    payments[to] = payments[from];
+                    epochDays[to] = epochDays[from];
+                }
+                head = indexOfNewest(0);
+                categories[head] = null;
+                size--;
+                return;
+            }
+        }
+
+        /**
+         * Проверяет, может ли буфер вернуть limit последних операций
+         */
+        private boolean covers(int limit) {
+            return complete || size >= limit;
+        }
+
+        /**
+         * Возвращает не более limit последних операций, начиная с последней
+         */
+        private List<Operation> newest(User user, int limit) {
+            int count = Math.min(limit, size);
+            List<Operation> operations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int index = indexOfNewest(i);
+                operations.add(new Operation(ids[index], user, categories[index], Money.ofKopecks(payments[index]),
+                        LocalDate.ofEpochDay(epochDays[index])));
+            }
+            return operations;
+        }
+
+        /**
+         * Возвращает позицию операции, которая добавлена i-й с конца
+         */
+        private int indexOfNewest(int i) {
+            return Math.floorMod(head - 1 - i, ids.length);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.naumen.personalfinancebot.repository.recurring;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.RecurringOperation;
+import ru.naumen.personalfinancebot.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Реализация интерфейса {@link RecurringOperationRepository}
+ * Репозиторий для работы с моделью данных {@link RecurringOperation}
+ */
+public class HibernateRecurringOperationRepository implements RecurringOperationRepository {
+    @Override
+    public void saveRecurringOperation(Session session, RecurringOperation recurringOperation) {
+        session.save(recurringOperation);
+    }
+
+    @Override
+    public List<RecurringOperation> getRecurringOperations(Session session, User user) {
+        return session.createNamedQuery("RecurringOperation.byUser", RecurringOperation.class)
+                .setParameter("user", user)
+                .getResultList();
+    }
+
+    @Override
+    public boolean removeRecurringOperation(Session session, User user, long id) {
+        return session.getNamedQuery("RecurringOperation.deleteByUserAndId")
+                .setParameter("user", user)
+                .setParameter("id", id)
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    public List<RecurringOperation> getDueRecurringOperations(Session session, LocalDate today, int limit) {
+        return session.createNamedQuery("RecurringOperation.due", RecurringOperation.class)
+                .setParameter("today", today)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
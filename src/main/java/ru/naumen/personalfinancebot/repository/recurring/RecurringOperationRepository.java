@@ -0,0 +1,39 @@
+package ru.naumen.personalfinancebot.repository.recurring;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.RecurringOperation;
+import ru.naumen.personalfinancebot.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Хранилище правил регулярных операций
+ */
+public interface RecurringOperationRepository {
+    /**
+     * Сохраняет правило регулярной операции
+     */
+    void saveRecurringOperation(Session session, RecurringOperation recurringOperation);
+
+    /**
+     * Возвращает правила пользователя с категориями, упорядоченные по дню месяца
+     */
+    List<RecurringOperation> getRecurringOperations(Session session, User user);
+
+    /**
+     * Удаляет правило пользователя по ID
+     *
+     * @return true, если правило было удалено, false, если у пользователя нет такого правила
+     */
+    boolean removeRecurringOperation(Session session, User user, long id);
+
+    /**
+     * Возвращает правила всех пользователей, следующее срабатывание которых не позже указанной даты,
+     * с пользователями и категориями, начиная с самых ранних
+     *
+     * @param today Сегодняшняя дата
+     * @param limit Максимальное количество правил
+     */
+    List<RecurringOperation> getDueRecurringOperations(Session session, LocalDate today, int limit);
+}
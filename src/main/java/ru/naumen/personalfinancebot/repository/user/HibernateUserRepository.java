@@ -1,27 +1,103 @@
 package ru.naumen.personalfinancebot.repository.user;
 
+import org.hibernate.LockMode;
+import org.hibernate.LockOptions;
 import org.hibernate.Session;
-import org.hibernate.query.Query;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ColumnUpdates;
 
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Реализация хранилища пользователей в БД с помощью библиотеки Hibernate
  */
 public class HibernateUserRepository implements UserRepository {
+    /**
+     * Запрос для PostgreSQL, который добавляет пользователя или, если пользователь с таким chat id уже есть,
+     * возвращает существующего. Пустое обновление нужно, чтобы returning вернул и существующую строку
+     */
+    private static final String POSTGRESQL_UPSERT_SQL = "insert into users (id, chat_id, balance, budget_rollover) "
+            + "values (nextval('hibernate_sequence'), ?, 0, false) "
+            + "on conflict (chat_id) do update set chat_id = excluded.chat_id "
+            + "returning id, balance";
+
+    /**
+     * Запрос для H2 с тем же смыслом, что и {@link #POSTGRESQL_UPSERT_SQL}
+     */
+    private static final String H2_UPSERT_SQL = "select id, balance from final table ("
+            + "merge into users u using (values (cast(? as bigint))) s(chat_id) on u.chat_id = s.chat_id "
+            + "when matched then update set chat_id = s.chat_id "
+            + "when not matched then insert (id, chat_id, balance, budget_rollover) "
+            + "values (next value for hibernate_sequence, s.chat_id, 0, false))";
+
+    /**
+     * Запрос существующего пользователя по chat id
+     */
+    private static final String SELECT_BY_CHAT_ID_SQL = "select id, balance from users where chat_id = ?";
+
+    /**
+     * Запрос, изменяющий баланс пользователя относительно значения в БД
+     */
+    private static final String ADD_BALANCE_SQL = "update users set balance = balance + :value where id = :id";
+
+    /**
+     * Запрос, устанавливающий баланс пользователя
+     */
+    private static final String SET_BALANCE_SQL = "update users set balance = :value where id = :id";
+
+    /**
+     * SQLSTATE нарушения уникальности, одинаковый для PostgreSQL и H2
+     */
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
     @Override
     public Optional<User> getUserByTelegramChatId(Session session, Long chatId) {
-        CriteriaBuilder cb = session.getCriteriaBuilder();
-        CriteriaQuery<User> cq = cb.createQuery(User.class);
-        Root<User> root = cq.from(User.class);
-        cq.select(root).where(cb.equal(root.get("chatId"), chatId));
+        // Поиск по natural id: ID пользователя и сам пользователь берутся из кэша второго уровня, если они там есть
+        return session.bySimpleNaturalId(User.class).loadOptional(chatId);
+    }
 
-        Query<User> query = session.createQuery(cq);
-        return query.getResultStream().findFirst();
+    @Override
+    public User getOrCreateUser(Session session, long chatId) {
+        Optional<User> existingUser = getUserByTelegramChatId(session, chatId);
+        if (existingUser.isPresent()) {
+            return existingUser.get();
+        }
+        String upsertSql = getUpsertSql(session);
+        if (upsertSql == null) {
+            User user = new User(chatId, Money.ZERO);
+            saveUser(session, user);
+            return user;
+        }
+        // Вставка и чтение одним запросом. В PostgreSQL при одновременной вставке того же chat id
+        // запрос дождется завершения другой транзакции и вернет добавленную ею строку
+        User user = session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(upsertSql)) {
+                statement.setLong(1, chatId);
+                return readUser(statement, chatId);
+            } catch (SQLException e) {
+                // MERGE в H2 не ждет параллельную вставку того же chat id, а падает на уникальном индексе.
+                // Ошибка откатывает только сам запрос, а строка к этому моменту уже добавлена другой транзакцией
+                if (!UNIQUE_VIOLATION_SQL_STATE.equals(e.getSQLState())) {
+                    throw e;
+                }
+                try (PreparedStatement statement = connection.prepareStatement(SELECT_BY_CHAT_ID_SQL)) {
+                    statement.setLong(1, chatId);
+                    return readUser(statement, chatId);
+                }
+            }
+        });
+        // Строка уже есть в БД, поэтому пользователь присоединяется к сессии без повторного запроса
+        session.buildLockRequest(LockOptions.NONE).lock(user);
+        return user;
     }
 
     @Override
@@ -29,11 +105,82 @@ public class HibernateUserRepository implements UserRepository {
         session.saveOrUpdate(user);
     }
 
+    /**
+     * Баланс изменяется запросом относительно значения в БД, а не загруженного в сессию, поэтому параллельное
+     * изменение баланса не теряется без блокировки и перечитывания пользователя: строку блокирует сам запрос
+     */
+    @Override
+    public void changeBalance(Session session, User user, Money delta) {
+        updateBalance(session, user, ADD_BALANCE_SQL, delta);
+        user.setBalance(user.getBalance().plus(delta));
+    }
+
+    @Override
+    public void setBalance(Session session, User user, Money balance) {
+        updateBalance(session, user, SET_BALANCE_SQL, balance);
+        user.setBalance(balance);
+    }
+
+    @Override
+    public void lockUser(Session session, User user) {
+        session.buildLockRequest(new LockOptions(LockMode.PESSIMISTIC_WRITE)).lock(user);
+    }
+
+    /**
+     * Удаляет пользователя и его данные запросами по ID пользователя, не загружая операции и категории в сессию,
+     * как это делало бы каскадное удаление. Запросы удаления сбрасывают из кэша второго уровня
+     * все закэшированные категории и пользователей, поэтому подходят для редкого удаления аккаунта
+     */
     @Override
     public void removeUserById(Session session, long id) {
-        User user = session.get(User.class, id);
-        if (user != null) {
-            session.delete(user);
+        for (String deleteQuery : List.of("RecurringOperation.deleteByUserId", "Operation.deleteByUserId",
+                "OperationSummary.deleteByUserId", "Category.deleteByUserId")) {
+            session.getNamedQuery(deleteQuery)
+                    .setParameter("userId", id)
+                    .executeUpdate();
+        }
+        session.createQuery("delete from User where id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+        // Пользователь, уже загруженный в сессию, отсоединяется, чтобы сессия не записала его при фиксации.
+        // Если его в сессии нет, load возвращает прокси без запроса к БД
+        session.detach(session.load(User.class, id));
+    }
+
+    /**
+     * Выполняет запрос изменения баланса, см. {@link ColumnUpdates}
+     *
+     * @param sql   Запрос с параметрами value и id
+     * @param value Значение параметра value
+     */
+    private static void updateBalance(Session session, User user, String sql, Money value) {
+        ColumnUpdates.execute(session, session.createNativeQuery(sql)
+                .setParameter("value", value.getKopecks())
+                .setParameter("id", user.getId()), User.class, user.getId());
+    }
+
+    /**
+     * Выполняет запрос, возвращающий id и balance пользователя, и создает по результату пользователя
+     */
+    private User readUser(PreparedStatement statement, long chatId) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return new User(resultSet.getLong(1), chatId, Money.ofKopecks(resultSet.getLong(2)));
+        }
+    }
+
+    /**
+     * Возвращает запрос на добавление или получение пользователя для диалекта БД
+     * или null, если для диалекта такого запроса нет
+     */
+    private String getUpsertSql(Session session) {
+        Dialect dialect = ((SessionFactoryImplementor) session.getSessionFactory()).getJdbcServices().getDialect();
+        if (dialect instanceof PostgreSQL81Dialect) {
+            return POSTGRESQL_UPSERT_SQL;
+        }
+        if (dialect instanceof H2Dialect) {
+            return H2_UPSERT_SQL;
         }
+        return null;
     }
 }
@@ -1,6 +1,7 @@
 package ru.naumen.personalfinancebot.repository.user;
 
 import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
 
 import java.util.Optional;
@@ -14,13 +15,42 @@ public interface UserRepository {
      */
     Optional<User> getUserByTelegramChatId(Session session, Long chatId);
 
+    /**
+     * Возвращает пользователя по chat id из telegram, а если его нет, то создает его с нулевым балансом.
+     * Одновременные вызовы для одного chat id возвращают одного и того же пользователя
+     */
+    User getOrCreateUser(Session session, long chatId);
+
     /**
      * Сохраняет существующего или нового юзера в БД
      */
     void saveUser(Session session, User user);
 
     /**
-     * Удаляет существующего юзера под его id в БД (не telegram id)
+     * Атомарно изменяет баланс пользователя: параллельное изменение баланса того же пользователя
+     * не может быть потеряно
+     *
+     * @param delta Изменение баланса
+     */
+    void changeBalance(Session session, User user, Money delta);
+
+    /**
+     * Устанавливает баланс пользователя, дождавшись параллельных изменений баланса того же пользователя.
+     * Остальные данные пользователя не изменяются
+     *
+     * @param balance Новый баланс
+     */
+    void setBalance(Session session, User user, Money balance);
+
+    /**
+     * Блокирует пользователя до конца транзакции, дождавшись параллельных изменений его баланса.
+     * Нужна, чтобы операции пользователя не изменились между подсчетом и применением изменения баланса
+     */
+    void lockUser(Session session, User user);
+
+    /**
+     * Удаляет существующего юзера под его id в БД (не telegram id) вместе с его операциями, регулярными операциями и категориями.
+     * Бюджеты пользователя нужно удалить заранее
      */
     void removeUserById(Session session, long id);
 }
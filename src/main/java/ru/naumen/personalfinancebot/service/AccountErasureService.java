@@ -0,0 +1,112 @@
+package ru.naumen.personalfinancebot.service;
+
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Сервис, который удаляет все данные пользователя: бюджеты, операции, категории и самого пользователя.
+ *
+ * <p>Данные удаляются запросами по пользователю, а не по одной сущности, поэтому время и память не зависят
+ * от того, сколько операций у пользователя. Операции удаляются порциями по {@link #CHUNK_SIZE}, каждая в своей
+ * транзакции, поэтому удаление большой истории не держит блокировки и не раздувает журнал БД до конца удаления.
+ * Пользователь удаляется последним: если удаление прервалось, пользователь и оставшиеся данные сохраняются,
+ * и повторное удаление продолжает с того же места.</p>
+ */
+public class AccountErasureService {
+    /**
+     * Количество операций, удаляемых одним запросом
+     */
+    static final int CHUNK_SIZE = 10_000;
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Хранилище пользователей
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Хранилище операций
+     */
+    private final OperationRepository operationRepository;
+
+    /**
+     * Хранилище бюджетов
+     */
+    private final BudgetRepository budgetRepository;
+
+    /**
+     * Количество операций, удаляемых одним запросом
+     */
+    private final int chunkSize;
+
+    public AccountErasureService(TransactionManager transactionManager, UserRepository userRepository,
+                                 OperationRepository operationRepository, BudgetRepository budgetRepository) {
+        this(transactionManager, userRepository, operationRepository, budgetRepository, CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize Количество операций, удаляемых одним запросом
+     */
+    public AccountErasureService(TransactionManager transactionManager, UserRepository userRepository,
+                                 OperationRepository operationRepository, BudgetRepository budgetRepository,
+                                 int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Размер порции должен быть положительным");
+        }
+        this.transactionManager = transactionManager;
+        this.userRepository = userRepository;
+        this.operationRepository = operationRepository;
+        this.budgetRepository = budgetRepository;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Удаляет все данные пользователя с указанным ID чата: операции порциями в отдельных транзакциях,
+     * затем бюджеты, категории и самого пользователя в последней транзакции
+     *
+     * @param progress Принимает количество удаленных операций после фиксации каждой порции
+     * @return Количество удаленных операций и бюджетов, нули, если пользователя нет
+     */
+    public ErasureResult eraseUser(long chatId, LongConsumer progress) {
+        User[] user = new User[1];
+        transactionManager.produceTransaction(session ->
+                user[0] = userRepository.getUserByTelegramChatId(session, chatId).orElse(null));
+        if (user[0] == null) {
+            return new ErasureResult(0, 0);
+        }
+        long operations = 0;
+        long[] chunk = new long[1];
+        do {
+            transactionManager.produceTransaction(session ->
+                    chunk[0] = operationRepository.removeOperations(session, user[0], chunkSize));
+            operations += chunk[0];
+            if (chunk[0] > 0) {
+                progress.accept(operations);
+            }
+        } while (chunk[0] == chunkSize);
+        int[] budgets = new int[1];
+        transactionManager.produceTransaction(session -> {
+            budgets[0] = budgetRepository.removeAllBudgets(session, user[0]);
+            userRepository.removeUserById(session, user[0].getId());
+        });
+        return new ErasureResult(operations, budgets[0]);
+    }
+
+    /**
+     * Итог удаления данных пользователя
+     *
+     * @param operations Количество удаленных операций
+     * @param budgets    Количество удаленных бюджетов
+     */
+    public record ErasureResult(long operations, int budgets) {
+    }
+}
@@ -0,0 +1,96 @@
+package ru.naumen.personalfinancebot.service;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сервис уведомлений о том, что расходы месяца достигли порога бюджета: 80% или 100% ожидаемого расхода.
+ * О каждом пороге пользователь уведомляется один раз: достигнутый порог сохраняется в бюджете.
+ * Бюджет берется из кэша второго уровня, поэтому пользователи без бюджета проверяются без запросов к БД.
+ * Расходы месяца хранятся в бюджете и увеличиваются каждым расходом относительно значения в БД
+ * в транзакции команды, поэтому сумма операций месяца считается, только пока расходы бюджета не подсчитаны:
+ * для нового бюджета и после сброса расходов
+ */
+public class BudgetAlertService {
+    /**
+     * Пороги расходов в процентах от ожидаемого расхода по убыванию
+     */
+    private static final List<Integer> THRESHOLDS = List.of(100, 80);
+
+    /**
+     * Хранилище бюджетов
+     */
+    private final BudgetRepository budgetRepository;
+
+    /**
+     * Хранилище операций
+     */
+    private final OperationRepository operationRepository;
+
+    public BudgetAlertService(BudgetRepository budgetRepository, OperationRepository operationRepository) {
+        this.budgetRepository = budgetRepository;
+        this.operationRepository = operationRepository;
+    }
+
+    /**
+     * Добавляет новый расход к расходам месяца бюджета, проверяет, достигнут ли порог бюджета, о котором
+     * пользователь еще не уведомлен, и отмечает его в бюджете. Вызывается до добавления расхода в хранилище.
+     * Если расходы бюджета еще не подсчитаны, бюджет блокируется до конца транзакции, и расходы подсчитываются
+     * суммой операций месяца: параллельная транзакция с расходом того же пользователя дождется фиксации
+     * этой транзакции и увеличит уже подсчитанные расходы
+     *
+     * @param payment   Сумма нового расхода (отрицательная)
+     * @param yearMonth Месяц расхода
+     * @return Достигнутый порог или пусто, если порог не достигнут или пользователь о нем уже уведомлен
+     */
+    public Optional<BudgetAlert> checkExpense(Session session, User user, Money payment, YearMonth yearMonth) {
+        Optional<Budget> budget = budgetRepository.getBudget(session, user, yearMonth);
+        if (budget.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<Money> spent = budgetRepository.addSpent(session, budget.get(), payment.negate());
+        if (!budget.get().getExpense().isPositive() || budget.get().getExpenseAlertPercent() >= THRESHOLDS.get(0)) {
+            return Optional.empty();
+        }
+        if (spent.isEmpty()) {
+            budgetRepository.lockBudget(session, budget.get());
+            spent = budgetRepository.addSpent(session, budget.get(), payment.negate());
+        }
+        if (spent.isEmpty()) {
+            spent = Optional.of(operationRepository.getTransactionPaymentSummary(session, user,
+                    CategoryType.EXPENSE, yearMonth).plus(payment).negate());
+            budgetRepository.setSpent(session, budget.get(), spent.get());
+        }
+        Money expected = budget.get().getExpense();
+        for (int percent : THRESHOLDS) {
+            if (spent.get().getKopecks() * 100 >= expected.getKopecks() * percent) {
+                if (percent > budget.get().getExpenseAlertPercent()
+                        && budgetRepository.markExpenseAlert(session, budget.get(), percent)) {
+                    return Optional.of(new BudgetAlert(yearMonth, percent, spent.get(), expected));
+                }
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Уведомление о достижении порога бюджета
+     *
+     * @param yearMonth Месяц бюджета
+     * @param percent   Достигнутый порог в процентах от ожидаемого расхода
+     * @param spent     Расходы за месяц вместе с новым расходом
+     * @param expected  Ожидаемый расход
+     */
+    public record BudgetAlert(YearMonth yearMonth, int percent, Money spent, Money expected) {
+    }
+}
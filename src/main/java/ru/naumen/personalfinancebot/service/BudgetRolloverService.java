@@ -0,0 +1,149 @@
+package ru.naumen.personalfinancebot.service;
+
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновый перенос бюджетов прошлого месяца на текущий месяц для пользователей, которые включили перенос
+ * командой /budget_rollover. Пользователи обходятся порциями по возрастанию ID, каждая порция копируется
+ * одним запросом INSERT ... SELECT в своей транзакции. Бюджет, который уже есть на текущий месяц, не изменяется,
+ * а уникальное ограничение (user_id, target_date) не дает создать второй бюджет на месяц, поэтому перенос
+ * можно повторять, и несколько экземпляров бота могут выполнять его одновременно
+ */
+public class BudgetRolloverService {
+    /**
+     * Как часто проверяется, перенесены ли бюджеты на текущий месяц
+     */
+    private static final Duration CHECK_INTERVAL = Duration.ofHours(1);
+
+    /**
+     * Сколько пользователей обрабатывается в одной порции
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Репозиторий бюджетов
+     */
+    private final HibernateBudgetRepository budgetRepository;
+
+    /**
+     * Сколько пользователей обрабатывается в одной порции
+     */
+    private final int batchSize;
+
+    /**
+     * Часы, по которым определяется текущий месяц
+     */
+    private final Clock clock;
+
+    /**
+     * Поток, в котором переносятся бюджеты
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Месяц, на который этот экземпляр уже перенес бюджеты, или null
+     */
+    private volatile YearMonth completedMonth;
+
+    public BudgetRolloverService(TransactionManager transactionManager,
+                                 HibernateBudgetRepository budgetRepository) {
+        this(transactionManager, budgetRepository, BATCH_SIZE, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param batchSize Сколько пользователей обрабатывать в одной порции
+     * @param clock     Часы, по которым определяется текущий месяц
+     */
+    public BudgetRolloverService(TransactionManager transactionManager, HibernateBudgetRepository budgetRepository,
+                                 int batchSize, Clock clock) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер порции должен быть положительным");
+        }
+        this.transactionManager = transactionManager;
+        this.budgetRepository = budgetRepository;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "budget-rollover");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает периодический перенос бюджетов. Первая проверка выполняется сразу,
+     * поэтому перенос, пропущенный за время простоя, выполняется при запуске
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                rolloverBudgets();
+            } catch (RuntimeException e) {
+                System.err.println("Произошла ошибка во время переноса бюджетов на новый месяц:");
+                e.printStackTrace();
+            }
+        }, 0, CHECK_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает перенос бюджетов, дождавшись переноса текущей порции
+     */
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Переносит бюджеты прошлого месяца на текущий месяц порциями по {@link #batchSize} пользователей,
+     * каждая в своей транзакции. После полного прохода перенос на тот же месяц этим экземпляром не повторяется.
+     * Если порция не перенесена из-за ошибки, она будет перенесена при следующей проверке
+     *
+     * @return Количество перенесенных бюджетов
+     */
+    public long rolloverBudgets() {
+        YearMonth currentMonth = YearMonth.now(clock);
+        if (currentMonth.equals(completedMonth)) {
+            return 0;
+        }
+        YearMonth lastMonth = currentMonth.minusMonths(1);
+        long afterUserId = 0;
+        long copied = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long batchStart = afterUserId;
+            long[] batch = new long[2];
+            transactionManager.produceTransaction(session -> {
+                List<Long> userIds = budgetRepository.getRolloverUserIds(session, lastMonth, batchStart, batchSize);
+                if (userIds.isEmpty()) {
+                    return;
+                }
+                batch[0] = userIds.get(userIds.size() - 1);
+                batch[1] = budgetRepository.rolloverBudgets(session, lastMonth, batchStart, batch[0]);
+            });
+            if (batch[0] == 0) {
+                completedMonth = currentMonth;
+                break;
+            }
+            afterUserId = batch[0];
+            copied += batch[1];
+        }
+        return copied;
+    }
+}
@@ -0,0 +1,79 @@
+package ru.naumen.personalfinancebot.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import ru.naumen.personalfinancebot.configuration.CacheRegion;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Сервис для получения статистики кэша второго уровня Hibernate по регионам и кэша планов запросов
+ */
+public class CacheStatisticsService {
+    /**
+     * Ключ кэша планов запросов в {@link #getHitRatios()}
+     */
+    public static final String QUERY_PLAN_CACHE = "query-plan";
+
+    /**
+     * Статистика SessionFactory
+     */
+    private final Statistics statistics;
+
+    public CacheStatisticsService(SessionFactory sessionFactory) {
+        this.statistics = sessionFactory.getStatistics();
+    }
+
+    /**
+     * Возвращает долю попаданий в кэш (от 0 до 1) для каждого региона из {@link CacheRegion#ALL}
+     * и для кэша планов запросов под ключом {@link #QUERY_PLAN_CACHE}.
+     * Для кэша без обращений доля равна 0
+     */
+    public Map<String, Double> getHitRatios() {
+        Map<String, Double> hitRatios = new LinkedHashMap<>();
+        for (String region : CacheRegion.ALL) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                hitRatios.put(region, hitRatio(regionStatistics.getHitCount(), regionStatistics.getMissCount()));
+            }
+        }
+        hitRatios.put(QUERY_PLAN_CACHE,
+                hitRatio(statistics.getQueryPlanCacheHitCount(), statistics.getQueryPlanCacheMissCount()));
+        return hitRatios;
+    }
+
+    /**
+     * Возвращает отчет по регионам кэша: доля попаданий, количество попаданий, промахов и записей в кэш,
+     * и по кэшу планов запросов: доля попаданий, количество попаданий и промахов
+     */
+    public String formatReport() {
+        StringBuilder report = new StringBuilder("Статистика кэша второго уровня:\n");
+        for (String region : CacheRegion.ALL) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics == null) {
+                continue;
+            }
+            report.append("%s: %.1f%% попаданий (попаданий %d, промахов %d, записей %d)\n".formatted(
+                    region,
+                    hitRatio(regionStatistics.getHitCount(), regionStatistics.getMissCount()) * 100,
+                    regionStatistics.getHitCount(),
+                    regionStatistics.getMissCount(),
+                    regionStatistics.getPutCount()));
+        }
+        long planHits = statistics.getQueryPlanCacheHitCount();
+        long planMisses = statistics.getQueryPlanCacheMissCount();
+        report.append("Кэш планов запросов: %.1f%% попаданий (попаданий %d, промахов %d)\n".formatted(
+                hitRatio(planHits, planMisses) * 100, planHits, planMisses));
+        return report.toString();
+    }
+
+    /**
+     * Возвращает долю попаданий в кэш по количеству попаданий и промахов
+     */
+    private double hitRatio(long hits, long misses) {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
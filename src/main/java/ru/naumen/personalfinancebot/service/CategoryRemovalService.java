@@ -0,0 +1,97 @@
+package ru.naumen.personalfinancebot.service;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.exception.NotExistingCategoryException;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.util.Optional;
+
+/**
+ * Сервис, который удаляет пользовательскую категорию. Операции категории переносятся в стандартную
+ * категорию {@link #OTHER_CATEGORY_NAME} того же типа, а если её нет, удаляются вместе с категорией,
+ * и их сумма вычитается из баланса, как при отмене операции. Операции переносятся запросами по категории
+ * и не загружаются
+ */
+public class CategoryRemovalService {
+    /**
+     * Название стандартной категории, в которую переносятся операции удаленной категории
+     */
+    public static final String OTHER_CATEGORY_NAME = "Другое";
+
+    /**
+     * Хранилище категорий
+     */
+    private final CategoryRepository categoryRepository;
+
+    /**
+     * Хранилище операций
+     */
+    private final OperationRepository operationRepository;
+
+    /**
+     * Хранилище пользователей
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Хранилище бюджетов
+     */
+    private final BudgetRepository budgetRepository;
+
+    public CategoryRemovalService(CategoryRepository categoryRepository, OperationRepository operationRepository,
+                                  UserRepository userRepository, BudgetRepository budgetRepository) {
+        this.categoryRepository = categoryRepository;
+        this.operationRepository = operationRepository;
+        this.userRepository = userRepository;
+        this.budgetRepository = budgetRepository;
+    }
+
+    /**
+     * Удаляет категорию пользователя, перенося или удаляя её операции
+     *
+     * @param type         Тип категории
+     * @param categoryName Название категории
+     * @return Количество перенесенных или удаленных операций и категория, в которую они перенесены
+     * @throws NotExistingCategoryException если у пользователя нет такой категории
+     */
+    public RemovalResult removeUserCategory(Session session, User user, CategoryType type, String categoryName)
+            throws NotExistingCategoryException {
+        Optional<Category> category = categoryRepository.getCategoryByName(session, user, type, categoryName);
+        if (category.isEmpty() || category.get().isStandard()) {
+            throw new NotExistingCategoryException(categoryName);
+        }
+        Category replacement = categoryRepository.getStandardCategoryByName(session, type, OTHER_CATEGORY_NAME)
+                .orElse(null);
+        Money removedPayments = Money.ZERO;
+        if (replacement == null) {
+            // Пользователь блокируется до подсчета суммы: операция, которую параллельная транзакция добавит
+            // по категории, зафиксируется только после удаления и не будет удалена без учета в сумме
+            userRepository.lockUser(session, user);
+            removedPayments = operationRepository.getCategoryPaymentSummary(session, user, category.get());
+        }
+        long operations = operationRepository.reassignOperations(session, user, category.get(), replacement);
+        if (!removedPayments.equals(Money.ZERO)) {
+            userRepository.changeBalance(session, user, removedPayments.negate());
+            // Удаленные расходы могли быть в любых месяцах, поэтому расходы бюджетов подсчитываются заново
+            budgetRepository.resetSpent(session, user);
+        }
+        categoryRepository.removeUserCategoryByName(session, user, type, categoryName);
+        return new RemovalResult(operations, replacement);
+    }
+
+    /**
+     * Итог удаления категории
+     *
+     * @param operations  Количество перенесенных или удаленных операций
+     * @param replacement Категория, в которую перенесены операции, или null, если операции удалены
+     */
+    public record RemovalResult(long operations, Category replacement) {
+    }
+}
@@ -0,0 +1,255 @@
+package ru.naumen.personalfinancebot.service;
+
+import ru.naumen.personalfinancebot.bot.RateLimitedSender;
+import ru.naumen.personalfinancebot.model.DigestCheckpoint;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.digest.DigestBatch;
+import ru.naumen.personalfinancebot.repository.digest.DigestRepository;
+import ru.naumen.personalfinancebot.repository.digest.MonthlyDigest;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рассылка всем пользователям итогов прошлого месяца: фактические доходы и расходы против бюджета.
+ * Итоги считаются порциями пользователей по диапазонам ID (несколько запросов на порцию, а не на пользователя),
+ * тексты порции составляются параллельно в отдельном пуле fork-join, а сообщения отправляются через очередь
+ * с ограничением частоты. После отправки порции в БД сохраняется контрольная точка, поэтому после перезапуска
+ * рассылка продолжается со следующей порции. Сообщения порции, прерванной сбоем, могут быть отправлены повторно
+ */
+public class MonthlyDigestService {
+    /**
+     * Как часто проверяется, разосланы ли итоги прошлого месяца
+     */
+    private static final Duration CHECK_INTERVAL = Duration.ofHours(1);
+
+    /**
+     * Сколько пользователей обрабатывается в одной порции
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Шаблон итогов месяца с бюджетом: месяц, год, доходы, ожидаемые доходы, расходы, ожидаемые расходы, итог
+     */
+    private static final String DIGEST_WITH_BUDGET = """
+            Итоги за %s %s:
+            Доходы: %s из %s ожидаемых
+            Расходы: %s из %s ожидаемых
+            %s""";
+
+    /**
+     * Шаблон итогов месяца без бюджета: месяц, год, доходы, расходы
+     */
+    private static final String DIGEST_WITHOUT_BUDGET = """
+            Итоги за %s %s:
+            Доходы: %s
+            Расходы: %s
+            Бюджет на месяц не был составлен. Составить бюджет на текущий месяц можно командой /budget_create""";
+
+    /**
+     * Итог, если расходы не превысили ожидаемые
+     */
+    private static final String EXPENSES_WITHIN_BUDGET = "Бюджет расходов соблюден, осталось: %s";
+
+    /**
+     * Итог, если расходы превысили ожидаемые
+     */
+    private static final String EXPENSES_OVER_BUDGET = "Бюджет расходов превышен на %s";
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Хранилище итогов месяца и контрольных точек рассылки
+     */
+    private final DigestRepository digestRepository;
+
+    /**
+     * Очередь отправки сообщений с ограничением частоты
+     */
+    private final RateLimitedSender sender;
+
+    /**
+     * Сколько пользователей обрабатывается в одной порции
+     */
+    private final int batchSize;
+
+    /**
+     * Часы, по которым определяется текущий месяц
+     */
+    private final Clock clock;
+
+    /**
+     * Сервис, который форматирует месяц к русскому названию
+     */
+    private final OutputMonthFormatService monthFormatService = new OutputMonthFormatService();
+
+    /**
+     * Сервисы форматирования чисел для потоков пула: {@link OutputNumberFormatService} не потокобезопасен
+     */
+    private final ThreadLocal<OutputNumberFormatService> numberFormatService =
+            ThreadLocal.withInitial(OutputNumberFormatService::new);
+
+    /**
+     * Пул, в котором параллельно составляются тексты итогов порции
+     */
+    private final ForkJoinPool renderPool;
+
+    /**
+     * Поток, в котором выполняется рассылка
+     */
+    private final ScheduledExecutorService executor;
+
+    public MonthlyDigestService(TransactionManager transactionManager, DigestRepository digestRepository,
+                                RateLimitedSender sender) {
+        this(transactionManager, digestRepository, sender, BATCH_SIZE, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param batchSize Сколько пользователей обрабатывать в одной порции
+     * @param clock     Часы, по которым определяется текущий месяц
+     */
+    public MonthlyDigestService(TransactionManager transactionManager, DigestRepository digestRepository,
+                                RateLimitedSender sender, int batchSize, Clock clock) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер порции должен быть положительным");
+        }
+        this.transactionManager = transactionManager;
+        this.digestRepository = digestRepository;
+        this.sender = sender;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.renderPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "monthly-digest");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает периодическую проверку рассылки. Первая проверка выполняется сразу, поэтому рассылка,
+     * прерванная остановкой бота, продолжается при запуске
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                broadcastLastMonth();
+            } catch (RuntimeException e) {
+                System.err.println("Произошла ошибка во время рассылки итогов месяца:");
+                e.printStackTrace();
+            }
+        }, 0, CHECK_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает рассылку. Порция, которая не отправлена целиком, будет отправлена заново при запуске
+     */
+    public void stop() {
+        executor.shutdownNow();
+        sender.close();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        renderPool.shutdown();
+    }
+
+    /**
+     * Рассылает итоги прошлого месяца пользователям, которым они еще не отправлены, начиная с пользователя
+     * после контрольной точки, и выводит ход рассылки после каждой порции
+     *
+     * @return Количество отправленных сообщений
+     */
+    public long broadcastLastMonth() {
+        YearMonth yearMonth = YearMonth.now(clock).minusMonths(1);
+        DigestCheckpoint[] checkpoints = new DigestCheckpoint[1];
+        long[] remainingUsers = new long[1];
+        transactionManager.produceTransaction(session -> {
+            checkpoints[0] = digestRepository.getCheckpoint(session, yearMonth)
+                    .orElseGet(() -> new DigestCheckpoint(yearMonth));
+            if (!checkpoints[0].isCompleted()) {
+                remainingUsers[0] = digestRepository.countUsersAfter(session, checkpoints[0].getLastUserId());
+            }
+        });
+        DigestCheckpoint checkpoint = checkpoints[0];
+        if (checkpoint.isCompleted()) {
+            return 0;
+        }
+        long processedUsers = 0;
+        long sent = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            DigestBatch[] batches = new DigestBatch[1];
+            transactionManager.produceTransaction(session -> batches[0] = digestRepository.getDigestBatch(session,
+                    yearMonth, checkpoint.getLastUserId(), batchSize).orElse(null));
+            if (batches[0] == null) {
+                checkpoint.complete();
+                transactionManager.produceTransaction(session -> digestRepository.saveCheckpoint(session, checkpoint));
+                System.out.printf("Итоги за %s разосланы: отправлено %d сообщений%n", yearMonth, sent);
+                break;
+            }
+            DigestBatch batch = batches[0];
+            List<RenderedDigest> rendered = renderPool.submit(() -> batch.digests().parallelStream()
+                    .map(digest -> new RenderedDigest(digest.chatId(), render(digest)))
+                    .toList()).join();
+            try {
+                for (RenderedDigest digest : rendered) {
+                    sender.send(digest.chatId(), digest.text());
+                }
+                if (!sender.awaitSent()) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            checkpoint.setLastUserId(batch.lastUserId());
+            transactionManager.produceTransaction(session -> digestRepository.saveCheckpoint(session, checkpoint));
+            processedUsers += batch.users();
+            sent += rendered.size();
+            System.out.printf("Рассылка итогов за %s: обработано %d из %d пользователей, отправлено %d сообщений%n",
+                    yearMonth, processedUsers, remainingUsers[0], sent);
+        }
+        return sent;
+    }
+
+    /**
+     * Составляет текст итогов месяца пользователя
+     */
+    private String render(MonthlyDigest digest) {
+        OutputNumberFormatService numberFormat = numberFormatService.get();
+        String month = monthFormatService.formatRuMonthName(digest.yearMonth().getMonth());
+        String year = String.valueOf(digest.yearMonth().getYear());
+        if (!digest.hasBudget()) {
+            return DIGEST_WITHOUT_BUDGET.formatted(month, year, numberFormat.formatMoney(digest.income()),
+                    numberFormat.formatMoney(digest.expense()));
+        }
+        Money expensesLeft = digest.expectedExpense().minus(digest.expense());
+        String result = expensesLeft.isNegative()
+                ? EXPENSES_OVER_BUDGET.formatted(numberFormat.formatMoney(expensesLeft.negate()))
+                : EXPENSES_WITHIN_BUDGET.formatted(numberFormat.formatMoney(expensesLeft));
+        return DIGEST_WITH_BUDGET.formatted(month, year,
+                numberFormat.formatMoney(digest.income()), numberFormat.formatMoney(digest.expectedIncome()),
+                numberFormat.formatMoney(digest.expense()), numberFormat.formatMoney(digest.expectedExpense()),
+                result);
+    }
+
+    /**
+     * Составленный текст итогов
+     *
+     * @param chatId ID чата пользователя
+     * @param text   Текст итогов
+     */
+    private record RenderedDigest(long chatId, String text) {
+    }
+}
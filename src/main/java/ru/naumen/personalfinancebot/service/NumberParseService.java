@@ -1,6 +1,6 @@
 package ru.naumen.personalfinancebot.service;
 
-import com.sun.istack.Nullable;
+import ru.naumen.personalfinancebot.model.Money;
 
 import java.util.List;
 
@@ -10,55 +10,47 @@ import java.util.List;
 public class NumberParseService {
     /**
      * Парсит баланс, введенный пользователем.
-     * Вернет null если баланс не является числом с плавающей точкой или меньше нуля
      *
      * @throws IllegalArgumentException если аргументов более одного
-     * @throws NumberFormatException если аргумент с числом введен неверно
+     * @throws NumberFormatException если аргумент с числом введен неверно или баланс меньше нуля
      */
-    @Nullable
-    public Double parseBalance(List<String> args) throws IllegalArgumentException {
+    public Money parseBalance(List<String> args) throws IllegalArgumentException {
         if (args.size() != 1) {
             throw new IllegalArgumentException("Должен быть только 1 аргумент!");
         }
-        double amount = parseCorrectDouble(args.get(0));
-        if (amount < 0) {
+        Money amount = parseMoney(args.get(0));
+        if (amount.isNegative()) {
             throw new NumberFormatException("Баланс не может быть отрицательным.");
         }
         return amount;
     }
 
     /**
-     * Парсит полученный аргумент и возвращает число с типом double
+     * Парсит полученный аргумент и возвращает положительную денежную сумму
      *
      * @param argument Строка, из которой парситься число
-     * @return Положительное число
+     * @return Положительная сумма
      */
-    public double parsePositiveDouble(String argument) throws NumberFormatException {
-        double parsedDouble = parseCorrectDouble(argument);
-        if (parsedDouble <= 0) {
+    public Money parsePositiveMoney(String argument) throws NumberFormatException {
+        Money amount = parseMoney(argument);
+        if (!amount.isPositive()) {
             throw new NumberFormatException("Число должно быть положительным!");
         }
-        return parsedDouble;
+        return amount;
     }
 
     /**
-     * Парсит double число с 2-мя знаками после запятой или точки
+     * Парсит денежную сумму с не более чем 2-мя знаками после запятой или точки
      *
      * @param argument строка для парсинга
-     * @return double число
+     * @return Денежная сумма
      * @throws NumberFormatException если введены некорректные символы или больше 2-х знаков после запятой/точки
      */
-    private double parseCorrectDouble(String argument) throws NumberFormatException {
+    private Money parseMoney(String argument) throws NumberFormatException {
         // To prevent NaN and 10e-7
         if (!argument.matches("^[0-9,.]+$")) {
             throw new NumberFormatException("Введены неверные символы!");
         }
-        double parsedDouble = Double.parseDouble(argument.replace(",", "."));
-
-        if (Math.round(parsedDouble * 100) != parsedDouble * 100) {
-            throw new NumberFormatException("Разрешено вводить только целые числа или дробные до 2-х знаков после" +
-                                            " запятой.");
-        }
-        return parsedDouble;
+        return Money.parse(argument.replace(",", "."));
     }
 }
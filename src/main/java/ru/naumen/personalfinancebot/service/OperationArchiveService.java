@@ -0,0 +1,173 @@
+package ru.naumen.personalfinancebot.service;
+
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновый перенос операций закрытых месяцев в архив: операции месяца, который старше заданного количества
+ * месяцев, заменяются итогами по пользователям и категориям. Пользователи обходятся порциями по возрастанию ID,
+ * каждая порция переносится несколькими запросами над множеством строк в своей транзакции.
+ * Таблица операций и её индексы остаются небольшими, а отчеты за архивные месяцы не меняются
+ */
+public class OperationArchiveService {
+    /**
+     * Как часто проверяется, есть ли операции для переноса в архив
+     */
+    private static final Duration ARCHIVE_INTERVAL = Duration.ofHours(6);
+
+    /**
+     * Сколько пользователей обрабатывается в одной порции
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Репозиторий операций
+     */
+    private final HibernateOperationRepository operationRepository;
+
+    /**
+     * Сколько закрытых месяцев перед текущим операции хранятся без переноса в архив
+     */
+    private final int liveMonths;
+
+    /**
+     * Сколько пользователей обрабатывается в одной порции
+     */
+    private final int batchSize;
+
+    /**
+     * Часы, по которым определяется текущий месяц
+     */
+    private final Clock clock;
+
+    /**
+     * Поток, в котором операции переносятся в архив
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param liveMonths Сколько закрытых месяцев перед текущим хранить без переноса в архив
+     */
+    public OperationArchiveService(TransactionManager transactionManager,
+                                   HibernateOperationRepository operationRepository, int liveMonths) {
+        this(transactionManager, operationRepository, liveMonths, BATCH_SIZE, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param liveMonths Сколько закрытых месяцев перед текущим хранить без переноса в архив
+     * @param batchSize  Сколько пользователей обрабатывать в одной порции
+     * @param clock      Часы, по которым определяется текущий месяц
+     */
+    public OperationArchiveService(TransactionManager transactionManager,
+                                   HibernateOperationRepository operationRepository, int liveMonths, int batchSize,
+                                   Clock clock) {
+        if (liveMonths < 0) {
+            throw new IllegalArgumentException("Количество месяцев не может быть отрицательным");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер порции должен быть положительным");
+        }
+        this.transactionManager = transactionManager;
+        this.operationRepository = operationRepository;
+        this.liveMonths = liveMonths;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "operation-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает периодический перенос операций в архив
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                archiveClosedMonths();
+            } catch (RuntimeException e) {
+                System.err.println("Произошла ошибка во время переноса операций в архив:");
+                e.printStackTrace();
+            }
+        }, 0, ARCHIVE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает перенос операций в архив, дождавшись переноса текущей порции
+     */
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Переносит в архив операции всех месяцев, которые старше {@link #liveMonths} закрытых месяцев,
+     * начиная с самого раннего, порциями по {@link #batchSize} пользователей, каждая в своей транзакции.
+     * Операции, добавленные в архивный месяц позже (например, импортом выписки), добавляются к его итогам
+     * при следующем переносе. Если порция не перенесена из-за ошибки, перенос прерывается, и порция
+     * переносится при следующей проверке
+     *
+     * @return Количество перенесенных операций
+     */
+    public long archiveClosedMonths() {
+        YearMonth before = YearMonth.now(clock).minusMonths(liveMonths);
+        long archived = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            YearMonth[] month = new YearMonth[1];
+            transactionManager.produceTransaction(session ->
+                    month[0] = operationRepository.getFirstMonthToArchive(session, before).orElse(null));
+            if (month[0] == null) {
+                break;
+            }
+            archived += archiveMonth(month[0]);
+        }
+        return archived;
+    }
+
+    /**
+     * Переносит в архив операции месяца порциями пользователей, каждая в своей транзакции
+     *
+     * @return Количество перенесенных операций
+     */
+    private long archiveMonth(YearMonth yearMonth) {
+        long afterUserId = 0;
+        long archived = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long batchStart = afterUserId;
+            long[] batch = new long[2];
+            transactionManager.produceTransaction(session -> {
+                List<Long> userIds = operationRepository.getArchiveUserIds(session, yearMonth, batchStart,
+                        batchSize);
+                if (userIds.isEmpty()) {
+                    return;
+                }
+                batch[0] = userIds.get(userIds.size() - 1);
+                batch[1] = operationRepository.archiveMonth(session, yearMonth, batchStart, batch[0]);
+            });
+            if (batch[0] == 0) {
+                break;
+            }
+            afterUserId = batch[0];
+            archived += batch[1];
+        }
+        return archived;
+    }
+}
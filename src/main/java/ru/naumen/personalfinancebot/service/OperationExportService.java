@@ -0,0 +1,165 @@
+package ru.naumen.personalfinancebot.service;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Сервис, который выгружает историю операций пользователя в CSV или JSON.
+ * Операции записываются по одной по мере чтения из БД, поэтому память не зависит от размера истории
+ */
+public class OperationExportService {
+    /**
+     * Формат даты операции в CSV, такой же, как при импорте
+     */
+    private static final DateTimeFormatter CSV_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    /**
+     * Заголовок CSV файла
+     */
+    private static final String CSV_HEADER = "Дата;Сумма;Категория\n";
+
+    /**
+     * Метка порядка байтов, по которой Excel определяет кодировку UTF-8
+     */
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    /**
+     * Хранилище операций
+     */
+    private final OperationRepository operationRepository;
+
+    public OperationExportService(OperationRepository operationRepository) {
+        this.operationRepository = operationRepository;
+    }
+
+    /**
+     * Записывает все операции пользователя в порядке истории: от последней к первой
+     *
+     * @param format Формат выгрузки
+     * @param writer Куда записываются операции. Не закрывается
+     * @return Количество выгруженных операций
+     * @throws IOException если не удалось записать операции
+     */
+    public int exportOperations(Session session, User user, ExportFormat format, Writer writer) throws IOException {
+        int[] count = new int[1];
+        try {
+            writer.write(format == ExportFormat.CSV ? BYTE_ORDER_MARK + CSV_HEADER : "[");
+            operationRepository.forEachOperation(session, user, operation -> {
+                try {
+                    if (format == ExportFormat.CSV) {
+                        writeCsv(writer, operation);
+                    } else {
+                        writeJson(writer, operation, count[0] == 0);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+            if (format == ExportFormat.JSON) {
+                writer.write(count[0] == 0 ? "]\n" : "\n]\n");
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    /**
+     * Записывает операцию строкой CSV, которую можно загрузить обратно командой /import
+     */
+    private static void writeCsv(Writer writer, Operation operation) throws IOException {
+        writer.write(CSV_DATE_FORMATTER.format(operation.getCreatedAt()));
+        writer.write(';');
+        writer.write(operation.getPayment().toBigDecimal().toPlainString());
+        writer.write(';');
+        writer.write(quoteCsv(operation.getCategory().getCategoryName()));
+        writer.write('\n');
+    }
+
+    /**
+     * Записывает операцию объектом JSON
+     *
+     * @param first Первая ли это операция в массиве
+     */
+    private static void writeJson(Writer writer, Operation operation, boolean first) throws IOException {
+        writer.write(first ? "\n" : ",\n");
+        writer.write("{\"id\":");
+        writer.write(String.valueOf(operation.getId()));
+        writer.write(",\"date\":\"");
+        writer.write(operation.getCreatedAt().toString());
+        writer.write("\",\"amount\":");
+        writer.write(operation.getPayment().toBigDecimal().toPlainString());
+        writer.write(",\"category\":");
+        writer.write(quoteJson(operation.getCategory().getCategoryName()));
+        writer.write(",\"type\":\"");
+        writer.write(operation.getCategory().getType().name());
+        writer.write("\"}");
+    }
+
+    /**
+     * Заключает поле CSV в кавычки, если оно содержит разделитель, кавычку или перевод строки
+     */
+    private static String quoteCsv(String value) {
+        if (value.indexOf(';') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Записывает строку литералом JSON
+     */
+    private static String quoteJson(String value) {
+        StringBuilder result = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                case '\n' -> result.append("\\n");
+                case '\r' -> result.append("\\r");
+                case '\t' -> result.append("\\t");
+                default -> {
+                    if (c < ' ') {
+                        result.append("\\u%04x".formatted((int) c));
+                    } else {
+                        result.append(c);
+                    }
+                }
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    /**
+     * Формат выгрузки
+     */
+    public enum ExportFormat {
+        CSV("csv"),
+        JSON("json");
+
+        /**
+         * Расширение файла выгрузки, оно же - название формата в аргументе команды
+         */
+        private final String extension;
+
+        ExportFormat(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * @return Расширение файла выгрузки
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package ru.naumen.personalfinancebot.service;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Сервис, который импортирует операции из банковской выписки в формате CSV.
+ *
+ * <p>Каждая строка выписки содержит дату ("DD.MM.YYYY" или "YYYY-MM-DD"), сумму со знаком и название
+ * категории. Отрицательная сумма - расход, положительная - доход. Разделитель колонок - ";" или ",",
+ * он определяется по первой строке. Первая строка может быть заголовком. Поля можно заключать в кавычки.</p>
+ *
+ * <p>Файл читается построчно, операции добавляются пачками через
+ * {@link OperationRepository#addOperations}, поэтому память не зависит от размера файла.</p>
+ */
+public class OperationImportService {
+    /**
+     * Количество операций в одной пачке
+     */
+    static final int BATCH_SIZE = 1000;
+
+    /**
+     * Через сколько строк сообщается о ходе импорта
+     */
+    static final int PROGRESS_INTERVAL = 10_000;
+
+    /**
+     * Максимальное количество описаний пропущенных строк в результате
+     */
+    static final int MAX_ERRORS = 10;
+
+    /**
+     * Максимальное количество запомненных результатов поиска категорий за импорт
+     */
+    private static final int MAX_CACHED_CATEGORIES = 1000;
+
+    /**
+     * Форматы даты операции
+     */
+    private static final List<DateTimeFormatter> DATE_FORMATTERS = List.of(
+            DateTimeFormatter.ofPattern("dd.MM.uuuu").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ISO_LOCAL_DATE);
+
+    /**
+     * Сумма со знаком и не более чем 2-мя знаками после точки
+     */
+    private static final Pattern AMOUNT_PATTERN = Pattern.compile("^[+-]?[0-9]+(\\.[0-9]{1,2})?$");
+
+    /**
+     * Метка порядка байтов, которую добавляют в начало файла некоторые программы
+     */
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    /**
+     * Хранилище категорий
+     */
+    private final CategoryRepository categoryRepository;
+
+    /**
+     * Хранилище операций
+     */
+    private final OperationRepository operationRepository;
+
+    public OperationImportService(CategoryRepository categoryRepository, OperationRepository operationRepository) {
+        this.categoryRepository = categoryRepository;
+        this.operationRepository = operationRepository;
+    }
+
+    /**
+     * Импортирует операции пользователя из CSV файла в кодировке UTF-8. Строки, которые не удалось разобрать
+     * или для которых не найдена категория, пропускаются. Баланс пользователя не изменяется:
+     * его нужно изменить один раз на {@link ImportResult#total()}
+     *
+     * @param input    Содержимое файла
+     * @param progress Получает количество обработанных строк каждые {@link #PROGRESS_INTERVAL} строк
+     * @return Итог импорта
+     * @throws IOException если файл не удалось прочитать
+     */
+    public ImportResult importOperations(Session session, User user, InputStream input, IntConsumer progress)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Map<String, Optional<Category>> categories = new HashMap<>();
+        List<Operation> batch = new ArrayList<>(BATCH_SIZE);
+        List<String> errors = new ArrayList<>();
+        Character separator = null;
+        int lineNumber = 0;
+        int imported = 0;
+        int skipped = 0;
+        long totalKopecks = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber % PROGRESS_INTERVAL == 0) {
+                progress.accept(lineNumber);
+            }
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == BYTE_ORDER_MARK) {
+                line = line.substring(1);
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            if (separator == null) {
+                separator = line.indexOf(';') >= 0 ? ';' : ',';
+            }
+            List<String> columns = splitLine(line, separator);
+            if (lineNumber == 1 && tryParseDate(columns.get(0)).isEmpty()) {
+                // Первая строка без даты в первой колонке считается заголовком
+                continue;
+            }
+            Operation operation;
+            try {
+                operation = parseOperation(session, user, columns, categories);
+            } catch (IllegalArgumentException e) {
+                skipped++;
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add("Строка %d: %s".formatted(lineNumber, e.getMessage()));
+                }
+                continue;
+            }
+            batch.add(operation);
+            imported++;
+            totalKopecks = Math.addExact(totalKopecks, operation.getPayment().getKopecks());
+            if (batch.size() == BATCH_SIZE) {
+                operationRepository.addOperations(session, user, batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            operationRepository.addOperations(session, user, batch);
+        }
+        return new ImportResult(imported, skipped, Money.ofKopecks(totalKopecks), List.copyOf(errors));
+    }
+
+    /**
+     * Создает операцию по колонкам строки выписки
+     *
+     * @param categories Результаты поиска категорий по типу и названию в нижнем регистре
+     * @throws IllegalArgumentException если строку не удалось разобрать или категория не найдена
+     */
+    private Operation parseOperation(Session session, User user, List<String> columns,
+                                     Map<String, Optional<Category>> categories) throws IllegalArgumentException {
+        if (columns.size() != 3) {
+            throw new IllegalArgumentException("ожидается 3 колонки: дата, сумма, категория");
+        }
+        LocalDate date = parseDate(columns.get(0));
+        Money payment = parseAmount(columns.get(1));
+        CategoryType type = payment.isNegative() ? CategoryType.EXPENSE : CategoryType.INCOME;
+        String categoryName = columns.get(2).trim();
+        String key = type.name() + ':' + categoryName.toLowerCase(Locale.ROOT);
+        Optional<Category> category = categories.get(key);
+        if (category == null) {
+            category = categoryRepository.getCategoryByName(session, user, type, categoryName);
+            // Файл с множеством разных неизвестных названий не должен занять память
+            if (categories.size() < MAX_CACHED_CATEGORIES) {
+                categories.put(key, category);
+            }
+        }
+        if (category.isEmpty()) {
+            throw new IllegalArgumentException("категория %s \"%s\" не найдена".formatted(
+                    type == CategoryType.EXPENSE ? "расходов" : "доходов", categoryName));
+        }
+        return new Operation(user, category.get(), payment, date);
+    }
+
+    /**
+     * Парсит дату операции
+     *
+     * @throws IllegalArgumentException если дата записана в неизвестном формате
+     */
+    private static LocalDate parseDate(String value) throws IllegalArgumentException {
+        return tryParseDate(value).orElseThrow(
+                () -> new IllegalArgumentException("неверная дата \"%s\"".formatted(value.trim())));
+    }
+
+    /**
+     * Парсит дату операции в одном из допустимых форматов
+     *
+     * @return Дата или пустое значение, если строка не является датой
+     */
+    private static Optional<LocalDate> tryParseDate(String value) {
+        String trimmed = value.trim();
+        for (DateTimeFormatter formatter : DATE_FORMATTERS) {
+            try {
+                return Optional.of(LocalDate.parse(trimmed, formatter));
+            } catch (DateTimeParseException e) {
+                // Пробуем следующий формат
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Парсит сумму операции со знаком. Допускаются пробелы между разрядами и десятичная запятая
+     *
+     * @throws IllegalArgumentException если сумма записана неверно или равна нулю
+     */
+    private static Money parseAmount(String value) throws IllegalArgumentException {
+        String normalized = value.replace(" ", "").replace("\u00A0", "").replace(',', '.');
+        if (!AMOUNT_PATTERN.matcher(normalized).matches()) {
+            throw new IllegalArgumentException("неверная сумма \"%s\"".formatted(value.trim()));
+        }
+        Money amount = Money.parse(normalized);
+        if (amount.equals(Money.ZERO)) {
+            throw new IllegalArgumentException("сумма операции не может быть нулевой");
+        }
+        return amount;
+    }
+
+    /**
+     * Делит строку выписки на колонки. Поле в кавычках может содержать разделитель,
+     * кавычка внутри него записывается двумя кавычками
+     */
+    private static List<String> splitLine(String line, char separator) {
+        List<String> columns = new ArrayList<>(3);
+        StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    column.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    column.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == separator) {
+                columns.add(column.toString());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        columns.add(column.toString());
+        return columns;
+    }
+
+    /**
+     * Итог импорта
+     *
+     * @param imported Количество добавленных операций
+     * @param skipped  Количество пропущенных строк
+     * @param total    Сумма добавленных операций, на которую нужно изменить баланс
+     * @param errors   Описания первых {@link #MAX_ERRORS} пропущенных строк
+     */
+    public record ImportResult(int imported, int skipped, Money total, List<String> errors) {
+    }
+}
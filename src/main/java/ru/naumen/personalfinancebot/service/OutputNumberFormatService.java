@@ -1,5 +1,7 @@
 package ru.naumen.personalfinancebot.service;
 
+import ru.naumen.personalfinancebot.model.Money;
+
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 
@@ -8,49 +10,49 @@ import java.text.DecimalFormatSymbols;
  */
 public class OutputNumberFormatService {
     /**
-     * Форматировщик для double
+     * Форматировщик для денежных сумм
      * Он убирает дробную часть при ее отсутствии
      * И разделяет пробелами разряды числа
      */
-    private final DecimalFormat doubleFormatter;
+    private final DecimalFormat moneyFormatter;
 
     public OutputNumberFormatService() {
-        this.doubleFormatter = this.createDoubleFormatter();
+        this.moneyFormatter = this.createMoneyFormatter();
     }
 
     /**
-     * Форматирует double в красивую строку.
-     * Если число целое, то вернет его без дробной части.
+     * Форматирует денежную сумму в красивую строку.
+     * Если копейки отсутствуют, то вернет сумму без дробной части.
      * <br>
-     * Т.е. 1000.0 будет выведено как 1000,
-     * а 1000.99 будет выведено как 1000.99
+     * Т.е. 1000.00 будет выведено как 1 000,
+     * а 1000.99 будет выведено как 1 000.99
      */
-    public String formatDouble(double d) {
-        return doubleFormatter.format(d);
+    public String formatMoney(Money money) {
+        return moneyFormatter.format(money.toBigDecimal());
     }
 
     /**
-     * Форматирует double в красивую строку.
-     * Если число целое, то вернет его без дробной части.
+     * Форматирует денежную сумму в красивую строку.
+     * Если копейки отсутствуют, то вернет сумму без дробной части.
      * <br>
-     * Т.е. 1000.0 будет выведено как 1000,
-     * а 1000.99 будет выведено как 1000.99.
+     * Т.е. 1000.00 будет выведено как 1 000,
+     * а 1000.99 будет выведено как 1 000.99.
      * <br>
-     * Если d будет null, тогда будет выведено defaultValue
+     * Если money будет null, тогда будет выведено defaultValue
      */
-    public String formatDouble(Double d, String defaultValue) {
-        if (d == null) {
+    public String formatMoney(Money money, String defaultValue) {
+        if (money == null) {
             return defaultValue;
         }
-        return formatDouble(d);
+        return formatMoney(money);
     }
 
     /**
-     * Создает форматировщик для double
+     * Создает форматировщик для денежных сумм
      * Он убирает дробную часть при ее отсутствии
      * И разделяет пробелами разряды числа
      */
-    private DecimalFormat createDoubleFormatter() {
+    private DecimalFormat createMoneyFormatter() {
         DecimalFormatSymbols symbols = new DecimalFormatSymbols();
         symbols.setGroupingSeparator(' ');
         symbols.setDecimalSeparator('.');
@@ -0,0 +1,205 @@
+package ru.naumen.personalfinancebot.service;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.RecurringOperation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.recurring.RecurringOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновое добавление регулярных операций. Наступившие правила выбираются по индексу на дате следующего
+ * срабатывания порциями, каждая порция обрабатывается в своей транзакции: операции добавляются пачкой,
+ * баланс каждого пользователя изменяется атомарно одним изменением, а дата следующего срабатывания
+ * переносится в той же транзакции. Поэтому после сбоя порция либо добавлена целиком, либо будет добавлена
+ * заново, и операции не дублируются. После простоя по правилу добавляются все пропущенные операции
+ * с датами, на которые они приходились.
+ * Гарантия выполняется, когда операции хранятся в той же БД, что и правила
+ */
+public class RecurringOperationScheduler {
+    /**
+     * Как часто проверяется, есть ли наступившие правила
+     */
+    private static final Duration CHECK_INTERVAL = Duration.ofMinutes(30);
+
+    /**
+     * Сколько правил обрабатывается в одной транзакции
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Хранилище правил регулярных операций
+     */
+    private final RecurringOperationRepository recurringOperationRepository;
+
+    /**
+     * Хранилище операций
+     */
+    private final OperationRepository operationRepository;
+
+    /**
+     * Хранилище пользователей
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Хранилище бюджетов
+     */
+    private final BudgetRepository budgetRepository;
+
+    /**
+     * Сколько правил обрабатывается в одной транзакции
+     */
+    private final int batchSize;
+
+    /**
+     * Часы, по которым определяется сегодняшняя дата
+     */
+    private final Clock clock;
+
+    /**
+     * Поток, в котором добавляются регулярные операции
+     */
+    private final ScheduledExecutorService executor;
+
+    public RecurringOperationScheduler(TransactionManager transactionManager,
+                                       RecurringOperationRepository recurringOperationRepository,
+                                       OperationRepository operationRepository, UserRepository userRepository,
+                                       BudgetRepository budgetRepository) {
+        this(transactionManager, recurringOperationRepository, operationRepository, userRepository,
+                budgetRepository, BATCH_SIZE, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param batchSize Сколько правил обрабатывать в одной транзакции
+     * @param clock     Часы, по которым определяется сегодняшняя дата
+     */
+    public RecurringOperationScheduler(TransactionManager transactionManager,
+                                       RecurringOperationRepository recurringOperationRepository,
+                                       OperationRepository operationRepository, UserRepository userRepository,
+                                       BudgetRepository budgetRepository, int batchSize, Clock clock) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер порции должен быть положительным");
+        }
+        this.transactionManager = transactionManager;
+        this.recurringOperationRepository = recurringOperationRepository;
+        this.operationRepository = operationRepository;
+        this.userRepository = userRepository;
+        this.budgetRepository = budgetRepository;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recurring-operations");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает периодическое добавление регулярных операций. Первая проверка выполняется сразу,
+     * поэтому операции, пропущенные за время простоя, добавляются при запуске
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                addDueOperations();
+            } catch (RuntimeException e) {
+                System.err.println("Произошла ошибка во время добавления регулярных операций:");
+                e.printStackTrace();
+            }
+        }, 0, CHECK_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает добавление регулярных операций, дождавшись обработки текущей порции
+     */
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Добавляет операции по всем правилам, срабатывание которых наступило к сегодняшнему дню,
+     * порциями по {@link #batchSize} правил, каждая в своей транзакции
+     *
+     * @return Количество добавленных операций
+     */
+    public long addDueOperations() {
+        LocalDate today = LocalDate.now(clock);
+        long added = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            BatchResult[] batch = new BatchResult[1];
+            transactionManager.produceTransaction(session -> batch[0] = addBatch(session, today));
+            added += batch[0].operations();
+            if (batch[0].rules() < batchSize) {
+                break;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Добавляет операции по одной порции наступивших правил и переносит их следующее срабатывание.
+     * Балансы изменяются в порядке ID пользователей, поэтому строки пользователей блокируются в постоянном порядке.
+     * Расходы бюджетов пользователей, получивших операции, подсчитываются заново при следующем расходе
+     */
+    private BatchResult addBatch(Session session, LocalDate today) {
+        List<RecurringOperation> rules = recurringOperationRepository.getDueRecurringOperations(session, today,
+                batchSize);
+        Map<Long, List<Operation>> operationsByUser = new TreeMap<>();
+        Map<Long, User> users = new TreeMap<>();
+        for (RecurringOperation rule : rules) {
+            User user = rule.getUser();
+            users.put(user.getId(), user);
+            List<Operation> operations = operationsByUser.computeIfAbsent(user.getId(), id -> new ArrayList<>());
+            while (!rule.getNextDue().isAfter(today)) {
+                operations.add(new Operation(user, rule.getCategory(), rule.getPayment(), rule.getNextDue()));
+                rule.advance();
+            }
+        }
+        long added = 0;
+        for (Map.Entry<Long, List<Operation>> entry : operationsByUser.entrySet()) {
+            User user = users.get(entry.getKey());
+            List<Operation> operations = entry.getValue();
+            Money delta = operations.stream().map(Operation::getPayment).reduce(Money.ZERO, Money::plus);
+            operationRepository.addOperations(session, user, operations);
+            userRepository.changeBalance(session, user, delta);
+            budgetRepository.resetSpent(session, user);
+            added += operations.size();
+        }
+        return new BatchResult(rules.size(), added);
+    }
+
+    /**
+     * Итог обработки порции правил
+     *
+     * @param rules      Количество обработанных правил
+     * @param operations Количество добавленных операций
+     */
+    private record BatchResult(int rules, long operations) {
+    }
+}
@@ -3,12 +3,16 @@ package ru.naumen.personalfinancebot.service;
 import org.hibernate.Session;
 import ru.naumen.personalfinancebot.message.Message;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
 
+import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Класс для подготовки отчётов в текстовом виде
@@ -26,6 +30,35 @@ public class ReportService {
             Переданы неверные данные месяца и года.
             Дата должна быть передана в виде "MM.YYYY", например, "11.2023".""";
 
+    /**
+     * Сообщение о неверно переданных днях для команды /report_expense
+     */
+    private static final String INCORRECT_RANGE_REPORT_VALUES = """
+            Переданы неверные даты.
+            Даты должны быть переданы в виде "DD.MM.YYYY", например, "01.11.2023", и первая не может быть позже второй.""";
+
+    /**
+     * Сообщение о диапазоне дней, который захватывает архивный месяц не целиком, для команды /report_expense
+     */
+    private static final String ARCHIVED_MONTH_RANGE = """
+            Операции за %s перенесены в архив, и по ним хранится только итог за весь месяц.
+            Запросите отчёт за месяц целиком: /report_expense %s""";
+
+    /**
+     * Формат дня в отчете по расходам пользователя за диапазон дней
+     */
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    /**
+     * Формат месяца в команде /report_expense
+     */
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MM.yyyy");
+
+    /**
+     * Начало отчета по расходам пользователя за диапазон дней
+     */
+    private static final String RANGE_REPORT_MESSAGE = "Подготовил отчёт по вашим расходам с %s по %s:\n";
+
     /**
      * Начало отчета по расходам пользователя
      */
@@ -84,24 +117,68 @@ public class ReportService {
     public String getExpenseReport(Session session, User user, String args) {
         YearMonth yearMonth;
         try {
-            yearMonth = YearMonth.parse(args, DateTimeFormatter.ofPattern("MM.yyyy"));
+            yearMonth = YearMonth.parse(args, MONTH_FORMATTER);
         } catch (Exception exception) {
             return INCORRECT_SELF_REPORT_VALUES;
         }
-        Map<String, Double> categoryPaymentMap = this
+        Map<String, Money> categoryPaymentMap = this
                 .operationRepository
                 .getOperationsSumByType(
                         session,
                         user, yearMonth.getMonth().getValue(), yearMonth.getYear(), CategoryType.EXPENSE
                 );
+        return formatExpenseReport(SELF_REPORT_MESSAGE, categoryPaymentMap);
+    }
+
+    /**
+     * Возвращает отчёт в виде строки, где содержится сумма затрат пользователя на каждую категорию
+     * за дни с from по to включительно.
+     *
+     * @param user Пользователь, для которого надо вернуть отчёт
+     * @param from Первый день [DD.MM.YYYY]
+     * @param to   Последний день [DD.MM.YYYY]
+     * @return Отчёт в виде строки
+     */
+    public String getExpenseReport(Session session, User user, String from, String to) {
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = LocalDate.parse(from, DAY_FORMATTER);
+            toDate = LocalDate.parse(to, DAY_FORMATTER);
+        } catch (DateTimeParseException exception) {
+            return INCORRECT_RANGE_REPORT_VALUES;
+        }
+        if (fromDate.isAfter(toDate)) {
+            return INCORRECT_RANGE_REPORT_VALUES;
+        }
+        Optional<YearMonth> archivedMonth = this.operationRepository
+                .getPartlyCoveredArchivedMonth(session, user, fromDate, toDate);
+        if (archivedMonth.isPresent()) {
+            return ARCHIVED_MONTH_RANGE.formatted(MONTH_FORMATTER.format(archivedMonth.get()),
+                    MONTH_FORMATTER.format(archivedMonth.get()));
+        }
+        Map<String, Money> categoryPaymentMap = this.operationRepository
+                .getOperationsSumByType(session, user, fromDate, toDate, CategoryType.EXPENSE);
+        return formatExpenseReport(RANGE_REPORT_MESSAGE.formatted(DAY_FORMATTER.format(fromDate),
+                DAY_FORMATTER.format(toDate)), categoryPaymentMap);
+    }
+
+    /**
+     * Форматирует отчёт по расходам пользователя по категориям
+     *
+     * @param header             Начало отчета
+     * @param categoryPaymentMap Суммы по категориям или null, если расходов нет
+     */
+    private String formatExpenseReport(String header, Map<String, Money> categoryPaymentMap) {
         if (categoryPaymentMap == null) {
             return EXPENSES_NOT_EXIST;
         }
         StringBuilder report = new StringBuilder();
-        report.append(SELF_REPORT_MESSAGE);
+        report.append(header);
 
-        for (Map.Entry<String, Double> entry : categoryPaymentMap.entrySet()) {
-            report.append(EXPENSE_REPORT_PATTERN.formatted(entry.getKey(), entry.getValue().toString()));
+        for (Map.Entry<String, Money> entry : categoryPaymentMap.entrySet()) {
+            report.append(EXPENSE_REPORT_PATTERN.formatted(
+                    entry.getKey(), this.numberFormatService.formatMoney(entry.getValue())));
         }
         return report.toString();
     }
@@ -114,14 +191,14 @@ public class ReportService {
      * @return Отчёт в виде строки
      */
     public String getEstimateReport(Session session, YearMonth yearMonth) {
-        Map<CategoryType, Double> data = this.operationRepository.getEstimateSummary(session, yearMonth);
+        Map<CategoryType, Money> data = this.operationRepository.getEstimateSummary(session, yearMonth);
         if (data == null) {
             return null;
         }
 
         String emptyContent = Message.EMPTY_LIST_CONTENT;
-        String formatExpenses = this.numberFormatService.formatDouble(data.get(CategoryType.EXPENSE), emptyContent);
-        String formatIncome = this.numberFormatService.formatDouble(data.get(CategoryType.INCOME), emptyContent);
+        String formatExpenses = this.numberFormatService.formatMoney(data.get(CategoryType.EXPENSE), emptyContent);
+        String formatIncome = this.numberFormatService.formatMoney(data.get(CategoryType.INCOME), emptyContent);
 
         if (yearMonth.equals(YearMonth.now())) {
             return ESTIMATE_REPORT_CURRENT.formatted(formatExpenses, formatIncome);
@@ -140,7 +217,7 @@ public class ReportService {
      * @return Отчёт в строковом виде
      */
     public String getAverageReport(Session session, YearMonth yearMonth) {
-        Map<String, Double> data = this.operationRepository.getAverageSummaryByStandardCategory(session, yearMonth);
+        Map<String, Money> data = this.operationRepository.getAverageSummaryByStandardCategory(session, yearMonth);
         if (data == null) {
             return null;
         }
@@ -149,9 +226,9 @@ public class ReportService {
                 this.monthFormatService.formatRuMonthName(yearMonth.getMonth()),
                 yearMonth.getYear()));
 
-        for (Map.Entry<String, Double> entry : data.entrySet()) {
+        for (Map.Entry<String, Money> entry : data.entrySet()) {
             String categoryPayment = EXPENSE_REPORT_PATTERN.formatted(
-                    entry.getKey(), this.numberFormatService.formatDouble(entry.getValue()));
+                    entry.getKey(), this.numberFormatService.formatMoney(entry.getValue()));
             report.append(categoryPayment);
         }
         return report.toString();
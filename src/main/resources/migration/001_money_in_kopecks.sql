@@ -0,0 +1,27 @@
+-- Перевод денежных сумм из double precision (рубли) в bigint (копейки).
+-- Выполняется вручную на PostgreSQL до запуска новой версии бота.
+-- Скрипт можно безопасно выполнить повторно: уже переведенные колонки не изменяются.
+DO
+$$
+    DECLARE
+        money_column RECORD;
+    BEGIN
+        FOR money_column IN
+            SELECT table_name, column_name
+            FROM information_schema.columns
+            WHERE table_schema = current_schema()
+              AND data_type = 'double precision'
+              AND (table_name, column_name) IN (('operations', 'payment'),
+                                                ('users', 'balance'),
+                                                ('budgets', 'income'),
+                                                ('budgets', 'expense'))
+            LOOP
+                EXECUTE format('UPDATE %I SET %I = 0 WHERE %I IS NULL',
+                               money_column.table_name, money_column.column_name, money_column.column_name);
+                EXECUTE format('ALTER TABLE %I ALTER COLUMN %I TYPE BIGINT USING round(%I * 100)::BIGINT',
+                               money_column.table_name, money_column.column_name, money_column.column_name);
+                EXECUTE format('ALTER TABLE %I ALTER COLUMN %I SET NOT NULL',
+                               money_column.table_name, money_column.column_name);
+            END LOOP;
+    END
+$$;
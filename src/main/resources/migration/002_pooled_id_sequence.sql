@@ -0,0 +1,5 @@
+-- Шаг последовательности ID увеличивается до IdSequence.ALLOCATION_SIZE (50):
+-- Hibernate резервирует сразу 50 идентификаторов и вставляет сущности пачками без nextval на каждую.
+-- Выполняется вручную на PostgreSQL до запуска новой версии бота, иначе Hibernate не запустится
+-- из-за несовпадения шага последовательности. Скрипт можно безопасно выполнить повторно.
+ALTER SEQUENCE hibernate_sequence INCREMENT BY 50;
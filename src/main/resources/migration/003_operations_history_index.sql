@@ -0,0 +1,6 @@
+-- Индекс операций пользователя дополняется ID операции: история операций (/history) выбирает страницы
+-- по ключу (created_at, id), и с этим индексом загрузка страницы не зависит от её номера.
+-- Новый индекс создает Hibernate при запуске (hbm2ddl.auto=update), старый становится лишним,
+-- так как является префиксом нового. Скрипт можно безопасно выполнить повторно.
+CREATE INDEX IF NOT EXISTS operations_user_id_created_at_id_idx ON operations (user_id, created_at, id);
+DROP INDEX IF EXISTS operations_user_id_created_at_idx;
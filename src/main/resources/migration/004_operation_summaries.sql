@@ -0,0 +1,17 @@
+-- Таблица итогов архивных месяцев: операции месяцев старше OPERATIONS_ARCHIVE_AFTER_MONTHS заменяются
+-- суммами по пользователю, категории и месяцу, поэтому таблица operations и её индексы не растут без предела.
+-- Таблицу создает и Hibernate при запуске (hbm2ddl.auto=update), скрипт нужен, чтобы создать её заранее,
+-- до включения переноса в архив. Скрипт можно безопасно выполнить повторно.
+CREATE TABLE IF NOT EXISTS operation_summaries
+(
+    id              BIGINT NOT NULL PRIMARY KEY,
+    user_id         BIGINT NOT NULL REFERENCES users (id),
+    category_id     BIGINT NOT NULL REFERENCES categories (id),
+    month_start     DATE   NOT NULL,
+    payment         BIGINT NOT NULL,
+    operation_count BIGINT NOT NULL,
+    CONSTRAINT operation_summaries_user_id_month_start_category_id_key UNIQUE (user_id, month_start, category_id)
+);
+-- После переноса первых месяцев место, освобожденное в operations, переиспользуется после VACUUM,
+-- а индексы можно уменьшить, перестроив их без блокировки записи.
+-- REINDEX TABLE CONCURRENTLY operations;
@@ -0,0 +1,14 @@
+-- Таблица правил регулярных операций. Планировщик выбирает наступившие правила по индексу (next_due, id),
+-- не просматривая всю таблицу. Таблицу создает и Hibernate при запуске (hbm2ddl.auto=update),
+-- скрипт нужен, чтобы создать её заранее. Скрипт можно безопасно выполнить повторно.
+CREATE TABLE IF NOT EXISTS recurring_operations
+(
+    id           BIGINT  NOT NULL PRIMARY KEY,
+    user_id      BIGINT  NOT NULL REFERENCES users (id),
+    category_id  BIGINT  NOT NULL REFERENCES categories (id),
+    payment      BIGINT  NOT NULL,
+    day_of_month INTEGER NOT NULL CHECK (day_of_month BETWEEN 1 AND 31),
+    next_due     DATE    NOT NULL
+);
+CREATE INDEX IF NOT EXISTS recurring_operations_next_due_id_idx ON recurring_operations (next_due, id);
+CREATE INDEX IF NOT EXISTS recurring_operations_user_id_idx ON recurring_operations (user_id);
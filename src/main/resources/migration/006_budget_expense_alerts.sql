@@ -0,0 +1,6 @@
+-- Уровень уведомлений о расходах бюджета: наибольший порог в процентах от ожидаемого расхода (80 или 100),
+-- о котором пользователь уже уведомлен. Hibernate добавляет колонку и сам (hbm2ddl.auto=update),
+-- но без значения по умолчанию для существующих строк, поэтому скрипт нужно выполнить до запуска.
+-- Скрипт можно безопасно выполнить повторно.
+ALTER TABLE budgets
+    ADD COLUMN IF NOT EXISTS expense_alert_percent INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- Контрольные точки рассылки итогов месяца: до какого пользователя разосланы итоги месяца.
+-- Таблицу создает и Hibernate при запуске (hbm2ddl.auto=update), скрипт нужен, чтобы создать её заранее.
+-- Скрипт можно безопасно выполнить повторно.
+CREATE TABLE IF NOT EXISTS digest_checkpoints
+(
+    month_start  DATE    NOT NULL PRIMARY KEY,
+    last_user_id BIGINT  NOT NULL,
+    completed    BOOLEAN NOT NULL
+);
@@ -0,0 +1,29 @@
+-- Перенос бюджета прошлого месяца на новый месяц.
+-- Флаг пользователя, включающий перенос. Hibernate добавляет колонку и сам (hbm2ddl.auto=update),
+-- но без значения по умолчанию для существующих строк, поэтому скрипт нужно выполнить до запуска.
+ALTER TABLE users
+    ADD COLUMN IF NOT EXISTS budget_rollover BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- У пользователя может быть только один бюджет на месяц. Раньше /budget_create не проверял это,
+-- поэтому из повторных бюджетов на месяц остается последний созданный.
+DELETE
+FROM budgets
+WHERE id IN (SELECT id
+             FROM (SELECT id, row_number() OVER (PARTITION BY user_id, target_date ORDER BY id DESC) AS rn
+                   FROM budgets) numbered
+             WHERE numbered.rn > 1);
+
+-- Уникальное ограничение заменяет прежний индекс (user_id, target_date). Переносу и рассылке итогов
+-- нужен индекс по месяцу: они читают бюджеты одного месяца порциями по возрастанию ID пользователя.
+-- Скрипт можно безопасно выполнить повторно.
+DO
+$$
+    BEGIN
+        IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'budgets_user_id_target_date_key') THEN
+            ALTER TABLE budgets
+                ADD CONSTRAINT budgets_user_id_target_date_key UNIQUE (user_id, target_date);
+        END IF;
+    END
+$$;
+DROP INDEX IF EXISTS budgets_user_id_target_date_idx;
+CREATE INDEX IF NOT EXISTS budgets_target_date_user_id_idx ON budgets (target_date, user_id);
@@ -0,0 +1,5 @@
+-- Расходы месяца бюджета в копейках, которые увеличиваются каждым расходом вместо подсчета суммы операций.
+-- NULL означает, что расходы еще не подсчитаны: они подсчитываются суммой операций при следующем расходе.
+-- Скрипт можно безопасно выполнить повторно.
+ALTER TABLE budgets
+    ADD COLUMN IF NOT EXISTS spent BIGINT;
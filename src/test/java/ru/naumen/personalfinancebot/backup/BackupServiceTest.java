@@ -0,0 +1,232 @@
+package ru.naumen.personalfinancebot.backup;
+
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.naumen.personalfinancebot.backup.exception.BackupFormatException;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.IdSequence;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.RecurringOperation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Тесты для резервного копирования и восстановления данных
+ */
+public class BackupServiceTest {
+    /**
+     * Папка для файлов резервных копий
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Фабрика сессий тестовой БД
+     */
+    private final SessionFactory sessionFactory = new HibernateConfiguration().getSessionFactory();
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager = new TransactionManager(sessionFactory);
+
+    /**
+     * Сервис резервного копирования, обрабатывающий таблицы в двух потоках
+     */
+    private final BackupService backupService = new BackupService(sessionFactory, 2);
+
+    /**
+     * Репозиторий для работы с пользователем
+     */
+    private final UserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Репозиторий для работы с категориями
+     */
+    private final CategoryRepository categoryRepository = new HibernateCategoryRepository();
+
+    /**
+     * Репозиторий для работы с операциями
+     */
+    private final OperationRepository operationRepository = new HibernateOperationRepository();
+
+    /**
+     * Репозиторий для работы с бюджетами
+     */
+    private final BudgetRepository budgetRepository = new HibernateBudgetRepository();
+
+    /**
+     * Создает двух пользователей, стандартную и пользовательскую категории, операции и бюджет
+     */
+    @Before
+    public void createData() {
+        transactionManager.produceTransaction(session -> {
+            User user = new User(1L, Money.parse("-350.50"));
+            userRepository.saveUser(session, user);
+            userRepository.saveUser(session, new User(-42L, Money.ZERO));
+            Category taxi, salary;
+            try {
+                taxi = categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Такси \"Быстро\"");
+                salary = categoryRepository.createStandardCategory(session, CategoryType.INCOME, "Зарплата");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            operationRepository.addOperation(session, user, taxi, Money.parse("-350.50"),
+                    LocalDate.of(1969, 12, 31), UUID.randomUUID());
+            List<Operation> operations = new ArrayList<>();
+            for (int i = 0; i < 2_500; i++) {
+                operations.add(new Operation(user, i % 2 == 0 ? salary : taxi,
+                        Money.ofKopecks(i % 2 == 0 ? i : -i), LocalDate.of(2023, 11, 1).plusDays(i % 30)));
+            }
+            operationRepository.addOperations(session, user, operations);
+            budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(1000), Money.ofRubles(500),
+                    YearMonth.of(2023, 11)));
+            session.save(new RecurringOperation(user, taxi, Money.ofRubles(-100), 31, LocalDate.of(2023, 11, 5)));
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager()
+                .clear(session, RecurringOperation.class, Budget.class, Operation.class, Category.class,
+                        User.class));
+    }
+
+    /**
+     * Проверяет, что восстановленные данные совпадают с сохраненными, включая ID строк,
+     * а последовательность ID сдвинута за восстановленные строки
+     */
+    @Test
+    public void restoresSameRows() throws Exception {
+        Map<String, List<String>> rows = selectAllRows();
+        Path file = folder.getRoot().toPath().resolve("bot.backup");
+        List<BackupService.TableSummary> summaries = backupService.backup(file);
+        Assert.assertEquals(List.of(BackupTable.USERS, BackupTable.CATEGORIES, BackupTable.BUDGETS,
+                BackupTable.OPERATIONS, BackupTable.OPERATION_SUMMARIES, BackupTable.RECURRING_OPERATIONS),
+                summaries.stream().map(BackupService.TableSummary::table).toList());
+        Assert.assertEquals(List.of(2L, 2L, 1L, 2_501L, 0L, 1L),
+                summaries.stream().map(BackupService.TableSummary::rows).toList());
+        Assert.assertEquals(summaries, backupService.verify(file));
+        Assert.assertEquals("Во временной папке остался только файл копии",
+                List.of(file), Files.list(folder.getRoot().toPath()).toList());
+
+        clear();
+        Assert.assertEquals(summaries, backupService.restore(file));
+        Assert.assertEquals(rows, selectAllRows());
+
+        long maxId = rows.values().stream()
+                .flatMap(List::stream)
+                .mapToLong(row -> Long.parseLong(row.substring(0, row.indexOf('|'))))
+                .max()
+                .orElseThrow();
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, 1L).orElseThrow();
+            Category taxi = categoryRepository.getCategoryByName(session, user, CategoryType.EXPENSE,
+                    "Такси \"Быстро\"").orElseThrow();
+            operationRepository.addOperation(session, user, taxi, Money.ofRubles(-1));
+            session.flush();
+            // Следующий диапазон ID, который зарезервирует Hibernate, начинается после восстановленных строк
+            long nextValue = ((Number) session.createNativeQuery("call next value for " + IdSequence.NAME)
+                    .getSingleResult()).longValue();
+            Assert.assertTrue(nextValue - IdSequence.ALLOCATION_SIZE >= maxId);
+        });
+    }
+
+    /**
+     * Проверяет, что поврежденная копия не восстанавливается и в БД ничего не записывается
+     */
+    @Test
+    public void corruptedBackupIsNotRestored() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("bot.backup");
+        backupService.backup(file);
+        try (RandomAccessFile backup = new RandomAccessFile(file.toFile(), "rw")) {
+            long position = backup.length() - 100;
+            backup.seek(position);
+            int value = backup.read();
+            backup.seek(position);
+            backup.write(value ^ 0x10);
+        }
+        Assert.assertThrows(BackupFormatException.class, () -> backupService.verify(file));
+        clear();
+        Assert.assertThrows(BackupFormatException.class, () -> backupService.restore(file));
+        Assert.assertTrue(selectAllRows().values().stream().allMatch(List::isEmpty));
+    }
+
+    /**
+     * Проверяет, что копия не восстанавливается поверх существующих данных, а файл другого формата отклоняется
+     */
+    @Test
+    public void restoreRequiresEmptyDatabaseAndBackupFile() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("bot.backup");
+        backupService.backup(file);
+        Assert.assertThrows(IllegalStateException.class, () -> backupService.restore(file));
+
+        Path csv = folder.newFile("operations.csv").toPath();
+        Files.writeString(csv, "Дата;Сумма;Категория\n01.11.2023;-350.50;Такси\n", StandardCharsets.UTF_8);
+        Assert.assertThrows(BackupFormatException.class, () -> backupService.verify(csv));
+    }
+
+    /**
+     * Читает все строки всех таблиц через JDBC
+     *
+     * @return Строки каждой таблицы по возрастанию ID, колонки разделены "|"
+     */
+    private Map<String, List<String>> selectAllRows() {
+        Map<String, List<String>> rows = new LinkedHashMap<>();
+        transactionManager.produceTransaction(session -> session.doWork(connection -> {
+            for (String table : List.of("users", "categories", "budgets", "operations", "operation_summaries",
+                    "recurring_operations")) {
+                List<String> tableRows = new ArrayList<>();
+                try (Statement statement = connection.createStatement();
+                     ResultSet resultSet = statement.executeQuery("select * from " + table + " order by id")) {
+                    ResultSetMetaData metaData = resultSet.getMetaData();
+                    while (resultSet.next()) {
+                        StringBuilder row = new StringBuilder();
+                        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                            row.append(column > 1 ? "|" : "").append(resultSet.getObject(column));
+                        }
+                        tableRows.add(row.toString());
+                    }
+                }
+                rows.put(table, tableRows);
+            }
+        }));
+        return rows;
+    }
+}
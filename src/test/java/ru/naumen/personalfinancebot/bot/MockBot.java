@@ -2,7 +2,16 @@ package ru.naumen.personalfinancebot.bot;
 
 import ru.naumen.personalfinancebot.model.User;
 
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Queue;
 
 /**
@@ -15,6 +24,16 @@ public class MockBot implements Bot {
      */
     private final Queue<MockMessage> messageQueue;
 
+    /**
+     * Содержимое документов, которые можно открыть через бота, по ID
+     */
+    private final Map<String, byte[]> documents = new HashMap<>();
+
+    /**
+     * Очередь отправленных документов
+     */
+    private final Queue<MockDocument> sentDocuments = new LinkedList<>();
+
     public MockBot() {
         this.messageQueue = new LinkedList<>();
     }
@@ -32,10 +51,59 @@ public class MockBot implements Bot {
      */
     @Override
     public void sendMessage(User user, String text) {
-        MockMessage message = new MockMessage(user, text);
+        MockMessage message = new MockMessage(user.getChatId(), user, text);
         messageQueue.add(message);
     }
 
+    /**
+     * Отправка сообщения по ID чата
+     */
+    @Override
+    public void sendMessage(long chatId, String text) {
+        MockMessage message = new MockMessage(chatId, null, text);
+        messageQueue.add(message);
+    }
+
+    /**
+     * Отправка документа: содержимое файла читается сразу, так как файл могут удалить после отправки
+     */
+    @Override
+    public void sendDocument(long chatId, String fileName, Path file) {
+        try {
+            sentDocuments.add(new MockDocument(chatId, fileName, Files.readAllBytes(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Получение и удаление первого отправленного документа
+     */
+    public MockDocument poolDocumentQueue() {
+        return sentDocuments.poll();
+    }
+
+    /**
+     * Открывает документ, добавленный через {@link #addDocument}
+     *
+     * @throws FileNotFoundException если документа нет
+     */
+    @Override
+    public InputStream openDocument(String documentId) throws FileNotFoundException {
+        byte[] content = documents.get(documentId);
+        if (content == null) {
+            throw new FileNotFoundException(documentId);
+        }
+        return new ByteArrayInputStream(content);
+    }
+
+    /**
+     * Добавляет документ, который можно открыть по ID
+     */
+    public void addDocument(String documentId, byte[] content) {
+        documents.put(documentId, content);
+    }
+
     /**
      * Получения размера очереди
      */
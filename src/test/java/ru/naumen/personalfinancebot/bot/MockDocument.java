@@ -0,0 +1,11 @@
+package ru.naumen.personalfinancebot.bot;
+
+/**
+ * Документ, отправленный через моковый бот
+ *
+ * @param chatId   ID чата
+ * @param fileName Имя файла
+ * @param content  Содержимое файла на момент отправки
+ */
+public record MockDocument(long chatId, String fileName, byte[] content) {
+}
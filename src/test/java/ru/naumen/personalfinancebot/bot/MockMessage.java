@@ -4,7 +4,8 @@ import ru.naumen.personalfinancebot.model.User;
 
 /**
  * Представляет из себя класс сообщения для мокового бота.
- * Содержит в себе констуктор, геттеры, а также методы equals, hashCode, toString
+ * Содержит в себе констуктор, геттеры, а также методы equals, hashCode, toString.
+ * Если сообщение отправлено по ID чата, то receiver равен null
  */
-public record MockMessage(User receiver, String text) {
+public record MockMessage(long chatId, User receiver, String text) {
 }
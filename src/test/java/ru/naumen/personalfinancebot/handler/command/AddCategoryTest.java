@@ -12,6 +12,7 @@ import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.model.Category;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.ClearQueryManager;
 import ru.naumen.personalfinancebot.repository.TransactionManager;
@@ -310,7 +311,7 @@ public class AddCategoryTest {
      * У него chatId = number, А баланс = number * 100
      */
     private User createTestUser(Session session, int number) {
-        User user = new User(number, number * 100);
+        User user = new User(number, Money.ofRubles(number * 100));
         userRepository.saveUser(session, user);
         return user;
     }
@@ -13,6 +13,7 @@ import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.model.Category;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.ClearQueryManager;
 import ru.naumen.personalfinancebot.repository.TransactionManager;
@@ -71,7 +72,7 @@ public class CategoryListTest {
         this.botHandler = new FinanceBotHandler(userRepository, operationRepository, categoryRepository, budgetRepository);
         this.transactionManager = new TransactionManager(sessionFactory);
 
-        this.mockUser = new User(1L, 100);
+        this.mockUser = new User(1L, Money.ofRubles(100));
         transactionManager.produceTransaction(session -> this.userRepository.saveUser(session, this.mockUser));
 
     }
@@ -301,7 +302,7 @@ public class CategoryListTest {
                 """;
 
         transactionManager.produceTransaction(session -> {
-            User secondUser = new User(2L, 200.0);
+            User secondUser = new User(2L, Money.ofRubles(200));
             userRepository.saveUser(session, secondUser);
 
             try {
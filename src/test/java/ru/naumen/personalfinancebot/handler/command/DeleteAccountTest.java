@@ -0,0 +1,240 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.OperationSummary;
+import ru.naumen.personalfinancebot.model.RecurringOperation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.service.AccountErasureService;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тесты для команды "/delete_me"
+ */
+public class DeleteAccountTest {
+    /**
+     * ID чата пользователя, данные которого удаляются
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * ID чата другого пользователя
+     */
+    private static final long OTHER_CHAT_ID = 2L;
+
+    /**
+     * Количество операций пользователя
+     */
+    private static final int OPERATIONS = 250;
+
+    /**
+     * Количество операций, удаляемых одним запросом
+     */
+    private static final int CHUNK_SIZE = 100;
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Статистика Hibernate, по которой считаются SQL запросы
+     */
+    private final Statistics statistics;
+
+    /**
+     * Репозиторий для работы с пользователем
+     */
+    private final HibernateUserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Репозиторий для работы с операциями
+     */
+    private final HibernateOperationRepository operationRepository = new HibernateOperationRepository();
+
+    /**
+     * Репозиторий для работы с бюджетами
+     */
+    private final HibernateBudgetRepository budgetRepository = new HibernateBudgetRepository();
+
+    /**
+     * Обработчик команды "/delete_me"
+     */
+    private final CommandHandler deleteAccountHandler;
+
+    public DeleteAccountTest() {
+        SessionFactory sessionFactory = new HibernateConfiguration().getSessionFactory();
+        this.transactionManager = new TransactionManager(sessionFactory);
+        this.statistics = sessionFactory.getStatistics();
+        this.deleteAccountHandler = new DeleteAccountHandler(new AccountErasureService(transactionManager,
+                userRepository, operationRepository, budgetRepository, CHUNK_SIZE));
+    }
+
+    /**
+     * Создает пользователя с категориями, операциями, итогом архивного месяца, бюджетом и регулярной операцией,
+     * и другого пользователя с одной операцией по стандартной категории
+     */
+    @Before
+    public void createUsers() {
+        transactionManager.produceTransaction(session -> {
+            User user = new User(CHAT_ID, Money.ofRubles(100));
+            User otherUser = new User(OTHER_CHAT_ID, Money.ZERO);
+            userRepository.saveUser(session, user);
+            userRepository.saveUser(session, otherUser);
+            HibernateCategoryRepository categoryRepository = new HibernateCategoryRepository();
+            Category taxi;
+            Category salary;
+            try {
+                taxi = categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Такси");
+                categoryRepository.createUserCategory(session, user, CategoryType.INCOME, "Подработка");
+                salary = categoryRepository.createStandardCategory(session, CategoryType.INCOME, "Зарплата");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            List<Operation> operations = new ArrayList<>();
+            for (int i = 0; i < OPERATIONS; i++) {
+                operations.add(new Operation(user, taxi, Money.ofRubles(-1), LocalDate.of(2023, 11, 1)));
+            }
+            operationRepository.addOperations(session, user, operations);
+            operationRepository.addOperation(session, otherUser, salary, Money.ofRubles(5));
+            OperationSummary summary = new OperationSummary(user, taxi, YearMonth.of(2023, 1));
+            summary.add(Money.ofRubles(-10), 2);
+            session.save(summary);
+            budgetRepository.saveBudget(session, new Budget(user, Money.ZERO, Money.ZERO, YearMonth.of(2023, 11)));
+            session.save(new RecurringOperation(user, taxi, Money.ofRubles(-1), 1, LocalDate.of(2023, 11, 1)));
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager().clear(session,
+                RecurringOperation.class, OperationSummary.class, Budget.class, Operation.class, Category.class,
+                User.class));
+    }
+
+    /**
+     * Проверяет, что без подтверждения данные не удаляются
+     */
+    @Test
+    public void confirmationRequired() {
+        for (List<String> args : List.of(List.<String>of(), List.of("да"))) {
+            MockBot bot = handle(args);
+            Assert.assertEquals(1, bot.getMessageQueueSize());
+            Assert.assertTrue(bot.poolMessageQueue().text().endsWith("/delete_me подтверждаю"));
+        }
+        transactionManager.produceTransaction(session -> Assert.assertTrue(
+                userRepository.getUserByTelegramChatId(session, CHAT_ID).isPresent()));
+    }
+
+    /**
+     * Проверяет, что данные пользователя удаляются запросами по пользователю: операции порциями
+     * по {@link #CHUNK_SIZE}, остальные таблицы одним запросом. Количество запросов не зависит
+     * от количества категорий и бюджетов, а от количества операций - только через количество порций
+     */
+    @Test
+    public void eraseUsesBulkStatements() {
+        long statementsBefore = statistics.getPrepareStatementCount();
+        MockBot bot = handle(List.of("подтверждаю"));
+        // 3 порции операций в отдельных транзакциях, затем бюджеты, регулярные операции, операции, итоги,
+        // категории и сам пользователь. Пользователь находится по ID чата через кэш второго уровня
+        Assert.assertEquals(3 + 1 + 5, statistics.getPrepareStatementCount() - statementsBefore);
+
+        Assert.assertEquals("Удалено операций: 100", bot.poolMessageQueue().text());
+        Assert.assertEquals("Удалено операций: 200", bot.poolMessageQueue().text());
+        Assert.assertEquals("Удалено операций: 250", bot.poolMessageQueue().text());
+        Assert.assertEquals("Ваши данные удалены. Удалено операций: 250, бюджетов: 1",
+                bot.poolMessageQueue().text());
+        Assert.assertEquals(0, bot.getMessageQueueSize());
+
+        transactionManager.produceTransaction(session -> {
+            Assert.assertTrue(userRepository.getUserByTelegramChatId(session, CHAT_ID).isEmpty());
+            Assert.assertEquals(1L, session.createQuery("select count(*) from Operation").uniqueResult());
+            Assert.assertEquals(1L, session.createQuery("select count(*) from Category").uniqueResult());
+            Assert.assertEquals(0L, session.createQuery("select count(*) from OperationSummary").uniqueResult());
+            Assert.assertEquals(0L, session.createQuery("select count(*) from Budget").uniqueResult());
+            Assert.assertEquals(0L, session.createQuery("select count(*) from RecurringOperation").uniqueResult());
+            User otherUser = userRepository.getUserByTelegramChatId(session, OTHER_CHAT_ID).orElseThrow();
+            Assert.assertEquals(1, operationRepository.getLastOperations(session, otherUser, 10).size());
+        });
+    }
+
+    /**
+     * Проверяет, что порции операций, удаленные до ошибки, остаются удаленными, пользователь с остальными
+     * данными сохраняется, а повторная команда удаляет оставшиеся данные
+     */
+    @Test
+    public void interruptedEraseIsResumed() {
+        CommandHandler failingHandler = new DeleteAccountHandler(new AccountErasureService(transactionManager,
+                userRepository, new HibernateOperationRepository() {
+            private int chunks;
+
+            @Override
+            public long removeOperations(Session session, User user, int limit) {
+                if (++chunks == 2) {
+                    throw new IllegalStateException("Соединение с БД потеряно");
+                }
+                return super.removeOperations(session, user, limit);
+            }
+        }, budgetRepository, CHUNK_SIZE));
+        MockBot failedBot = new MockBot();
+        Assert.assertThrows(RuntimeException.class, () -> failingHandler.handleCommand(
+                new CommandData(failedBot, new User(CHAT_ID, Money.ZERO), "delete_me", List.of("подтверждаю")),
+                null));
+        Assert.assertEquals("Удалено операций: 100", failedBot.poolMessageQueue().text());
+        Assert.assertEquals(0, failedBot.getMessageQueueSize());
+        transactionManager.produceTransaction(session -> {
+            Assert.assertTrue(userRepository.getUserByTelegramChatId(session, CHAT_ID).isPresent());
+            Assert.assertEquals((long) OPERATIONS - CHUNK_SIZE + 1,
+                    session.createQuery("select count(*) from Operation").uniqueResult());
+            Assert.assertEquals(1L, session.createQuery("select count(*) from Budget").uniqueResult());
+        });
+
+        MockBot bot = handle(List.of("подтверждаю"));
+        Assert.assertEquals("Удалено операций: 100", bot.poolMessageQueue().text());
+        Assert.assertEquals("Удалено операций: 150", bot.poolMessageQueue().text());
+        Assert.assertEquals("Ваши данные удалены. Удалено операций: 150, бюджетов: 1",
+                bot.poolMessageQueue().text());
+        transactionManager.produceTransaction(session -> {
+            Assert.assertTrue(userRepository.getUserByTelegramChatId(session, CHAT_ID).isEmpty());
+            Assert.assertEquals(1L, session.createQuery("select count(*) from Operation").uniqueResult());
+        });
+    }
+
+    /**
+     * Выполняет команду от имени пользователя. Обработчик вызывается без сессии и сам открывает транзакции
+     *
+     * @return Бот с сообщениями, отправленными обработчиком
+     */
+    private MockBot handle(List<String> args) {
+        MockBot bot = new MockBot();
+        deleteAccountHandler.handleCommand(new CommandData(bot, new User(CHAT_ID, Money.ZERO), "delete_me", args),
+                null);
+        return bot;
+    }
+}
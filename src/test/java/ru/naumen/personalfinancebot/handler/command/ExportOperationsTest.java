@@ -0,0 +1,172 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.bot.MockDocument;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Тесты для команды "/export"
+ */
+public class ExportOperationsTest {
+    /**
+     * ID чата тестового пользователя
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * Репозиторий для работы с пользователем
+     */
+    private final UserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Репозиторий для работы с категориями
+     */
+    private final CategoryRepository categoryRepository = new HibernateCategoryRepository();
+
+    /**
+     * Репозиторий для работы с операциями
+     */
+    private final OperationRepository operationRepository = new HibernateOperationRepository();
+
+    /**
+     * Обработчик операций в боте
+     */
+    private final FinanceBotHandler botHandler = new FinanceBotHandler(userRepository, operationRepository,
+            categoryRepository, new HibernateBudgetRepository());
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager =
+            new TransactionManager(new HibernateConfiguration().getSessionFactory());
+
+    /**
+     * Создает пользователя и его операции: расход 350.50 на такси 01.11.2023 и доход 1000 02.11.2023
+     */
+    @Before
+    public void createOperations() {
+        transactionManager.produceTransaction(session -> {
+            User user = new User(CHAT_ID, Money.ZERO);
+            userRepository.saveUser(session, user);
+            userRepository.saveUser(session, new User(2L, Money.ZERO));
+            Category taxi, salary;
+            try {
+                taxi = categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Такси");
+                salary = categoryRepository.createStandardCategory(session, CategoryType.INCOME, "Зарплата");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            operationRepository.addOperation(session, user, taxi, Money.parse("-350.50"),
+                    LocalDate.of(2023, 11, 1), UUID.randomUUID());
+            operationRepository.addOperation(session, user, salary, Money.ofRubles(1000),
+                    LocalDate.of(2023, 11, 2), UUID.randomUUID());
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager()
+                .clear(session, Budget.class, Operation.class, Category.class, User.class));
+    }
+
+    /**
+     * Проверяет выгрузку в CSV: операции идут от последней, а файл можно загрузить обратно через /import
+     */
+    @Test
+    public void exportsCsv() {
+        MockBot bot = handle(CHAT_ID, "export", List.of());
+        MockDocument document = bot.poolDocumentQueue();
+        Assert.assertEquals("operations.csv", document.fileName());
+        String content = new String(document.content(), StandardCharsets.UTF_8);
+        Assert.assertEquals("\uFEFFДата;Сумма;Категория\n"
+                + "02.11.2023;1000.00;Зарплата\n"
+                + "01.11.2023;-350.50;Такси\n", content);
+        Assert.assertEquals("Выгружено операций: 2", bot.poolMessageQueue().text());
+
+        // Второй пользователь не видит категорию "Такси" первого, поэтому её строка пропускается
+        MockBot importBot = new MockBot();
+        importBot.addDocument("export", document.content());
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, 2L).orElseThrow();
+            botHandler.handleCommand(new CommandData(importBot, 2L, () -> user, "import", List.of(), "export"),
+                    session);
+        });
+        Assert.assertTrue(importBot.poolMessageQueue().text()
+                .startsWith("Импортировано операций: 1 на сумму 1 000 руб. Пропущено строк: 1."));
+    }
+
+    /**
+     * Проверяет выгрузку в JSON
+     */
+    @Test
+    public void exportsJson() {
+        MockBot bot = handle(CHAT_ID, "export", List.of("JSON"));
+        MockDocument document = bot.poolDocumentQueue();
+        Assert.assertEquals("operations.json", document.fileName());
+        String content = new String(document.content(), StandardCharsets.UTF_8)
+                .replaceAll("\"id\":\\d+", "\"id\":0");
+        Assert.assertEquals("""
+                [
+                {"id":0,"date":"2023-11-02","amount":1000.00,"category":"Зарплата","type":"INCOME"},
+                {"id":0,"date":"2023-11-01","amount":-350.50,"category":"Такси","type":"EXPENSE"}
+                ]
+                """, content);
+    }
+
+    /**
+     * Проверяет, что без операций файл не отправляется, а неверные аргументы отклоняются
+     */
+    @Test
+    public void emptyHistoryAndIncorrectArguments() {
+        MockBot bot = handle(2L, "export", List.of());
+        Assert.assertNull(bot.poolDocumentQueue());
+        Assert.assertEquals("У вас пока нет операций", bot.poolMessageQueue().text());
+        for (List<String> args : List.of(List.of("xml"), List.of("csv", "json"))) {
+            Assert.assertEquals("Команда принимает не более одного аргумента: [формат csv или json]",
+                    handle(CHAT_ID, "export", args).poolMessageQueue().text());
+        }
+    }
+
+    /**
+     * Выполняет команду пользователя в отдельной транзакции
+     *
+     * @return Бот с ответами
+     */
+    private MockBot handle(long chatId, String command, List<String> args) {
+        MockBot bot = new MockBot();
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, chatId).orElseThrow();
+            botHandler.handleCommand(new CommandData(bot, user, command, args), session);
+        });
+        return bot;
+    }
+}
@@ -0,0 +1,151 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Тесты для команды "/history"
+ */
+public class HistoryTest {
+    /**
+     * ID чата тестового пользователя
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * Префикс подсказки для следующей страницы
+     */
+    private static final String NEXT_PAGE_PREFIX = "Следующая страница: /history ";
+
+    /**
+     * Репозиторий для работы с пользователем
+     */
+    private final UserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Репозиторий для работы с категориями
+     */
+    private final CategoryRepository categoryRepository = new HibernateCategoryRepository();
+
+    /**
+     * Репозиторий для работы с операциями
+     */
+    private final OperationRepository operationRepository = new HibernateOperationRepository();
+
+    /**
+     * Обработчик команды "/history"
+     */
+    private final CommandHandler historyHandler =
+            new HistoryHandler(operationRepository, new OutputNumberFormatService());
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager =
+            new TransactionManager(new HibernateConfiguration().getSessionFactory());
+
+    /**
+     * Создает пользователя и 12 его расходов на такси: расход на i рублей за i-е ноября 2023
+     */
+    @Before
+    public void createOperations() {
+        transactionManager.produceTransaction(session -> {
+            User user = new User(CHAT_ID, Money.ZERO);
+            userRepository.saveUser(session, user);
+            Category taxi;
+            try {
+                taxi = categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Такси");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            for (int day = 1; day <= 12; day++) {
+                operationRepository.addOperation(session, user, taxi, Money.ofRubles(-day),
+                        LocalDate.of(2023, 11, day), UUID.randomUUID());
+            }
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager()
+                .clear(session, Operation.class, Category.class, User.class));
+    }
+
+    /**
+     * Проверяет, что история выводится по 10 операций от последней, а ключ из конца страницы
+     * открывает следующую страницу
+     */
+    @Test
+    public void pagesFollowContinuationToken() {
+        String firstPage = handle(List.of());
+        StringBuilder expected = new StringBuilder("История операций:\n");
+        for (int day = 12; day >= 3; day--) {
+            expected.append("%02d.11.2023 Такси: -%d руб.\n".formatted(day, day));
+        }
+        Assert.assertTrue(firstPage, firstPage.startsWith(expected + NEXT_PAGE_PREFIX));
+
+        String token = firstPage.substring(firstPage.lastIndexOf(' ') + 1);
+        Assert.assertEquals("История операций:\n02.11.2023 Такси: -2 руб.\n01.11.2023 Такси: -1 руб.\n",
+                handle(List.of(token)));
+    }
+
+    /**
+     * Проверяет сообщения о неверном ключе и об отсутствии операций
+     */
+    @Test
+    public void incorrectTokenAndEmptyHistory() {
+        String expected = "Команда принимает не более одного аргумента: "
+                + "[ключ следующей страницы из предыдущего ответа /history]";
+        Assert.assertEquals(expected, handle(List.of("не-ключ")));
+        Assert.assertEquals(expected, handle(List.of("AAAA")));
+        Assert.assertEquals(expected, handle(List.of("a", "b")));
+
+        String firstPage = handle(List.of());
+        String token = firstPage.substring(firstPage.lastIndexOf(' ') + 1);
+        String secondPage = handle(List.of(token));
+        Assert.assertFalse(secondPage.contains(NEXT_PAGE_PREFIX));
+        transactionManager.produceTransaction(session -> new ClearQueryManager().clear(session, Operation.class));
+        Assert.assertEquals("Больше операций нет", handle(List.of(token)));
+        Assert.assertEquals("У вас пока нет операций", handle(List.of()));
+    }
+
+    /**
+     * Выполняет команду тестового пользователя в отдельной транзакции
+     *
+     * @return Текст ответа
+     */
+    private String handle(List<String> args) {
+        MockBot bot = new MockBot();
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            historyHandler.handleCommand(new CommandData(bot, user, "history", args), session);
+        });
+        return bot.poolMessageQueue().text();
+    }
+}
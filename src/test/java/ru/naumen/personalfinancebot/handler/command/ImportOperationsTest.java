@@ -0,0 +1,224 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.DailyTotalsIndex;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.RecentOperationsBuffer;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Тесты для команды "/import"
+ */
+public class ImportOperationsTest {
+    /**
+     * ID чата тестового пользователя
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * ID документа с выпиской
+     */
+    private static final String DOCUMENT_ID = "statement";
+
+    /**
+     * Репозиторий для работы с пользователем
+     */
+    private final UserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Репозиторий для работы с категориями
+     */
+    private final CategoryRepository categoryRepository = new HibernateCategoryRepository();
+
+    /**
+     * Репозиторий для работы с операциями, с индексом сумм по дням и буферами последних операций
+     */
+    private final OperationRepository operationRepository = new HibernateOperationRepository(
+            new DailyTotalsIndex(Duration.ofMinutes(1)), new RecentOperationsBuffer(3, Duration.ofMinutes(1)));
+
+    /**
+     * Обработчик операций в боте
+     */
+    private final FinanceBotHandler botHandler = new FinanceBotHandler(userRepository, operationRepository,
+            categoryRepository, new HibernateBudgetRepository());
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager =
+            new TransactionManager(new HibernateConfiguration().getSessionFactory());
+
+    /**
+     * Создает пользователя с балансом 1000, его категорию расходов "Такси" и стандартную категорию
+     * доходов "Зарплата"
+     */
+    @Before
+    public void createCategories() {
+        transactionManager.produceTransaction(session -> {
+            User user = new User(CHAT_ID, Money.ofRubles(1000));
+            userRepository.saveUser(session, user);
+            try {
+                categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Такси");
+                categoryRepository.createStandardCategory(session, CategoryType.INCOME, "Зарплата");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager()
+                .clear(session, Budget.class, Operation.class, Category.class, User.class));
+    }
+
+    /**
+     * Проверяет, что импорт пропускает заголовок и неверные строки, добавляет остальные операции,
+     * один раз изменяет баланс и сбрасывает последние операции и суммы по дням
+     */
+    @Test
+    public void importsValidRows() {
+        Assert.assertEquals("У вас пока нет операций", handle("last", List.of(), null).get(0));
+        String statement = """
+                \uFEFFДата;Сумма;Категория
+                01.11.2023;-350,50;такси
+                2023-11-02;"1 000";Зарплата
+                03.11.2023;-10;Кафе
+
+                04.11.2023;0;Такси
+                05.11.2023;-5
+                31.11.2023;-5;Такси
+                """;
+        List<String> replies = handle("import", List.of(), statement);
+        Assert.assertEquals(List.of("""
+                Импортировано операций: 2 на сумму 649.5 руб. Пропущено строк: 4. Ваш баланс: 1 649.5 руб.
+                Строка 4: категория расходов "Кафе" не найдена
+                Строка 6: сумма операции не может быть нулевой
+                Строка 7: ожидается 3 колонки: дата, сумма, категория
+                Строка 8: неверная дата "31.11.2023\""""), replies);
+
+        Assert.assertEquals("Ваши последние операции:\n"
+                + "02.11.2023 Зарплата: 1 000 руб.\n"
+                + "01.11.2023 Такси: -350.5 руб.\n", handle("last", List.of(), null).get(0));
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            Assert.assertEquals(Money.parse("1649.50"), user.getBalance());
+            Assert.assertEquals(Map.of("Такси", Money.parse("-350.50")), operationRepository.getOperationsSumByType(
+                    session, user, LocalDate.of(2023, 11, 1), LocalDate.of(2023, 11, 30), CategoryType.EXPENSE));
+        });
+    }
+
+    /**
+     * Проверяет, что поля можно разделять запятыми и заключать в кавычки
+     */
+    @Test
+    public void importsCommaSeparatedRows() {
+        String statement = "01.11.2023,\"-1,5\",Такси\n02.11.2023,-2,\"Такси\"\n";
+        Assert.assertEquals(List.of("Импортировано операций: 2 на сумму -3.5 руб. Пропущено строк: 0. "
+                + "Ваш баланс: 996.5 руб."), handle("import", List.of(), statement));
+    }
+
+    /**
+     * Проверяет, что большая выписка импортируется пачками с сообщениями о ходе импорта
+     */
+    @Test
+    public void importsLargeStatementWithProgress() {
+        int rows = 25_000;
+        StringBuilder statement = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            statement.append("%02d.11.2023;-1;Такси\n".formatted(1 + i % 30));
+        }
+        List<String> replies = handle("import", List.of(), statement.toString());
+        Assert.assertEquals(List.of(
+                "Обработано строк: 10000",
+                "Обработано строк: 20000",
+                "Импортировано операций: 25000 на сумму -25 000 руб. Пропущено строк: 0. "
+                        + "Ваш баланс: -24 000 руб."), replies);
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(-rows)), operationRepository.getOperationsSumByType(
+                    session, user, 11, 2023, CategoryType.EXPENSE));
+        });
+    }
+
+    /**
+     * Проверяет, что без файла или с аргументами команда выводит подсказку
+     */
+    @Test
+    public void importWithoutDocumentOrWithArguments() {
+        Assert.assertEquals("""
+                Пришлите файл выписки в формате CSV с подписью /import.
+                В каждой строке файла должны быть дата (DD.MM.YYYY), сумма (расход - со знаком минус) и категория, \
+                разделенные ";" или ",", например: 01.11.2023;-350,50;Такси""", handle("import", List.of(), null).get(0));
+        Assert.assertEquals("Команда /import не принимает аргументы", handle("import", List.of("1"), "").get(0));
+    }
+
+    /**
+     * Проверяет, что если файл не удалось прочитать, операции не добавляются и баланс не меняется
+     */
+    @Test
+    public void unreadableDocumentRollsBack() {
+        MockBot bot = new MockBot();
+        Assert.assertThrows(RuntimeException.class, () -> transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            botHandler.handleCommand(new CommandData(bot, CHAT_ID, () -> user, "import", List.of(), DOCUMENT_ID),
+                    session);
+        }));
+        Assert.assertEquals("Не удалось прочитать файл выписки. Попробуйте еще раз", bot.poolMessageQueue().text());
+        transactionManager.produceTransaction(session -> Assert.assertEquals(Money.ofRubles(1000),
+                userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow().getBalance()));
+    }
+
+    /**
+     * Выполняет команду тестового пользователя в отдельной транзакции
+     *
+     * @param document Содержимое документа, присланного с командой, или null
+     * @return Тексты ответов
+     */
+    private List<String> handle(String command, List<String> args, String document) {
+        MockBot bot = new MockBot();
+        if (document != null) {
+            bot.addDocument(DOCUMENT_ID, document.getBytes(StandardCharsets.UTF_8));
+        }
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            botHandler.handleCommand(new CommandData(bot, CHAT_ID, () -> user, command, args,
+                    document != null ? DOCUMENT_ID : null), session);
+        });
+        List<String> replies = new ArrayList<>();
+        while (bot.getMessageQueueSize() > 0) {
+            replies.add(bot.poolMessageQueue().text());
+        }
+        return replies;
+    }
+}
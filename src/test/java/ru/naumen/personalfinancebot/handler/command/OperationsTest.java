@@ -9,6 +9,7 @@ import ru.naumen.personalfinancebot.bot.MockMessage;
 import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
 import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.TransactionManager;
 import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
@@ -29,7 +30,7 @@ public class OperationsTest {
     /**
      * Статическое поле для начального баланса
      */
-    private static final double BALANCE = 100_000;
+    private static final Money BALANCE = Money.ofRubles(100_000);
 
     /**
      * Репозиторий для работы с пользователем
@@ -85,7 +86,7 @@ public class OperationsTest {
             this.botHandler.handleCommand(commandAddIncome, session);
             MockMessage message = bot.poolMessageQueue();
 
-            Assert.assertEquals(102_000, user.getBalance(), 1e-10);
+            Assert.assertEquals(Money.ofRubles(102_000), user.getBalance());
             Assert.assertEquals(
                     "Вы успешно добавили доход по источнику: Зарплата",
                     message.text()
@@ -121,7 +122,7 @@ public class OperationsTest {
             CommandData commandDataIncome = new CommandData(bot, user, "add_income", argumentsList.get(0));
             this.botHandler.handleCommand(commandDataIncome, session);
             MockMessage messageIncomeOperation = bot.poolMessageQueue();
-            Assert.assertEquals(100_100, user.getBalance(), 1e-10);
+            Assert.assertEquals(Money.ofRubles(100_100), user.getBalance());
             Assert.assertEquals(
                     "Вы успешно добавили доход по источнику: Заработная плата", messageIncomeOperation.text()
             );
@@ -129,7 +130,7 @@ public class OperationsTest {
             CommandData commandDataExpense = new CommandData(bot, user, "add_expense", argumentsList.get(1));
             this.botHandler.handleCommand(commandDataExpense, session);
             MockMessage messageExpenseOperation = bot.poolMessageQueue();
-            Assert.assertEquals(99_900, user.getBalance(), 1e-10);
+            Assert.assertEquals(Money.ofRubles(99_900), user.getBalance());
             Assert.assertEquals(
                     "Добавлен расход по категории: Жилищно коммунальные услуги", messageExpenseOperation.text()
             );
@@ -154,7 +155,7 @@ public class OperationsTest {
             this.botHandler.handleCommand(commandAddIncome, session);
             MockMessage message = bot.poolMessageQueue();
 
-            Assert.assertEquals(98_000, user.getBalance(), 1e-10);
+            Assert.assertEquals(Money.ofRubles(98_000), user.getBalance());
             Assert.assertEquals("Добавлен расход по категории: Такси", message.text());
         });
     }
@@ -172,7 +173,7 @@ public class OperationsTest {
             this.botHandler.handleCommand(commandAddIncome, session);
             MockMessage message = bot.poolMessageQueue();
 
-            Assert.assertEquals(100_000, user.getBalance(), 1e-10);
+            Assert.assertEquals(Money.ofRubles(100_000), user.getBalance());
             Assert.assertEquals(
                     "Указанная категория не числится. Используйте команду /add_[income/expense]_category чтобы добавить её",
                     message.text()
@@ -193,7 +194,7 @@ public class OperationsTest {
             this.botHandler.handleCommand(commandAddIncome, session);
             MockMessage message = bot.poolMessageQueue();
 
-            Assert.assertEquals(100_000, user.getBalance(), 1e-10);
+            Assert.assertEquals(Money.ofRubles(100_000), user.getBalance());
             Assert.assertEquals(
                     "Указанная категория не числится. Используйте команду /add_[income/expense]_category чтобы добавить её",
                     message.text()
@@ -214,7 +215,7 @@ public class OperationsTest {
             String expected = "Данная команда принимает 2 аргумента: [payment - сумма] [категория расхода/дохода]";
             testPattern(session, "add_income", bot, expected, argumentsList, user);
             testPattern(session, "add_expense", bot, expected, argumentsList, user);
-            Assert.assertEquals(100_000, user.getBalance(), 1e-10);
+            Assert.assertEquals(Money.ofRubles(100_000), user.getBalance());
         });
     }
 
@@ -234,7 +235,7 @@ public class OperationsTest {
             String expected = "Сумма операции указана в неверном формате. Передайте корректное положительно число";
             testPattern(session, "add_income", bot, expected, argumentsList, user);
             testPattern(session, "add_expense", bot, expected, argumentsList, user);
-            Assert.assertEquals(100_000, user.getBalance(), 1e-10);
+            Assert.assertEquals(Money.ofRubles(100_000), user.getBalance());
         });
     }
 
@@ -253,7 +254,7 @@ public class OperationsTest {
             String expected = "Сумма операции указана в неверном формате. Передайте корректное положительно число";
             testPattern(session, "add_income", bot, expected, argumentsList, user);
             testPattern(session, "add_expense", bot, expected, argumentsList, user);
-            Assert.assertEquals(100_000, user.getBalance(), 1e-10);
+            Assert.assertEquals(Money.ofRubles(100_000), user.getBalance());
         });
     }
 
@@ -0,0 +1,209 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.DailyTotalsIndex;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.RecentOperationsBuffer;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Тесты для команд "/last" и "/undo"
+ */
+public class RecentOperationsTest {
+    /**
+     * ID чата тестового пользователя
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * Сегодняшняя дата в формате сообщений
+     */
+    private static final String TODAY = DateTimeFormatter.ofPattern("dd.MM.yyyy").format(LocalDate.now());
+
+    /**
+     * Репозиторий для работы с пользователем
+     */
+    private final UserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Репозиторий для работы с категориями
+     */
+    private final CategoryRepository categoryRepository = new HibernateCategoryRepository();
+
+    /**
+     * Репозиторий для работы с операциями, с индексом сумм по дням и буферами последних операций
+     */
+    private final OperationRepository operationRepository = new HibernateOperationRepository(
+            new DailyTotalsIndex(Duration.ofMinutes(1)), new RecentOperationsBuffer(3, Duration.ofMinutes(1)));
+
+    /**
+     * Обработчик операций в боте
+     */
+    private final FinanceBotHandler botHandler = new FinanceBotHandler(userRepository, operationRepository,
+            categoryRepository, new HibernateBudgetRepository());
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager =
+            new TransactionManager(new HibernateConfiguration().getSessionFactory());
+
+    /**
+     * Создает пользователя с балансом 1000 и три его расхода: 100 на такси, 200 на кофе, 300 на такси
+     */
+    @Before
+    public void createOperations() {
+        transactionManager.produceTransaction(session -> {
+            User user = new User(CHAT_ID, Money.ofRubles(1000));
+            userRepository.saveUser(session, user);
+            Category taxi, coffee;
+            try {
+                taxi = categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Такси");
+                coffee = categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Кофе");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            operationRepository.addOperation(session, user, taxi, Money.ofRubles(-100));
+            operationRepository.addOperation(session, user, coffee, Money.ofRubles(-200));
+            operationRepository.addOperation(session, user, taxi, Money.ofRubles(-300));
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager()
+                .clear(session, Budget.class, Operation.class, Category.class, User.class));
+    }
+
+    /**
+     * Проверяет, что /last выводит указанное количество последних операций, начиная с последней,
+     * а без аргумента - все, если их меньше пяти
+     */
+    @Test
+    public void lastShowsNewestOperationsFirst() {
+        Assert.assertEquals("Ваши последние операции:\n"
+                + TODAY + " Такси: -300 руб.\n"
+                + TODAY + " Кофе: -200 руб.\n", handle("last", List.of("2")));
+        Assert.assertEquals("Ваши последние операции:\n"
+                + TODAY + " Такси: -300 руб.\n"
+                + TODAY + " Кофе: -200 руб.\n"
+                + TODAY + " Такси: -100 руб.\n", handle("last", List.of()));
+    }
+
+    /**
+     * Проверяет, что /last сообщает о неверных аргументах
+     */
+    @Test
+    public void lastWithIncorrectArguments() {
+        String expected = "Команда принимает не более одного аргумента: [количество операций от 1 до 10]";
+        for (List<String> args : List.of(List.of("0"), List.of("11"), List.of("два"), List.of("1", "2"))) {
+            Assert.assertEquals(expected, handle("last", args));
+        }
+    }
+
+    /**
+     * Проверяет, что /undo удаляет последнюю операцию, возвращает её сумму на баланс
+     * и убирает её из последних операций и отчетов
+     */
+    @Test
+    public void undoRemovesLastOperation() {
+        Assert.assertEquals("Отменена операция от " + TODAY + " по категории Такси на сумму -300 руб. "
+                + "Ваш баланс: 1 300 руб.", handle("undo", List.of()));
+        Assert.assertEquals("Отменена операция от " + TODAY + " по категории Кофе на сумму -200 руб. "
+                + "Ваш баланс: 1 500 руб.", handle("undo", List.of()));
+        Assert.assertEquals("Ваши последние операции:\n"
+                + TODAY + " Такси: -100 руб.\n", handle("last", List.of("3")));
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            Assert.assertEquals(Money.ofRubles(1500), user.getBalance());
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(-100)), operationRepository.getOperationsSumByType(
+                    session, user, LocalDate.now(), LocalDate.now(), CategoryType.EXPENSE));
+        });
+
+        handle("undo", List.of());
+        Assert.assertEquals("У вас нет операций, которые можно отменить", handle("undo", List.of()));
+        Assert.assertEquals("У вас пока нет операций", handle("last", List.of()));
+    }
+
+    /**
+     * Проверяет, что после отмены всех операций категории отчет за диапазон дней по суммам в памяти
+     * не выводит эту категорию с нулевой суммой, как и отчет по запросу к БД
+     */
+    @Test
+    public void reportAfterUndoOmitsEmptyCategory() {
+        List<String> range = List.of("01." + TODAY.substring(3), TODAY);
+        String header = "Подготовил отчёт по вашим расходам с %s по %s:\n".formatted(range.get(0), range.get(1));
+        Assert.assertEquals(header + "Такси: -400 руб.\nКофе: -200 руб.\n", handle("report_expense", range));
+        handle("undo", List.of());
+        handle("undo", List.of());
+        Assert.assertEquals(header + "Такси: -100 руб.\n", handle("report_expense", range));
+        handle("undo", List.of());
+        Assert.assertEquals("К сожалению, данные по затратам отсутствуют", handle("report_expense", range));
+    }
+
+    /**
+     * Проверяет, что отмена, транзакция которой откатилась, не меняет последние операции
+     */
+    @Test
+    public void rolledBackUndoKeepsOperation() {
+        handle("last", List.of("3"));
+        Assert.assertThrows(RuntimeException.class, () -> transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            botHandler.handleCommand(new CommandData(new MockBot(), user, "undo", List.of()), session);
+            throw new IllegalStateException("Откат транзакции");
+        }));
+        Assert.assertEquals("Ваши последние операции:\n"
+                + TODAY + " Такси: -300 руб.\n", handle("last", List.of("1")));
+    }
+
+    /**
+     * Проверяет, что /undo не принимает аргументы
+     */
+    @Test
+    public void undoWithArguments() {
+        Assert.assertEquals("Команда /undo не принимает аргументы", handle("undo", List.of("1")));
+    }
+
+    /**
+     * Выполняет команду тестового пользователя в отдельной транзакции
+     *
+     * @return Текст ответа
+     */
+    private String handle(String command, List<String> args) {
+        MockBot bot = new MockBot();
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            botHandler.handleCommand(new CommandData(bot, user, command, args), session);
+        });
+        return bot.poolMessageQueue().text();
+    }
+}
@@ -0,0 +1,154 @@
+package ru.naumen.personalfinancebot.handler.command;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.RecurringOperation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.recurring.HibernateRecurringOperationRepository;
+import ru.naumen.personalfinancebot.repository.recurring.RecurringOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Тесты для команд /add_recurring_[income|expense], /recurring и /remove_recurring
+ */
+public class RecurringOperationsTest {
+    /**
+     * ID чата тестового пользователя
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * Формат даты следующей операции в сообщениях
+     */
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    /**
+     * Репозиторий для работы с пользователем
+     */
+    private final UserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Репозиторий для работы с категориями
+     */
+    private final CategoryRepository categoryRepository = new HibernateCategoryRepository();
+
+    /**
+     * Репозиторий для работы с регулярными операциями
+     */
+    private final RecurringOperationRepository recurringOperationRepository =
+            new HibernateRecurringOperationRepository();
+
+    /**
+     * Обработчик всех команд бота
+     */
+    private final FinanceBotHandler botHandler = new FinanceBotHandler(userRepository,
+            new HibernateOperationRepository(), categoryRepository, new HibernateBudgetRepository(),
+            recurringOperationRepository);
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager =
+            new TransactionManager(new HibernateConfiguration().getSessionFactory());
+
+    /**
+     * Создает пользователя с категорией расходов "Аренда"
+     */
+    @Before
+    public void createUser() {
+        transactionManager.produceTransaction(session -> {
+            User user = new User(CHAT_ID, Money.ZERO);
+            userRepository.saveUser(session, user);
+            try {
+                categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Аренда");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager()
+                .clear(session, RecurringOperation.class, Category.class, User.class));
+    }
+
+    /**
+     * Проверяет добавление регулярного расхода, его вывод в списке и удаление по номеру из списка
+     */
+    @Test
+    public void addListAndRemove() {
+        String nextDue = DAY_FORMATTER.format(new RecurringOperation(null, null, Money.ZERO, 5, LocalDate.now())
+                .getNextDue());
+        Assert.assertEquals("Добавлен регулярный расход по категории Аренда на сумму 300 руб. каждое 5 число. "
+                + "Первая операция будет добавлена " + nextDue, handle("add_recurring_expense", "5", "300", "аренда"));
+
+        long[] ids = new long[1];
+        transactionManager.produceTransaction(session -> ids[0] = recurringOperationRepository
+                .getRecurringOperations(session, userRepository.getUserByTelegramChatId(session, CHAT_ID)
+                        .orElseThrow()).get(0).getId());
+        long id = ids[0];
+        Assert.assertEquals("""
+                Ваши регулярные операции:
+                %d. Аренда: -300 руб. каждое 5 число, следующая %s
+                Чтобы удалить регулярную операцию, введите /remove_recurring [номер]""".formatted(id, nextDue),
+                handle("recurring"));
+
+        Assert.assertEquals("У вас нет регулярной операции с таким номером",
+                handle("remove_recurring", String.valueOf(id + 1)));
+        Assert.assertEquals("Регулярная операция удалена", handle("remove_recurring", String.valueOf(id)));
+        Assert.assertTrue(handle("recurring").startsWith("У вас нет регулярных операций"));
+    }
+
+    /**
+     * Проверяет, что правило не добавляется при неверном дне месяца или несуществующей категории
+     */
+    @Test
+    public void incorrectArguments() {
+        for (String day : List.of("0", "32", "первое")) {
+            Assert.assertTrue(handle("add_recurring_expense", day, "300", "Аренда")
+                    .startsWith("Данная команда принимает 3 аргумента"));
+        }
+        Assert.assertTrue(handle("add_recurring_income", "5", "300", "Аренда")
+                .startsWith("Указанная категория не числится"));
+        Assert.assertTrue(handle("recurring").startsWith("У вас нет регулярных операций"));
+    }
+
+    /**
+     * Выполняет команду от имени тестового пользователя в отдельной транзакции
+     *
+     * @return Текст единственного сообщения бота
+     */
+    private String handle(String command, String... args) {
+        MockBot bot = new MockBot();
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            botHandler.handleCommand(new CommandData(bot, user, command, List.of(args)), session);
+        });
+        Assert.assertEquals(1, bot.getMessageQueueSize());
+        return bot.poolMessageQueue().text();
+    }
+}
@@ -2,6 +2,7 @@ package ru.naumen.personalfinancebot.handler.command;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -13,6 +14,10 @@ import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.model.Category;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.OperationSummary;
+import ru.naumen.personalfinancebot.model.RecurringOperation;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.ClearQueryManager;
 import ru.naumen.personalfinancebot.repository.TransactionManager;
@@ -23,7 +28,11 @@ import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepos
 import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
 import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -51,11 +60,21 @@ public class RemoveCategoryTest {
      */
     private final HibernateCategoryRepository categoryRepository;
 
+    /**
+     * Хранилище операций
+     */
+    private final OperationRepository operationRepository;
+
     /**
      * Обработчик команд
      */
     private final FinanceBotHandler botHandler;
 
+    /**
+     * Статистика Hibernate, по которой проверяется, что операции не загружаются при удалении категории
+     */
+    private final Statistics statistics;
+
     /**
      * Менеджер транзакций
      */
@@ -75,9 +94,10 @@ public class RemoveCategoryTest {
         SessionFactory sessionFactory = new HibernateConfiguration().getSessionFactory();
         userRepository = new HibernateUserRepository();
         categoryRepository = new HibernateCategoryRepository();
-        OperationRepository operationRepository = new HibernateOperationRepository();
+        operationRepository = new HibernateOperationRepository();
         BudgetRepository budgetRepository = new HibernateBudgetRepository();
         transactionManager = new TransactionManager(sessionFactory);
+        statistics = sessionFactory.getStatistics();
         this.botHandler = new FinanceBotHandler(
                 userRepository,
                 operationRepository,
@@ -101,7 +121,8 @@ public class RemoveCategoryTest {
     @After
     public void afterEachTest() {
         transactionManager.produceTransaction(session -> {
-            new ClearQueryManager().clear(session, Category.class, User.class);
+            new ClearQueryManager().clear(session, RecurringOperation.class, OperationSummary.class,
+                    Operation.class, Category.class, User.class);
         });
     }
 
@@ -279,13 +300,113 @@ public class RemoveCategoryTest {
 
     }
 
+    /**
+     * Тестирует, что операции и итоги архивных месяцев удаленной категории переносятся в стандартную
+     * категорию "Другое" без загрузки операций, а итог за месяц, в котором у "Другое" уже есть итог,
+     * добавляется к нему
+     */
+    @Test
+    public void removeCategoryReassignsOperations() {
+        transactionManager.produceTransaction(session -> {
+            Category other = createCategory(session, null, "Другое");
+            Category taxi = createCategory(session, this.mockUser, "Такси");
+            addTaxiOperations(session, taxi);
+            saveSummary(session, other, YearMonth.of(2023, 1), -5, 1);
+        });
+        long loadsBefore = statistics.getEntityStatistics(Operation.class.getName()).getLoadCount();
+
+        transactionManager.produceTransaction(session -> this.botHandler.handleCommand(new CommandData(
+                this.mockBot, this.mockUser, REMOVE_EXPENSE_COMMAND, List.of("Такси")), session));
+
+        Assert.assertEquals(loadsBefore, statistics.getEntityStatistics(Operation.class.getName()).getLoadCount());
+        Assert.assertEquals("Категория расходов 'Такси' успешно удалена\n"
+                + "Операции категории (3) перенесены в категорию 'Другое'", this.mockBot.poolMessageQueue().text());
+        transactionManager.produceTransaction(session -> {
+            Assert.assertEquals(Map.of("Другое", Money.ofRubles(-6)), operationRepository
+                    .getOperationsSumByType(session, this.mockUser, 11, 2023, CategoryType.EXPENSE));
+            Assert.assertEquals(Map.of("Другое", Money.ofRubles(-15)), operationRepository
+                    .getOperationsSumByType(session, this.mockUser, 1, 2023, CategoryType.EXPENSE));
+            Assert.assertEquals(Map.of("Другое", Money.ofRubles(-7)), operationRepository
+                    .getOperationsSumByType(session, this.mockUser, 2, 2023, CategoryType.EXPENSE));
+            List<OperationSummary> summaries = session.createQuery("from OperationSummary summary "
+                    + "order by summary.monthStart", OperationSummary.class).getResultList();
+            Assert.assertEquals(List.of(3L, 1L), summaries.stream().map(OperationSummary::getOperationCount).toList());
+        });
+    }
+
+    /**
+     * Тестирует, что без стандартной категории "Другое" операции удаленной категории удаляются
+     * и их сумма вместе с итогами архивных месяцев вычитается из баланса,
+     * а её регулярные операции удаляются в любом случае
+     */
+    @Test
+    public void removeCategoryRemovesOperationsWithoutOther() {
+        transactionManager.produceTransaction(session -> {
+            Category taxi = createCategory(session, this.mockUser, "Такси");
+            addTaxiOperations(session, taxi);
+            session.save(new RecurringOperation(this.mockUser, taxi, Money.ofRubles(-1), 1, LocalDate.now()));
+        });
+
+        // Пользователь загружается в транзакции команды, как при работе бота, чтобы изменение баланса сохранилось
+        transactionManager.produceTransaction(session -> this.botHandler.handleCommand(new CommandData(
+                this.mockBot, userRepository.getUserByTelegramChatId(session, 1L).orElseThrow(),
+                REMOVE_EXPENSE_COMMAND, List.of("Такси")), session));
+
+        Assert.assertEquals("Категория расходов 'Такси' успешно удалена\nОперации категории (3) удалены",
+                this.mockBot.poolMessageQueue().text());
+        transactionManager.produceTransaction(session -> {
+            Assert.assertNull(operationRepository.getOperationsSumByType(session, this.mockUser, 11, 2023,
+                    CategoryType.EXPENSE));
+            Assert.assertEquals(0L, session.createQuery("select count(*) from OperationSummary").uniqueResult());
+            Assert.assertEquals(0L, session.createQuery("select count(*) from RecurringOperation").uniqueResult());
+            Assert.assertEquals(Money.ofRubles(123), userRepository.getUserByTelegramChatId(session, 1L)
+                    .orElseThrow().getBalance());
+        });
+    }
+
+    /**
+     * Создает категорию расходов пользователя или стандартную категорию при user == null
+     */
+    private Category createCategory(Session session, User user, String name) {
+        try {
+            return user == null
+                    ? categoryRepository.createStandardCategory(session, CategoryType.EXPENSE, name)
+                    : categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, name);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Добавляет пользователю 3 расхода по категории за ноябрь 2023 на 1, 2 и 3 рубля
+     * и итоги архивных месяцев по ней за январь (10 рублей, 2 операции) и февраль 2023 (7 рублей, 1 операция)
+     */
+    private void addTaxiOperations(Session session, Category taxi) {
+        List<Operation> operations = new ArrayList<>();
+        for (int day = 1; day <= 3; day++) {
+            operations.add(new Operation(this.mockUser, taxi, Money.ofRubles(-day), LocalDate.of(2023, 11, day)));
+        }
+        operationRepository.addOperations(session, this.mockUser, operations);
+        saveSummary(session, taxi, YearMonth.of(2023, 1), -10, 2);
+        saveSummary(session, taxi, YearMonth.of(2023, 2), -7, 1);
+    }
+
+    /**
+     * Сохраняет итог архивного месяца пользователя по категории
+     */
+    private void saveSummary(Session session, Category category, YearMonth month, long rubles, long count) {
+        OperationSummary summary = new OperationSummary(this.mockUser, category, month);
+        summary.add(Money.ofRubles(rubles), count);
+        session.save(summary);
+    }
+
     /**
      * Создает пользователя для тестов
      * У него chatId = number, А баланс = 100 * number
      */
     private User createTestUser(Session session, int number) {
         assert number > 0;
-        User user = new User(number, 100 * number);
+        User user = new User(number, Money.ofRubles(100 * number));
         userRepository.saveUser(session, user);
         return user;
     }
@@ -7,6 +7,7 @@ import ru.naumen.personalfinancebot.bot.MockMessage;
 import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
 import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.TransactionManager;
 import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
@@ -127,16 +128,16 @@ public class SetBalanceTest {
                 "100.99",
                 "5000.99"
         );
-        List<Double> balances = List.of(
-                100d,
-                0d,
-                0d,
-                0d,
-                0d,
-                (double) Integer.MAX_VALUE,
-                100.5,
-                100.99,
-                5000.99
+        List<Money> balances = List.of(
+                Money.ofRubles(100),
+                Money.ZERO,
+                Money.ZERO,
+                Money.ZERO,
+                Money.ZERO,
+                Money.ofRubles(Integer.MAX_VALUE),
+                Money.parse("100.5"),
+                Money.parse("100.99"),
+                Money.parse("5000.99")
         );
         List<String> expects = List.of(
                 "Ваш баланс изменен. Теперь он составляет 100",
@@ -152,7 +153,7 @@ public class SetBalanceTest {
         for (int i = 0; i < args.size(); i++) {
             String arg = args.get(i);
             String expect = expects.get(i);
-            double balance = balances.get(i);
+            Money balance = balances.get(i);
             assetCorrectBalanceCommand(arg, balance, expect);
         }
     }
@@ -160,9 +161,9 @@ public class SetBalanceTest {
     /**
      * Проводит тест с позитивным исходом
      */
-    private void assetCorrectBalanceCommand(String argument, double expectedBalance, String expectedMessage) {
+    private void assetCorrectBalanceCommand(String argument, Money expectedBalance, String expectedMessage) {
         MockBot mockBot = new MockBot();
-        User user = new User(123, 12345);
+        User user = new User(123, Money.ofRubles(12345));
         transactionManager.produceTransaction(session -> {
             userRepository.saveUser(session, user);
             List<String> args = List.of(argument);
@@ -173,7 +174,7 @@ public class SetBalanceTest {
             MockMessage message = mockBot.poolMessageQueue();
             Assert.assertEquals(user, message.receiver());
             Assert.assertEquals(expectedMessage, message.text());
-            Assert.assertEquals(user.getBalance(), expectedBalance, 1e-15);
+            Assert.assertEquals(expectedBalance, user.getBalance());
 
             userRepository.removeUserById(session, user.getId());
         });
@@ -185,7 +186,7 @@ public class SetBalanceTest {
     private void assertIncorrectBalanceCommand(List<String> args) {
         transactionManager.produceTransaction(session -> {
             MockBot mockBot = new MockBot();
-            User user = new User(123, 12345);
+            User user = new User(123, Money.ofRubles(12345));
             userRepository.saveUser(session, user);
             CommandData commandData = new CommandData(mockBot, user, "set_balance", args);
             this.botHandler.handleCommand(commandData, session);
@@ -194,7 +195,7 @@ public class SetBalanceTest {
             MockMessage message = mockBot.poolMessageQueue();
             Assert.assertEquals(user, message.receiver());
             Assert.assertEquals("Команда введена неверно! Введите /set_balance <новый баланс>", message.text());
-            Assert.assertEquals(user.getBalance(), 12345, 1e-15);
+            Assert.assertEquals(Money.ofRubles(12345), user.getBalance());
 
             userRepository.removeUserById(session, user.getId());
         });
@@ -0,0 +1,221 @@
+package ru.naumen.personalfinancebot.handler.command.budget;
+
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.DailyTotalsIndex;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.service.OutputMonthFormatService;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тесты для уведомлений о достижении порогов бюджета при добавлении расходов
+ */
+public class BudgetAlertTest {
+    /**
+     * ID чата тестового пользователя
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Фабрика сессий, общая для менеджеров транзакций теста
+     */
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Хранилище пользователей
+     */
+    private final HibernateUserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Хранилище бюджетов
+     */
+    private final HibernateBudgetRepository budgetRepository = new HibernateBudgetRepository();
+
+    /**
+     * Обработчик всех команд бота. Суммы по дням хранятся в памяти, как при запуске бота
+     */
+    private final FinanceBotHandler botHandler;
+
+    /**
+     * Сервис для форматирования названия месяца
+     */
+    private final OutputMonthFormatService monthFormatter = new OutputMonthFormatService();
+
+    public BudgetAlertTest() {
+        this.sessionFactory = new HibernateConfiguration().getSessionFactory();
+        this.transactionManager = new TransactionManager(sessionFactory);
+        this.botHandler = new FinanceBotHandler(userRepository,
+                new HibernateOperationRepository(new DailyTotalsIndex(Duration.ofMinutes(30))),
+                new HibernateCategoryRepository(), budgetRepository);
+    }
+
+    /**
+     * Создает пользователя с категорией расходов "Такси" и бюджетом на текущий месяц с расходами 1000 рублей
+     */
+    @Before
+    public void createBudget() {
+        transactionManager.produceTransaction(session -> {
+            User user = new User(CHAT_ID, Money.ZERO);
+            userRepository.saveUser(session, user);
+            try {
+                new HibernateCategoryRepository().createUserCategory(session, user, CategoryType.EXPENSE, "Такси");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(2000), Money.ofRubles(1000),
+                    YearMonth.now()));
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager()
+                .clear(session, Budget.class, Operation.class, Category.class, User.class));
+    }
+
+    /**
+     * Проверяет, что уведомление о каждом пороге приходит один раз: при расходах 800 и 1100 рублей,
+     * а расходы ниже 80% и после уже пройденного порога уведомлений не вызывают
+     */
+    @Test
+    public void alertsOncePerThreshold() {
+        YearMonth now = YearMonth.now();
+        String month = monthFormatter.formatRuMonthName(now.getMonth()) + " " + now.getYear();
+        Assert.assertEquals(List.of(), addExpense("500"));
+        Assert.assertEquals(List.of("Расходы за %s достигли 80%% бюджета: 800 из 1 000 руб.".formatted(month)),
+                addExpense("300"));
+        Assert.assertEquals(List.of(), addExpense("100"));
+        Assert.assertEquals(List.of("Расходы за %s достигли 100%% бюджета: 1 100 из 1 000 руб.".formatted(month)),
+                addExpense("200"));
+        Assert.assertEquals(List.of(), addExpense("50"));
+        transactionManager.produceTransaction(session -> Assert.assertEquals(100, budgetRepository
+                .getBudget(session, userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow(),
+                        now).orElseThrow().getExpenseAlertPercent()));
+    }
+
+    /**
+     * Проверяет, что при групповой фиксации второй расход группы учитывает первый, который еще не зафиксирован
+     * и поэтому не попал в суммы по дням в памяти
+     */
+    @Test
+    public void checkCountsExpensesOfSameGroup() throws Exception {
+        addExpense("100");
+        TransactionManager groupedManager = new TransactionManager(sessionFactory, Duration.ofSeconds(1), 2);
+        try {
+            MockBot bot = new MockBot();
+            List<CompletableFuture<Void>> results = new ArrayList<>();
+            for (String payment : List.of("400", "300")) {
+                results.add(groupedManager.produceGroupedTransaction(session -> botHandler.handleCommand(
+                        new CommandData(bot, userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow(),
+                                "add_expense", List.of(payment, "Такси")), session), () -> {
+                }));
+            }
+            for (CompletableFuture<Void> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+            List<String> messages = new ArrayList<>();
+            while (bot.getMessageQueueSize() > 0) {
+                messages.add(bot.poolMessageQueue().text());
+            }
+            YearMonth now = YearMonth.now();
+            String month = monthFormatter.formatRuMonthName(now.getMonth()) + " " + now.getYear();
+            Assert.assertTrue(messages.contains("Расходы за %s достигли 80%% бюджета: 800 из 1 000 руб."
+                    .formatted(month)));
+        } finally {
+            groupedManager.close();
+        }
+    }
+
+    /**
+     * Проверяет, что сумма операций считается только для первого расхода по бюджету, а следующие расходы
+     * увеличивают расходы в бюджете: операция, добавленная в обход команды, в них не попадает
+     */
+    @Test
+    public void spentIsRaisedByEachExpense() {
+        addExpense("100");
+        Assert.assertEquals(Long.valueOf(10000), getSpent());
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            Category category = new HibernateCategoryRepository()
+                    .getCategoryByName(session, user, CategoryType.EXPENSE, "Такси").orElseThrow();
+            new HibernateOperationRepository().addOperation(session, user, category, Money.ofRubles(-600));
+        });
+        Assert.assertEquals(List.of(), addExpense("100"));
+        Assert.assertEquals(Long.valueOf(20000), getSpent());
+    }
+
+    /**
+     * Проверяет, что отмена расхода командой /undo уменьшает расходы в бюджете
+     */
+    @Test
+    public void undoDecreasesSpent() {
+        addExpense("300");
+        addExpense("200");
+        transactionManager.produceTransaction(session -> botHandler.handleCommand(new CommandData(new MockBot(),
+                userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow(), "undo", List.of()), session));
+        Assert.assertEquals(Long.valueOf(30000), getSpent());
+    }
+
+    /**
+     * Возвращает расходы в бюджете тестового пользователя на текущий месяц в копейках
+     */
+    private Long getSpent() {
+        Long[] spent = new Long[1];
+        transactionManager.produceTransaction(session -> {
+            Number value = (Number) session.createNativeQuery("select spent from budgets").uniqueResult();
+            spent[0] = value == null ? null : value.longValue();
+        });
+        return spent[0];
+    }
+
+    /**
+     * Добавляет расход по категории "Такси" в отдельной транзакции
+     *
+     * @return Уведомления о порогах бюджета, которые бот отправил после сообщения о добавлении расхода
+     */
+    private List<String> addExpense(String payment) {
+        MockBot bot = new MockBot();
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            botHandler.handleCommand(new CommandData(bot, user, "add_expense", List.of(payment, "Такси")), session);
+        });
+        Assert.assertTrue(bot.poolMessageQueue().text().startsWith("Добавлен расход"));
+        List<String> alerts = new ArrayList<>();
+        while (bot.getMessageQueueSize() > 0) {
+            alerts.add(bot.poolMessageQueue().text());
+        }
+        return alerts;
+    }
+}
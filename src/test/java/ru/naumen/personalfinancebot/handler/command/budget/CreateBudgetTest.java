@@ -99,7 +99,7 @@ public class CreateBudgetTest {
     @Before
     public void initVariables() {
         this.mockBot = new MockBot();
-        this.user = new User(1, 100);
+        this.user = new User(1, Money.ofRubles(100));
         this.transactionManager.produceTransaction(session -> {
             this.userRepository.saveUser(session, this.user);
         });
@@ -161,8 +161,8 @@ public class CreateBudgetTest {
             } catch (ExistingStandardCategoryException | ExistingUserCategoryException e) {
                 throw new RuntimeException(e);
             }
-            this.operationRepository.addOperation(session, this.user, fakeIncomeCategory, 7000);
-            this.operationRepository.addOperation(session, this.user, fakeExpenseCategory, 6000);
+            this.operationRepository.addOperation(session, this.user, fakeIncomeCategory, Money.ofRubles(7000));
+            this.operationRepository.addOperation(session, this.user, fakeExpenseCategory, Money.ofRubles(6000));
             CommandData command = new CommandData(this.mockBot, this.user,
                     "budget_create", List.of(inputFormatter.formatYearMonth(currentYM), "100000", "90000"));
             this.botHandler.handleCommand(command, session);
@@ -184,6 +184,30 @@ public class CreateBudgetTest {
                 message.text());
     }
 
+    /**
+     * Тест на то, что второй бюджет на тот же месяц не создается
+     */
+    @Test
+    public void existingBudget() {
+        YearMonth nextYM = YearMonth.now().plusMonths(1);
+        transactionManager.produceTransaction(session -> this.budgetRepository.saveBudget(session,
+                new Budget(this.user, Money.ofRubles(50_000), Money.ofRubles(40_000), nextYM)));
+        CommandData command = new CommandData(this.mockBot, this.user,
+                "budget_create", List.of(inputFormatter.formatYearMonth(nextYM), "100000", "90000"));
+
+        transactionManager.produceTransaction(session -> this.botHandler.handleCommand(command, session));
+
+        Assert.assertEquals("Бюджет на %s %d уже создан. Изменить его можно командами /budget_set_income и "
+                        .formatted(monthFormatter.formatRuMonthName(nextYM.getMonth()), nextYM.getYear())
+                        + "/budget_set_expenses",
+                this.mockBot.poolMessageQueue().text());
+        transactionManager.produceTransaction(session -> {
+            List<Budget> budgets = this.budgetRepository.selectBudgetRange(session, this.user, nextYM, nextYM);
+            Assert.assertEquals(1, budgets.size());
+            Assert.assertEquals(Money.ofRubles(40_000), budgets.get(0).getExpense());
+        });
+    }
+
     /**
      * Тест на создание бюджета на прошлый месяц (должна вылезти ошибка)
      */
@@ -12,6 +12,7 @@ import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.model.Budget;
 import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.Operation;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.ClearQueryManager;
@@ -101,7 +102,7 @@ public class EditBudgetTest {
     @Before
     public void initVariables() {
         this.mockBot = new MockBot();
-        this.user = new User(1, 100);
+        this.user = new User(1, Money.ofRubles(100));
         this.transactionManager.produceTransaction(session -> {
             this.userRepository.saveUser(session, this.user);
         });
@@ -124,7 +125,7 @@ public class EditBudgetTest {
     public void editExpensesCurrentBudget() {
         transactionManager.produceTransaction(session -> {
             YearMonth currentYM = YearMonth.now();
-            this.budgetRepository.saveBudget(session, new Budget(this.user, 100_000, 90_000, currentYM));
+            this.budgetRepository.saveBudget(session, new Budget(this.user, Money.ofRubles(100_000), Money.ofRubles(90_000), currentYM));
             CommandData command = new CommandData(this.mockBot, this.user,
                     "budget_set_expenses", List.of(inputFormatter.formatYearMonth(currentYM), "120000"));
             this.botHandler.handleCommand(command, session);
@@ -148,7 +149,7 @@ public class EditBudgetTest {
     public void editIncomeCurrentBudget() {
         transactionManager.produceTransaction(session -> {
             YearMonth currentYM = YearMonth.now();
-            this.budgetRepository.saveBudget(session, new Budget(this.user, 100_000, 90_000, currentYM));
+            this.budgetRepository.saveBudget(session, new Budget(this.user, Money.ofRubles(100_000), Money.ofRubles(90_000), currentYM));
             CommandData command = new CommandData(this.mockBot, this.user,
                     "budget_set_income", List.of(inputFormatter.formatYearMonth(currentYM), "150000"));
             this.botHandler.handleCommand(command, session);
@@ -171,7 +172,7 @@ public class EditBudgetTest {
     public void editFutureBudget() {
         transactionManager.produceTransaction(session -> {
             YearMonth futureYM = YearMonth.now().plusMonths(1);
-            this.budgetRepository.saveBudget(session, new Budget(this.user, 100_000, 90_000, futureYM));
+            this.budgetRepository.saveBudget(session, new Budget(this.user, Money.ofRubles(100_000), Money.ofRubles(90_000), futureYM));
             CommandData command = new CommandData(this.mockBot, this.user,
                     "budget_set_income", List.of(inputFormatter.formatYearMonth(futureYM), "200000"));
             this.botHandler.handleCommand(command, session);
@@ -194,7 +195,7 @@ public class EditBudgetTest {
     public void editOldBudget() {
         transactionManager.produceTransaction(session -> {
             YearMonth futureYM = YearMonth.now().minusMonths(1);
-            this.budgetRepository.saveBudget(session, new Budget(this.user, 100_000, 90_000, futureYM));
+            this.budgetRepository.saveBudget(session, new Budget(this.user, Money.ofRubles(100_000), Money.ofRubles(90_000), futureYM));
             CommandData command = new CommandData(this.mockBot, this.user,
                     "budget_set_income", List.of(inputFormatter.formatYearMonth(futureYM), "200000"));
             this.botHandler.handleCommand(command, session);
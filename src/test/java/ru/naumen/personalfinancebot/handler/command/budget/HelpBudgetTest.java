@@ -5,7 +5,9 @@ import org.junit.Test;
 import ru.naumen.personalfinancebot.bot.MockBot;
 import ru.naumen.personalfinancebot.bot.MockMessage;
 import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.command.CommandRequirement;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
 
 import java.util.List;
@@ -21,7 +23,7 @@ public class HelpBudgetTest {
     public void testBudgetHelpCommand() {
         MockBot mockBot = new MockBot();
         FinanceBotHandler handler = new FinanceBotHandler(null, null, null, null);
-        User user = new User(1L, 100);
+        User user = new User(1L, Money.ofRubles(100));
         CommandData command = new CommandData(mockBot, user, "budget_help", List.of());
         handler.handleCommand(command, null);
 
@@ -33,8 +35,27 @@ public class HelpBudgetTest {
                         /budget_list - запланированный бюджет за последние 12 месяцев
                         /budget_list [yyyy - год] -  запланированные бюджеты за определенный год
                         /budget_list [mm.yyyy from - месяц от] [mm.year to - месяц до] - запланированные бюджеты за определенные месяца
-                        /budget_create [mm.yyyy - месяц.год] [ожидаемый доход] [ожидаемый расходы] - планировать бюджет""",
+                        /budget_create [mm.yyyy - месяц.год] [ожидаемый доход] [ожидаемый расходы] - планировать бюджет
+                        /budget_rollover [on/off] - включить или выключить перенос бюджета прошлого месяца на новый месяц""",
                 lastMessage.text());
-        Assert.assertEquals(user, lastMessage.receiver());
+        Assert.assertEquals(user.getChatId(), lastMessage.chatId());
+    }
+
+    /**
+     * Тест на то, что команде "/budget_help" не нужны ни БД, ни пользователь
+     */
+    @Test
+    public void testBudgetHelpDoesNotResolveUser() {
+        MockBot mockBot = new MockBot();
+        FinanceBotHandler handler = new FinanceBotHandler(null, null, null, null);
+        Assert.assertEquals(CommandRequirement.NONE, handler.getRequirement("budget_help"));
+
+        CommandData command = new CommandData(mockBot, 1L, () -> {
+            throw new AssertionError("Пользователь не должен загружаться");
+        }, "budget_help", List.of());
+        handler.handleCommand(command, null);
+
+        Assert.assertEquals(1, mockBot.getMessageQueueSize());
+        Assert.assertEquals(1L, mockBot.poolMessageQueue().chatId());
     }
 }
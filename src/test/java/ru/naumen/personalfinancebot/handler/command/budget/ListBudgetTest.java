@@ -109,7 +109,7 @@ public class ListBudgetTest {
     @Before
     public void initVariables() {
         this.mockBot = new MockBot();
-        this.user = new User(1, 100);
+        this.user = new User(1, Money.ofRubles(100));
         this.transactionManager.produceTransaction(session -> {
             this.userRepository.saveUser(session, this.user);
             try {
@@ -162,16 +162,16 @@ public class ListBudgetTest {
         YearMonth minusOneMonthYM = currentYM.minusMonths(1);
 
         transactionManager.produceTransaction(session -> {
-            this.budgetRepository.saveBudget(session, new Budget(user, 100_000, 90_000, minusOneMonthYM));
-            this.budgetRepository.saveBudget(session, new Budget(user, 80_000, 70_000, currentYM));
+            this.budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(100_000), Money.ofRubles(90_000), minusOneMonthYM));
+            this.budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(80_000), Money.ofRubles(70_000), currentYM));
 
-            this.operationRepository.addOperation(session, user, fakeIncomeCategory, 9000,
+            this.operationRepository.addOperation(session, user, fakeIncomeCategory, Money.ofRubles(9000),
                     minusOneMonthYM.atDay(1));
-            this.operationRepository.addOperation(session, user, fakeExpenseCategory, 8000,
+            this.operationRepository.addOperation(session, user, fakeExpenseCategory, Money.ofRubles(8000),
                     minusOneMonthYM.atDay(1));
-            this.operationRepository.addOperation(session, user, fakeIncomeCategory, 7000,
+            this.operationRepository.addOperation(session, user, fakeIncomeCategory, Money.ofRubles(7000),
                     currentYM.atDay(1));
-            this.operationRepository.addOperation(session, user, fakeExpenseCategory, 6000,
+            this.operationRepository.addOperation(session, user, fakeExpenseCategory, Money.ofRubles(6000),
                     currentYM.atDay(1));
 
             CommandData command = new CommandData(this.mockBot, this.user, "budget_list", List.of());
@@ -267,10 +267,10 @@ public class ListBudgetTest {
             List<String> argsToReplace = new ArrayList<>();
             for (int i = 13; i >= 0; i--) {
                 YearMonth testYM = YearMonth.now().minusMonths(i);
-                this.budgetRepository.saveBudget(session, new Budget(user, 100_000, 90_000, testYM));
-                this.operationRepository.addOperation(session, user, fakeIncomeCategory, 9000,
+                this.budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(100_000), Money.ofRubles(90_000), testYM));
+                this.operationRepository.addOperation(session, user, fakeIncomeCategory, Money.ofRubles(9000),
                         testYM.atDay(1));
-                this.operationRepository.addOperation(session, user, fakeExpenseCategory, 8000,
+                this.operationRepository.addOperation(session, user, fakeExpenseCategory, Money.ofRubles(8000),
                         testYM.atDay(1));
                 if (i != 13) {
                     argsToReplace.add(monthFormatter.formatRuMonthName(testYM.getMonth()));
@@ -296,16 +296,16 @@ public class ListBudgetTest {
             YearMonth ymJan2022 = YearMonth.of(2022, 1);
             YearMonth ymFeb2022 = YearMonth.of(2022, 2);
 
-            this.budgetRepository.saveBudget(session, new Budget(user, 100_000, 90_000, ymJan2022));
-            this.budgetRepository.saveBudget(session, new Budget(user, 80_000, 70_000, ymFeb2022));
+            this.budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(100_000), Money.ofRubles(90_000), ymJan2022));
+            this.budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(80_000), Money.ofRubles(70_000), ymFeb2022));
 
-            this.operationRepository.addOperation(session, user, fakeIncomeCategory, 9000,
+            this.operationRepository.addOperation(session, user, fakeIncomeCategory, Money.ofRubles(9000),
                     ymJan2022.atDay(1));
-            this.operationRepository.addOperation(session, user, fakeExpenseCategory, 8000,
+            this.operationRepository.addOperation(session, user, fakeExpenseCategory, Money.ofRubles(8000),
                     ymJan2022.atDay(1));
-            this.operationRepository.addOperation(session, user, fakeIncomeCategory, 7000,
+            this.operationRepository.addOperation(session, user, fakeIncomeCategory, Money.ofRubles(7000),
                     ymFeb2022.atDay(1));
-            this.operationRepository.addOperation(session, user, fakeExpenseCategory, 6000,
+            this.operationRepository.addOperation(session, user, fakeExpenseCategory, Money.ofRubles(6000),
                     ymFeb2022.atDay(1));
 
             CommandData command = new CommandData(this.mockBot, this.user, "budget_list", List.of("2022"));
@@ -355,10 +355,10 @@ public class ListBudgetTest {
         transactionManager.produceTransaction(session -> {
             for (int i = 0; i < 4; i++) {
                 YearMonth testYM = nov22ym.plusMonths(i);
-                this.budgetRepository.saveBudget(session, new Budget(user, 100_000, 90_000, testYM));
-                this.operationRepository.addOperation(session, user, fakeIncomeCategory, 9000,
+                this.budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(100_000), Money.ofRubles(90_000), testYM));
+                this.operationRepository.addOperation(session, user, fakeIncomeCategory, Money.ofRubles(9000),
                         testYM.atDay(1));
-                this.operationRepository.addOperation(session, user, fakeExpenseCategory, 8000,
+                this.operationRepository.addOperation(session, user, fakeExpenseCategory, Money.ofRubles(8000),
                         testYM.atDay(1));
             }
 
@@ -436,10 +436,10 @@ public class ListBudgetTest {
     public void oneMonthRangeAndRealOperationsExceededExpected() {
         transactionManager.produceTransaction(session -> {
             YearMonth testYM = YearMonth.of(2022, 12);
-            this.budgetRepository.saveBudget(session, new Budget(user, 100_000, 90_000, testYM));
-            this.operationRepository.addOperation(session, user, fakeIncomeCategory, 101_000,
+            this.budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(100_000), Money.ofRubles(90_000), testYM));
+            this.operationRepository.addOperation(session, user, fakeIncomeCategory, Money.ofRubles(101_000),
                     testYM.atDay(1));
-            this.operationRepository.addOperation(session, user, fakeExpenseCategory, 91_000,
+            this.operationRepository.addOperation(session, user, fakeExpenseCategory, Money.ofRubles(91_000),
                     testYM.atDay(1));
 
             CommandData command = new CommandData(this.mockBot, this.user, "budget_list",
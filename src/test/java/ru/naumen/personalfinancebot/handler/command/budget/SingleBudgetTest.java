@@ -109,7 +109,7 @@ public class SingleBudgetTest {
     @Before
     public void initVariables() {
         this.mockBot = new MockBot();
-        this.user = new User(1, 100);
+        this.user = new User(1, Money.ofRubles(100));
         this.transactionManager.produceTransaction(session -> {
             this.userRepository.saveUser(session, this.user);
         });
@@ -134,7 +134,7 @@ public class SingleBudgetTest {
     public void existingBudgetNoOperations() {
         transactionManager.produceTransaction(session -> {
             YearMonth testYearMonth = YearMonth.now();
-            Budget budget = new Budget(this.user, 100_000, 90_000, testYearMonth);
+            Budget budget = new Budget(this.user, Money.ofRubles(100_000), Money.ofRubles(90_000), testYearMonth);
             this.budgetRepository.saveBudget(session, budget);
             CommandData command = new CommandData(this.mockBot, this.user, "budget", List.of());
             this.botHandler.handleCommand(command, session);
@@ -165,11 +165,11 @@ public class SingleBudgetTest {
         transactionManager.produceTransaction(session -> {
             YearMonth testYearMonth = YearMonth.now();
 
-            Budget budget = new Budget(this.user, 100_000, 90_000, testYearMonth);
+            Budget budget = new Budget(this.user, Money.ofRubles(100_000), Money.ofRubles(90_000), testYearMonth);
             this.budgetRepository.saveBudget(session, budget);
 
-            this.operationRepository.addOperation(session, this.user, fakeIncomeCategory, 3000);
-            this.operationRepository.addOperation(session, this.user, fakeExpenseCategory, 1000);
+            this.operationRepository.addOperation(session, this.user, fakeIncomeCategory, Money.ofRubles(3000));
+            this.operationRepository.addOperation(session, this.user, fakeExpenseCategory, Money.ofRubles(1000));
 
             CommandData command = new CommandData(this.mockBot, this.user, "budget", List.of());
             this.botHandler.handleCommand(command, session);
@@ -198,11 +198,11 @@ public class SingleBudgetTest {
         transactionManager.produceTransaction(session -> {
             YearMonth testYearMonth = YearMonth.now();
 
-            Budget budget = new Budget(this.user, 100_000, 90_000, testYearMonth);
+            Budget budget = new Budget(this.user, Money.ofRubles(100_000), Money.ofRubles(90_000), testYearMonth);
             this.budgetRepository.saveBudget(session, budget);
 
-            this.operationRepository.addOperation(session, this.user, fakeIncomeCategory, 101_000);
-            this.operationRepository.addOperation(session, this.user, fakeExpenseCategory, 91_000);
+            this.operationRepository.addOperation(session, this.user, fakeIncomeCategory, Money.ofRubles(101_000));
+            this.operationRepository.addOperation(session, this.user, fakeExpenseCategory, Money.ofRubles(91_000));
 
             CommandData command = new CommandData(this.mockBot, this.user, "budget", List.of());
             this.botHandler.handleCommand(command, session);
@@ -229,7 +229,7 @@ public class SingleBudgetTest {
     @Test
     public void noCurrentBudget() {
         transactionManager.produceTransaction(session -> {
-            Budget budget = new Budget(this.user, 100_000, 90_000, YearMonth.of(2020, 1));
+            Budget budget = new Budget(this.user, Money.ofRubles(100_000), Money.ofRubles(90_000), YearMonth.of(2020, 1));
             this.budgetRepository.saveBudget(session, budget);
             CommandData command = new CommandData(this.mockBot, this.user, "budget", List.of());
             this.botHandler.handleCommand(command, session);
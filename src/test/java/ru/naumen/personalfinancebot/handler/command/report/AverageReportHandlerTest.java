@@ -11,6 +11,7 @@ import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.model.Category;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.Operation;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.ClearQueryManager;
@@ -136,15 +137,15 @@ public class AverageReportHandlerTest {
     @Test
     public void handleCommandWithOneUser() {
         transactionManager.produceTransaction(session -> {
-            User user1 = new User(1L, 100000);
+            User user1 = new User(1L, Money.ofRubles(100000));
             this.userRepository.saveUser(session, user1);
 
-            this.operationRepository.addOperation(session, user1, shopsCategory, 200, date);
-            this.operationRepository.addOperation(session, user1, shopsCategory, 500, date);
-            this.operationRepository.addOperation(session, user1, restaurantCategory, 1000, date);
-            this.operationRepository.addOperation(session, user1, restaurantCategory, 2000, date);
-            this.operationRepository.addOperation(session, user1, salaryCategory, 60_000, date);
-            this.operationRepository.addOperation(session, user1, salaryCategory, 20_000, date);
+            this.operationRepository.addOperation(session, user1, shopsCategory, Money.ofRubles(200), date);
+            this.operationRepository.addOperation(session, user1, shopsCategory, Money.ofRubles(500), date);
+            this.operationRepository.addOperation(session, user1, restaurantCategory, Money.ofRubles(1000), date);
+            this.operationRepository.addOperation(session, user1, restaurantCategory, Money.ofRubles(2000), date);
+            this.operationRepository.addOperation(session, user1, salaryCategory, Money.ofRubles(60_000), date);
+            this.operationRepository.addOperation(session, user1, salaryCategory, Money.ofRubles(20_000), date);
             CommandData data = new CommandData(this.bot, user1, COMMAND, List.of("12.2023"));
 
             this.financeBotHandler.handleCommand(data, session);
@@ -166,24 +167,24 @@ public class AverageReportHandlerTest {
     @Test
     public void handleCommandWithAnyUsers() {
         transactionManager.produceTransaction(session -> {
-            User user1 = new User(1L, 100000);
-            User user2 = new User(2L, 100000);
+            User user1 = new User(1L, Money.ofRubles(100000));
+            User user2 = new User(2L, Money.ofRubles(100000));
             this.userRepository.saveUser(session, user1);
             this.userRepository.saveUser(session, user2);
 
-            this.operationRepository.addOperation(session, user1, shopsCategory, 200);
-            this.operationRepository.addOperation(session, user1, shopsCategory, 500);
-            this.operationRepository.addOperation(session, user1, restaurantCategory, 1000);
-            this.operationRepository.addOperation(session, user1, restaurantCategory, 2000);
-            this.operationRepository.addOperation(session, user1, salaryCategory, 60_000);
-            this.operationRepository.addOperation(session, user1, salaryCategory, 20_000);
+            this.operationRepository.addOperation(session, user1, shopsCategory, Money.ofRubles(200), date);
+            this.operationRepository.addOperation(session, user1, shopsCategory, Money.ofRubles(500), date);
+            this.operationRepository.addOperation(session, user1, restaurantCategory, Money.ofRubles(1000), date);
+            this.operationRepository.addOperation(session, user1, restaurantCategory, Money.ofRubles(2000), date);
+            this.operationRepository.addOperation(session, user1, salaryCategory, Money.ofRubles(60_000), date);
+            this.operationRepository.addOperation(session, user1, salaryCategory, Money.ofRubles(20_000), date);
 
-            this.operationRepository.addOperation(session, user2, shopsCategory, 500);
-            this.operationRepository.addOperation(session, user2, shopsCategory, 700);
-            this.operationRepository.addOperation(session, user2, restaurantCategory, 400);
-            this.operationRepository.addOperation(session, user2, restaurantCategory, 700);
-            this.operationRepository.addOperation(session, user2, salaryCategory, 40_000);
-            this.operationRepository.addOperation(session, user2, salaryCategory, 15_000);
+            this.operationRepository.addOperation(session, user2, shopsCategory, Money.ofRubles(500), date);
+            this.operationRepository.addOperation(session, user2, shopsCategory, Money.ofRubles(700), date);
+            this.operationRepository.addOperation(session, user2, restaurantCategory, Money.ofRubles(400), date);
+            this.operationRepository.addOperation(session, user2, restaurantCategory, Money.ofRubles(700), date);
+            this.operationRepository.addOperation(session, user2, salaryCategory, Money.ofRubles(40_000), date);
+            this.operationRepository.addOperation(session, user2, salaryCategory, Money.ofRubles(15_000), date);
 
             CommandData data = new CommandData(this.bot, user1, COMMAND, List.of("12.2023"));
 
@@ -206,7 +207,7 @@ public class AverageReportHandlerTest {
     @Test
     public void handleCommandIfNoOperationsSpecificDate() {
         transactionManager.produceTransaction(session -> {
-            User user = new User(1L, 1);
+            User user = new User(1L, Money.ofRubles(1));
             this.userRepository.saveUser(session, user);
             CommandData data = new CommandData(this.bot, user, COMMAND, List.of("12.2023"));
             this.financeBotHandler.handleCommand(data, session);
@@ -221,7 +222,7 @@ public class AverageReportHandlerTest {
     @Test
     public void handleCommandIfNoOperationsCurrentDate() {
         transactionManager.produceTransaction(session -> {
-            User user = new User(1L, 1);
+            User user = new User(1L, Money.ofRubles(1));
             this.userRepository.saveUser(session, user);
             CommandData data = new CommandData(this.bot, user, COMMAND, List.of());
             this.financeBotHandler.handleCommand(data, session);
@@ -235,7 +236,7 @@ public class AverageReportHandlerTest {
      */
     @Test
     public void handleCommandIfIncorrectArgsCount() {
-        User user = new User(1L, 1);
+        User user = new User(1L, Money.ofRubles(1));
         String expected = """
                 Команда "/avg_report" не принимает аргументы, либо принимает Месяц и Год в формате "MM.YYYY"
                 Например, "/avg_report" или "/avg_report 12.2023".""";
@@ -264,7 +265,7 @@ public class AverageReportHandlerTest {
                 List.of("p"), List.of(""),
                 List.of("Декабрь 2023"), List.of("1985‑09‑25 17:45:30.005")
         );
-        User user = new User(1, 1);
+        User user = new User(1, Money.ofRubles(1));
         String expected = "Дата введена неверно! Введите ее в формате [mm.yyyy - месяц.год]";
         for (List<String> args : argsList) {
             CommandData data = new CommandData(this.bot, user, COMMAND, args);
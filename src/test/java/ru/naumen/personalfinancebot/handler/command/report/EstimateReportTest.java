@@ -12,6 +12,7 @@ import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.model.Category;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.Operation;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.ClearQueryManager;
@@ -140,13 +141,13 @@ public class EstimateReportTest {
                 Доходы: 90 000""";
 
         transactionManager.produceTransaction(session -> {
-            this.operationRepository.addOperation(session, this.testUser, this.testStandartExpsenseCategory, 20_000);
-            this.operationRepository.addOperation(session, this.testUser, this.testStandartExpsenseCategory, 30_000);
-            this.operationRepository.addOperation(session, this.testUser, this.testStandartIncomeCategory, 80_000);
+            this.operationRepository.addOperation(session, this.testUser, this.testStandartExpsenseCategory, Money.ofRubles(20_000));
+            this.operationRepository.addOperation(session, this.testUser, this.testStandartExpsenseCategory, Money.ofRubles(30_000));
+            this.operationRepository.addOperation(session, this.testUser, this.testStandartIncomeCategory, Money.ofRubles(80_000));
 
             User secondUser = createUser(session, 2);
-            this.operationRepository.addOperation(session, secondUser, this.testStandartExpsenseCategory, 70_000);
-            this.operationRepository.addOperation(session, secondUser, this.testStandartIncomeCategory, 100_000);
+            this.operationRepository.addOperation(session, secondUser, this.testStandartExpsenseCategory, Money.ofRubles(70_000));
+            this.operationRepository.addOperation(session, secondUser, this.testStandartIncomeCategory, Money.ofRubles(100_000));
 
             CommandData commandData = new CommandData(this.mockBot, this.testUser, COMMAND_NAME, List.of());
             botHandler.handleCommand(commandData, session);
@@ -203,15 +204,15 @@ public class EstimateReportTest {
 
         transactionManager.produceTransaction(session -> {
             this.operationRepository.addOperation(session, this.testUser, this.testStandartExpsenseCategory,
-                    80_000, createDate);
+                    Money.ofRubles(80_000), createDate);
             this.operationRepository.addOperation(session, this.testUser, this.testStandartIncomeCategory,
-                    90_000, createDate);
+                    Money.ofRubles(90_000), createDate);
 
             User secondUser = createUser(session, 2);
             this.operationRepository.addOperation(session, secondUser, this.testStandartExpsenseCategory,
-                    60_000, createDate);
+                    Money.ofRubles(60_000), createDate);
             this.operationRepository.addOperation(session, secondUser, this.testStandartIncomeCategory,
-                    110_000, createDate);
+                    Money.ofRubles(110_000), createDate);
 
             CommandData commandData = new CommandData(this.mockBot, this.testUser, COMMAND_NAME,
                     List.of("10.2023"));
@@ -235,7 +236,7 @@ public class EstimateReportTest {
 
         transactionManager.produceTransaction(session -> {
             this.operationRepository.addOperation(session, this.testUser,
-                    this.testStandartIncomeCategory, 50_000);
+                    this.testStandartIncomeCategory, Money.ofRubles(50_000));
 
             CommandData commandData = new CommandData(this.mockBot, this.testUser, COMMAND_NAME, List.of());
             botHandler.handleCommand(commandData, session);
@@ -301,7 +302,7 @@ public class EstimateReportTest {
      * @return Новый пользователь
      */
     private User createUser(Session session, long id) {
-        User user = new User(id, 0);
+        User user = new User(id, Money.ofRubles(0));
         this.userRepository.saveUser(session, user);
         return user;
     }
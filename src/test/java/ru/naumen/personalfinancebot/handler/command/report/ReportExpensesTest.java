@@ -11,6 +11,7 @@ import ru.naumen.personalfinancebot.handler.command.CommandHandler;
 import ru.naumen.personalfinancebot.handler.commandData.CommandData;
 import ru.naumen.personalfinancebot.model.Category;
 import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.User;
 import ru.naumen.personalfinancebot.repository.TransactionManager;
 import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
@@ -23,8 +24,10 @@ import ru.naumen.personalfinancebot.service.OutputMonthFormatService;
 import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
 import ru.naumen.personalfinancebot.service.ReportService;
 
+import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.List;
+import java.util.UUID;
 
 
 /**
@@ -79,22 +82,22 @@ public class ReportExpensesTest {
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        this.operationRepository.addOperation(session, user, taxiCategory, 100);
-        this.operationRepository.addOperation(session, user, taxiCategory, 200);
-        this.operationRepository.addOperation(session, user, taxiCategory, 300);
-        this.operationRepository.addOperation(session, user, taxiCategory, 400);
-        this.operationRepository.addOperation(session, user, taxiCategory, 500);
-        this.operationRepository.addOperation(session, user, cleanCategory, 300);
-        this.operationRepository.addOperation(session, user, cleanCategory, 500);
-        this.operationRepository.addOperation(session, user, cleanCategory, 700);
-        this.operationRepository.addOperation(session, user, cleanCategory, 900);
+        this.operationRepository.addOperation(session, user, taxiCategory, Money.ofRubles(100));
+        this.operationRepository.addOperation(session, user, taxiCategory, Money.ofRubles(200));
+        this.operationRepository.addOperation(session, user, taxiCategory, Money.ofRubles(300));
+        this.operationRepository.addOperation(session, user, taxiCategory, Money.ofRubles(400));
+        this.operationRepository.addOperation(session, user, taxiCategory, Money.ofRubles(500));
+        this.operationRepository.addOperation(session, user, cleanCategory, Money.ofRubles(300));
+        this.operationRepository.addOperation(session, user, cleanCategory, Money.ofRubles(500));
+        this.operationRepository.addOperation(session, user, cleanCategory, Money.ofRubles(700));
+        this.operationRepository.addOperation(session, user, cleanCategory, Money.ofRubles(900));
     }
 
     /**
      * Создаёт пользователя
      */
     private User getUser(Session session, long id) {
-        User user = new User(id, 100_000);
+        User user = new User(id, Money.ofRubles(100_000));
         this.userRepository.saveUser(session, user);
         return user;
     }
@@ -117,7 +120,7 @@ public class ReportExpensesTest {
             reportExpenseHandler.handleCommand(commandData, session);
             MockMessage message = bot.poolMessageQueue();
             Assert.assertEquals(
-                    "Подготовил отчёт по вашим расходам за указанный месяц:\nТакси: 1500.0 руб.\nХимчистка: 2400.0 руб.\n",
+                    "Подготовил отчёт по вашим расходам за указанный месяц:\nТакси: 1 500 руб.\nХимчистка: 2 400 руб.\n",
                     message.text()
             );
         });
@@ -156,9 +159,7 @@ public class ReportExpensesTest {
             User user = this.getUser(session, 3L);
             MockBot bot = new MockBot();
             List<List<String>> argsList = List.of(
-                    List.of("11", "2023"),
-                    List.of("Ноябрь", "2023"),
-                    List.of("-1", "-1"),
+                    List.of("01", "11", "2023"),
                     List.of()
             );
             for (List<String> args : argsList) {
@@ -166,10 +167,80 @@ public class ReportExpensesTest {
                 reportExpenseHandler.handleCommand(commandData, session);
                 MockMessage message = bot.poolMessageQueue();
                 Assert.assertEquals(
-                        "Команда /report_expense принимает 1 аргумент [mm.yyyy], например \"/report_expense 11.2023\"",
+                        "Команда /report_expense принимает 1 аргумент [mm.yyyy], например \"/report_expense 11.2023\", "
+                                + "или 2 аргумента [dd.mm.yyyy dd.mm.yyyy], например "
+                                + "\"/report_expense 01.11.2023 15.11.2023\"",
                         message.text()
                 );
             }
         });
     }
+
+    /**
+     * Метод проверяет отчёт за диапазон дней: учитываются операции только с первого по последний день включительно
+     */
+    @Test
+    public void handleWithDateRange() {
+        transactionManager.produceTransaction(session -> {
+            User user = this.getUser(session, 4L);
+            Category taxiCategory, cleanCategory;
+            try {
+                taxiCategory = this.categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Такси");
+                cleanCategory = this.categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Химчистка");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            addOperation(session, user, taxiCategory, 100, LocalDate.of(2023, 10, 31));
+            addOperation(session, user, taxiCategory, 200, LocalDate.of(2023, 11, 1));
+            addOperation(session, user, cleanCategory, 300, LocalDate.of(2023, 11, 10));
+            addOperation(session, user, taxiCategory, 400, LocalDate.of(2023, 11, 15));
+            addOperation(session, user, taxiCategory, 500, LocalDate.of(2023, 11, 16));
+
+            MockBot bot = new MockBot();
+            reportExpenseHandler.handleCommand(
+                    new CommandData(bot, user, "report_expense", List.of("01.11.2023", "15.11.2023")), session);
+            Assert.assertEquals(
+                    "Подготовил отчёт по вашим расходам с 01.11.2023 по 15.11.2023:\nТакси: 600 руб.\nХимчистка: 300 руб.\n",
+                    bot.poolMessageQueue().text()
+            );
+
+            reportExpenseHandler.handleCommand(
+                    new CommandData(bot, user, "report_expense", List.of("01.12.2023", "31.12.2023")), session);
+            Assert.assertEquals("К сожалению, данные по затратам отсутствуют", bot.poolMessageQueue().text());
+        });
+    }
+
+    /**
+     * Метод проверяет, что будет выведена ошибка, если даты диапазона не получится спарсить
+     * или первая дата позже второй
+     */
+    @Test
+    public void handleWithIncorrectDateRange() {
+        transactionManager.produceTransaction(session -> {
+            User user = this.getUser(session, 5L);
+            MockBot bot = new MockBot();
+            List<List<String>> argsList = List.of(
+                    List.of("11", "2023"),
+                    List.of("11.2023", "12.2023"),
+                    List.of("15.11.2023", "01.11.2023")
+            );
+            for (List<String> args : argsList) {
+                reportExpenseHandler.handleCommand(new CommandData(bot, user, "report_expense", args), session);
+                Assert.assertEquals(
+                        """
+                                Переданы неверные даты.
+                                Даты должны быть переданы в виде "DD.MM.YYYY", например, "01.11.2023", \
+                                и первая не может быть позже второй.""",
+                        bot.poolMessageQueue().text()
+                );
+            }
+        });
+    }
+
+    /**
+     * Добавляет операцию с указанной датой
+     */
+    private void addOperation(Session session, User user, Category category, long rubles, LocalDate date) {
+        this.operationRepository.addOperation(session, user, category, Money.ofRubles(rubles), date, UUID.randomUUID());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package ru.naumen.personalfinancebot.journal;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.naumen.personalfinancebot.journal.exception.JournalFullException;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Тесты для журнала команд
+ */
+public class CommandJournalTest {
+    /**
+     * Размер журнала в тестах
+     */
+    private static final int CAPACITY = 4096;
+
+    /**
+     * Папка для файлов журнала
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Проверяет, что записи возвращаются в порядке добавления, а выполненные записи больше не возвращаются
+     */
+    @Test
+    public void entriesArePeekedInOrder() throws Exception {
+        try (CommandJournal journal = new CommandJournal(journalFile(), CAPACITY)) {
+            Assert.assertTrue(journal.isEmpty());
+            JournalEntry first = JournalEntry.create(1L, "add_expense", List.of("100", "Такси"));
+            JournalEntry second = JournalEntry.create(2L, "add_income", List.of("5000", "Зарплата"));
+            journal.append(first);
+            journal.append(second);
+
+            Assert.assertEquals(first, journal.peek().orElseThrow());
+            journal.markApplied(first);
+            Assert.assertEquals(second, journal.peek().orElseThrow());
+            journal.markApplied(second);
+            Assert.assertTrue(journal.isEmpty());
+            Assert.assertTrue(journal.peek().isEmpty());
+        }
+    }
+
+    /**
+     * Проверяет, что после повторного открытия журнала возвращаются только невыполненные записи
+     */
+    @Test
+    public void pendingEntriesSurviveReopen() throws Exception {
+        Path file = journalFile();
+        JournalEntry first = JournalEntry.create(1L, "add_expense", List.of("100", "Такси"));
+        JournalEntry second = JournalEntry.create(1L, "add_expense", List.of("200", "Кафе"));
+        try (CommandJournal journal = new CommandJournal(file, CAPACITY)) {
+            journal.append(first);
+            journal.append(second);
+            journal.markApplied(first);
+        }
+
+        try (CommandJournal journal = new CommandJournal(file, CAPACITY)) {
+            Assert.assertEquals(second, journal.peek().orElseThrow());
+            journal.markApplied(second);
+            Assert.assertTrue(journal.isEmpty());
+        }
+    }
+
+    /**
+     * Проверяет, что оборванная при сбое запись отбрасывается при открытии журнала
+     */
+    @Test
+    public void corruptedTailIsDiscarded() throws Exception {
+        Path file = journalFile();
+        JournalEntry entry = JournalEntry.create(1L, "add_expense", List.of("100", "Такси"));
+        try (CommandJournal journal = new CommandJournal(file, CAPACITY)) {
+            journal.append(entry);
+            journal.append(JournalEntry.create(1L, "add_expense", List.of("200", "Кафе")));
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            // Портится последний байт второй записи
+            long position = Long.BYTES;
+            raw.seek(position);
+            position += Integer.BYTES * 2 + raw.readInt();
+            raw.seek(position);
+            position += Integer.BYTES * 2 + raw.readInt() - 1;
+            raw.seek(position);
+            int lastByte = raw.read();
+            raw.seek(position);
+            raw.write(lastByte ^ 0xFF);
+        }
+
+        try (CommandJournal journal = new CommandJournal(file, CAPACITY)) {
+            Assert.assertEquals(entry, journal.peek().orElseThrow());
+            journal.markApplied(entry);
+            Assert.assertTrue(journal.isEmpty());
+        }
+    }
+
+    /**
+     * Проверяет, что заполненный журнал не принимает записи, а после выполнения всех записей пишется с начала
+     */
+    @Test
+    public void journalIsReusedAfterAllEntriesApplied() throws Exception {
+        try (CommandJournal journal = new CommandJournal(journalFile(), CAPACITY)) {
+            JournalEntry entry = JournalEntry.create(1L, "add_expense", List.of("100", "Такси"));
+            int appended = 0;
+            try {
+                while (true) {
+                    journal.append(entry);
+                    appended++;
+                }
+            } catch (JournalFullException e) {
+                Assert.assertTrue(appended > 1);
+            }
+            for (int i = 0; i < appended; i++) {
+                journal.markApplied(journal.peek().orElseThrow());
+            }
+            Assert.assertTrue(journal.isEmpty());
+
+            for (int i = 0; i < appended; i++) {
+                journal.append(entry);
+            }
+            Assert.assertFalse(journal.isEmpty());
+        }
+    }
+
+    /**
+     * Проверяет, что можно отметить выполненной только первую невыполненную запись
+     */
+    @Test(expected = IllegalStateException.class)
+    public void onlyFirstEntryCanBeMarkedApplied() throws Exception {
+        try (CommandJournal journal = new CommandJournal(journalFile(), CAPACITY)) {
+            journal.append(JournalEntry.create(1L, "add_expense", List.of("100", "Такси")));
+            journal.markApplied(JournalEntry.create(1L, "add_expense", List.of("100", "Такси")));
+        }
+    }
+
+    /**
+     * Возвращает путь к новому файлу журнала
+     */
+    private Path journalFile() throws IOException {
+        return folder.getRoot().toPath().resolve("journal-" + System.nanoTime());
+    }
+}
@@ -0,0 +1,217 @@
+package ru.naumen.personalfinancebot.journal;
+
+import org.hibernate.Session;
+import org.hibernate.exception.LockAcquisitionException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingStandardCategoryException;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тесты для выполнения записей журнала команд в БД
+ */
+public class JournalReplayerTest {
+    /**
+     * ID чата тестового пользователя
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * Папка для файла журнала
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Менеджер для откртия транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Репозиторий пользователей
+     */
+    private final HibernateUserRepository userRepository;
+
+    /**
+     * Обработчик команд бота
+     */
+    private final FinanceBotHandler botHandler;
+
+    /**
+     * Моковый бот, получающий ответы на выполненные команды
+     */
+    private final MockBot mockBot;
+
+    /**
+     * Журнал команд
+     */
+    private CommandJournal journal;
+
+    public JournalReplayerTest() {
+        this.transactionManager = new TransactionManager(new HibernateConfiguration().getSessionFactory());
+        this.userRepository = new HibernateUserRepository();
+        this.botHandler = new FinanceBotHandler(userRepository, new HibernateOperationRepository(),
+                new HibernateCategoryRepository(), new HibernateBudgetRepository());
+        this.mockBot = new MockBot();
+    }
+
+    /**
+     * Создание журнала и стандартной категории перед каждым тестом
+     */
+    @Before
+    public void beforeEach() throws Exception {
+        journal = new CommandJournal(folder.newFile().toPath(), 4096);
+        transactionManager.produceTransaction(session -> {
+            try {
+                new HibernateCategoryRepository().createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            } catch (ExistingStandardCategoryException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Очищение репозиториев и закрытие журнала после каждого теста
+     */
+    @After
+    public void afterEach() throws Exception {
+        transactionManager.produceTransaction(session ->
+                new ClearQueryManager().clear(session, Operation.class, Category.class, User.class));
+        journal.close();
+    }
+
+    /**
+     * Проверяет, что записи выполняются по порядку с датой принятия команды, а ответы отправляются пользователю
+     */
+    @Test
+    public void pendingEntriesAreApplied() throws Exception {
+        LocalDate acceptedDate = LocalDate.now().minusDays(1);
+        journal.append(new JournalEntry(UUID.randomUUID(), CHAT_ID, acceptedDate, "add_expense",
+                List.of("100", "Такси")));
+        journal.append(new JournalEntry(UUID.randomUUID(), CHAT_ID, acceptedDate, "add_expense",
+                List.of("50", "Такси")));
+
+        Assert.assertTrue(createReplayer().replayPending());
+
+        Assert.assertTrue(journal.isEmpty());
+        Assert.assertEquals(2, mockBot.getMessageQueueSize());
+        Assert.assertEquals("Добавлен расход по категории: Такси", mockBot.poolMessageQueue().text());
+        transactionManager.produceTransaction(session -> {
+            Assert.assertEquals(Money.ofRubles(-150),
+                    userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow().getBalance());
+            List<Operation> operations = session.createQuery("from Operation", Operation.class).list();
+            Assert.assertEquals(2, operations.size());
+            operations.forEach(operation -> Assert.assertEquals(acceptedDate, operation.getCreatedAt()));
+        });
+    }
+
+    /**
+     * Проверяет, что запись, уже выполненная до сбоя, не добавляет операцию повторно
+     */
+    @Test
+    public void appliedEntryIsNotAppliedTwice() throws Exception {
+        JournalEntry entry = JournalEntry.create(CHAT_ID, "add_expense", List.of("100", "Такси"));
+        transactionManager.produceTransaction(session -> botHandler.handleCommand(new CommandData(mockBot, entry,
+                () -> userRepository.getOrCreateUser(session, CHAT_ID)), session));
+        mockBot.poolMessageQueue();
+        journal.append(entry);
+
+        Assert.assertTrue(createReplayer().replayPending());
+
+        Assert.assertTrue(journal.isEmpty());
+        Assert.assertEquals(0, mockBot.getMessageQueueSize());
+        transactionManager.produceTransaction(session -> {
+            Assert.assertEquals(Money.ofRubles(-100),
+                    userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow().getBalance());
+            Assert.assertEquals(1, session.createQuery("from Operation", Operation.class).list().size());
+        });
+    }
+
+    /**
+     * Проверяет, что запись, которая не выполнилась из-за временной ошибки БД (ожидания блокировки),
+     * остается в журнале и выполняется при следующей проверке
+     */
+    @Test
+    public void entryIsRetriedAfterTransientFailure() throws Exception {
+        journal.append(JournalEntry.create(CHAT_ID, "add_expense", List.of("100", "Такси")));
+        JournalReplayer replayer = createReplayer(1, new LockAcquisitionException("lock timeout",
+                new SQLException("lock timeout", "55P03")));
+
+        Assert.assertFalse(replayer.replayPending());
+        Assert.assertFalse(journal.isEmpty());
+        Assert.assertEquals(0, mockBot.getMessageQueueSize());
+
+        Assert.assertTrue(replayer.replayPending());
+        Assert.assertTrue(journal.isEmpty());
+        Assert.assertEquals("Добавлен расход по категории: Такси", mockBot.poolMessageQueue().text());
+        transactionManager.produceTransaction(session -> Assert.assertEquals(Money.ofRubles(-100),
+                userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow().getBalance()));
+    }
+
+    /**
+     * Проверяет, что запись, повторное выполнение которой завершится той же ошибкой обработчика,
+     * пропускается, а следующие записи выполняются
+     */
+    @Test
+    public void entryIsSkippedAfterCommandFailure() throws Exception {
+        journal.append(JournalEntry.create(CHAT_ID, "add_expense", List.of("100", "Такси")));
+        journal.append(JournalEntry.create(CHAT_ID, "add_expense", List.of("50", "Такси")));
+
+        Assert.assertTrue(createReplayer(1, new IllegalStateException("Ошибка обработчика")).replayPending());
+
+        Assert.assertTrue(journal.isEmpty());
+        Assert.assertEquals(2, mockBot.getMessageQueueSize());
+        Assert.assertEquals("Не удалось выполнить принятую ранее команду /add_expense 100 Такси. "
+                            + "Проверьте данные и повторите команду", mockBot.poolMessageQueue().text());
+        transactionManager.produceTransaction(session -> Assert.assertEquals(Money.ofRubles(-50),
+                userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow().getBalance()));
+    }
+
+    /**
+     * Создает обработчик журнала с тестовыми зависимостями
+     */
+    private JournalReplayer createReplayer() {
+        return new JournalReplayer(journal, botHandler, userRepository, transactionManager, mockBot);
+    }
+
+    /**
+     * Создает обработчик журнала, у которого первые failures загрузок пользователя завершаются ошибкой
+     */
+    private JournalReplayer createReplayer(int failures, RuntimeException failure) {
+        AtomicInteger remainingFailures = new AtomicInteger(failures);
+        HibernateUserRepository failingUserRepository = new HibernateUserRepository() {
+            @Override
+            public User getOrCreateUser(Session session, long chatId) {
+                if (remainingFailures.getAndDecrement() > 0) {
+                    throw failure;
+                }
+                return super.getOrCreateUser(session, chatId);
+            }
+        };
+        return new JournalReplayer(journal, botHandler, failingUserRepository, transactionManager, mockBot);
+    }
+}
@@ -0,0 +1,151 @@
+package ru.naumen.personalfinancebot.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.BufferedBot;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingStandardCategoryException;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Тесты групповой фиксации в {@link TransactionManager}
+ */
+public class GroupCommitTest {
+    /**
+     * Количество команд, отправляемых одновременно
+     */
+    private static final int COMMANDS = 20;
+
+    /**
+     * Статистика SessionFactory
+     */
+    private final Statistics statistics;
+
+    /**
+     * Менеджер транзакций с групповой фиксацией
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Репозиторий пользователей
+     */
+    private final HibernateUserRepository userRepository;
+
+    /**
+     * Обработчик команд бота
+     */
+    private final FinanceBotHandler botHandler;
+
+    public GroupCommitTest() {
+        SessionFactory sessionFactory = new HibernateConfiguration().getSessionFactory();
+        this.statistics = sessionFactory.getStatistics();
+        this.transactionManager = new TransactionManager(sessionFactory, Duration.ofMillis(200), COMMANDS);
+        this.userRepository = new HibernateUserRepository();
+        this.botHandler = new FinanceBotHandler(userRepository, new HibernateOperationRepository(),
+                new HibernateCategoryRepository(), new HibernateBudgetRepository());
+    }
+
+    /**
+     * Создание стандартной категории перед каждым тестом
+     */
+    @Before
+    public void beforeEach() {
+        transactionManager.produceTransaction(session -> {
+            try {
+                new HibernateCategoryRepository().createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            } catch (ExistingStandardCategoryException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Очищение репозиториев и остановка групповой фиксации после каждого теста
+     */
+    @After
+    public void afterEach() {
+        transactionManager.produceTransaction(session ->
+                new ClearQueryManager().clear(session, Operation.class, Category.class, User.class));
+        transactionManager.close();
+    }
+
+    /**
+     * Проверяет, что команды нескольких пользователей фиксируются одной транзакцией,
+     * ответы отправляются после фиксации, а следующая обычная транзакция видит все записи
+     */
+    @Test
+    public void commandsAreCommittedInOneTransaction() {
+        MockBot mockBot = new MockBot();
+        statistics.clear();
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < COMMANDS; i++) {
+            long chatId = i % 2 + 1;
+            results.add(submitCommand(mockBot, chatId, "add_expense", List.of("10", "Такси")));
+        }
+        results.forEach(CompletableFuture::join);
+
+        Assert.assertEquals(1, statistics.getSuccessfulTransactionCount());
+        Assert.assertEquals(COMMANDS, mockBot.getMessageQueueSize());
+        transactionManager.produceTransaction(session -> {
+            for (long chatId = 1; chatId <= 2; chatId++) {
+                User user = userRepository.getUserByTelegramChatId(session, chatId).orElseThrow();
+                Assert.assertEquals(Money.ofRubles(-10 * COMMANDS / 2), user.getBalance());
+            }
+            Assert.assertEquals(COMMANDS, session.createQuery("from Operation", Operation.class).list().size());
+        });
+    }
+
+    /**
+     * Проверяет, что ошибка одной команды не отменяет остальные команды группы
+     */
+    @Test
+    public void failedCommandDoesNotRollBackOthers() {
+        MockBot mockBot = new MockBot();
+        CompletableFuture<Void> first = submitCommand(mockBot, 1, "add_expense", List.of("10", "Такси"));
+        CompletableFuture<Void> failed = transactionManager.produceGroupedTransaction(session -> {
+            throw new IllegalStateException("Ошибка записи");
+        }, () -> Assert.fail("Действие после фиксации не должно выполняться"));
+        CompletableFuture<Void> second = submitCommand(mockBot, 2, "add_expense", List.of("20", "Такси"));
+
+        first.join();
+        second.join();
+        Assert.assertThrows(CompletionException.class, failed::join);
+        Assert.assertEquals(2, mockBot.getMessageQueueSize());
+        transactionManager.produceTransaction(session -> Assert.assertEquals(2,
+                session.createQuery("from Operation", Operation.class).list().size()));
+    }
+
+    /**
+     * Передает команду на групповую фиксацию так же, как это делает бот
+     */
+    private CompletableFuture<Void> submitCommand(MockBot mockBot, long chatId, String commandName,
+                                                  List<String> args) {
+        BufferedBot replies = new BufferedBot(mockBot);
+        return transactionManager.produceGroupedTransaction(session -> {
+            replies.clear();
+            botHandler.handleCommand(new CommandData(replies, chatId,
+                    () -> userRepository.getOrCreateUser(session, chatId), commandName, args), session);
+        }, replies::flush);
+    }
+}
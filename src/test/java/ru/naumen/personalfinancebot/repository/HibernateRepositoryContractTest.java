@@ -0,0 +1,72 @@
+package ru.naumen.personalfinancebot.repository;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.DailyTotalsIndex;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.operation.RecentOperationsBuffer;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Общие тесты репозиториев для Hibernate репозиториев. Репозиторий операций использует индекс сумм по дням
+ */
+public class HibernateRepositoryContractTest extends RepositoryContractTest {
+    /**
+     * Менеджер для откртия транзакций
+     */
+    private final TransactionManager transactionManager =
+            new TransactionManager(new HibernateConfiguration().getSessionFactory());
+
+    private final UserRepository userRepository = new HibernateUserRepository();
+
+    private final CategoryRepository categoryRepository = new HibernateCategoryRepository();
+
+    private final OperationRepository operationRepository = new HibernateOperationRepository(
+            new DailyTotalsIndex(Duration.ofMinutes(1)), new RecentOperationsBuffer(10, Duration.ofMinutes(1)));
+
+    private final BudgetRepository budgetRepository = new HibernateBudgetRepository();
+
+    @Override
+    protected UserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    @Override
+    protected CategoryRepository getCategoryRepository() {
+        return categoryRepository;
+    }
+
+    @Override
+    protected OperationRepository getOperationRepository() {
+        return operationRepository;
+    }
+
+    @Override
+    protected BudgetRepository getBudgetRepository() {
+        return budgetRepository;
+    }
+
+    @Override
+    protected void inTransaction(Consumer<Session> action) {
+        transactionManager.produceTransaction(action);
+    }
+
+    @Override
+    protected void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager()
+                .clear(session, Operation.class, Budget.class, Category.class, User.class));
+    }
+}
@@ -0,0 +1,63 @@
+package ru.naumen.personalfinancebot.repository;
+
+import org.hibernate.Session;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.memory.InMemoryBudgetRepository;
+import ru.naumen.personalfinancebot.repository.memory.InMemoryCategoryRepository;
+import ru.naumen.personalfinancebot.repository.memory.InMemoryOperationRepository;
+import ru.naumen.personalfinancebot.repository.memory.InMemoryStorage;
+import ru.naumen.personalfinancebot.repository.memory.InMemoryUserRepository;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.util.function.Consumer;
+
+/**
+ * Общие тесты репозиториев для репозиториев в памяти
+ */
+public class InMemoryRepositoryContractTest extends RepositoryContractTest {
+    /**
+     * Общее хранилище данных
+     */
+    private final InMemoryStorage storage = new InMemoryStorage();
+
+    private final UserRepository userRepository = new InMemoryUserRepository(storage);
+
+    private final CategoryRepository categoryRepository = new InMemoryCategoryRepository(storage);
+
+    private final OperationRepository operationRepository = new InMemoryOperationRepository(storage);
+
+    private final BudgetRepository budgetRepository = new InMemoryBudgetRepository(storage);
+
+    @Override
+    protected UserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    @Override
+    protected CategoryRepository getCategoryRepository() {
+        return categoryRepository;
+    }
+
+    @Override
+    protected OperationRepository getOperationRepository() {
+        return operationRepository;
+    }
+
+    @Override
+    protected BudgetRepository getBudgetRepository() {
+        return budgetRepository;
+    }
+
+    @Override
+    protected void inTransaction(Consumer<Session> action) {
+        // Репозиториям в памяти сессия не нужна
+        action.accept(null);
+    }
+
+    @Override
+    protected void clear() {
+        storage.clear();
+    }
+}
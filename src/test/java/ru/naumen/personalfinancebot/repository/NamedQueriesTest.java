@@ -0,0 +1,115 @@
+package ru.naumen.personalfinancebot.repository;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.service.CacheStatisticsService;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import java.time.YearMonth;
+
+/**
+ * Тесты именованных запросов: проверка при запуске и использование кэша планов запросов
+ */
+public class NamedQueriesTest {
+    /**
+     * Фабрика сессий Hibernate
+     */
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Менеджер для откртия транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    public NamedQueriesTest() {
+        this.sessionFactory = new HibernateConfiguration().getSessionFactory();
+        this.transactionManager = new TransactionManager(sessionFactory);
+    }
+
+    /**
+     * Очищение репозиториев после каждого теста
+     */
+    @After
+    public void afterEach() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager().clear(session, User.class));
+    }
+
+    /**
+     * Проверяет, что SessionFactory не создается, если именованный запрос содержит ошибку,
+     * и что в сообщении указано название этого запроса
+     */
+    @Test
+    public void brokenNamedQueryFailsStartup() {
+        Configuration configuration = new Configuration()
+                .configure()
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:brokenNamedQuery")
+                .addAnnotatedClass(BrokenNamedQueryEntity.class);
+        try {
+            configuration.buildSessionFactory().close();
+            Assert.fail("SessionFactory создана с ошибкой в именованном запросе");
+        } catch (HibernateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("BrokenNamedQueryEntity.byMissingField"));
+        }
+    }
+
+    /**
+     * Проверяет, что запросы репозиториев берут планы из кэша, заполненного при запуске,
+     * и не разбирают запросы заново
+     */
+    @Test
+    public void repositoryQueriesHitPlanCache() {
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        transactionManager.produceTransaction(session -> {
+            User user = new User(1L, Money.ZERO);
+            new HibernateUserRepository().saveUser(session, user);
+            for (int i = 0; i < 3; i++) {
+                new HibernateCategoryRepository().getCategoryByName(session, user, CategoryType.EXPENSE, "Такси");
+                new HibernateBudgetRepository().getBudget(session, user, YearMonth.now());
+                new HibernateOperationRepository()
+                        .getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE, YearMonth.now());
+            }
+        });
+
+        Assert.assertEquals(0, statistics.getQueryPlanCacheMissCount());
+        Assert.assertTrue(statistics.getQueryPlanCacheHitCount() >= 9);
+
+        CacheStatisticsService cacheStatisticsService = new CacheStatisticsService(sessionFactory);
+        Assert.assertEquals(1.0, cacheStatisticsService.getHitRatios()
+                .get(CacheStatisticsService.QUERY_PLAN_CACHE), 0);
+        Assert.assertTrue(cacheStatisticsService.formatReport(),
+                cacheStatisticsService.formatReport().contains("Кэш планов запросов: "));
+    }
+
+    /**
+     * Сущность с именованным запросом, который ссылается на несуществующее поле
+     */
+    @Entity
+    @Table(name = "broken_named_query_entity")
+    @NamedQuery(name = "BrokenNamedQueryEntity.byMissingField",
+            query = "from BrokenNamedQueryEntity where missingField = :value")
+    public static class BrokenNamedQueryEntity {
+        /**
+         * Идентификатор
+         */
+        @Id
+        private long id;
+    }
+}
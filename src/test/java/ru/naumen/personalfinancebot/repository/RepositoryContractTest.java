@@ -0,0 +1,536 @@
+package ru.naumen.personalfinancebot.repository;
+
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.budget.BudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingStandardCategoryException;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingUserCategoryException;
+import ru.naumen.personalfinancebot.repository.category.exception.NotExistingCategoryException;
+import ru.naumen.personalfinancebot.repository.operation.OperationCursor;
+import ru.naumen.personalfinancebot.repository.operation.OperationRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Общие тесты репозиториев. Проверяют, что разные реализации репозиториев ведут себя одинаково:
+ * каждая реализация запускает эти тесты в своем наследнике
+ */
+public abstract class RepositoryContractTest {
+    /**
+     * Месяц, за который добавляются операции в тестах
+     */
+    private static final YearMonth MONTH = YearMonth.of(2023, 11);
+
+    /**
+     * @return Репозиторий пользователей
+     */
+    protected abstract UserRepository getUserRepository();
+
+    /**
+     * @return Репозиторий категорий
+     */
+    protected abstract CategoryRepository getCategoryRepository();
+
+    /**
+     * @return Репозиторий операций
+     */
+    protected abstract OperationRepository getOperationRepository();
+
+    /**
+     * @return Репозиторий бюджетов
+     */
+    protected abstract BudgetRepository getBudgetRepository();
+
+    /**
+     * Выполняет действие в транзакции
+     */
+    protected abstract void inTransaction(Consumer<Session> action);
+
+    /**
+     * Удаляет все данные репозиториев
+     */
+    protected abstract void clear();
+
+    /**
+     * Очищение репозиториев после каждого теста
+     */
+    @After
+    public void afterEach() {
+        clear();
+    }
+
+    /**
+     * Проверяет, что пользователь создается один раз и находится по ID чата
+     */
+    @Test
+    public void getOrCreateUserReturnsSameUser() {
+        inTransaction(session -> {
+            Assert.assertTrue(getUserRepository().getUserByTelegramChatId(session, 1L).isEmpty());
+            User created = getUserRepository().getOrCreateUser(session, 1L);
+            Assert.assertNotNull(created.getId());
+            Assert.assertEquals(Money.ZERO, created.getBalance());
+            getUserRepository().setBalance(session, created, Money.ofRubles(10));
+        });
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            Assert.assertEquals(Money.ofRubles(10), user.getBalance());
+            Assert.assertEquals(user.getId(),
+                    getUserRepository().getUserByTelegramChatId(session, 1L).orElseThrow().getId());
+        });
+    }
+
+    /**
+     * Проверяет поиск категорий: без учета регистра, стандартные категории видны всем пользователям,
+     * а категории пользователя - только ему
+     */
+    @Test
+    public void categoryLookup() {
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            User otherUser = getUserRepository().getOrCreateUser(session, 2L);
+            Category standard = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            Category own = createUserCategory(session, user, CategoryType.EXPENSE, "Кофе");
+
+            Assert.assertEquals(standard.getId(), getCategoryRepository()
+                    .getCategoryByName(session, user, CategoryType.EXPENSE, "тАКСИ").orElseThrow().getId());
+            Assert.assertEquals(own.getId(), getCategoryRepository()
+                    .getCategoryByName(session, user, CategoryType.EXPENSE, "кофе").orElseThrow().getId());
+            Assert.assertTrue(getCategoryRepository()
+                    .getCategoryByName(session, otherUser, CategoryType.EXPENSE, "Кофе").isEmpty());
+            Assert.assertTrue(getCategoryRepository()
+                    .getCategoryByName(session, user, CategoryType.INCOME, "Кофе").isEmpty());
+            Assert.assertTrue(getCategoryRepository()
+                    .getStandardCategoryByName(session, CategoryType.EXPENSE, "Кофе").isEmpty());
+            Assert.assertEquals(List.of(own),
+                    getCategoryRepository().getUserCategoriesByType(session, user, CategoryType.EXPENSE));
+            Assert.assertEquals(List.of(standard),
+                    getCategoryRepository().getStandardCategoriesByType(session, CategoryType.EXPENSE));
+        });
+    }
+
+    /**
+     * Проверяет ошибки при добавлении категорий, которые уже существуют
+     */
+    @Test
+    public void duplicateCategoriesAreRejected() {
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            createUserCategory(session, user, CategoryType.EXPENSE, "Кофе");
+
+            Assert.assertThrows(ExistingStandardCategoryException.class, () -> getCategoryRepository()
+                    .createStandardCategory(session, CategoryType.EXPENSE, "такси"));
+            Assert.assertThrows(ExistingStandardCategoryException.class, () -> getCategoryRepository()
+                    .createUserCategory(session, user, CategoryType.EXPENSE, "Такси"));
+            Assert.assertThrows(ExistingUserCategoryException.class, () -> getCategoryRepository()
+                    .createUserCategory(session, user, CategoryType.EXPENSE, "КОФЕ"));
+        });
+    }
+
+    /**
+     * Проверяет, что удаляются только существующие категории пользователя
+     */
+    @Test
+    public void removeUserCategory() {
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            createUserCategory(session, user, CategoryType.EXPENSE, "Кофе");
+
+            Assert.assertThrows(NotExistingCategoryException.class, () -> getCategoryRepository()
+                    .removeUserCategoryByName(session, user, CategoryType.EXPENSE, "Такси"));
+            Assert.assertThrows(NotExistingCategoryException.class, () -> getCategoryRepository()
+                    .removeUserCategoryByName(session, user, CategoryType.INCOME, "Кофе"));
+            try {
+                getCategoryRepository().removeUserCategoryByName(session, user, CategoryType.EXPENSE, "кофе");
+            } catch (NotExistingCategoryException e) {
+                throw new RuntimeException(e);
+            }
+            Assert.assertTrue(getCategoryRepository()
+                    .getCategoryByName(session, user, CategoryType.EXPENSE, "Кофе").isEmpty());
+        });
+    }
+
+    /**
+     * Проверяет сумму всех операций пользователя по категории за все месяцы
+     */
+    @Test
+    public void categoryPaymentSummary() {
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            User otherUser = getUserRepository().getOrCreateUser(session, 2L);
+            Category taxi = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            Category coffee = createUserCategory(session, user, CategoryType.EXPENSE, "Кофе");
+
+            addOperation(session, user, taxi, Money.ofRubles(-100), MONTH.atDay(1));
+            addOperation(session, user, taxi, Money.ofRubles(-50), MONTH.plusMonths(1).atDay(1));
+            addOperation(session, user, coffee, Money.ofRubles(-30), MONTH.atDay(10));
+            addOperation(session, otherUser, taxi, Money.ofRubles(-9), MONTH.atDay(1));
+
+            Assert.assertEquals(Money.ofRubles(-150),
+                    getOperationRepository().getCategoryPaymentSummary(session, user, taxi));
+            Assert.assertEquals(Money.ZERO,
+                    getOperationRepository().getCategoryPaymentSummary(session, otherUser, coffee));
+        });
+    }
+
+    /**
+     * Проверяет суммы операций пользователя за месяц
+     */
+    @Test
+    public void userOperationSums() {
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            User otherUser = getUserRepository().getOrCreateUser(session, 2L);
+            Category taxi = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            Category coffee = createUserCategory(session, user, CategoryType.EXPENSE, "Кофе");
+            Category salary = createStandardCategory(session, CategoryType.INCOME, "Зарплата");
+
+            addOperation(session, user, taxi, Money.ofRubles(100), MONTH.atDay(1));
+            addOperation(session, user, taxi, Money.ofRubles(50), MONTH.atEndOfMonth());
+            addOperation(session, user, coffee, Money.ofRubles(30), MONTH.atDay(10));
+            addOperation(session, user, salary, Money.ofRubles(1000), MONTH.atDay(5));
+            addOperation(session, user, taxi, Money.ofRubles(7), MONTH.plusMonths(1).atDay(1));
+            addOperation(session, otherUser, taxi, Money.ofRubles(9), MONTH.atDay(1));
+
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(150), "Кофе", Money.ofRubles(30)),
+                    getOperationRepository().getOperationsSumByType(session, user,
+                            MONTH.getMonthValue(), MONTH.getYear(), CategoryType.EXPENSE));
+            Assert.assertEquals(Money.ofRubles(180), getOperationRepository()
+                    .getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE, MONTH));
+            Assert.assertEquals(Money.ofRubles(1000), getOperationRepository()
+                    .getCurrentUserPaymentSummary(session, user, CategoryType.INCOME, MONTH));
+            Assert.assertEquals(Money.ZERO, getOperationRepository()
+                    .getCurrentUserPaymentSummary(session, user, CategoryType.INCOME, MONTH.minusMonths(1)));
+            Assert.assertNull(getOperationRepository().getOperationsSumByType(session, user,
+                    MONTH.getMonthValue(), MONTH.getYear() - 1, CategoryType.EXPENSE));
+
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(57)), getOperationRepository()
+                    .getOperationsSumByType(session, user, MONTH.atEndOfMonth(), MONTH.plusMonths(1).atDay(1),
+                            CategoryType.EXPENSE));
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(100), "Кофе", Money.ofRubles(30)),
+                    getOperationRepository().getOperationsSumByType(session, user, MONTH.atDay(1), MONTH.atDay(10),
+                            CategoryType.EXPENSE));
+            Assert.assertNull(getOperationRepository().getOperationsSumByType(session, user, MONTH.atDay(2),
+                    MONTH.atDay(9), CategoryType.EXPENSE));
+        });
+    }
+
+    /**
+     * Проверяет, что суммы за диапазон дней учитывают операции, добавленные в следующих транзакциях
+     */
+    @Test
+    public void rangeSumsSeeLaterOperations() {
+        User[] user = new User[1];
+        Category[] taxi = new Category[1];
+        inTransaction(session -> {
+            user[0] = getUserRepository().getOrCreateUser(session, 1L);
+            taxi[0] = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            addOperation(session, user[0], taxi[0], Money.ofRubles(100), MONTH.atDay(1));
+        });
+        inTransaction(session -> Assert.assertEquals(Map.of("Такси", Money.ofRubles(100)), getOperationRepository()
+                .getOperationsSumByType(session, user[0], MONTH.atDay(1), MONTH.atDay(5), CategoryType.EXPENSE)));
+        inTransaction(session -> addOperation(session, user[0], taxi[0], Money.ofRubles(20), MONTH.atDay(5)));
+        inTransaction(session -> Assert.assertEquals(Map.of("Такси", Money.ofRubles(120)), getOperationRepository()
+                .getOperationsSumByType(session, user[0], MONTH.atDay(1), MONTH.atDay(5), CategoryType.EXPENSE)));
+    }
+
+    /**
+     * Проверяет средние суммы по пользователям: сумма делится на количество пользователей,
+     * у которых есть операции этого типа или категории
+     */
+    @Test
+    public void averageSummaries() {
+        inTransaction(session -> {
+            User first = getUserRepository().getOrCreateUser(session, 1L);
+            User second = getUserRepository().getOrCreateUser(session, 2L);
+            Category taxi = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            Category cafe = createStandardCategory(session, CategoryType.EXPENSE, "Кафе");
+            Category coffee = createUserCategory(session, first, CategoryType.EXPENSE, "Кофе");
+            Category salary = createStandardCategory(session, CategoryType.INCOME, "Зарплата");
+
+            addOperation(session, first, taxi, Money.ofRubles(100), MONTH.atDay(1));
+            addOperation(session, first, taxi, Money.ofRubles(100), MONTH.atDay(2));
+            addOperation(session, first, coffee, Money.ofRubles(50), MONTH.atDay(3));
+            addOperation(session, second, taxi, Money.ofRubles(100), MONTH.atDay(4));
+            addOperation(session, second, cafe, Money.ofRubles(250), MONTH.atDay(5));
+            addOperation(session, second, salary, Money.ofRubles(1000), MONTH.atDay(6));
+
+            Assert.assertEquals(Map.of(
+                            CategoryType.EXPENSE, Money.ofRubles(300),
+                            CategoryType.INCOME, Money.ofRubles(1000)),
+                    getOperationRepository().getEstimateSummary(session, MONTH));
+            Map<String, Money> byCategory = getOperationRepository()
+                    .getAverageSummaryByStandardCategory(session, MONTH);
+            Assert.assertEquals(List.of("Зарплата", "Кафе", "Такси"), List.copyOf(byCategory.keySet()));
+            Assert.assertEquals(Money.ofRubles(1000), byCategory.get("Зарплата"));
+            Assert.assertEquals(Money.ofRubles(250), byCategory.get("Кафе"));
+            Assert.assertEquals(Money.ofRubles(150), byCategory.get("Такси"));
+
+            Assert.assertNull(getOperationRepository().getEstimateSummary(session, MONTH.plusMonths(1)));
+            Assert.assertNull(getOperationRepository()
+                    .getAverageSummaryByStandardCategory(session, MONTH.plusMonths(1)));
+        });
+    }
+
+    /**
+     * Проверяет, что операция, добавленная по записи журнала, отмечает запись выполненной
+     */
+    @Test
+    public void journalEntryIsApplied() {
+        UUID journalEntryId = UUID.randomUUID();
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            Category taxi = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            Assert.assertFalse(getOperationRepository().isJournalEntryApplied(session, journalEntryId));
+            getOperationRepository().addOperation(session, user, taxi, Money.ofRubles(1), MONTH.atDay(1),
+                    journalEntryId);
+        });
+        inTransaction(session -> {
+            Assert.assertTrue(getOperationRepository().isJournalEntryApplied(session, journalEntryId));
+            Assert.assertFalse(getOperationRepository().isJournalEntryApplied(session, UUID.randomUUID()));
+        });
+    }
+
+    /**
+     * Проверяет поиск бюджета за месяц и за диапазон месяцев
+     */
+    @Test
+    public void budgets() {
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            User otherUser = getUserRepository().getOrCreateUser(session, 2L);
+            for (int i = 0; i < 3; i++) {
+                getBudgetRepository().saveBudget(session, new Budget(user, Money.ofRubles(i), Money.ofRubles(i),
+                        MONTH.plusMonths(i)));
+            }
+            getBudgetRepository().saveBudget(session, new Budget(otherUser, Money.ZERO, Money.ZERO, MONTH));
+            getBudgetRepository().saveBudget(session, new Budget(user, Money.ZERO, Money.ZERO, YearMonth.now()));
+
+            Assert.assertEquals(Money.ofRubles(1), getBudgetRepository()
+                    .getBudget(session, user, MONTH.plusMonths(1)).orElseThrow().getIncome());
+            Assert.assertEquals(YearMonth.now(), getBudgetRepository()
+                    .getBudget(session, user, null).orElseThrow().getTargetDate());
+            Assert.assertTrue(getBudgetRepository().getBudget(session, user, MONTH.minusMonths(1)).isEmpty());
+
+            List<Budget> range = getBudgetRepository()
+                    .selectBudgetRange(session, user, MONTH.minusMonths(1), MONTH.plusMonths(1));
+            Assert.assertEquals(List.of(MONTH, MONTH.plusMonths(1)),
+                    range.stream().map(Budget::getTargetDate).toList());
+            Assert.assertThrows(IllegalArgumentException.class, () -> getBudgetRepository()
+                    .selectBudgetRange(session, user, MONTH, MONTH.minusMonths(1)));
+        });
+    }
+
+    /**
+     * Проверяет последние операции пользователя, удаление операции и изменение баланса
+     */
+    @Test
+    public void lastOperationsAndRemoval() {
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            User otherUser = getUserRepository().getOrCreateUser(session, 2L);
+            Category taxi = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            addOperation(session, user, taxi, Money.ofRubles(-100), MONTH.atDay(1));
+            addOperation(session, user, taxi, Money.ofRubles(-200), MONTH.atDay(2));
+            addOperation(session, otherUser, taxi, Money.ofRubles(-50), MONTH.atDay(2));
+            getUserRepository().changeBalance(session, user, Money.ofRubles(1000));
+        });
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            List<Operation> last = getOperationRepository().getLastOperations(session, user, 5);
+            Assert.assertEquals(List.of(Money.ofRubles(-200), Money.ofRubles(-100)),
+                    last.stream().map(Operation::getPayment).toList());
+            Assert.assertEquals("Такси", last.get(0).getCategory().getCategoryName());
+            Assert.assertEquals(MONTH.atDay(2), last.get(0).getCreatedAt());
+
+            Assert.assertTrue(getOperationRepository().removeOperation(session, user, last.get(0)));
+            Assert.assertFalse(getOperationRepository().removeOperation(session, user, last.get(0)));
+            getUserRepository().changeBalance(session, user, last.get(0).getPayment().negate());
+        });
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            Assert.assertEquals(Money.ofRubles(1200), user.getBalance());
+            Assert.assertEquals(List.of(Money.ofRubles(-100)), getOperationRepository()
+                    .getLastOperations(session, user, 5).stream().map(Operation::getPayment).toList());
+            Assert.assertEquals(Money.ofRubles(-100), getOperationRepository()
+                    .getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE, MONTH));
+        });
+    }
+
+    /**
+     * Проверяет, что операции, добавленные пачкой, видны в последних операциях и суммах,
+     * даже если они были прочитаны до добавления
+     */
+    @Test
+    public void addedOperationsBatchIsVisible() {
+        Category[] taxi = new Category[1];
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            taxi[0] = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            addOperation(session, user, taxi[0], Money.ofRubles(-100), MONTH.atDay(1));
+        });
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            Assert.assertEquals(1, getOperationRepository().getLastOperations(session, user, 5).size());
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(-100)), getOperationRepository()
+                    .getOperationsSumByType(session, user, MONTH.atDay(1), MONTH.atEndOfMonth(), CategoryType.EXPENSE));
+        });
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            getOperationRepository().addOperations(session, user, List.of(
+                    new Operation(user, taxi[0], Money.ofRubles(-20), MONTH.atDay(2)),
+                    new Operation(user, taxi[0], Money.ofRubles(-30), MONTH.atDay(3))));
+        });
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            Assert.assertEquals(List.of(Money.ofRubles(-30), Money.ofRubles(-20), Money.ofRubles(-100)),
+                    getOperationRepository().getLastOperations(session, user, 5).stream()
+                            .map(Operation::getPayment).toList());
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(-150)), getOperationRepository()
+                    .getOperationsSumByType(session, user, MONTH.atDay(1), MONTH.atEndOfMonth(), CategoryType.EXPENSE));
+        });
+    }
+
+    /**
+     * Проверяет, что страницы истории и перебор всех операций идут по дате и ID от последней операции
+     * без пропусков и повторов
+     */
+    @Test
+    public void operationsPagesFollowDateAndId() {
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            User otherUser = getUserRepository().getOrCreateUser(session, 2L);
+            Category taxi = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            int[] days = {3, 1, 3, 2, 1};
+            for (int i = 0; i < days.length; i++) {
+                addOperation(session, user, taxi, Money.ofRubles(i + 1), MONTH.atDay(days[i]));
+            }
+            addOperation(session, otherUser, taxi, Money.ofRubles(100), MONTH.atDay(2));
+        });
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            List<Money> payments = new ArrayList<>();
+            OperationCursor after = null;
+            while (true) {
+                List<Operation> page = getOperationRepository().getOperationsPage(session, user, after, 2);
+                if (page.isEmpty()) {
+                    break;
+                }
+                page.forEach(operation -> payments.add(operation.getPayment()));
+                after = OperationCursor.fromToken(OperationCursor.of(page.get(page.size() - 1)).toToken());
+            }
+            Assert.assertEquals(List.of(Money.ofRubles(3), Money.ofRubles(1), Money.ofRubles(4),
+                    Money.ofRubles(5), Money.ofRubles(2)), payments);
+
+            List<Money> allPayments = new ArrayList<>();
+            getOperationRepository().forEachOperation(session, user,
+                    operation -> allPayments.add(operation.getPayment()));
+            Assert.assertEquals(payments, allPayments);
+        });
+    }
+
+    /**
+     * Проверяет, что вместе с пользователем удаляются его операции и категории
+     */
+    @Test
+    public void removeUserRemovesOperationsAndCategories() {
+        long[] userId = new long[1];
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            userId[0] = user.getId();
+            Category taxi = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            createUserCategory(session, user, CategoryType.EXPENSE, "Кофе");
+            addOperation(session, user, taxi, Money.ofRubles(100), MONTH.atDay(1));
+        });
+        inTransaction(session -> getUserRepository().removeUserById(session, userId[0]));
+        inTransaction(session -> {
+            Assert.assertTrue(getUserRepository().getUserByTelegramChatId(session, 1L).isEmpty());
+            Assert.assertNull(getOperationRepository().getEstimateSummary(session, MONTH));
+            Assert.assertTrue(getCategoryRepository()
+                    .getStandardCategoryByName(session, CategoryType.EXPENSE, "Такси").isPresent());
+        });
+    }
+
+    /**
+     * Проверяет, что удаление всех операций и бюджетов пользователя не затрагивает других пользователей
+     * и сообщает о ходе удаления, а после него пользователя можно удалить
+     */
+    @Test
+    public void removeAllOperationsAndBudgets() {
+        long[] userId = new long[1];
+        inTransaction(session -> {
+            User user = getUserRepository().getOrCreateUser(session, 1L);
+            User otherUser = getUserRepository().getOrCreateUser(session, 2L);
+            userId[0] = user.getId();
+            Category taxi = createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            for (int day = 1; day <= 5; day++) {
+                addOperation(session, user, taxi, Money.ofRubles(-day), MONTH.atDay(day));
+            }
+            addOperation(session, otherUser, taxi, Money.ofRubles(-10), MONTH.atDay(1));
+            getBudgetRepository().saveBudget(session, new Budget(user, Money.ZERO, Money.ZERO, MONTH));
+            getBudgetRepository().saveBudget(session, new Budget(otherUser, Money.ZERO, Money.ZERO, MONTH));
+        });
+        inTransaction(session -> {
+            User user = getUserRepository().getUserByTelegramChatId(session, 1L).orElseThrow();
+            List<Long> progress = new ArrayList<>();
+            Assert.assertEquals(1, getBudgetRepository().removeAllBudgets(session, user));
+            Assert.assertEquals(5, getOperationRepository().removeAllOperations(session, user, 2, progress::add));
+            Assert.assertEquals(5L, (long) progress.get(progress.size() - 1));
+            Assert.assertEquals(0, getOperationRepository().removeAllOperations(session, user, 2, progress::add));
+        });
+        inTransaction(session -> getUserRepository().removeUserById(session, userId[0]));
+        inTransaction(session -> {
+            User otherUser = getUserRepository().getUserByTelegramChatId(session, 2L).orElseThrow();
+            Assert.assertEquals(1, getOperationRepository().getLastOperations(session, otherUser, 10).size());
+            Assert.assertTrue(getBudgetRepository().getBudget(session, otherUser, MONTH).isPresent());
+            Assert.assertEquals(Map.of(CategoryType.EXPENSE, Money.ofRubles(-10)),
+                    getOperationRepository().getEstimateSummary(session, MONTH));
+        });
+    }
+
+    /**
+     * Добавляет стандартную категорию
+     */
+    private Category createStandardCategory(Session session, CategoryType type, String name) {
+        try {
+            return getCategoryRepository().createStandardCategory(session, type, name);
+        } catch (ExistingStandardCategoryException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Добавляет категорию пользователя
+     */
+    private Category createUserCategory(Session session, User user, CategoryType type, String name) {
+        try {
+            return getCategoryRepository().createUserCategory(session, user, type, name);
+        } catch (ExistingUserCategoryException | ExistingStandardCategoryException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Добавляет операцию с указанной датой
+     */
+    private void addOperation(Session session, User user, Category category, Money payment, LocalDate date) {
+        getOperationRepository().addOperation(session, user, category, payment, date, UUID.randomUUID());
+    }
+}
@@ -0,0 +1,159 @@
+package ru.naumen.personalfinancebot.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.configuration.CacheRegion;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingStandardCategoryException;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.service.CacheStatisticsService;
+
+import java.util.Optional;
+
+/**
+ * Тесты кэша второго уровня и кэша запросов
+ */
+public class SecondLevelCacheTest {
+    /**
+     * ID чата тестового пользователя
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * Статистика SessionFactory
+     */
+    private final Statistics statistics;
+
+    /**
+     * Менеджер для откртия транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Сервис статистики кэша
+     */
+    private final CacheStatisticsService cacheStatisticsService;
+
+    /**
+     * Репозиторий пользователей
+     */
+    private final HibernateUserRepository userRepository;
+
+    /**
+     * Репозиторий категорий
+     */
+    private final HibernateCategoryRepository categoryRepository;
+
+    public SecondLevelCacheTest() {
+        SessionFactory sessionFactory = new HibernateConfiguration().getSessionFactory();
+        this.statistics = sessionFactory.getStatistics();
+        this.transactionManager = new TransactionManager(sessionFactory);
+        this.cacheStatisticsService = new CacheStatisticsService(sessionFactory);
+        this.userRepository = new HibernateUserRepository();
+        this.categoryRepository = new HibernateCategoryRepository();
+    }
+
+    /**
+     * Создание пользователя и стандартной категории перед каждым тестом
+     */
+    @Before
+    public void beforeEach() {
+        transactionManager.produceTransaction(session -> {
+            userRepository.saveUser(session, new User(CHAT_ID, Money.ofRubles(100)));
+            try {
+                categoryRepository.createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            } catch (ExistingStandardCategoryException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        statistics.clear();
+    }
+
+    /**
+     * Очищение репозиториев после каждого теста
+     */
+    @After
+    public void afterEach() {
+        transactionManager.produceTransaction(session ->
+                new ClearQueryManager().clear(session, Category.class, User.class));
+    }
+
+    /**
+     * Проверяет, что повторный поиск пользователя по ID чата не обращается к БД
+     */
+    @Test
+    public void userByChatIdIsCached() {
+        transactionManager.produceTransaction(session ->
+                Assert.assertTrue(userRepository.getUserByTelegramChatId(session, CHAT_ID).isPresent()));
+        long statementsBefore = statistics.getPrepareStatementCount();
+
+        transactionManager.produceTransaction(session -> {
+            Optional<User> user = userRepository.getUserByTelegramChatId(session, CHAT_ID);
+            Assert.assertTrue(user.isPresent());
+            Assert.assertEquals(Money.ofRubles(100), user.get().getBalance());
+        });
+
+        Assert.assertEquals(statementsBefore, statistics.getPrepareStatementCount());
+        Assert.assertTrue(statistics.getNaturalIdCacheHitCount() > 0);
+        Assert.assertTrue(cacheStatisticsService.getHitRatios().get(CacheRegion.USER) > 0);
+    }
+
+    /**
+     * Проверяет, что изменение пользователя видно в следующих транзакциях, хотя пользователь берется из кэша
+     */
+    @Test
+    public void updatedUserIsNotStale() {
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            userRepository.setBalance(session, user, Money.ofRubles(500));
+        });
+
+        transactionManager.produceTransaction(session -> Assert.assertEquals(Money.ofRubles(500),
+                userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow().getBalance()));
+    }
+
+    /**
+     * Проверяет, что повторный поиск категории берется из кэша запросов, а добавление категории сбрасывает его
+     */
+    @Test
+    public void categoryLookupIsCachedUntilCategoriesChange() {
+        transactionManager.produceTransaction(session -> categoryRepository
+                .getStandardCategoryByName(session, CategoryType.EXPENSE, "Такси").orElseThrow());
+        long statementsBefore = statistics.getPrepareStatementCount();
+
+        transactionManager.produceTransaction(session -> categoryRepository
+                .getStandardCategoryByName(session, CategoryType.EXPENSE, "Такси").orElseThrow());
+        Assert.assertEquals(statementsBefore, statistics.getPrepareStatementCount());
+        Assert.assertTrue(statistics.getQueryCacheHitCount() > 0);
+
+        transactionManager.produceTransaction(session -> {
+            try {
+                categoryRepository.createStandardCategory(session, CategoryType.EXPENSE, "Кафе");
+            } catch (ExistingStandardCategoryException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        transactionManager.produceTransaction(session -> Assert.assertTrue(categoryRepository
+                .getStandardCategoryByName(session, CategoryType.EXPENSE, "Кафе").isPresent()));
+    }
+
+    /**
+     * Проверяет, что отчет содержит все настроенные регионы
+     */
+    @Test
+    public void reportContainsRegions() {
+        String report = cacheStatisticsService.formatReport();
+        for (String region : CacheRegion.ALL) {
+            Assert.assertTrue(report, report.contains(region + ": "));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package ru.naumen.personalfinancebot.repository;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingStandardCategoryException;
+import ru.naumen.personalfinancebot.repository.operation.FakeDatedOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Тесты для полуинтервала месяцев {@link YearMonthRange}
+ */
+public class YearMonthRangeTest {
+    /**
+     * Менеджер для откртия транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    public YearMonthRangeTest() {
+        this.transactionManager = new TransactionManager(new HibernateConfiguration().getSessionFactory());
+    }
+
+    /**
+     * Очищение репозиториев после каждого теста
+     */
+    @After
+    public void afterEach() {
+        transactionManager.produceTransaction(session -> {
+            new ClearQueryManager().clear(session, Operation.class, Category.class, User.class);
+        });
+    }
+
+    /**
+     * Проверяет границы полуинтервала для одного месяца и для диапазона месяцев
+     */
+    @Test
+    public void rangeBounds() {
+        YearMonthRange december = YearMonthRange.of(YearMonth.of(2023, 12));
+        Assert.assertEquals(LocalDate.of(2023, 12, 1), december.getStartDate());
+        Assert.assertEquals(LocalDate.of(2024, 1, 1), december.getEndDate());
+
+        YearMonthRange range = YearMonthRange.of(YearMonth.of(2023, 2), YearMonth.of(2024, 2));
+        Assert.assertEquals(LocalDate.of(2023, 2, 1), range.getStartDate());
+        Assert.assertEquals(LocalDate.of(2024, 3, 1), range.getEndDate());
+    }
+
+    /**
+     * Проверяет, что нельзя создать полуинтервал, у которого начало позже конца
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void fromIsAfterTo() {
+        YearMonthRange.of(YearMonth.of(2024, 1), YearMonth.of(2023, 12));
+    }
+
+    /**
+     * Проверяет, что операции первого дня следующего месяца не попадают в сумму за текущий месяц
+     */
+    @Test
+    public void nextMonthFirstDayIsExcluded() {
+        FakeDatedOperationRepository operationRepository = new FakeDatedOperationRepository();
+        transactionManager.produceTransaction(session -> {
+            Category taxi;
+            try {
+                taxi = new HibernateCategoryRepository()
+                        .createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            } catch (ExistingStandardCategoryException e) {
+                throw new RuntimeException(e);
+            }
+            User user = new User(1L, Money.ZERO);
+            new HibernateUserRepository().saveUser(session, user);
+
+            operationRepository.addOperation(session, user, taxi, Money.ofRubles(100), LocalDate.of(2023, 12, 1));
+            operationRepository.addOperation(session, user, taxi, Money.ofRubles(200), LocalDate.of(2023, 12, 31));
+            operationRepository.addOperation(session, user, taxi, Money.ofRubles(400), LocalDate.of(2024, 1, 1));
+
+            Map<String, Money> december = operationRepository
+                    .getOperationsSumByType(session, user, 12, 2023, CategoryType.EXPENSE);
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(300)), december);
+            Assert.assertEquals(Money.ofRubles(400), operationRepository
+                    .getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE, YearMonth.of(2024, 1)));
+        });
+    }
+
+    /**
+     * Проверяет на H2, что именованный запрос отчета с условием полуинтервала ищет по индексу created_at по границам,
+     * а условие через year(...) и month(...) не может задать границы поиска по индексу
+     */
+    @Test
+    public void rangeConditionUsesCreatedAtIndex() {
+        YearMonthRange range = YearMonthRange.of(YearMonth.of(2023, 12));
+        String[] namedQuery = new String[1];
+        transactionManager.produceTransaction(session ->
+                namedQuery[0] = session.getNamedNativeQuery("Operation.averageByType").getQueryString());
+        // Именованные параметры встречаются в запросе несколько раз, каждое вхождение заменяется своим "?"
+        Map<String, LocalDate> bounds = Map.of(
+                YearMonthRange.START_DATE_PARAMETER, range.getStartDate(),
+                YearMonthRange.END_DATE_PARAMETER, range.getEndDate());
+        List<LocalDate> parameters = new ArrayList<>();
+        Matcher matcher = Pattern.compile(":(\\w+)").matcher(namedQuery[0]);
+        StringBuilder rangeSql = new StringBuilder();
+        while (matcher.find()) {
+            LocalDate bound = bounds.get(matcher.group(1));
+            Assert.assertNotNull(matcher.group(), bound);
+            parameters.add(bound);
+            matcher.appendReplacement(rangeSql, "?");
+        }
+        matcher.appendTail(rangeSql);
+        String rangePlan = explain(rangeSql.toString(), parameters);
+        Assert.assertTrue(rangePlan, rangePlan.contains("OPERATIONS_CREATED_AT_IDX: "));
+
+        String functionPlan = explain("SELECT id FROM operations "
+                                      + "WHERE EXTRACT(YEAR FROM created_at) = 2023 "
+                                      + "AND EXTRACT(MONTH FROM created_at) = 12", List.of());
+        Assert.assertFalse(functionPlan, functionPlan.contains("CREATED_AT_IDX: "));
+    }
+
+    /**
+     * Возвращает план выполнения SQL запроса в H2
+     *
+     * @param sql        SQL запрос
+     * @param parameters Даты для параметров запроса по порядку
+     */
+    private String explain(String sql, List<LocalDate> parameters) {
+        String[] plan = new String[1];
+        transactionManager.produceTransaction(session -> session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setDate(i + 1, Date.valueOf(parameters.get(i)));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    plan[0] = resultSet.getString(1);
+                }
+            }
+        }));
+        return plan[0];
+    }
+}
@@ -0,0 +1,384 @@
+package ru.naumen.personalfinancebot.repository.embedded;
+
+import org.hibernate.SessionFactory;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.operation.OperationCursor;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тесты для встроенного хранилища операций и бюджетов
+ */
+public class EmbeddedStorageTest {
+    /**
+     * Месяц, за который добавляются операции в тестах
+     */
+    private static final YearMonth MONTH = YearMonth.of(2023, 11);
+
+    /**
+     * Каталог хранилища
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Пользователь, от имени которого добавляются операции
+     */
+    private final User user = new User(1L, 10L, Money.ZERO);
+
+    /**
+     * Стандартная категория расходов
+     */
+    private final Category taxi = new Category(1L, null, "Такси", CategoryType.EXPENSE);
+
+    /**
+     * Категория расходов пользователя
+     */
+    private final Category coffee = new Category(2L, user, "Кофе", CategoryType.EXPENSE);
+
+    /**
+     * Стандартная категория доходов
+     */
+    private final Category salary = new Category(3L, null, "Зарплата", CategoryType.INCOME);
+
+    /**
+     * Проверяет суммы за месяц по категориям и средние по пользователям
+     */
+    @Test
+    public void sumsAndAverages() throws Exception {
+        try (EmbeddedStorage storage = new EmbeddedStorage(folder.getRoot().toPath())) {
+            EmbeddedOperationRepository repository = new EmbeddedOperationRepository(storage);
+            User otherUser = new User(2L, 20L, Money.ZERO);
+            add(repository, user, taxi, 100, 1);
+            add(repository, user, taxi, 50, 30);
+            add(repository, user, coffee, 30, 10);
+            add(repository, user, salary, 1000, 5);
+            add(repository, otherUser, taxi, 200, 1);
+            repository.addOperation(null, user, taxi, Money.ofRubles(7), MONTH.plusMonths(1).atDay(1),
+                    UUID.randomUUID());
+
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(150), "Кофе", Money.ofRubles(30)),
+                    repository.getOperationsSumByType(null, user, MONTH.getMonthValue(), MONTH.getYear(),
+                            CategoryType.EXPENSE));
+            Assert.assertEquals(Money.ofRubles(1000),
+                    repository.getCurrentUserPaymentSummary(null, user, CategoryType.INCOME, MONTH));
+            Assert.assertEquals(Money.ZERO,
+                    repository.getCurrentUserPaymentSummary(null, user, CategoryType.INCOME, MONTH.minusMonths(1)));
+            Assert.assertEquals(Map.of(CategoryType.EXPENSE, Money.ofRubles(190), CategoryType.INCOME,
+                    Money.ofRubles(1000)), repository.getEstimateSummary(null, MONTH));
+            Assert.assertEquals(Map.of("Зарплата", Money.ofRubles(1000), "Такси", Money.ofRubles(175)),
+                    repository.getAverageSummaryByStandardCategory(null, MONTH));
+            Assert.assertNull(repository.getEstimateSummary(null, MONTH.minusMonths(1)));
+        }
+    }
+
+    /**
+     * Проверяет, что операции, бюджеты и записи журнала сохраняются после повторного открытия хранилища,
+     * в том числе когда операции не помещаются в один сегмент
+     */
+    @Test
+    public void dataSurvivesReopen() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        UUID journalEntryId = UUID.randomUUID();
+        long lastId;
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedOperationRepository repository = new EmbeddedOperationRepository(storage);
+            for (int i = 0; i < ColumnSegment.ROWS + 10; i++) {
+                add(repository, user, taxi, 1, 1 + i % 28);
+            }
+            lastId = repository.addOperation(null, user, coffee, Money.ofRubles(5), MONTH.atDay(2), journalEntryId)
+                    .getId();
+            new EmbeddedBudgetRepository(storage).saveBudget(null,
+                    new Budget(user, Money.ofRubles(500), Money.ofRubles(300), MONTH));
+        }
+
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedOperationRepository repository = new EmbeddedOperationRepository(storage);
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(ColumnSegment.ROWS + 10), "Кофе", Money.ofRubles(5)),
+                    repository.getOperationsSumByType(null, user, MONTH.getMonthValue(), MONTH.getYear(),
+                            CategoryType.EXPENSE));
+            Assert.assertTrue(repository.isJournalEntryApplied(null, journalEntryId));
+            Assert.assertEquals(lastId + 1, add(repository, user, taxi, 1, 1));
+
+            Budget budget = new EmbeddedBudgetRepository(storage).getBudget(null, user, MONTH).orElseThrow();
+            Assert.assertEquals(Money.ofRubles(500), budget.getIncome());
+            Assert.assertEquals(Money.ofRubles(300), budget.getExpense());
+        }
+    }
+
+    /**
+     * Проверяет, что изменение бюджета заменяет его, а не добавляет новый
+     */
+    @Test
+    public void budgetIsUpdated() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedBudgetRepository repository = new EmbeddedBudgetRepository(storage);
+            repository.saveBudget(null, new Budget(user, Money.ofRubles(1), Money.ofRubles(1), MONTH));
+            Budget budget = repository.getBudget(null, user, MONTH).orElseThrow();
+            budget.setIncome(Money.ofRubles(2));
+            repository.saveBudget(null, budget);
+            repository.saveBudget(null, new Budget(user, Money.ofRubles(3), Money.ofRubles(3), MONTH.plusMonths(1)));
+        }
+
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedBudgetRepository repository = new EmbeddedBudgetRepository(storage);
+            Assert.assertEquals(2, repository.selectBudgetRange(null, user, MONTH, MONTH.plusMonths(1)).size());
+            Assert.assertEquals(Money.ofRubles(2), repository.getBudget(null, user, MONTH).orElseThrow().getIncome());
+            Assert.assertThrows(IllegalArgumentException.class,
+                    () -> repository.selectBudgetRange(null, user, MONTH, MONTH.minusMonths(1)));
+        }
+    }
+
+    /**
+     * Проверяет, что удаленные операции не учитываются в суммах и последних операциях после повторного открытия
+     */
+    @Test
+    public void removedOperationsSurviveReopen() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedOperationRepository repository = new EmbeddedOperationRepository(storage);
+            add(repository, user, taxi, 100, 1);
+            add(repository, user, coffee, 30, 2);
+            add(repository, user, taxi, 50, 3);
+            Operation last = repository.getLastOperations(null, user, 1).get(0);
+            Assert.assertEquals(Money.ofRubles(50), last.getPayment());
+            Assert.assertTrue(repository.removeOperation(null, user, last));
+            Assert.assertFalse(repository.removeOperation(null, user, last));
+        }
+
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedOperationRepository repository = new EmbeddedOperationRepository(storage);
+            List<Operation> last = repository.getLastOperations(null, user, 5);
+            Assert.assertEquals(List.of("Кофе", "Такси"),
+                    last.stream().map(operation -> operation.getCategory().getCategoryName()).toList());
+            Assert.assertEquals(user, last.get(0).getCategory().getUser());
+            Assert.assertEquals(Money.ofRubles(130),
+                    repository.getCurrentUserPaymentSummary(null, user, CategoryType.EXPENSE, MONTH));
+            Assert.assertEquals(4, add(repository, user, taxi, 1, 4));
+        }
+    }
+
+    /**
+     * Проверяет, что удаленные операции и удаленные бюджеты пользователя
+     * не появляются после повторного открытия
+     */
+    @Test
+    public void removedUserDataSurvivesReopen() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedOperationRepository operations = new EmbeddedOperationRepository(storage);
+            EmbeddedBudgetRepository budgets = new EmbeddedBudgetRepository(storage);
+            for (int day = 1; day <= 5; day++) {
+                add(operations, user, taxi, day, day);
+            }
+            budgets.saveBudget(null, new Budget(user, Money.ofRubles(1), Money.ofRubles(1), MONTH));
+            List<Long> progress = new ArrayList<>();
+            Assert.assertEquals(5, operations.removeAllOperations(null, user, 2, progress::add));
+            Assert.assertEquals(List.of(5L), progress);
+            Assert.assertEquals(1, budgets.removeAllBudgets(null, user));
+        }
+
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedOperationRepository operations = new EmbeddedOperationRepository(storage);
+            EmbeddedBudgetRepository budgets = new EmbeddedBudgetRepository(storage);
+            Assert.assertTrue(operations.getLastOperations(null, user, 10).isEmpty());
+            Assert.assertNull(operations.getEstimateSummary(null, MONTH));
+            Assert.assertTrue(budgets.getBudget(null, user, MONTH).isEmpty());
+            budgets.saveBudget(null, new Budget(user, Money.ofRubles(2), Money.ofRubles(2), MONTH));
+            Assert.assertEquals(Money.ofRubles(2), budgets.getBudget(null, user, MONTH).orElseThrow().getIncome());
+        }
+    }
+
+    /**
+     * Проверяет, что при удалении аккаунта операции, бюджеты и категории пользователя стираются с диска,
+     * данные другого пользователя остаются, а новые операции того же пользователя не считаются удаленными
+     */
+    @Test
+    public void erasedUserDataIsRemovedFromDisk() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        User otherUser = new User(2L, 20L, Money.ZERO);
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedOperationRepository operations = new EmbeddedOperationRepository(storage);
+            EmbeddedBudgetRepository budgets = new EmbeddedBudgetRepository(storage);
+            long removedId = add(operations, user, coffee, 70, 1);
+            add(operations, user, taxi, 30, 2);
+            add(operations, otherUser, taxi, 200, 1);
+            long otherRemovedId = add(operations, otherUser, taxi, 5, 2);
+            Assert.assertTrue(storage.removeOperation(user, removedId));
+            Assert.assertTrue(storage.removeOperation(otherUser, otherRemovedId));
+            budgets.saveBudget(null, new Budget(user, Money.ofRubles(1), Money.ofRubles(1), MONTH));
+            budgets.saveBudget(null, new Budget(otherUser, Money.ofRubles(2), Money.ofRubles(2), MONTH));
+
+            Assert.assertEquals(1, budgets.removeAllBudgets(null, user));
+            Assert.assertEquals(1, operations.removeAllOperations(null, user, 2, progress -> {
+            }));
+        }
+
+        Assert.assertFalse(Files.exists(directory.resolve("operations").resolve("10")));
+        Assert.assertFalse(new String(Files.readAllBytes(directory.resolve("categories.log"))).contains("Кофе"));
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedOperationRepository operations = new EmbeddedOperationRepository(storage);
+            EmbeddedBudgetRepository budgets = new EmbeddedBudgetRepository(storage);
+            Assert.assertTrue(budgets.getBudget(null, user, MONTH).isEmpty());
+            Assert.assertEquals(Money.ofRubles(2), budgets.getBudget(null, otherUser, MONTH).orElseThrow().getIncome());
+            Assert.assertEquals(List.of(Money.ofRubles(200)), operations.getLastOperations(null, otherUser, 10)
+                    .stream().map(Operation::getPayment).toList());
+
+            add(operations, user, coffee, 40, 3);
+            Assert.assertEquals(List.of(Money.ofRubles(40)), operations.getLastOperations(null, user, 10)
+                    .stream().map(Operation::getPayment).toList());
+        }
+    }
+
+    /**
+     * Проверяет, что страницы истории и перебор всех операций идут по дате и ID от последней операции
+     * и пропускают удаленные операции
+     */
+    @Test
+    public void operationsPagesSkipRemovedOperations() throws Exception {
+        try (EmbeddedStorage storage = new EmbeddedStorage(folder.getRoot().toPath())) {
+            EmbeddedOperationRepository repository = new EmbeddedOperationRepository(storage);
+            int[] days = {3, 1, 3, 2, 1, 3};
+            for (int i = 0; i < days.length; i++) {
+                add(repository, user, taxi, i + 1, days[i]);
+            }
+            repository.removeOperation(null, user, repository.getLastOperations(null, user, 1).get(0));
+
+            List<Long> payments = new ArrayList<>();
+            OperationCursor after = null;
+            for (List<Operation> page = repository.getOperationsPage(null, user, null, 2); !page.isEmpty();
+                 page = repository.getOperationsPage(null, user, after, 2)) {
+                page.forEach(operation -> payments.add(operation.getPayment().getKopecks() / 100));
+                after = OperationCursor.of(page.get(page.size() - 1));
+            }
+            Assert.assertEquals(List.of(3L, 1L, 4L, 5L, 2L), payments);
+
+            List<Long> allPayments = new ArrayList<>();
+            repository.forEachOperation(null, user,
+                    operation -> allPayments.add(operation.getPayment().getKopecks() / 100));
+            Assert.assertEquals(payments, allPayments);
+        }
+    }
+
+    /**
+     * Проверяет восстановление после сбоя во время записи: оборванная строка сегмента и оборванная запись
+     * в конце файла отбрасываются, а следующие записи дописываются на их место
+     */
+    @Test
+    public void recoversTornWrites() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            add(new EmbeddedOperationRepository(storage), user, taxi, 100, 1);
+        }
+        Path segment;
+        try (var files = Files.list(directory.resolve("operations").resolve(String.valueOf(user.getChatId())))) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // Сумма второй строки записана, а дата - нет
+            file.seek(ColumnSegment.ROWS * Integer.BYTES * 2L + Long.BYTES);
+            file.writeLong(999_00);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("budgets.log").toFile(), "rw")) {
+            // Длина записи записана, а данные - не полностью
+            file.seek(file.length());
+            file.writeInt(100);
+            file.writeLong(1L);
+        }
+
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            EmbeddedOperationRepository repository = new EmbeddedOperationRepository(storage);
+            Assert.assertEquals(Money.ofRubles(100),
+                    repository.getCurrentUserPaymentSummary(null, user, CategoryType.EXPENSE, MONTH));
+            add(repository, user, taxi, 1, 2);
+            new EmbeddedBudgetRepository(storage).saveBudget(null,
+                    new Budget(user, Money.ofRubles(1), Money.ofRubles(1), MONTH));
+        }
+
+        try (EmbeddedStorage storage = new EmbeddedStorage(directory)) {
+            Assert.assertEquals(Money.ofRubles(101), new EmbeddedOperationRepository(storage)
+                    .getCurrentUserPaymentSummary(null, user, CategoryType.EXPENSE, MONTH));
+            Assert.assertTrue(new EmbeddedBudgetRepository(storage).getBudget(null, user, MONTH).isPresent());
+        }
+    }
+
+    /**
+     * Проверяет, что изменения хранилища записываются только после фиксации транзакции БД:
+     * при откате операция не добавляется и запись журнала не отмечается выполненной,
+     * а при откате группы при групповой фиксации операция команды, повторенной отдельно, добавляется один раз
+     */
+    @Test
+    public void writesAreAppliedOnlyAfterCommit() throws Exception {
+        SessionFactory sessionFactory = new HibernateConfiguration().getSessionFactory();
+        TransactionManager groupedTransactionManager = new TransactionManager(sessionFactory,
+                Duration.ofSeconds(1), 2);
+        try (EmbeddedStorage storage = new EmbeddedStorage(folder.getRoot().toPath())) {
+            EmbeddedOperationRepository repository = new EmbeddedOperationRepository(storage);
+            UUID journalEntryId = UUID.randomUUID();
+            Assert.assertThrows(RuntimeException.class,
+                    () -> new TransactionManager(sessionFactory).produceTransaction(session -> {
+                        repository.addOperation(session, user, taxi, Money.ofRubles(100), MONTH.atDay(1),
+                                journalEntryId);
+                        Assert.assertEquals(Money.ZERO, repository.getCurrentUserPaymentSummary(session, user,
+                                CategoryType.EXPENSE, MONTH));
+                        Assert.assertEquals(Money.ofRubles(100), repository.getTransactionPaymentSummary(session,
+                                user, CategoryType.EXPENSE, MONTH));
+                        throw new IllegalStateException("Ошибка после добавления операции");
+                    }));
+            Assert.assertTrue(repository.getLastOperations(null, user, 10).isEmpty());
+            Assert.assertFalse(repository.isJournalEntryApplied(null, journalEntryId));
+
+            CompletableFuture<Void> committed = groupedTransactionManager.produceGroupedTransaction(session ->
+                    repository.addOperation(session, user, taxi, Money.ofRubles(50), MONTH.atDay(2),
+                            journalEntryId), () -> {
+            });
+            CompletableFuture<Void> failed = groupedTransactionManager.produceGroupedTransaction(session -> {
+                repository.addOperation(session, user, coffee, Money.ofRubles(30), MONTH.atDay(3), null);
+                throw new IllegalStateException("Ошибка второй команды группы");
+            }, () -> {
+            });
+            committed.get(10, TimeUnit.SECONDS);
+            Assert.assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+
+            Assert.assertEquals(List.of(Money.ofRubles(50)), repository.getLastOperations(null, user, 10)
+                    .stream().map(Operation::getPayment).toList());
+            Assert.assertTrue(repository.isJournalEntryApplied(null, journalEntryId));
+        } finally {
+            groupedTransactionManager.close();
+        }
+    }
+
+    /**
+     * Добавляет операцию за тестовый месяц
+     *
+     * @return ID операции
+     */
+    private static long add(EmbeddedOperationRepository repository, User user, Category category, long rubles,
+                            int day) {
+        return repository.addOperation(null, user, category, Money.ofRubles(rubles), MONTH.atDay(day),
+                UUID.randomUUID()).getId();
+    }
+}
@@ -0,0 +1,140 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Тесты для индекса сумм операций по дням
+ */
+public class DailyTotalsIndexTest {
+    /**
+     * ID тестового пользователя
+     */
+    private static final long USER_ID = 1L;
+
+    /**
+     * Первый день операций в тестах
+     */
+    private static final LocalDate START = LocalDate.of(2023, 11, 1);
+
+    /**
+     * Категория расходов
+     */
+    private final Category taxi = new Category(10L, null, "Такси", CategoryType.EXPENSE);
+
+    /**
+     * Текущее время для индекса в наносекундах
+     */
+    private final AtomicLong now = new AtomicLong();
+
+    /**
+     * Индекс с временем простоя в 1 минуту
+     */
+    private final DailyTotalsIndex index = new DailyTotalsIndex(Duration.ofMinutes(1), now::get);
+
+    /**
+     * Сравнивает суммы дерева Фенвика с суммами, посчитанными перебором, при добавлении дней в случайном порядке
+     */
+    @Test
+    public void fenwickTreeMatchesBruteForce() {
+        Random random = new Random(42);
+        long[] expected = new long[200];
+        DayFenwickTree tree = new DayFenwickTree();
+        for (int i = 0; i < 1000; i++) {
+            int day = random.nextInt(expected.length);
+            long amount = random.nextInt(1000) - 100;
+            expected[day] += amount;
+            tree.add(day, amount);
+
+            int from = random.nextInt(expected.length);
+            int to = from + random.nextInt(expected.length - from);
+            long sum = 0;
+            for (int d = from; d <= to; d++) {
+                sum += expected[d];
+            }
+            Assert.assertEquals(sum, tree.sum(from, to));
+        }
+        Assert.assertEquals(0, tree.sum(10, 5));
+    }
+
+    /**
+     * Проверяет, что суммы загружаются один раз, а зафиксированные операции добавляются в загруженные суммы
+     */
+    @Test
+    public void loadsOnceAndAppliesCommittedWrites() {
+        AtomicInteger loads = new AtomicInteger();
+        List<DailySum> stored = List.of(
+                new DailySum(taxi.getId(), "Такси", CategoryType.EXPENSE, START, 100),
+                new DailySum(taxi.getId(), "Такси", CategoryType.EXPENSE, START.plusDays(5), 200));
+
+        Assert.assertEquals(Map.of("Такси", Money.ofKopecks(300)), sum(START, START.plusDays(30), () -> {
+            loads.incrementAndGet();
+            return stored;
+        }));
+
+        Object committed = index.beginWrite(USER_ID);
+        index.endWrite(committed, taxi, Money.ofKopecks(50), START.plusDays(2), true);
+        Object rolledBack = index.beginWrite(USER_ID);
+        index.endWrite(rolledBack, taxi, Money.ofKopecks(1000), START.plusDays(2), false);
+
+        Assert.assertEquals(Map.of("Такси", Money.ofKopecks(150)), sum(START, START.plusDays(2), () -> {
+            loads.incrementAndGet();
+            return stored;
+        }));
+        Assert.assertNull(sum(START.plusDays(6), START.plusDays(30), () -> {
+            throw new AssertionError("Суммы должны браться из индекса");
+        }));
+        Assert.assertEquals(1, loads.get());
+    }
+
+    /**
+     * Проверяет, что суммы, загруженные во время незавершенной транзакции пользователя, не сохраняются
+     */
+    @Test
+    public void loadDuringWriteIsNotCached() {
+        Object write = index.beginWrite(USER_ID);
+        sum(START, START, List::of);
+        Assert.assertEquals(0, index.getLoadedUserCount());
+
+        index.endWrite(write, taxi, Money.ofKopecks(50), START, true);
+        Assert.assertEquals(Map.of("Такси", Money.ofKopecks(50)), sum(START, START,
+                () -> List.of(new DailySum(taxi.getId(), "Такси", CategoryType.EXPENSE, START, 50))));
+        Assert.assertEquals(1, index.getLoadedUserCount());
+    }
+
+    /**
+     * Проверяет, что суммы удаляются из памяти после простоя и при явном удалении
+     */
+    @Test
+    public void evictsIdleAndInvalidatedUsers() {
+        sum(START, START, List::of);
+        Assert.assertEquals(1, index.getLoadedUserCount());
+        index.evict(USER_ID);
+        Assert.assertEquals(0, index.getLoadedUserCount());
+
+        sum(START, START, List::of);
+        Assert.assertEquals(1, index.getLoadedUserCount());
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        index.sumByCategory(2L, CategoryType.EXPENSE, START, START, List::of);
+        Assert.assertEquals(1, index.getLoadedUserCount());
+    }
+
+    /**
+     * Возвращает суммы тестового пользователя по категориям расходов
+     */
+    private Map<String, Money> sum(LocalDate from, LocalDate to, Supplier<List<DailySum>> loader) {
+        return index.sumByCategory(USER_ID, CategoryType.EXPENSE, from, to, loader);
+    }
+}
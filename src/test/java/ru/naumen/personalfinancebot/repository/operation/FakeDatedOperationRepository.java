@@ -2,6 +2,7 @@ package ru.naumen.personalfinancebot.repository.operation;
 
 import org.hibernate.Session;
 import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.Money;
 import ru.naumen.personalfinancebot.model.Operation;
 import ru.naumen.personalfinancebot.model.User;
 
@@ -21,7 +22,7 @@ public class FakeDatedOperationRepository extends HibernateOperationRepository {
      * @param createdAt Дата создания операции
      * @return совершённая операция
      */
-    public Operation addOperation(Session session, User user, Category category, double payment, LocalDate createdAt) {
+    public Operation addOperation(Session session, User user, Category category, Money payment, LocalDate createdAt) {
         Operation operation = new Operation(user, category, payment, createdAt);
         session.save(operation);
         return operation;
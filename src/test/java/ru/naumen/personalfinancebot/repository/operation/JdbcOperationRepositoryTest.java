@@ -0,0 +1,205 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.JdbcCategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingStandardCategoryException;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingUserCategoryException;
+import ru.naumen.personalfinancebot.repository.category.exception.NotExistingCategoryException;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Тесты для JDBC репозиториев операций и категорий: результаты должны совпадать с Hibernate репозиториями
+ */
+public class JdbcOperationRepositoryTest {
+    /**
+     * JDBC репозиторий операций
+     */
+    private final JdbcOperationRepository jdbcOperationRepository;
+
+    /**
+     * Hibernate репозиторий операций, с которым сравниваются результаты
+     */
+    private final FakeDatedOperationRepository hibernateOperationRepository;
+
+    /**
+     * JDBC репозиторий категорий
+     */
+    private final JdbcCategoryRepository jdbcCategoryRepository;
+
+    /**
+     * Hibernate репозиторий категорий, с которым сравниваются результаты
+     */
+    private final HibernateCategoryRepository hibernateCategoryRepository;
+
+    /**
+     * Менеджер для откртия транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Тестовый пользователь
+     */
+    private User user;
+
+    /**
+     * Стандартная категория расходов
+     */
+    private Category taxi;
+
+    public JdbcOperationRepositoryTest() {
+        this.jdbcOperationRepository = new JdbcOperationRepository();
+        this.hibernateOperationRepository = new FakeDatedOperationRepository();
+        this.jdbcCategoryRepository = new JdbcCategoryRepository();
+        this.hibernateCategoryRepository = new HibernateCategoryRepository();
+        this.transactionManager = new TransactionManager(new HibernateConfiguration().getSessionFactory());
+    }
+
+    /**
+     * Создает пользователя и стандартную категорию перед каждым тестом
+     */
+    @Before
+    public void beforeEach() {
+        transactionManager.produceTransaction(session -> {
+            this.user = new User(1L, Money.ZERO);
+            new HibernateUserRepository().saveUser(session, user);
+            try {
+                this.taxi = hibernateCategoryRepository.createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            } catch (ExistingStandardCategoryException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Очищение репозиториев после каждого теста
+     */
+    @After
+    public void afterEach() {
+        transactionManager.produceTransaction(session -> {
+            new ClearQueryManager().clear(session, Operation.class, Category.class, User.class);
+        });
+    }
+
+    /**
+     * Проверяет, что операция, добавленная через JDBC, видна Hibernate и учитывается в суммах
+     */
+    @Test
+    public void addOperationAndSums() {
+        transactionManager.produceTransaction(session -> {
+            Operation operation = jdbcOperationRepository.addOperation(session, user, taxi, Money.ofRubles(-500));
+            Operation loaded = session.get(Operation.class, operation.getId());
+            Assert.assertEquals(Money.ofRubles(-500), loaded.getPayment());
+            Assert.assertEquals(LocalDate.now(), loaded.getCreatedAt());
+
+            YearMonth now = YearMonth.now();
+            Assert.assertEquals(
+                    hibernateOperationRepository.getOperationsSumByType(session, user,
+                            now.getMonthValue(), now.getYear(), CategoryType.EXPENSE),
+                    jdbcOperationRepository.getOperationsSumByType(session, user,
+                            now.getMonthValue(), now.getYear(), CategoryType.EXPENSE));
+            Assert.assertEquals(Money.ofRubles(-500), jdbcOperationRepository
+                    .getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE, now));
+        });
+    }
+
+    /**
+     * Проверяет, что операции, добавленные пакетом JDBC, учитываются в суммах и последних операциях
+     */
+    @Test
+    public void addOperationsBatch() {
+        transactionManager.produceTransaction(session -> {
+            List<Operation> operations = new ArrayList<>();
+            for (int day = 1; day <= 30; day++) {
+                operations.add(new Operation(user, taxi, Money.ofRubles(-day), LocalDate.of(2023, 11, day)));
+            }
+            jdbcOperationRepository.addOperations(session, user, operations);
+
+            Assert.assertEquals(Money.ofRubles(-465), jdbcOperationRepository
+                    .getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE, YearMonth.of(2023, 11)));
+            Assert.assertEquals(LocalDate.of(2023, 11, 30), jdbcOperationRepository
+                    .getLastOperations(session, user, 1).get(0).getCreatedAt());
+        });
+    }
+
+    /**
+     * Проверяет, что суммы считаются по полуинтервалу месяца, а пустой месяц дает null и ноль
+     */
+    @Test
+    public void sumsForMonthBounds() {
+        transactionManager.produceTransaction(session -> {
+            hibernateOperationRepository.addOperation(session, user, taxi, Money.ofRubles(100), LocalDate.of(2023, 12, 1));
+            hibernateOperationRepository.addOperation(session, user, taxi, Money.ofRubles(200), LocalDate.of(2023, 12, 31));
+            hibernateOperationRepository.addOperation(session, user, taxi, Money.ofRubles(400), LocalDate.of(2024, 1, 1));
+
+            Assert.assertEquals(
+                    hibernateOperationRepository.getOperationsSumByType(session, user, 12, 2023, CategoryType.EXPENSE),
+                    jdbcOperationRepository.getOperationsSumByType(session, user, 12, 2023, CategoryType.EXPENSE));
+            Assert.assertEquals(Money.ofRubles(300), jdbcOperationRepository
+                    .getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE, YearMonth.of(2023, 12)));
+
+            Assert.assertNull(jdbcOperationRepository
+                    .getOperationsSumByType(session, user, 11, 2023, CategoryType.EXPENSE));
+            Assert.assertEquals(Money.ZERO, jdbcOperationRepository
+                    .getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE, YearMonth.of(2023, 11)));
+        });
+    }
+
+    /**
+     * Проверяет поиск стандартных и пользовательских категорий без учета регистра и удаление категории
+     */
+    @Test
+    public void categoryLookupAndRemove() {
+        transactionManager.produceTransaction(session -> {
+            Category personal;
+            try {
+                personal = jdbcCategoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Кофе");
+            } catch (ExistingUserCategoryException | ExistingStandardCategoryException e) {
+                throw new RuntimeException(e);
+            }
+
+            Optional<Category> standard = jdbcCategoryRepository.getCategoryByName(session, user,
+                    CategoryType.EXPENSE, "такси");
+            Assert.assertTrue(standard.isPresent());
+            Assert.assertEquals(taxi.getId(), standard.get().getId());
+            Assert.assertTrue(standard.get().isStandard());
+
+            Optional<Category> found = jdbcCategoryRepository.getCategoryByName(session, user,
+                    CategoryType.EXPENSE, "КОФЕ");
+            Assert.assertTrue(found.isPresent());
+            Assert.assertEquals(personal.getId(), found.get().getId());
+            Assert.assertEquals("Кофе", found.get().getCategoryName());
+            Assert.assertFalse(found.get().isStandard());
+
+            Assert.assertTrue(jdbcCategoryRepository
+                    .getStandardCategoryByName(session, CategoryType.EXPENSE, "Кофе").isEmpty());
+            Assert.assertTrue(jdbcCategoryRepository
+                    .getCategoryByName(session, user, CategoryType.INCOME, "Кофе").isEmpty());
+
+            try {
+                jdbcCategoryRepository.removeUserCategoryByName(session, user, CategoryType.EXPENSE, "кофе");
+            } catch (NotExistingCategoryException e) {
+                throw new RuntimeException(e);
+            }
+            Assert.assertTrue(hibernateCategoryRepository
+                    .getCategoryByName(session, user, CategoryType.EXPENSE, "Кофе").isEmpty());
+        });
+    }
+}
@@ -0,0 +1,282 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.OperationSummary;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.service.OperationArchiveService;
+import ru.naumen.personalfinancebot.service.OutputMonthFormatService;
+import ru.naumen.personalfinancebot.service.OutputNumberFormatService;
+import ru.naumen.personalfinancebot.service.ReportService;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Тесты для переноса операций закрытых месяцев в архив: отчеты до и после переноса должны совпадать
+ */
+public class OperationArchiveTest {
+    /**
+     * Архивный месяц
+     */
+    private static final YearMonth SEPTEMBER = YearMonth.of(2023, 9);
+
+    /**
+     * Закрытый месяц, который остается без переноса в архив
+     */
+    private static final YearMonth OCTOBER = YearMonth.of(2023, 10);
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager =
+            new TransactionManager(new HibernateConfiguration().getSessionFactory());
+
+    /**
+     * Репозиторий операций с индексом сумм по дням и буферами последних операций
+     */
+    private final HibernateOperationRepository operationRepository = new HibernateOperationRepository(
+            new DailyTotalsIndex(Duration.ofMinutes(1)), new RecentOperationsBuffer(10, Duration.ofMinutes(1)));
+
+    /**
+     * JDBC репозиторий операций
+     */
+    private final JdbcOperationRepository jdbcOperationRepository = new JdbcOperationRepository();
+
+    /**
+     * Перенос в архив месяцев старше одного закрытого порциями по одному пользователю,
+     * текущий месяц - ноябрь 2023
+     */
+    private final OperationArchiveService archiveService = new OperationArchiveService(transactionManager,
+            operationRepository, 1, 1, Clock.fixed(LocalDate.of(2023, 11, 15).atStartOfDay()
+            .toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+
+    /**
+     * Репозиторий для работы с пользователем
+     */
+    private final HibernateUserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Тестовый пользователь
+     */
+    private User user;
+
+    /**
+     * Категория расходов пользователя
+     */
+    private Category taxi;
+
+    /**
+     * Стандартная категория доходов
+     */
+    private Category salary;
+
+    /**
+     * Создает пользователя и его операции за сентябрь, октябрь и ноябрь 2023
+     */
+    @Before
+    public void createOperations() {
+        transactionManager.produceTransaction(session -> {
+            user = new User(1L, Money.ZERO);
+            userRepository.saveUser(session, user);
+            HibernateCategoryRepository categoryRepository = new HibernateCategoryRepository();
+            try {
+                taxi = categoryRepository.createUserCategory(session, user, CategoryType.EXPENSE, "Такси");
+                salary = categoryRepository.createStandardCategory(session, CategoryType.INCOME, "Зарплата");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            List<Operation> operations = new ArrayList<>();
+            for (int day = 1; day <= 30; day++) {
+                operations.add(new Operation(user, taxi, Money.ofRubles(-day), SEPTEMBER.atDay(day)));
+                operations.add(new Operation(user, taxi, Money.ofRubles(-1), OCTOBER.atDay(day)));
+            }
+            operations.add(new Operation(user, salary, Money.ofRubles(1000), SEPTEMBER.atDay(15)));
+            operations.add(new Operation(user, salary, Money.ofRubles(2000), LocalDate.of(2023, 11, 1)));
+            operationRepository.addOperations(session, user, operations);
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager().clear(session,
+                OperationSummary.class, Budget.class, Operation.class, Category.class, User.class));
+    }
+
+    /**
+     * Проверяет, что переносятся только операции месяцев старше заданного, а месячные отчеты
+     * Hibernate и JDBC репозиториев и средние по пользователям после переноса не меняются
+     */
+    @Test
+    public void reportsAreSameAfterArchive() {
+        List<Object> before = selectReports();
+        Assert.assertEquals(31, archiveService.archiveClosedMonths());
+        Assert.assertEquals(0, archiveService.archiveClosedMonths());
+        Assert.assertEquals(before, selectReports());
+
+        transactionManager.produceTransaction(session -> {
+            List<Operation> history = operationRepository.getOperationsPage(session, user, null, 100);
+            Assert.assertEquals(31, history.size());
+            Assert.assertTrue(history.stream().noneMatch(operation -> operation.getCreatedAt().isBefore(
+                    OCTOBER.atDay(1))));
+            Assert.assertEquals(Map.of("Такси", Money.ofRubles(-495)), operationRepository.getOperationsSumByType(
+                    session, user, SEPTEMBER.atDay(1), OCTOBER.atEndOfMonth(), CategoryType.EXPENSE));
+        });
+    }
+
+    /**
+     * Проверяет, что диапазон дней, захватывающий архивный месяц не целиком, определяется по индексу сумм по дням
+     * и запросом к БД, отчет за такой диапазон отклоняется, а сумма за весь архивный месяц не меняется
+     */
+    @Test
+    public void partlyCoveredArchivedMonthIsRejected() {
+        LocalDate from = SEPTEMBER.atDay(10);
+        LocalDate to = SEPTEMBER.atEndOfMonth();
+        HibernateOperationRepository plainRepository = new HibernateOperationRepository();
+        ReportService reportService = new ReportService(operationRepository, new OutputMonthFormatService(),
+                new OutputNumberFormatService());
+        transactionManager.produceTransaction(session -> Assert.assertEquals(Optional.empty(),
+                operationRepository.getPartlyCoveredArchivedMonth(session, user, from, to)));
+        archiveService.archiveClosedMonths();
+        transactionManager.produceTransaction(session -> {
+            for (OperationRepository repository : List.of(operationRepository, plainRepository)) {
+                Assert.assertEquals(Optional.of(SEPTEMBER),
+                        repository.getPartlyCoveredArchivedMonth(session, user, from, to));
+                Assert.assertEquals(Optional.empty(), repository.getPartlyCoveredArchivedMonth(session, user,
+                        SEPTEMBER.atDay(1), OCTOBER.atDay(15)));
+                Assert.assertEquals(Optional.empty(), repository.getPartlyCoveredArchivedMonth(session, user,
+                        OCTOBER.atDay(2), OCTOBER.atDay(20)));
+                Assert.assertEquals(Map.of("Такси", Money.ofRubles(-465)), repository.getOperationsSumByType(
+                        session, user, SEPTEMBER.atDay(1), to, CategoryType.EXPENSE));
+            }
+            Assert.assertEquals("""
+                    Операции за 09.2023 перенесены в архив, и по ним хранится только итог за весь месяц.
+                    Запросите отчёт за месяц целиком: /report_expense 09.2023""",
+                    reportService.getExpenseReport(session, user, "10.09.2023", "15.10.2023"));
+        });
+    }
+
+    /**
+     * Проверяет, что операции, добавленные в архивный месяц после переноса, добавляются к его итогам
+     */
+    @Test
+    public void lateOperationsAreAddedToSummary() {
+        archiveService.archiveClosedMonths();
+        transactionManager.produceTransaction(session -> operationRepository.addOperations(session, user,
+                new ArrayList<>(List.of(new Operation(user, taxi, Money.ofRubles(-35), SEPTEMBER.atDay(20))))));
+        Assert.assertEquals(1, archiveService.archiveClosedMonths());
+        transactionManager.produceTransaction(session -> {
+            List<OperationSummary> summaries = session.createQuery("from OperationSummary summary "
+                    + "where summary.category.id = :categoryId", OperationSummary.class)
+                    .setParameter("categoryId", taxi.getId())
+                    .getResultList();
+            Assert.assertEquals(1, summaries.size());
+            Assert.assertEquals(SEPTEMBER, summaries.get(0).getYearMonth());
+            Assert.assertEquals(31, summaries.get(0).getOperationCount());
+            Assert.assertEquals(Money.ofRubles(-500), summaries.get(0).getPayment());
+            Assert.assertEquals(Money.ofRubles(-500), jdbcOperationRepository.getCurrentUserPaymentSummary(
+                    session, user, CategoryType.EXPENSE, SEPTEMBER));
+        });
+    }
+
+    /**
+     * Проверяет, что пользователи переносятся порциями, каждая в своей транзакции
+     */
+    @Test
+    public void usersAreArchivedInBatches() {
+        transactionManager.produceTransaction(session -> {
+            User other = new User(2L, Money.ZERO);
+            userRepository.saveUser(session, other);
+            operationRepository.addOperations(session, other, new ArrayList<>(List.of(
+                    new Operation(other, taxi, Money.ofRubles(-7), SEPTEMBER.atDay(3)),
+                    new Operation(other, taxi, Money.ofRubles(-8), SEPTEMBER.atDay(4)))));
+        });
+        Assert.assertEquals(33, archiveService.archiveClosedMonths());
+        transactionManager.produceTransaction(session -> {
+            List<OperationSummary> summaries = session.createQuery("from OperationSummary summary "
+                            + "where summary.category.id = :categoryId order by summary.user.id",
+                            OperationSummary.class)
+                    .setParameter("categoryId", taxi.getId())
+                    .getResultList();
+            Assert.assertEquals(2, summaries.size());
+            Assert.assertEquals(30, summaries.get(0).getOperationCount());
+            Assert.assertEquals(Money.ofRubles(-465), summaries.get(0).getPayment());
+            Assert.assertEquals(2, summaries.get(1).getOperationCount());
+            Assert.assertEquals(Money.ofRubles(-15), summaries.get(1).getPayment());
+        });
+    }
+
+    /**
+     * Проверяет, что если другая транзакция добавила операцию в архивный месяц между суммированием операций
+     * и их удалением, перенос порции откатывается, и операции переносятся при следующем переносе
+     */
+    @Test
+    public void operationAddedDuringArchiveRollsBackBatch() {
+        HibernateOperationRepository repository = new HibernateOperationRepository() {
+            @Override
+            protected void deleteArchivedOperations(Session session, YearMonth yearMonth, long afterUserId,
+                                                    long toUserId, long summed) {
+                CompletableFuture.runAsync(() -> transactionManager.produceTransaction(otherSession ->
+                        addOperations(otherSession, user, new ArrayList<>(List.of(new Operation(user, taxi,
+                                Money.ofRubles(-35), SEPTEMBER.atDay(20))))))).join();
+                super.deleteArchivedOperations(session, yearMonth, afterUserId, toUserId, summed);
+            }
+        };
+        Assert.assertThrows(RuntimeException.class, () -> transactionManager.produceTransaction(session ->
+                repository.archiveMonth(session, SEPTEMBER, 0, user.getId())));
+        transactionManager.produceTransaction(session -> Assert.assertEquals(0L, session.createQuery(
+                "select count(summary) from OperationSummary summary", Long.class).getSingleResult().longValue()));
+
+        Assert.assertEquals(32, archiveService.archiveClosedMonths());
+        transactionManager.produceTransaction(session -> Assert.assertEquals(Money.ofRubles(-500),
+                jdbcOperationRepository.getCurrentUserPaymentSummary(session, user, CategoryType.EXPENSE,
+                        SEPTEMBER)));
+    }
+
+    /**
+     * Собирает отчеты за сентябрь и октябрь из всех запросов, которые учитывают архив
+     */
+    private List<Object> selectReports() {
+        List<Object> reports = new ArrayList<>();
+        transactionManager.produceTransaction(session -> {
+            for (YearMonth month : List.of(SEPTEMBER, OCTOBER)) {
+                for (CategoryType type : CategoryType.values()) {
+                    for (OperationRepository repository : List.of(operationRepository, jdbcOperationRepository)) {
+                        reports.add(repository.getOperationsSumByType(session, user, month.getMonthValue(),
+                                month.getYear(), type));
+                        reports.add(repository.getCurrentUserPaymentSummary(session, user, type, month));
+                    }
+                    reports.add(operationRepository.getOperationsSumByType(session, user, month.atDay(1),
+                            month.atEndOfMonth(), type));
+                }
+                reports.add(operationRepository.getEstimateSummary(session, month));
+                reports.add(operationRepository.getAverageSummaryByStandardCategory(session, month));
+            }
+        });
+        return reports;
+    }
+}
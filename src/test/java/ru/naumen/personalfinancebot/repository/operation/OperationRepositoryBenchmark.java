@@ -0,0 +1,176 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.naumen.personalfinancebot.configuration.RepositoryConfiguration;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.category.CategoryRepository;
+import ru.naumen.personalfinancebot.repository.category.exception.ExistingStandardCategoryException;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение Hibernate и JDBC реализаций репозиториев операций и категорий на H2 (JMH).
+ * Это не тест, Maven его не запускает. Запуск:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/classpath.txt) \
+ *     ru.naumen.personalfinancebot.repository.operation.OperationRepositoryBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OperationRepositoryBenchmark {
+    /**
+     * Количество операций пользователя в каждом из месяцев, за которые заполняется БД
+     */
+    private static final int OPERATIONS_PER_MONTH = 200;
+
+    /**
+     * Количество месяцев, за которые заполняется БД
+     */
+    private static final int MONTHS = 12;
+
+    /**
+     * Реализация репозиториев, см. {@link RepositoryConfiguration.Implementation}
+     */
+    @Param({"hibernate", "jdbc"})
+    public String implementation;
+
+    /**
+     * Фабрика сессий Hibernate
+     */
+    private SessionFactory sessionFactory;
+
+    /**
+     * Менеджер для откртия транзакций
+     */
+    private TransactionManager transactionManager;
+
+    /**
+     * Репозиторий операций выбранной реализации
+     */
+    private OperationRepository operationRepository;
+
+    /**
+     * Репозиторий категорий выбранной реализации
+     */
+    private CategoryRepository categoryRepository;
+
+    /**
+     * Пользователь, от имени которого выполняются запросы
+     */
+    private User user;
+
+    /**
+     * Категория, по которой добавляются операции
+     */
+    private Category category;
+
+    /**
+     * Создает БД в памяти и заполняет ее операциями пользователя
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = new Configuration()
+                .configure()
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.show_sql", "false")
+                .buildSessionFactory();
+        transactionManager = new TransactionManager(sessionFactory);
+        RepositoryConfiguration configuration = new RepositoryConfiguration(implementation);
+        operationRepository = configuration.createOperationRepository();
+        categoryRepository = configuration.createCategoryRepository(transactionManager, List.of());
+
+        FakeDatedOperationRepository datedOperationRepository = new FakeDatedOperationRepository();
+        transactionManager.produceTransaction(session -> {
+            user = new User(1L, Money.ZERO);
+            new HibernateUserRepository().saveUser(session, user);
+            try {
+                category = categoryRepository.createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+                categoryRepository.createStandardCategory(session, CategoryType.EXPENSE, "Кафе");
+            } catch (ExistingStandardCategoryException e) {
+                throw new RuntimeException(e);
+            }
+            LocalDate start = YearMonth.now().minusMonths(MONTHS - 1).atDay(1);
+            for (int month = 0; month < MONTHS; month++) {
+                for (int i = 0; i < OPERATIONS_PER_MONTH; i++) {
+                    datedOperationRepository.addOperation(session, user, category, Money.ofRubles(-100),
+                            start.plusMonths(month).plusDays(i % 28));
+                }
+            }
+        });
+    }
+
+    /**
+     * Закрывает фабрику сессий и вместе с ней БД
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    /**
+     * Добавление операции
+     */
+    @Benchmark
+    public long addOperation() {
+        long[] id = new long[1];
+        transactionManager.produceTransaction(session -> id[0] = operationRepository
+                .addOperation(session, user, category, Money.ofRubles(-100)).getId());
+        return id[0];
+    }
+
+    /**
+     * Суммы расходов пользователя по категориям за прошлый месяц
+     */
+    @Benchmark
+    public Map<String, Money> monthlySumsByCategory() {
+        YearMonth previousMonth = YearMonth.now().minusMonths(1);
+        Object[] result = new Object[1];
+        transactionManager.produceTransaction(session -> result[0] = operationRepository
+                .getOperationsSumByType(session, user, previousMonth.getMonthValue(), previousMonth.getYear(),
+                        CategoryType.EXPENSE));
+        @SuppressWarnings("unchecked")
+        Map<String, Money> sums = (Map<String, Money>) result[0];
+        return sums;
+    }
+
+    /**
+     * Поиск категории по названию среди пользовательских и стандартных
+     */
+    @Benchmark
+    public Optional<Category> categoryLookup() {
+        Object[] result = new Object[1];
+        transactionManager.produceTransaction(session -> result[0] = categoryRepository
+                .getCategoryByName(session, user, CategoryType.EXPENSE, "кафе"));
+        @SuppressWarnings("unchecked")
+        Optional<Category> found = (Optional<Category>) result[0];
+        return found;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OperationRepositoryBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
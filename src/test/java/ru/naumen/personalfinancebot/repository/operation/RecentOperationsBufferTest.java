@@ -0,0 +1,144 @@
+package ru.naumen.personalfinancebot.repository.operation;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тесты для буферов последних операций
+ */
+public class RecentOperationsBufferTest {
+    /**
+     * Размер буфера в тестах
+     */
+    private static final int CAPACITY = 3;
+
+    /**
+     * Тестовый пользователь
+     */
+    private final User user = new User(1L, 1L, Money.ZERO);
+
+    /**
+     * Категория расходов
+     */
+    private final Category taxi = new Category(10L, null, "Такси", CategoryType.EXPENSE);
+
+    /**
+     * Буфер с временем простоя в 1 минуту
+     */
+    private final RecentOperationsBuffer buffer = new RecentOperationsBuffer(CAPACITY, Duration.ofMinutes(1));
+
+    /**
+     * Операции "в БД" в порядке добавления
+     */
+    private final List<Operation> stored = new ArrayList<>();
+
+    /**
+     * Количество загрузок из "БД"
+     */
+    private final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * Проверяет, что буфер загружается один раз, а зафиксированные операции вытесняют самые старые
+     */
+    @Test
+    public void committedOperationsEvictOldest() {
+        store(1);
+        store(2);
+        Assert.assertEquals(List.of(2L, 1L), ids(CAPACITY));
+        for (long id = 3; id <= 5; id++) {
+            add(store(id), true);
+        }
+        add(new Operation(6, user, taxi, Money.ofRubles(-6), LocalDate.now()), false);
+
+        Assert.assertEquals(List.of(5L, 4L, 3L), ids(CAPACITY));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, buffer.getLoadedUserCount());
+    }
+
+    /**
+     * Проверяет, что после удаления операций неполный буфер загружается заново, а полный отвечает сам
+     */
+    @Test
+    public void removalReloadsOnlyWhenBufferMayMissOperations() {
+        for (long id = 1; id <= 4; id++) {
+            store(id);
+        }
+        Assert.assertEquals(List.of(4L, 3L, 2L), ids(CAPACITY));
+        remove(4);
+        Assert.assertEquals(List.of(3L, 2L), ids(2));
+        Assert.assertEquals(1, loads.get());
+
+        Assert.assertEquals(List.of(3L, 2L, 1L), ids(CAPACITY));
+        Assert.assertEquals(2, loads.get());
+
+        remove(3);
+        remove(2);
+        remove(1);
+        Assert.assertEquals(List.of(), ids(CAPACITY));
+        Assert.assertEquals(List.of(), ids(1));
+        Assert.assertEquals(3, loads.get());
+    }
+
+    /**
+     * Проверяет, что буфер, загруженный во время незавершенной транзакции, не сохраняется
+     */
+    @Test
+    public void loadDuringWriteIsNotCached() {
+        store(1);
+        Object write = buffer.beginWrite(user.getId());
+        Assert.assertEquals(List.of(1L), ids(CAPACITY));
+        Operation operation = store(2);
+        buffer.endAdd(write, operation, true);
+        Assert.assertEquals(List.of(2L, 1L), ids(CAPACITY));
+        Assert.assertEquals(2, loads.get());
+    }
+
+    /**
+     * Добавляет операцию в "БД"
+     */
+    private Operation store(long id) {
+        Operation operation = new Operation(id, user, taxi, Money.ofRubles(-id), LocalDate.now());
+        stored.add(operation);
+        return operation;
+    }
+
+    /**
+     * Отмечает добавление операции транзакцией с указанным исходом
+     */
+    private void add(Operation operation, boolean committed) {
+        buffer.endAdd(buffer.beginWrite(user.getId()), operation, committed);
+    }
+
+    /**
+     * Удаляет операцию из "БД" зафиксированной транзакцией
+     */
+    private void remove(long id) {
+        Object write = buffer.beginWrite(user.getId());
+        stored.removeIf(operation -> operation.getId() == id);
+        buffer.endRemove(write, id, true);
+    }
+
+    /**
+     * Возвращает ID не более limit последних операций из буфера
+     */
+    private List<Long> ids(int limit) {
+        return buffer.getLast(user, limit, count -> {
+            loads.incrementAndGet();
+            List<Operation> newest = new ArrayList<>(stored);
+            Collections.reverse(newest);
+            return newest.subList(0, Math.min(count, newest.size()));
+        }).stream().map(Operation::getId).toList();
+    }
+}
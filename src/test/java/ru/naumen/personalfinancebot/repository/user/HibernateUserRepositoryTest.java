@@ -0,0 +1,143 @@
+package ru.naumen.personalfinancebot.repository.user;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Тесты для получения или создания пользователя в {@link HibernateUserRepository}
+ */
+public class HibernateUserRepositoryTest {
+    /**
+     * ID чата тестового пользователя
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * Количество потоков, одновременно создающих одного пользователя
+     */
+    private static final int THREADS = 4;
+
+    /**
+     * Репозиторий пользователей
+     */
+    private final HibernateUserRepository userRepository;
+
+    /**
+     * Менеджер для откртия транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    public HibernateUserRepositoryTest() {
+        this.userRepository = new HibernateUserRepository();
+        this.transactionManager = new TransactionManager(new HibernateConfiguration().getSessionFactory());
+    }
+
+    /**
+     * Очищение репозиториев после каждого теста
+     */
+    @After
+    public void afterEach() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager().clear(session, User.class));
+    }
+
+    /**
+     * Проверяет, что новый пользователь создается с нулевым балансом и сразу доступен в той же сессии
+     */
+    @Test
+    public void createsNewUser() {
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getOrCreateUser(session, CHAT_ID);
+            Assert.assertNotNull(user.getId());
+            Assert.assertEquals(CHAT_ID, user.getChatId());
+            Assert.assertEquals(Money.ZERO, user.getBalance());
+            Assert.assertSame(user, userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow());
+        });
+    }
+
+    /**
+     * Проверяет, что для существующего пользователя возвращается он сам, а изменение баланса созданного
+     * пользователя сохраняется
+     */
+    @Test
+    public void returnsExistingUser() {
+        long[] userId = new long[1];
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getOrCreateUser(session, CHAT_ID);
+            userRepository.setBalance(session, user, Money.ofRubles(100));
+            userId[0] = user.getId();
+        });
+
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getOrCreateUser(session, CHAT_ID);
+            Assert.assertEquals(userId[0], (long) user.getId());
+            Assert.assertEquals(Money.ofRubles(100), user.getBalance());
+        });
+    }
+
+    /**
+     * Проверяет, что одновременные вызовы для одного chat id в разных транзакциях завершаются без ошибок
+     * и возвращают одного и того же пользователя
+     */
+    @Test
+    public void concurrentCallsReturnSameUser() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> userIds = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                userIds.add(executor.submit(() -> {
+                    long[] userId = new long[1];
+                    start.await();
+                    transactionManager.produceTransaction(session ->
+                            userId[0] = userRepository.getOrCreateUser(session, CHAT_ID).getId());
+                    return userId[0];
+                }));
+            }
+            start.countDown();
+            long expectedId = userIds.get(0).get();
+            for (Future<Long> userId : userIds) {
+                Assert.assertEquals(expectedId, (long) userId.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Проверяет, что баланс изменяется относительно значения в БД: изменение, зафиксированное другой транзакцией
+     * после загрузки пользователя, не теряется, в том числе при записи других изменений пользователя
+     */
+    @Test
+    public void balanceChangeIsRelative() {
+        transactionManager.produceTransaction(session -> userRepository.getOrCreateUser(session, CHAT_ID));
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            CompletableFuture.runAsync(() -> transactionManager.produceTransaction(otherSession ->
+                    userRepository.changeBalance(otherSession,
+                            userRepository.getUserByTelegramChatId(otherSession, CHAT_ID).orElseThrow(),
+                            Money.ofRubles(10)))).join();
+            userRepository.changeBalance(session, user, Money.ofRubles(5));
+            user.setBudgetRollover(true);
+        });
+
+        transactionManager.produceTransaction(session -> {
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            Assert.assertEquals(Money.ofRubles(15), user.getBalance());
+            Assert.assertTrue(user.isBudgetRollover());
+        });
+    }
+}
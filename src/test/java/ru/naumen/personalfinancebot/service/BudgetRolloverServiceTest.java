@@ -0,0 +1,211 @@
+package ru.naumen.personalfinancebot.service;
+
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.recurring.HibernateRecurringOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тесты для переноса бюджетов на новый месяц
+ */
+public class BudgetRolloverServiceTest {
+    /**
+     * Месяц, бюджеты которого переносятся
+     */
+    private static final YearMonth LAST_MONTH = YearMonth.of(2023, 3);
+
+    /**
+     * Месяц, на который переносятся бюджеты
+     */
+    private static final YearMonth CURRENT_MONTH = YearMonth.of(2023, 4);
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager =
+            new TransactionManager(new HibernateConfiguration().getSessionFactory());
+
+    /**
+     * Хранилище пользователей
+     */
+    private final HibernateUserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Хранилище бюджетов
+     */
+    private final HibernateBudgetRepository budgetRepository = new HibernateBudgetRepository();
+
+    /**
+     * Обработчик всех команд бота
+     */
+    private final FinanceBotHandler botHandler = new FinanceBotHandler(userRepository,
+            new HibernateOperationRepository(), new HibernateCategoryRepository(), budgetRepository);
+
+    /**
+     * Создает пользователей 1-4 с бюджетами на март, кроме пользователя 4. У пользователя 2 уже есть
+     * бюджет на апрель. Перенос включают командой пользователи 1, 2 и 4
+     */
+    @Before
+    public void createBudgets() {
+        transactionManager.produceTransaction(session -> {
+            for (long chatId = 1; chatId <= 4; chatId++) {
+                User user = new User(chatId, Money.ZERO);
+                userRepository.saveUser(session, user);
+                if (chatId != 4) {
+                    budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(1000 * chatId),
+                            Money.ofRubles(500 * chatId), LAST_MONTH));
+                }
+                if (chatId == 2) {
+                    budgetRepository.saveBudget(session, new Budget(user, Money.ofRubles(7),
+                            Money.ofRubles(7), CURRENT_MONTH));
+                }
+            }
+        });
+        for (long chatId : List.of(1L, 2L, 4L)) {
+            MockBot bot = new MockBot();
+            transactionManager.produceTransaction(session -> botHandler.handleCommand(new CommandData(bot,
+                    userRepository.getUserByTelegramChatId(session, chatId).orElseThrow(), "budget_rollover",
+                    List.of("on")), session));
+            Assert.assertTrue(bot.poolMessageQueue().text().startsWith("Перенос бюджета включен"));
+        }
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager()
+                .clear(session, Budget.class, User.class));
+    }
+
+    /**
+     * Проверяет, что без фоновых сервисов, например, со встроенным хранилищем, команда /budget_rollover
+     * отвечает, что перенос недоступен, и не изменяет настройку переноса
+     */
+    @Test
+    public void rolloverCommandIsUnavailableWithoutBackgroundServices() {
+        FinanceBotHandler embeddedHandler = new FinanceBotHandler(userRepository, new HibernateOperationRepository(),
+                new HibernateCategoryRepository(), budgetRepository, new HibernateRecurringOperationRepository(),
+                null, false);
+        MockBot bot = new MockBot();
+        transactionManager.produceTransaction(session -> embeddedHandler.handleCommand(new CommandData(bot,
+                userRepository.getUserByTelegramChatId(session, 1L).orElseThrow(), "budget_rollover",
+                List.of("off")), session));
+        Assert.assertEquals("Перенос бюджета недоступен в этом режиме работы бота", bot.poolMessageQueue().text());
+        transactionManager.produceTransaction(session -> Assert.assertTrue(userRepository
+                .getUserByTelegramChatId(session, 1L).orElseThrow().isBudgetRollover()));
+    }
+
+    /**
+     * Проверяет, что бюджет переносится только пользователю, который включил перенос и у которого нет бюджета
+     * на новый месяц, а повторный перенос, например другим экземпляром бота, ничего не добавляет
+     */
+    @Test
+    public void copiesBudgetsOnce() {
+        Assert.assertEquals(1, createService().rolloverBudgets());
+        Assert.assertEquals(0, createService().rolloverBudgets());
+
+        transactionManager.produceTransaction(session -> {
+            Assert.assertEquals(List.of(Money.ofRubles(1000), Money.ofRubles(500)),
+                    getCurrentBudget(session, 1).map(budget -> List.of(budget.getIncome(), budget.getExpense()))
+                            .orElseThrow());
+            Assert.assertEquals(Money.ofRubles(7), getCurrentBudget(session, 2).orElseThrow().getIncome());
+            Assert.assertTrue(getCurrentBudget(session, 3).isEmpty());
+            Assert.assertTrue(getCurrentBudget(session, 4).isEmpty());
+        });
+    }
+
+    /**
+     * Проверяет, что перенос той же порции вторым экземпляром, начатый до фиксации первого переноса,
+     * дожидается фиксации и ничего не добавляет, а не завершается ошибкой уникального ограничения
+     */
+    @Test
+    public void concurrentRolloverWaitsForFirst() throws Exception {
+        CountDownLatch copied = new CountDownLatch(1);
+        HibernateBudgetRepository slowRepository = new HibernateBudgetRepository() {
+            @Override
+            public int rolloverBudgets(Session session, YearMonth yearMonth, long afterUserId, long toUserId) {
+                int count = super.rolloverBudgets(session, yearMonth, afterUserId, toUserId);
+                copied.countDown();
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return count;
+            }
+        };
+        CompletableFuture<Long> first = CompletableFuture.supplyAsync(() ->
+                createService(slowRepository).rolloverBudgets());
+        Assert.assertTrue(copied.await(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(0, createService().rolloverBudgets());
+        Assert.assertEquals(1, (long) first.get(10, TimeUnit.SECONDS));
+        transactionManager.produceTransaction(session -> Assert.assertTrue(getCurrentBudget(session, 1)
+                .isPresent()));
+    }
+
+    /**
+     * Проверяет, что второй бюджет на тот же месяц не сохраняется из-за уникального ограничения
+     */
+    @Test
+    public void secondBudgetForMonthIsRejected() {
+        RuntimeException exception = Assert.assertThrows(RuntimeException.class, () ->
+                transactionManager.produceTransaction(session -> budgetRepository.saveBudget(session,
+                        new Budget(userRepository.getUserByTelegramChatId(session, 2L).orElseThrow(),
+                                Money.ofRubles(1), Money.ofRubles(1), CURRENT_MONTH))));
+        Assert.assertTrue(exception.getCause().getCause() instanceof ConstraintViolationException);
+    }
+
+    /**
+     * Создает сервис переноса с порцией в одного пользователя, для которого сейчас апрель 2023
+     */
+    private BudgetRolloverService createService() {
+        return createService(budgetRepository);
+    }
+
+    /**
+     * Создает сервис переноса с указанным репозиторием бюджетов, порцией в одного пользователя,
+     * для которого сейчас апрель 2023
+     */
+    private BudgetRolloverService createService(HibernateBudgetRepository repository) {
+        return new BudgetRolloverService(transactionManager, repository, 1,
+                Clock.fixed(LocalDate.of(2023, 4, 1).atStartOfDay(ZoneId.systemDefault()).toInstant(),
+                        ZoneId.systemDefault()));
+    }
+
+    /**
+     * Возвращает бюджет пользователя на апрель 2023
+     */
+    private Optional<Budget> getCurrentBudget(Session session, long chatId) {
+        return budgetRepository.getBudget(session, userRepository.getUserByTelegramChatId(session, chatId)
+                .orElseThrow(), CURRENT_MONTH);
+    }
+}
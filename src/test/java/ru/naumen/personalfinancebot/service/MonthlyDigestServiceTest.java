@@ -0,0 +1,219 @@
+package ru.naumen.personalfinancebot.service;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.bot.MockMessage;
+import ru.naumen.personalfinancebot.bot.RateLimitedSender;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.model.Budget;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.DigestCheckpoint;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.OperationSummary;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.digest.DigestRepository;
+import ru.naumen.personalfinancebot.repository.digest.HibernateDigestRepository;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тесты для рассылки итогов месяца
+ */
+public class MonthlyDigestServiceTest {
+    /**
+     * Месяц, итоги которого рассылаются
+     */
+    private static final YearMonth MONTH = YearMonth.of(2023, 3);
+
+    /**
+     * Итоги пользователя с бюджетом
+     */
+    private static final String BUDGET_DIGEST = """
+            Итоги за Март 2023:
+            Доходы: 1 200 из 1 000 ожидаемых
+            Расходы: 600 из 500 ожидаемых
+            Бюджет расходов превышен на 100""";
+
+    /**
+     * Итоги пользователя без бюджета, часть операций которого перенесена в архив
+     */
+    private static final String NO_BUDGET_DIGEST = """
+            Итоги за Март 2023:
+            Доходы: 0
+            Расходы: 150
+            Бюджет на месяц не был составлен. Составить бюджет на текущий месяц можно командой /budget_create""";
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager =
+            new TransactionManager(new HibernateConfiguration().getSessionFactory());
+
+    /**
+     * Хранилище итогов месяца и контрольных точек
+     */
+    private final DigestRepository digestRepository = new HibernateDigestRepository();
+
+    /**
+     * Бот, через который отправляются итоги
+     */
+    private final MockBot bot = new MockBot();
+
+    /**
+     * Очередь отправки итогов
+     */
+    private final RateLimitedSender sender = new RateLimitedSender(bot, 1000, 10);
+
+    /**
+     * Рассылка по двум пользователям в порции в начале апреля 2023
+     */
+    private final MonthlyDigestService digestService = new MonthlyDigestService(transactionManager,
+            digestRepository, sender, 2, Clock.fixed(LocalDate.of(2023, 4, 5)
+            .atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()));
+
+    /**
+     * ID пользователя с бюджетом
+     */
+    private long budgetUserId;
+
+    /**
+     * Создает пользователя с бюджетом и операциями за март и апрель, пользователя без бюджета с расходом
+     * и итогом архива за март и пользователя без операций
+     */
+    @Before
+    public void createData() {
+        transactionManager.produceTransaction(session -> {
+            HibernateUserRepository userRepository = new HibernateUserRepository();
+            User budgetUser = new User(1, Money.ZERO);
+            User noBudgetUser = new User(2, Money.ZERO);
+            userRepository.saveUser(session, budgetUser);
+            userRepository.saveUser(session, noBudgetUser);
+            userRepository.saveUser(session, new User(3, Money.ZERO));
+            budgetUserId = budgetUser.getId();
+
+            HibernateCategoryRepository categoryRepository = new HibernateCategoryRepository();
+            Category salary;
+            Category taxi;
+            try {
+                salary = categoryRepository.createStandardCategory(session, CategoryType.INCOME, "Зарплата");
+                taxi = categoryRepository.createStandardCategory(session, CategoryType.EXPENSE, "Такси");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            new HibernateBudgetRepository().saveBudget(session, new Budget(budgetUser, Money.ofRubles(1000),
+                    Money.ofRubles(500), MONTH));
+            HibernateOperationRepository operationRepository = new HibernateOperationRepository();
+            operationRepository.addOperations(session, budgetUser, List.of(
+                    new Operation(budgetUser, salary, Money.ofRubles(1200), MONTH.atDay(10)),
+                    new Operation(budgetUser, taxi, Money.ofRubles(-400), MONTH.atDay(1)),
+                    new Operation(budgetUser, taxi, Money.ofRubles(-200), MONTH.atEndOfMonth()),
+                    new Operation(budgetUser, taxi, Money.ofRubles(-1000), MONTH.plusMonths(1).atDay(1))));
+            operationRepository.addOperations(session, noBudgetUser, List.of(
+                    new Operation(noBudgetUser, taxi, Money.ofRubles(-100), MONTH.atDay(15))));
+            OperationSummary summary = new OperationSummary(noBudgetUser, taxi, MONTH);
+            summary.add(Money.ofRubles(-50), 1);
+            session.save(summary);
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах, и останавливает отправку
+     */
+    @After
+    public void clear() {
+        sender.close();
+        transactionManager.produceTransaction(session -> new ClearQueryManager().clear(session,
+                DigestCheckpoint.class, Budget.class, OperationSummary.class, Operation.class, Category.class,
+                User.class));
+    }
+
+    /**
+     * Проверяет, что итоги прошлого месяца отправляются пользователям с операциями или бюджетом,
+     * а повторная рассылка после завершения ничего не отправляет
+     */
+    @Test
+    public void sendsDigestsOnce() {
+        Assert.assertEquals(2, digestService.broadcastLastMonth());
+
+        Assert.assertEquals(List.of("1: " + BUDGET_DIGEST, "2: " + NO_BUDGET_DIGEST), pollMessages());
+        transactionManager.produceTransaction(session -> Assert.assertTrue(
+                digestRepository.getCheckpoint(session, MONTH).orElseThrow().isCompleted()));
+
+        Assert.assertEquals(0, digestService.broadcastLastMonth());
+        Assert.assertEquals(List.of(), pollMessages());
+    }
+
+    /**
+     * Проверяет, что рассылка продолжается с пользователя после контрольной точки
+     */
+    @Test
+    public void resumesFromCheckpoint() {
+        transactionManager.produceTransaction(session -> {
+            DigestCheckpoint checkpoint = new DigestCheckpoint(MONTH);
+            checkpoint.setLastUserId(budgetUserId);
+            digestRepository.saveCheckpoint(session, checkpoint);
+        });
+
+        Assert.assertEquals(1, digestService.broadcastLastMonth());
+
+        Assert.assertEquals(List.of("2: " + NO_BUDGET_DIGEST), pollMessages());
+    }
+
+    /**
+     * Проверяет, что рассылка выполняет свои транзакции, пока поток обработки команд держит открытой
+     * свою транзакцию: каждая транзакция рассылки получает свое соединение из пула
+     */
+    @Test
+    public void broadcastsWhileCommandTransactionIsOpen() throws Exception {
+        CountDownLatch commandStarted = new CountDownLatch(1);
+        CountDownLatch broadcastDone = new CountDownLatch(1);
+        CompletableFuture<Void> command = CompletableFuture.runAsync(() -> transactionManager.produceTransaction(
+                session -> {
+                    new HibernateUserRepository().getUserByTelegramChatId(session, 3L).orElseThrow();
+                    commandStarted.countDown();
+                    try {
+                        broadcastDone.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        Assert.assertTrue(commandStarted.await(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(2, digestService.broadcastLastMonth());
+        broadcastDone.countDown();
+
+        command.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(List.of("1: " + BUDGET_DIGEST, "2: " + NO_BUDGET_DIGEST), pollMessages());
+    }
+
+    /**
+     * Забирает отправленные ботом сообщения в виде "ID чата: текст"
+     */
+    private List<String> pollMessages() {
+        List<String> messages = new ArrayList<>();
+        while (bot.getMessageQueueSize() > 0) {
+            MockMessage message = bot.poolMessageQueue();
+            messages.add(message.chatId() + ": " + message.text());
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,218 @@
+package ru.naumen.personalfinancebot.service;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ru.naumen.personalfinancebot.bot.MockBot;
+import ru.naumen.personalfinancebot.configuration.HibernateConfiguration;
+import ru.naumen.personalfinancebot.handler.FinanceBotHandler;
+import ru.naumen.personalfinancebot.handler.commandData.CommandData;
+import ru.naumen.personalfinancebot.model.Category;
+import ru.naumen.personalfinancebot.model.CategoryType;
+import ru.naumen.personalfinancebot.model.Money;
+import ru.naumen.personalfinancebot.model.Operation;
+import ru.naumen.personalfinancebot.model.RecurringOperation;
+import ru.naumen.personalfinancebot.model.User;
+import ru.naumen.personalfinancebot.repository.ClearQueryManager;
+import ru.naumen.personalfinancebot.repository.TransactionManager;
+import ru.naumen.personalfinancebot.repository.budget.HibernateBudgetRepository;
+import ru.naumen.personalfinancebot.repository.category.HibernateCategoryRepository;
+import ru.naumen.personalfinancebot.repository.operation.HibernateOperationRepository;
+import ru.naumen.personalfinancebot.repository.recurring.HibernateRecurringOperationRepository;
+import ru.naumen.personalfinancebot.repository.recurring.RecurringOperationRepository;
+import ru.naumen.personalfinancebot.repository.user.HibernateUserRepository;
+import ru.naumen.personalfinancebot.repository.user.UserRepository;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тесты для планировщика регулярных операций
+ */
+public class RecurringOperationSchedulerTest {
+    /**
+     * ID чата пользователя с наступившими правилами
+     */
+    private static final long CHAT_ID = 1L;
+
+    /**
+     * ID чата пользователя с правилом, которое еще не наступило
+     */
+    private static final long OTHER_CHAT_ID = 2L;
+
+    /**
+     * Сегодняшняя дата планировщика
+     */
+    private static final LocalDate TODAY = LocalDate.of(2023, 3, 15);
+
+    /**
+     * Менеджер транзакций
+     */
+    private final TransactionManager transactionManager;
+
+    /**
+     * Статистика Hibernate, по которой считаются загруженные правила
+     */
+    private final Statistics statistics;
+
+    /**
+     * Репозиторий для работы с пользователем
+     */
+    private final UserRepository userRepository = new HibernateUserRepository();
+
+    /**
+     * Репозиторий для работы с регулярными операциями
+     */
+    private final RecurringOperationRepository recurringOperationRepository =
+            new HibernateRecurringOperationRepository();
+
+    /**
+     * Планировщик, обрабатывающий по одному правилу в транзакции
+     */
+    private final RecurringOperationScheduler scheduler;
+
+    public RecurringOperationSchedulerTest() {
+        SessionFactory sessionFactory = new HibernateConfiguration().getSessionFactory();
+        this.transactionManager = new TransactionManager(sessionFactory);
+        this.statistics = sessionFactory.getStatistics();
+        this.scheduler = createScheduler(recurringOperationRepository);
+    }
+
+    /**
+     * Создает пользователю аренду на 100 рублей 31-го числа с 10.01.2023 и зарплату на 1000 рублей
+     * 1-го числа с 01.01.2023, а другому пользователю - аренду, которая наступит после сегодняшнего дня
+     */
+    @Before
+    public void createRecurringOperations() {
+        transactionManager.produceTransaction(session -> {
+            User user = new User(CHAT_ID, Money.ZERO);
+            User otherUser = new User(OTHER_CHAT_ID, Money.ZERO);
+            userRepository.saveUser(session, user);
+            userRepository.saveUser(session, otherUser);
+            HibernateCategoryRepository categoryRepository = new HibernateCategoryRepository();
+            Category rent;
+            Category salary;
+            try {
+                rent = categoryRepository.createStandardCategory(session, CategoryType.EXPENSE, "Аренда");
+                salary = categoryRepository.createStandardCategory(session, CategoryType.INCOME, "Зарплата");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            recurringOperationRepository.saveRecurringOperation(session, new RecurringOperation(user, rent,
+                    Money.ofRubles(-100), 31, LocalDate.of(2023, 1, 10)));
+            recurringOperationRepository.saveRecurringOperation(session, new RecurringOperation(user, salary,
+                    Money.ofRubles(1000), 1, LocalDate.of(2023, 1, 1)));
+            recurringOperationRepository.saveRecurringOperation(session, new RecurringOperation(otherUser, rent,
+                    Money.ofRubles(-100), 20, TODAY));
+        });
+    }
+
+    /**
+     * Удаляет данные, созданные в тестах
+     */
+    @After
+    public void clear() {
+        transactionManager.produceTransaction(session -> new ClearQueryManager().clear(session,
+                RecurringOperation.class, Operation.class, Category.class, User.class));
+    }
+
+    /**
+     * Проверяет, что после простоя по каждому правилу добавляются все пропущенные операции с их датами,
+     * в месяце без 31-го числа - в последний день месяца, баланс изменяется на их сумму,
+     * а правило, которое еще не наступило, не загружается
+     */
+    @Test
+    public void catchesUpMissedOperations() {
+        long loadsBefore = statistics.getEntityStatistics(RecurringOperation.class.getName()).getLoadCount();
+
+        Assert.assertEquals(5, scheduler.addDueOperations());
+
+        Assert.assertEquals(2, statistics.getEntityStatistics(RecurringOperation.class.getName()).getLoadCount()
+                - loadsBefore);
+        transactionManager.produceTransaction(session -> {
+            Assert.assertEquals(List.of(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 31),
+                            LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 28), LocalDate.of(2023, 3, 1)),
+                    session.createQuery("select operation.createdAt from Operation operation "
+                            + "order by operation.createdAt", LocalDate.class).getResultList());
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            Assert.assertEquals(Money.ofRubles(2800), user.getBalance());
+            Assert.assertEquals(List.of(LocalDate.of(2023, 4, 1), LocalDate.of(2023, 3, 31)),
+                    recurringOperationRepository.getRecurringOperations(session, user).stream()
+                            .map(RecurringOperation::getNextDue)
+                            .toList());
+        });
+    }
+
+    /**
+     * Проверяет, что повторный запуск в тот же день не добавляет операции повторно
+     */
+    @Test
+    public void secondRunAddsNothing() {
+        scheduler.addDueOperations();
+
+        Assert.assertEquals(0, scheduler.addDueOperations());
+
+        transactionManager.produceTransaction(session -> {
+            Assert.assertEquals(5L, session.createQuery("select count(*) from Operation").uniqueResult());
+            User user = userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow();
+            Assert.assertEquals(Money.ofRubles(2800), user.getBalance());
+        });
+    }
+
+    /**
+     * Проверяет, что команда пользователя выполняется, пока планировщик держит открытой транзакцию порции
+     * в своем потоке: команда получает другое соединение из пула, а изменения баланса командой
+     * и планировщиком складываются
+     */
+    @Test
+    public void commandRunsWhileBatchIsInProgress() throws Exception {
+        CountDownLatch batchStarted = new CountDownLatch(1);
+        CountDownLatch commandDone = new CountDownLatch(1);
+        RecurringOperationScheduler blockingScheduler = createScheduler(new HibernateRecurringOperationRepository() {
+            @Override
+            public List<RecurringOperation> getDueRecurringOperations(Session session, LocalDate today, int limit) {
+                List<RecurringOperation> rules = super.getDueRecurringOperations(session, today, limit);
+                batchStarted.countDown();
+                try {
+                    commandDone.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rules;
+            }
+        });
+        CompletableFuture<Long> added = CompletableFuture.supplyAsync(blockingScheduler::addDueOperations);
+        Assert.assertTrue(batchStarted.await(10, TimeUnit.SECONDS));
+
+        MockBot bot = new MockBot();
+        FinanceBotHandler botHandler = new FinanceBotHandler(userRepository, new HibernateOperationRepository(),
+                new HibernateCategoryRepository(), new HibernateBudgetRepository());
+        transactionManager.produceTransaction(session -> botHandler.handleCommand(new CommandData(bot,
+                userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow(), "add_expense",
+                List.of("50", "Аренда")), session));
+        commandDone.countDown();
+
+        Assert.assertEquals("Добавлен расход по категории: Аренда", bot.poolMessageQueue().text());
+        Assert.assertEquals(5L, (long) added.get(10, TimeUnit.SECONDS));
+        transactionManager.produceTransaction(session -> Assert.assertEquals(Money.ofRubles(2750),
+                userRepository.getUserByTelegramChatId(session, CHAT_ID).orElseThrow().getBalance()));
+    }
+
+    /**
+     * Создает планировщик, обрабатывающий по одному правилу в транзакции
+     */
+    private RecurringOperationScheduler createScheduler(RecurringOperationRepository repository) {
+        return new RecurringOperationScheduler(transactionManager, repository, new HibernateOperationRepository(),
+                userRepository, new HibernateBudgetRepository(), 1,
+                Clock.fixed(TODAY.atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()));
+    }
+}